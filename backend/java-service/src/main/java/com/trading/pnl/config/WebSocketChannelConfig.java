@@ -1,5 +1,7 @@
 package com.trading.pnl.config;
 
+import com.trading.pnl.websocket.FilteredSubscriptionRegistry;
+import com.trading.pnl.websocket.PayloadEncodingInterceptor;
 import com.trading.pnl.websocket.WebSocketInterceptor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.ChannelRegistration;
@@ -11,9 +13,17 @@ import lombok.RequiredArgsConstructor;
 public class WebSocketChannelConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketInterceptor webSocketInterceptor;
+    private final PayloadEncodingInterceptor payloadEncodingInterceptor;
+    private final FilteredSubscriptionRegistry filteredSubscriptionRegistry;
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(webSocketInterceptor);
+        registration.interceptors(webSocketInterceptor, payloadEncodingInterceptor, filteredSubscriptionRegistry);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // 已协商二进制编码的连接，广播消息改为列式二进制帧
+        registration.interceptors(payloadEncodingInterceptor);
     }
 }
\ No newline at end of file
@@ -1,11 +1,13 @@
 package com.trading.pnl.config;
 
+import com.trading.pnl.websocket.OutboundConflationManager;
 import com.trading.pnl.websocket.WebSocketSessionManager;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import lombok.RequiredArgsConstructor;
 
 @Configuration
@@ -14,6 +16,7 @@ import lombok.RequiredArgsConstructor;
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketSessionManager sessionManager;
+    private final OutboundConflationManager conflationManager;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
@@ -28,4 +31,10 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .withSockJS() // 保留 SockJS 支持
                 .setWebSocketEnabled(true); // 启用原生 WebSocket
     }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // 每个连接独立的出站队列，慢客户端的快照型消息只保留最新一条
+        registration.addDecoratorFactory(conflationManager::decorate);
+    }
 }
\ No newline at end of file
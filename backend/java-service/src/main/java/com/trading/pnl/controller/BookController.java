@@ -0,0 +1,158 @@
+package com.trading.pnl.controller;
+
+import com.trading.pnl.model.MarketSnapshot;
+import com.trading.pnl.service.BookRevaluationService;
+import com.trading.pnl.service.MarketCurveService;
+import com.trading.pnl.service.ScenarioRiskService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 交易簿实时估值接口，估值变化同时推送到 {@value BookRevaluationService#TOPIC}。
+ */
+@RestController
+@RequestMapping("/api/book")
+@CrossOrigin(origins = "*")
+public class BookController {
+    private static final Logger logger = LoggerFactory.getLogger(BookController.class);
+
+    private final BookRevaluationService bookRevaluationService;
+    private final MarketCurveService marketCurveService;
+    private final ScenarioRiskService scenarioRiskService;
+
+    public BookController(BookRevaluationService bookRevaluationService, MarketCurveService marketCurveService,
+            ScenarioRiskService scenarioRiskService) {
+        this.bookRevaluationService = bookRevaluationService;
+        this.marketCurveService = marketCurveService;
+        this.scenarioRiskService = scenarioRiskService;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getBook() {
+        Map<String, Object> response = new HashMap<>(bookRevaluationService.getBook());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 当前快照下一个货币对（如 USDCNH）的远期、隐含利率和波动率期限节点。
+     */
+    @GetMapping("/curves/{pair}")
+    public ResponseEntity<Map<String, Object>> getCurves(@PathVariable String pair) {
+        Map<String, Object> response = new HashMap<>();
+        String normalized = pair.toUpperCase(Locale.ROOT).replaceAll("[^A-Z]", "");
+        if (normalized.length() != 6) {
+            response.put("status", "error");
+            response.put("message", "Not a currency pair: " + pair);
+            return ResponseEntity.badRequest().body(response);
+        }
+        response.putAll(marketCurveService.curves(bookRevaluationService.getSnapshot(), normalized.substring(0, 3),
+                normalized.substring(3)).describe());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 推送实时报价，请求体 {@code {"asOf": "2025-01-10", "quotes": {"FX/RATE/USD/CNH": 7.31}}}，
+     * 键为 ORE 报价名；只重估报价有变化的货币对。
+     */
+    @PostMapping("/market")
+    public ResponseEntity<Map<String, Object>> updateMarket(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        Object quotes = request.get("quotes");
+        if (!(quotes instanceof Map)) {
+            response.put("status", "error");
+            response.put("message", "quotes must be an object of ORE quote name to value");
+            return ResponseEntity.badRequest().body(response);
+        }
+        try {
+            Map<String, Double> values = new HashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) quotes).entrySet()) {
+                Object value = entry.getValue();
+                if (value == null) {
+                    throw new IllegalArgumentException("missing value for " + entry.getKey());
+                }
+                values.put(entry.getKey().toString(), value instanceof Number ? ((Number) value).doubleValue()
+                        : Double.parseDouble(value.toString()));
+            }
+            LocalDate asOf = request.get("asOf") == null ? null : LocalDate.parse(request.get("asOf").toString());
+            MarketSnapshot snapshot = bookRevaluationService.updateMarket(values, asOf);
+            response.put("status", "success");
+            response.put("snapshotVersion", snapshot.getVersion());
+            response.put("asOf", snapshot.getAsOf().toString());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            logger.warn("Invalid market update: {}", e.getMessage());
+            response.put("status", "error");
+            response.put("message", "Invalid market update: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @PostMapping("/revalue")
+    public ResponseEntity<Map<String, Object>> revalue() {
+        bookRevaluationService.revalueAll();
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("message", "Full revaluation scheduled");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 即期 × 波动率情景损益阶梯。请求体可给出变动列表 {@code {"spotShifts": [-0.1, 0, 0.1], "volShifts": [0, 0.01]}}，
+     * 或对称区间 {@code {"spotRange": 0.1, "spotSteps": 21, "volRange": 0.05, "volSteps": 11}}（即为默认值）；
+     * 即期为相对变动，波动率为绝对变动。
+     */
+    @PostMapping("/scenarios")
+    public ResponseEntity<Map<String, Object>> scenarios(@RequestBody(required = false) Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        Map<String, Object> body = request == null ? Map.of() : request;
+        try {
+            double[] spotShifts = shifts(body, "spotShifts", "spotRange", 0.10, "spotSteps", 21);
+            double[] volShifts = shifts(body, "volShifts", "volRange", 0.05, "volSteps", 11);
+            response.putAll(scenarioRiskService.evaluate(spotShifts, volShifts));
+            response.put("status", "success");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException | ClassCastException e) {
+            logger.warn("Rejected scenario request: {}", e.getMessage());
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    private static double[] shifts(Map<String, Object> body, String listKey, String rangeKey, double defaultRange,
+            String stepsKey, int defaultSteps) {
+        Object list = body.get(listKey);
+        if (list != null) {
+            if (!(list instanceof List)) {
+                throw new IllegalArgumentException(listKey + " must be an array");
+            }
+            List<?> values = (List<?>) list;
+            double[] shifts = new double[values.size()];
+            for (int i = 0; i < shifts.length; i++) {
+                shifts[i] = ((Number) values.get(i)).doubleValue();
+            }
+            return shifts;
+        }
+        Object range = body.get(rangeKey);
+        Object steps = body.get(stepsKey);
+        return ScenarioRiskService.symmetricShifts(range == null ? defaultRange : ((Number) range).doubleValue(),
+                steps == null ? defaultSteps : ((Number) steps).intValue());
+    }
+}
@@ -1,6 +1,8 @@
 package com.trading.pnl.controller;
 
+import com.trading.pnl.model.ConversionReport;
 import com.trading.pnl.model.OreMarketDataItem;
+import com.trading.pnl.service.BookRevaluationService;
 import com.trading.pnl.service.OreConversionService;
 import com.trading.pnl.service.OreXmlService;
 import com.trading.pnl.util.TickerMappingUtil;
@@ -29,6 +31,9 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.io.FileNotFoundException;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -52,6 +57,9 @@ public class MarketDataController {
     @Autowired
     private OreXmlService oreXmlService;
 
+    @Autowired
+    private BookRevaluationService bookRevaluationService;
+
     @Data
     public static class LoadDataRequest {
         private String basePath;
@@ -199,6 +207,13 @@ public class MarketDataController {
             Map<String, String> tm1Data = tm1Future.get(30, TimeUnit.SECONDS);
             Map<String, String> currentData = currentFuture.get(30, TimeUnit.SECONDS);
 
+            // 最新行情交给交易簿重估，只重估报价有变化的货币对
+            try {
+                bookRevaluationService.updateMarketFromTickers(currentData, parseDate(request.getDate()));
+            } catch (Exception e) {
+                logger.warn("Failed to forward market data to book revaluation: {}", e.getMessage());
+            }
+
             // 使用Stream API并行处理数据合并
             List<MarketDataItem> result = tm1Data.keySet().parallelStream()
                     .map(ticker -> {
@@ -259,16 +274,23 @@ public class MarketDataController {
                 request.getBasePath(), request.getTm1File(), request.getDate(), request.getOutputDir());
 
         try {
+            ConversionReport report = new ConversionReport();
+            long stepStart = System.nanoTime();
+
             // 读取TM1文件数据
             Map<String, String> tm1Data = readExcelData(new File(request.getBasePath(), request.getTm1File()));
+            stepStart = report.recordStep("read", stepStart);
 
             // 转换数据
-            List<OreMarketDataItem> oreData = oreConversionService.convertToOreFormat(tm1Data, request.getDate());
+            List<OreMarketDataItem> oreData = oreConversionService.convertToOreFormat(tm1Data, request.getDate(),
+                    report);
+            stepStart = System.nanoTime();
 
             // 生成ORE格式文件
             String oreFileName = oreConversionService.generateOreFileName(request.getDate());
             File outputFile = new File(request.getOutputDir(), oreFileName);
             oreConversionService.saveToOreFormat(oreData, outputFile);
+            stepStart = report.recordStep("save", stepStart);
 
             // 更新ore.xml文件
             // 获取工作目录（outputDir的父目录）
@@ -278,11 +300,14 @@ public class MarketDataController {
 
             // 更新ore.xml
             oreXmlService.updateOreXml(workingDir, request.getDate(), oreFileName);
+            report.recordStep("updateOreXml", stepStart);
+            oreConversionService.recordMetrics(report);
 
             return ResponseEntity.ok(Map.of(
                     "status", "success",
                     "message", "数据已成功转换为ORE格式",
-                    "file", outputFile.getAbsolutePath()));
+                    "file", outputFile.getAbsolutePath(),
+                    "report", report));
         } catch (Exception e) {
             logger.error("Error converting to ORE format", e);
             return ResponseEntity.ok(Map.of(
@@ -291,6 +316,19 @@ public class MarketDataController {
         }
     }
 
+    @GetMapping("/conversion-report")
+    public ResponseEntity<?> getLastConversionReport() {
+        ConversionReport report = oreConversionService.getLastReport();
+        if (report == null) {
+            return ResponseEntity.ok(Map.of(
+                    "status", "error",
+                    "message", "No conversion has been run yet"));
+        }
+        return ResponseEntity.ok(Map.of(
+                "status", "success",
+                "report", report));
+    }
+
     private ResponseEntity<?> createCompressedResponse(List<MarketDataItem> data) throws Exception {
         Map<String, Object> response = new HashMap<>();
         response.put("status", "success");
@@ -312,6 +350,19 @@ public class MarketDataController {
         return new ResponseEntity<>(byteStream.toByteArray(), headers, HttpStatus.OK);
     }
 
+    private LocalDate parseDate(String date) {
+        if (date == null || date.trim().isEmpty()) {
+            return null;
+        }
+        String value = date.trim();
+        try {
+            return value.contains("-") ? LocalDate.parse(value)
+                    : LocalDate.parse(value, DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
     private boolean isNumeric(String str) {
         if (str == null || str.equals(ERROR_MARK) || str.equals(NA_MARK)) {
             return false;
@@ -1,5 +1,15 @@
 package com.trading.pnl.controller;
 
+import com.trading.pnl.model.OreFileTask;
+import com.trading.pnl.model.OreJob;
+import com.trading.pnl.model.OrePipeline;
+import com.trading.pnl.service.MarketFileCatalogService;
+import com.trading.pnl.service.OreJobService;
+import com.trading.pnl.service.OreOutputArchiver;
+import com.trading.pnl.service.OreOutputStreamer;
+import com.trading.pnl.service.OrePipelineService;
+import com.trading.pnl.service.OreResultCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -8,23 +18,43 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.IOException;
 import java.io.File;
-import java.util.Arrays;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/ore")
 public class OreController {
     private static final Logger logger = LoggerFactory.getLogger(OreController.class);
-    private static final String DEFAULT_WORKING_DIR = "E:\\ORE\\Engine\\Examples\\Example_15_Theta_Test";
+
+    private final OreJobService oreJobService;
+    private final OrePipelineService orePipelineService;
+    private final OreResultCache oreResultCache;
+    private final OreOutputArchiver oreOutputArchiver;
+    private final MarketFileCatalogService marketFileCatalogService;
+    private final String defaultWorkingDir;
+
+    public OreController(OreJobService oreJobService, OrePipelineService orePipelineService,
+            OreResultCache oreResultCache, OreOutputArchiver oreOutputArchiver,
+            MarketFileCatalogService marketFileCatalogService,
+            @Value("${ore.working-dir:}") String defaultWorkingDir) {
+        this.oreJobService = oreJobService;
+        this.orePipelineService = orePipelineService;
+        this.oreResultCache = oreResultCache;
+        this.oreOutputArchiver = oreOutputArchiver;
+        this.marketFileCatalogService = marketFileCatalogService;
+        this.defaultWorkingDir = defaultWorkingDir;
+    }
 
     @GetMapping("/test")
     public String test() {
@@ -34,190 +64,252 @@ public class OreController {
 
     @GetMapping("/market-files")
     public Map<String, Object> getMarketFiles(@RequestParam String path, @RequestParam(required = false) String date) {
-        logger.info("Getting market files from path: {} for date: {}", path, date);
         Map<String, Object> response = new HashMap<>();
         try {
-            File directory = new File(path);
-            if (!directory.exists() || !directory.isDirectory()) {
-                logger.error("Directory does not exist or is not a directory: {}", path);
-                response.put("status", "error");
-                response.put("message", "Directory does not exist or is not a directory");
-                return response;
-            }
+            List<String> fileNames = marketFileCatalogService.listFiles(Paths.get(path), date);
+            logger.info("Found {} market file(s) in {} for date: {}", fileNames.size(), path, date);
+            response.put("status", "success");
+            response.put("files", fileNames);
+        } catch (IllegalArgumentException e) {
+            logger.error("Directory does not exist or is not a directory: {}", path);
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error getting market files: {}", e.getMessage(), e);
+            response.put("status", "error");
+            response.put("message", "Error getting market files: " + e.getMessage());
+        }
+        return response;
+    }
 
-            logger.info("Checking for IRFX Market_Live.xls in directory: {}", path);
-            File liveFile = new File(directory, "IRFX Market_Live.xls");
-            logger.info("IRFX Market_Live.xls exists: {}", liveFile.exists());
-
-            // 获取所有.xls文件
-            File[] files = directory.listFiles((dir, name) -> {
-                logger.info("Checking file: {}", name);
-                // 首先检查是否是Live文件
-                if (name.equals("IRFX Market_Live.xls")) {
-                    logger.info("Found IRFX Market_Live.xls");
-                    return true;
-                }
+    /**
+     * 兼容原有同步接口：提交任务后异步等待结果，不占用请求线程。
+     */
+    @PostMapping("/run")
+    public CompletableFuture<String> runOre(@RequestBody Map<String, Object> request) {
+        logger.info("Run ORE endpoint called with request: {}", request);
+        try {
+            OreJob job = oreJobService.submit(resolveWorkingDir(request.get("workingDir")), useCache(request));
+            return job.getCompletion().thenApply(this::formatResult);
+        } catch (IllegalArgumentException e) {
+            logger.error(e.getMessage());
+            return CompletableFuture.completedFuture("Error: " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error running ORE: {}", e.getMessage(), e);
+            return CompletableFuture.completedFuture("Error running ORE: " + e.getMessage());
+        }
+    }
 
-                // 检查文件扩展名和基本名称
-                if (!name.toLowerCase().endsWith(".xls") ||
-                        (!name.contains("IRFX Market") && !name.contains("IRFX_Market"))) {
-                    logger.info("File {} does not match criteria", name);
-                    return false;
-                }
+    @PostMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> submitJob(@RequestBody Map<String, Object> request) {
+        logger.info("Submit ORE job endpoint called with request: {}", request);
+        Map<String, Object> response = new HashMap<>();
+        try {
+            OreJob job = oreJobService.submit(resolveWorkingDir(request.get("workingDir")), useCache(request));
+            response.put("status", "success");
+            response.put("jobId", job.getId());
+            response.put("topic", OreOutputStreamer.TOPIC_PREFIX + job.getId());
+            response.put("job", jobSummary(job));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (RejectedExecutionException e) {
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+    }
 
-                // 如果指定了日期，检查文件是否包含该日期
-                if (date != null && !date.isEmpty()) {
-                    boolean containsDate = name.contains(date);
-                    logger.info("File {} date check: {}", name, containsDate);
-                    return containsDate;
-                }
+    @GetMapping("/jobs")
+    public Map<String, Object> listJobs() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("maxParallel", oreJobService.getMaxParallel());
+        response.put("running", oreJobService.getRunningCount());
+        response.put("queued", oreJobService.getQueuedCount());
+        response.put("jobs", oreJobService.getJobs().stream().map(this::jobSummary).collect(Collectors.toList()));
+        return response;
+    }
 
-                logger.info("File {} passed all checks", name);
-                return true;
-            });
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getJobStatus(@PathVariable String jobId) {
+        OreJob job = oreJobService.getJob(jobId);
+        if (job == null) {
+            return jobNotFound(jobId);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("job", jobSummary(job));
+        return ResponseEntity.ok(response);
+    }
 
-            if (files == null) {
-                logger.error("Failed to list files in directory: {}", path);
-                response.put("status", "error");
-                response.put("message", "Failed to list files");
-                return response;
-            }
+    @GetMapping("/jobs/{jobId}/result")
+    public ResponseEntity<Map<String, Object>> getJobResult(@PathVariable String jobId) {
+        OreJob job = oreJobService.getJob(jobId);
+        if (job == null) {
+            return jobNotFound(jobId);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("job", jobSummary(job));
+        if (!job.getStatus().isFinished()) {
+            response.put("status", "pending");
+            response.put("message", "Job is " + job.getStatus());
+            response.put("output", oreJobService.getOutput(job));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        }
+        response.put("status", "success");
+        response.put("exitCode", job.getExitCode());
+        response.put("output", job.getOutput());
+        return ResponseEntity.ok(response);
+    }
 
-            logger.info("Found {} files before filtering", files.length);
-
-            // 将文件列表转换为文件名列表并进行排序
-            List<String> fileNames = Arrays.stream(files)
-                    .map(File::getName)
-                    .sorted((a, b) -> {
-                        // 确保Live文件始终在最前面
-                        if (a.equals("IRFX Market_Live.xls"))
-                            return -1;
-                        if (b.equals("IRFX Market_Live.xls"))
-                            return 1;
-
-                        // 提取时间戳进行比较
-                        String timeA = extractTime(a);
-                        String timeB = extractTime(b);
-
-                        // 如果两个文件都有时间戳，按时间戳倒序排列
-                        if (timeA != null && timeB != null) {
-                            return timeB.compareTo(timeA);
-                        }
-
-                        // 如果只有一个文件有时间戳，有时间戳的排在后面
-                        if (timeA != null)
-                            return 1;
-                        if (timeB != null)
-                            return -1;
-
-                        // 如果都没有时间戳，按文件名排序
-                        return a.compareTo(b);
-                    })
-                    .collect(Collectors.toList());
-
-            logger.info("Files after sorting: {}", fileNames);
-
-            // 确保Live文件在列表中
-            if (!fileNames.contains("IRFX Market_Live.xls")) {
-                if (liveFile.exists()) {
-                    logger.info("Adding IRFX Market_Live.xls to the list");
-                    fileNames.add(0, "IRFX Market_Live.xls");
-                } else {
-                    logger.warn("IRFX Market_Live.xls does not exist in directory");
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> cancelJob(@PathVariable String jobId) {
+        if (oreJobService.getJob(jobId) == null) {
+            return jobNotFound(jobId);
+        }
+        Map<String, Object> response = new HashMap<>();
+        boolean cancelled = oreJobService.cancel(jobId);
+        response.put("status", cancelled ? "success" : "error");
+        response.put("message", cancelled ? "Cancellation requested" : "Job has already finished");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 服务端批处理流水线，请求体形如
+     * {@code {"legs": [{"name": "EOD", "workingDir": "...", "targetDir": "..."}, ...]}}，
+     * 各 leg 并行执行清理、运行和保存。
+     */
+    @PostMapping("/pipeline")
+    public ResponseEntity<Map<String, Object>> submitPipeline(@RequestBody Map<String, Object> request) {
+        logger.info("Submit ORE pipeline endpoint called with request: {}", request);
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<OrePipeline.Leg> legs = new ArrayList<>();
+            Object legList = request.get("legs");
+            if (legList instanceof List<?>) {
+                for (Object item : (List<?>) legList) {
+                    Map<?, ?> leg = (Map<?, ?>) item;
+                    legs.add(new OrePipeline.Leg((String) leg.get("name"),
+                            resolveWorkingDir(leg.get("workingDir")), (String) leg.get("targetDir")));
                 }
             }
-
-            logger.info("Final file list: {}", fileNames);
+            OrePipeline pipeline = orePipelineService.submit(legs);
             response.put("status", "success");
-            response.put("files", fileNames);
-        } catch (Exception e) {
-            logger.error("Error getting market files: {}", e.getMessage(), e);
+            response.put("pipelineId", pipeline.getId());
+            response.put("pipeline", pipeline);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (IllegalArgumentException | ClassCastException e) {
             response.put("status", "error");
-            response.put("message", "Error getting market files: " + e.getMessage());
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         }
+    }
+
+    @GetMapping("/pipeline")
+    public Map<String, Object> listPipelines() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("pipelines", orePipelineService.getPipelines());
         return response;
     }
 
-    // 从文件名中提取时间戳
-    private String extractTime(String fileName) {
-        // 匹配格式为 _YYYYMMDD_HHMM 的时间戳
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("_(\\d{8}_\\d{4})");
-        java.util.regex.Matcher matcher = pattern.matcher(fileName);
-        if (matcher.find()) {
-            return matcher.group(1);
+    @GetMapping("/pipeline/{pipelineId}")
+    public ResponseEntity<Map<String, Object>> getPipeline(@PathVariable String pipelineId) {
+        OrePipeline pipeline = orePipelineService.getPipeline(pipelineId);
+        Map<String, Object> response = new HashMap<>();
+        if (pipeline == null) {
+            response.put("status", "error");
+            response.put("message", "Pipeline not found: " + pipelineId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
         }
-        return null;
+        response.put("status", "success");
+        response.put("pipeline", pipeline);
+        return ResponseEntity.ok(response);
     }
 
-    @PostMapping("/run")
-    public String runOre(@RequestBody Map<String, Object> request) {
-        logger.info("Run ORE endpoint called with request: {}", request);
-        try {
-            // 从请求中获取工作目录
-            String workingDir = (String) request.get("workingDir");
-            if (workingDir == null || workingDir.trim().isEmpty()) {
-                workingDir = DEFAULT_WORKING_DIR;
-            }
+    @GetMapping("/cache")
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("cache", oreResultCache.getStats());
+        return response;
+    }
 
-            // 检查工作目录
-            File workingDirFile = new File(workingDir);
-            if (!workingDirFile.exists()) {
-                logger.error("Working directory does not exist: {}", workingDir);
-                return "Error: Working directory does not exist: " + workingDir;
-            }
-            logger.info("Working directory exists: {}", workingDirFile.getAbsolutePath());
+    @DeleteMapping("/cache")
+    public Map<String, Object> clearCache() {
+        oreResultCache.clear();
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("message", "ORE result cache cleared");
+        return response;
+    }
 
-            // 检查ore.xml文件
-            File oreXml = new File(workingDirFile, "input\\ore.xml");
-            if (!oreXml.exists()) {
-                logger.error("ore.xml file does not exist at: {}", oreXml.getAbsolutePath());
-                return "Error: ore.xml file does not exist at: " + oreXml.getAbsolutePath();
-            }
-            logger.info("ore.xml file exists at: {}", oreXml.getAbsolutePath());
-
-            // 使用相对路径执行命令
-            String command = "ore input\\ore.xml";
-            logger.info("Executing command: {} in directory: {}", command, workingDir);
-            ProcessBuilder processBuilder = new ProcessBuilder("cmd", "/c", command);
-            processBuilder.directory(workingDirFile);
-            processBuilder.redirectErrorStream(true);
-
-            // 启动进程并获取输出
-            Process process = processBuilder.start();
-            logger.info("Process started");
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            StringBuilder output = new StringBuilder();
-            String line;
-
-            // 实时读取输出
-            while ((line = reader.readLine()) != null) {
-                logger.info("ORE output: {}", line);
-                output.append(line).append("\n");
-            }
+    // 请求中 useCache 为 false 时强制重新运行
+    private boolean useCache(Map<String, Object> request) {
+        Object useCache = request.get("useCache");
+        return useCache == null || Boolean.parseBoolean(useCache.toString());
+    }
 
-            // 等待进程完成
-            int exitCode = process.waitFor();
-            logger.info("Process completed with exit code: {}", exitCode);
-
-            // 返回执行结果
-            if (exitCode == 0) {
-                String result = "Ore execution completed successfully.\nWorking Directory: " + workingDir +
-                        "\nCommand: " + command + "\nOutput:\n" + output.toString();
-                return result;
-            } else {
-                String result = "Ore execution failed with exit code: " + exitCode +
-                        "\nWorking Directory: " + workingDir +
-                        "\nCommand: " + command + "\nOutput:\n" + output.toString();
-                return result;
-            }
-        } catch (Exception e) {
-            logger.error("Error running ORE: {}", e.getMessage(), e);
-            return "Error running ORE: " + e.getMessage();
+    // 请求中未指定时使用 ore.working-dir，两者都为空时拒绝请求
+    private String resolveWorkingDir(Object workingDir) {
+        String dir = (String) workingDir;
+        if (dir == null || dir.trim().isEmpty()) {
+            dir = defaultWorkingDir;
+        }
+        if (dir == null || dir.trim().isEmpty()) {
+            throw new IllegalArgumentException("workingDir is required when ore.working-dir is not configured");
+        }
+        return dir;
+    }
+
+    private String formatResult(OreJob job) {
+        String command = String.join(" ", job.getCommand());
+        String output = job.getOutput() == null ? "" : job.getOutput();
+        if (job.getStatus() == OreJob.Status.SUCCEEDED) {
+            return "Ore execution completed successfully.\nWorking Directory: " + job.getWorkingDir() +
+                    "\nCommand: " + command + "\nOutput:\n" + output;
         }
+        if (job.getExitCode() != null) {
+            return "Ore execution failed with exit code: " + job.getExitCode() +
+                    "\nWorking Directory: " + job.getWorkingDir() +
+                    "\nCommand: " + command + "\nOutput:\n" + output;
+        }
+        return job.getMessage();
+    }
+
+    private Map<String, Object> jobSummary(OreJob job) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("id", job.getId());
+        summary.put("workingDir", job.getWorkingDir());
+        summary.put("status", job.getStatus());
+        summary.put("submittedAt", job.getSubmittedAt());
+        summary.put("startedAt", job.getStartedAt());
+        summary.put("finishedAt", job.getFinishedAt());
+        summary.put("exitCode", job.getExitCode());
+        summary.put("message", job.getMessage());
+        summary.put("outputLines", job.getOutputLines());
+        summary.put("fingerprint", job.getFingerprint());
+        summary.put("cacheHit", job.isCacheHit());
+        summary.put("telemetry", job.getTelemetry());
+        return summary;
     }
 
+    private ResponseEntity<Map<String, Object>> jobNotFound(String jobId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "error");
+        response.put("message", "Job not found: " + jobId);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    /**
+     * 清理工作目录下 output 中的文件。请求中 async 为 true 时立即返回任务 ID，
+     * 进度通过 GET /api/ore/tasks/{taskId} 查询；否则等待完成后返回文本结果。
+     */
     @PostMapping(value = "/clean-directory", produces = "application/json")
-    public ResponseEntity<String> cleanDirectory(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> cleanDirectory(@RequestBody Map<String, String> request) {
         logger.info("Clean directory endpoint called with request: {}", request);
         String directory = request.get("directory");
         if (directory == null || directory.trim().isEmpty()) {
@@ -234,25 +326,14 @@ public class OreController {
 
             // 只清理 output 目录
             File outputDir = new File(dir, "output");
-            if (outputDir.exists() && outputDir.isDirectory()) {
-                logger.info("Cleaning output directory: {}", outputDir.getAbsolutePath());
-                File[] outputFiles = outputDir.listFiles();
-                if (outputFiles != null) {
-                    for (File file : outputFiles) {
-                        if (file.isFile()) {
-                            if (!file.delete()) {
-                                logger.warn("Failed to delete output file: {}", file.getAbsolutePath());
-                            } else {
-                                logger.info("Successfully deleted output file: {}", file.getAbsolutePath());
-                            }
-                        }
-                    }
-                }
-                logger.info("Output directory cleaned successfully: {}", outputDir.getAbsolutePath());
-            } else {
-                logger.info("Output directory does not exist: {}", outputDir.getAbsolutePath());
+            OreFileTask task = oreOutputArchiver.clean(outputDir.toPath());
+            if (Boolean.parseBoolean(request.get("async"))) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(taskAccepted(task));
+            }
+            task.getCompletion().join();
+            if (task.getStatus() != OreFileTask.Status.SUCCEEDED) {
+                logger.warn("Output directory cleaned with failures: {}", task.getMessage());
             }
-
             return ResponseEntity.ok("Output directory cleaned successfully");
         } catch (Exception e) {
             logger.error("Error cleaning output directory: {}", directory, e);
@@ -261,8 +342,12 @@ public class OreController {
         }
     }
 
+    /**
+     * 把 sourceDir/output 保存到 targetDir/output，并写入 SHA-256 清单。
+     * mode 可选 copy（transferTo 复制）或 link（硬链接），async 为 true 时立即返回任务 ID。
+     */
     @PostMapping(value = "/save-output", produces = "application/json")
-    public ResponseEntity<String> saveOutput(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> saveOutput(@RequestBody Map<String, String> request) {
         logger.info("Save output endpoint called with request: {}", request);
         String sourceDir = request.get("sourceDir");
         String targetDir = request.get("targetDir");
@@ -282,43 +367,55 @@ public class OreController {
                 return ResponseEntity.badRequest().body("Source output directory does not exist");
             }
 
-            // 创建目标目录（如果不存在）
-            if (!targetOutputDir.exists()) {
-                if (!targetOutputDir.mkdirs()) {
-                    logger.error("Failed to create target directory: {}", targetOutputDir.getAbsolutePath());
-                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                            .body("Failed to create target directory");
-                }
+            OreFileTask task = oreOutputArchiver.save(sourceOutputDir.toPath(), targetOutputDir.toPath(),
+                    request.get("mode"));
+            if (Boolean.parseBoolean(request.get("async"))) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(taskAccepted(task));
             }
-
-            // 复制所有文件
-            File[] files = sourceOutputDir.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (file.isFile()) {
-                        File targetFile = new File(targetOutputDir, file.getName());
-                        try {
-                            java.nio.file.Files.copy(
-                                    file.toPath(),
-                                    targetFile.toPath(),
-                                    java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                            logger.info("Copied file: {} to {}", file.getName(), targetFile.getAbsolutePath());
-                        } catch (IOException e) {
-                            logger.error("Failed to copy file: {}", file.getName(), e);
-                            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                                    .body("Failed to copy file: " + file.getName());
-                        }
-                    }
-                }
+            task.getCompletion().join();
+            if (task.getStatus() != OreFileTask.Status.SUCCEEDED) {
+                logger.error("Failed to save output files: {}", task.getMessage());
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body("Failed to save output files: " + task.getMessage());
             }
-
-            logger.info("Successfully copied all files from {} to {}",
-                    sourceOutputDir.getAbsolutePath(), targetOutputDir.getAbsolutePath());
             return ResponseEntity.ok("Output files saved successfully");
+        } catch (IllegalArgumentException e) {
+            logger.error(e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             logger.error("Error saving output files: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error saving output files: " + e.getMessage());
         }
     }
+
+    @GetMapping("/tasks")
+    public Map<String, Object> listTasks() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("tasks", oreOutputArchiver.getTasks());
+        return response;
+    }
+
+    @GetMapping("/tasks/{taskId}")
+    public ResponseEntity<Map<String, Object>> getTask(@PathVariable String taskId) {
+        OreFileTask task = oreOutputArchiver.getTask(taskId);
+        Map<String, Object> response = new HashMap<>();
+        if (task == null) {
+            response.put("status", "error");
+            response.put("message", "Task not found: " + taskId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("status", "success");
+        response.put("task", task);
+        return ResponseEntity.ok(response);
+    }
+
+    private Map<String, Object> taskAccepted(OreFileTask task) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("taskId", task.getId());
+        response.put("task", task);
+        return response;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,207 @@
+package com.trading.pnl.controller;
+
+import com.trading.pnl.service.OreResultStore;
+import com.trading.pnl.util.ColumnarTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * ORE 运行结果查询接口。过滤条件：tradeId、nettingSet（走索引）以及任意列的
+ * {@code filter=列名:值}（可重复）。
+ */
+@RestController
+@RequestMapping("/api/ore/results")
+public class OreResultController {
+    private static final Logger logger = LoggerFactory.getLogger(OreResultController.class);
+    private static final int MAX_LIMIT = 10000;
+
+    private final OreResultStore oreResultStore;
+
+    public OreResultController(OreResultStore oreResultStore) {
+        this.oreResultStore = oreResultStore;
+    }
+
+    @GetMapping
+    public Map<String, Object> listRuns() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("runs", oreResultStore.getRuns().stream().map(OreResultStore.Run::summary)
+                .collect(Collectors.toList()));
+        return response;
+    }
+
+    /**
+     * 手动导入一个输出目录，请求体 {@code {"directory": "...", "runId": "可选"}}。
+     * directory 下有 output 子目录时导入该子目录。
+     */
+    @PostMapping("/ingest")
+    public ResponseEntity<Map<String, Object>> ingest(@RequestBody Map<String, String> request) {
+        logger.info("Ingest ORE results endpoint called with request: {}", request);
+        Map<String, Object> response = new HashMap<>();
+        String directory = request.get("directory");
+        if (directory == null || directory.trim().isEmpty()) {
+            response.put("status", "error");
+            response.put("message", "Directory path is required");
+            return ResponseEntity.badRequest().body(response);
+        }
+        try {
+            Path dir = Paths.get(directory);
+            Path outputDir = Files.isDirectory(dir.resolve("output")) ? dir.resolve("output") : dir;
+            String runId = request.getOrDefault("runId", UUID.randomUUID().toString());
+            OreResultStore.Run run = oreResultStore.ingest(runId, outputDir);
+            response.put("status", "success");
+            response.put("run", run.summary());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            logger.error("Error ingesting ORE results from {}: {}", directory, e.getMessage(), e);
+            response.put("status", "error");
+            response.put("message", "Error ingesting ORE results: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    @GetMapping("/{runId}")
+    public ResponseEntity<Map<String, Object>> getRun(@PathVariable String runId) {
+        OreResultStore.Run run = oreResultStore.getRun(runId);
+        if (run == null) {
+            return notFound("Run not found: " + runId);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("run", run.summary());
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/{runId}")
+    public ResponseEntity<Map<String, Object>> deleteRun(@PathVariable String runId) {
+        if (!oreResultStore.remove(runId)) {
+            return notFound("Run not found: " + runId);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("message", "Run removed: " + runId);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{runId}/{report}")
+    public ResponseEntity<Map<String, Object>> queryRows(@PathVariable String runId, @PathVariable String report,
+            @RequestParam(required = false) String tradeId,
+            @RequestParam(required = false) String nettingSet,
+            @RequestParam(required = false) List<String> filter,
+            @RequestParam(required = false) String columns,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "1000") int limit) {
+        ColumnarTable table = findTable(runId, report);
+        if (table == null) {
+            return notFound("Report " + report + " not found for run " + runId);
+        }
+        Map<String, Object> response = new HashMap<>();
+        try {
+            int[] rows = table.select(conditions(table, tradeId, nettingSet, filter));
+            List<String> selected = columns == null || columns.trim().isEmpty() ? table.getColumnNames()
+                    : Arrays.stream(columns.split(",")).map(String::trim).collect(Collectors.toList());
+            int from = Math.max(0, offset);
+            int to = Math.min(rows.length, from + Math.min(Math.max(limit, 0), MAX_LIMIT));
+            List<Map<String, Object>> data = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                data.add(table.row(rows[i], selected));
+            }
+            response.put("status", "success");
+            response.put("total", rows.length);
+            response.put("offset", from);
+            response.put("rows", data);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @GetMapping("/{runId}/{report}/aggregate")
+    public ResponseEntity<Map<String, Object>> aggregate(@PathVariable String runId, @PathVariable String report,
+            @RequestParam String measure,
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) String tradeId,
+            @RequestParam(required = false) String nettingSet,
+            @RequestParam(required = false) List<String> filter) {
+        ColumnarTable table = findTable(runId, report);
+        if (table == null) {
+            return notFound("Report " + report + " not found for run " + runId);
+        }
+        Map<String, Object> response = new HashMap<>();
+        try {
+            int[] rows = table.select(conditions(table, tradeId, nettingSet, filter));
+            response.put("status", "success");
+            response.put("measure", measure);
+            response.put("groupBy", groupBy);
+            response.put("rows", rows.length);
+            response.put("groups", table.aggregate(rows, groupBy, measure));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    private ColumnarTable findTable(String runId, String report) {
+        OreResultStore.Run run = oreResultStore.getRun(runId);
+        return run == null ? null : run.getReport(report);
+    }
+
+    private Map<String, String> conditions(ColumnarTable table, String tradeId, String nettingSet,
+            List<String> filters) {
+        Map<String, String> conditions = new LinkedHashMap<>();
+        if (tradeId != null) {
+            conditions.put("TradeId", tradeId);
+        }
+        if (nettingSet != null) {
+            // npv.csv 中为 NettingSet，部分报表中为 NettingSetId
+            conditions.put(table.hasColumn("NettingSetId") ? "NettingSetId" : "NettingSet", nettingSet);
+        }
+        if (filters != null) {
+            for (String filter : filters) {
+                int colon = filter.indexOf(':');
+                if (colon <= 0) {
+                    throw new IllegalArgumentException("Filter must be column:value, got " + filter);
+                }
+                conditions.put(filter.substring(0, colon), filter.substring(colon + 1));
+            }
+        }
+        return conditions;
+    }
+
+    private ResponseEntity<Map<String, Object>> notFound(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "error");
+        response.put("message", message);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+}
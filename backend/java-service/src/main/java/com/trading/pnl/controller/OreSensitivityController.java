@@ -0,0 +1,115 @@
+package com.trading.pnl.controller;
+
+import com.trading.pnl.model.OreSensitivityRun;
+import com.trading.pnl.service.OreSensitivityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * bump-and-reprice 敏感度接口。
+ */
+@RestController
+@RequestMapping("/api/ore/sensitivities")
+public class OreSensitivityController {
+    private static final Logger logger = LoggerFactory.getLogger(OreSensitivityController.class);
+
+    private final OreSensitivityService oreSensitivityService;
+
+    public OreSensitivityController(OreSensitivityService oreSensitivityService) {
+        this.oreSensitivityService = oreSensitivityService;
+    }
+
+    /**
+     * 请求体 {@code {"workingDir": "...", "quotes": ["FXFWD/RATE/USD/CNH/*"], "shifts": [0.0001, -0.0001],
+     * "shiftType": "absolute"}}，立即返回运行 ID，通过 GET /{id} 查询进度和敏感度矩阵。
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> submit(@RequestBody Map<String, Object> request) {
+        logger.info("Sensitivity endpoint called with request: {}", request);
+        Map<String, Object> response = new HashMap<>();
+        Object workingDir = request.get("workingDir");
+        if (workingDir == null || workingDir.toString().trim().isEmpty()) {
+            response.put("status", "error");
+            response.put("message", "Working directory is required");
+            return ResponseEntity.badRequest().body(response);
+        }
+        try {
+            OreSensitivityRun run = oreSensitivityService.submit(workingDir.toString(),
+                    toStrings(request.get("quotes")), toDecimals(request.get("shifts")),
+                    request.get("shiftType") == null ? null : request.get("shiftType").toString());
+            response.put("status", "success");
+            response.put("runId", run.getId());
+            response.put("scenarios", run.getScenarios().size());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            logger.error("Error submitting sensitivity run: {}", e.getMessage(), e);
+            response.put("status", "error");
+            response.put("message", "Error submitting sensitivity run: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    @GetMapping
+    public Map<String, Object> listRuns() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("runs", oreSensitivityService.getRuns());
+        return response;
+    }
+
+    @GetMapping("/{runId}")
+    public ResponseEntity<Map<String, Object>> getRun(@PathVariable String runId) {
+        Map<String, Object> response = new HashMap<>();
+        OreSensitivityRun run = oreSensitivityService.getRun(runId);
+        if (run == null) {
+            response.put("status", "error");
+            response.put("message", "Sensitivity run not found: " + runId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("status", "success");
+        response.put("run", run);
+        return ResponseEntity.ok(response);
+    }
+
+    private static List<String> toStrings(Object value) {
+        List<String> result = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                result.add(String.valueOf(item));
+            }
+        } else if (value != null) {
+            result.add(value.toString());
+        }
+        return result;
+    }
+
+    private static List<BigDecimal> toDecimals(Object value) {
+        List<BigDecimal> result = new ArrayList<>();
+        try {
+            for (String item : toStrings(value)) {
+                result.add(new BigDecimal(item.trim()));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Shifts must be numbers");
+        }
+        return result;
+    }
+}
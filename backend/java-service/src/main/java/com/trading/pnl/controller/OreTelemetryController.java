@@ -0,0 +1,37 @@
+package com.trading.pnl.controller;
+
+import com.trading.pnl.service.OreProcessMonitor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ORE 运行资源统计。不带参数时返回各工作目录的汇总，带 workingDir 时返回该目录最近的逐次统计。
+ */
+@RestController
+@RequestMapping("/api/ore/telemetry")
+public class OreTelemetryController {
+
+    private final OreProcessMonitor oreProcessMonitor;
+
+    public OreTelemetryController(OreProcessMonitor oreProcessMonitor) {
+        this.oreProcessMonitor = oreProcessMonitor;
+    }
+
+    @GetMapping
+    public Map<String, Object> getTelemetry(@RequestParam(required = false) String workingDir) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        if (workingDir == null || workingDir.trim().isEmpty()) {
+            response.put("directories", oreProcessMonitor.getSummary());
+        } else {
+            response.put("workingDir", workingDir);
+            response.put("runs", oreProcessMonitor.getHistory(workingDir.trim()));
+        }
+        return response;
+    }
+}
@@ -0,0 +1,93 @@
+package com.trading.pnl.controller;
+
+import com.trading.pnl.service.ImpliedVolatilityService;
+import com.trading.pnl.service.MonteCarloPricingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FX 期权定价工具接口。
+ */
+@RestController
+@RequestMapping("/api/pricing")
+@CrossOrigin(origins = "*")
+public class PricingController {
+    private static final Logger logger = LoggerFactory.getLogger(PricingController.class);
+
+    private final ImpliedVolatilityService impliedVolatilityService;
+    private final MonteCarloPricingService monteCarloPricingService;
+
+    public PricingController(ImpliedVolatilityService impliedVolatilityService,
+            MonteCarloPricingService monteCarloPricingService) {
+        this.impliedVolatilityService = impliedVolatilityService;
+        this.monteCarloPricingService = monteCarloPricingService;
+    }
+
+    /**
+     * 请求体 {@code {"quotes": [{"id": "q1", "optionType": "CALL", "price": 0.12, "spot": 7.15, "strike": 7.2,
+     * "domesticRate": 0.02, "foreignRate": 0.05, "daysToMaturity": 90}]}}，结果与报价顺序一致，
+     * 未收敛或无套利区间之外的报价在 status 中标明原因。
+     */
+    @PostMapping("/implied-vols")
+    public ResponseEntity<Map<String, Object>> impliedVolatilities(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        Object quotes = request.get("quotes");
+        if (!(quotes instanceof List)) {
+            response.put("status", "error");
+            response.put("message", "quotes must be an array");
+            return ResponseEntity.badRequest().body(response);
+        }
+        List<Map<String, Object>> parsed = new ArrayList<>();
+        for (Object quote : (List<?>) quotes) {
+            if (!(quote instanceof Map)) {
+                response.put("status", "error");
+                response.put("message", "Each quote must be an object");
+                return ResponseEntity.badRequest().body(response);
+            }
+            Map<String, Object> fields = new HashMap<>();
+            ((Map<?, ?>) quote).forEach((key, value) -> fields.put(String.valueOf(key), value));
+            parsed.add(fields);
+        }
+        try {
+            response.putAll(impliedVolatilityService.solve(parsed));
+            response.put("status", "success");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected implied volatility request: {}", e.getMessage());
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * 路径依赖期权定价，请求体如 {@code {"product": "BARRIER", "optionType": "CALL", "barrierType": "UP_AND_OUT",
+     * "barrier": 7.4, "spot": 7.15, "strike": 7.2, "domesticRate": 0.02, "foreignRate": 0.05, "volatility": 0.08,
+     * "daysToMaturity": 90, "paths": 200000, "seed": 42}}，返回价格和标准误差。
+     */
+    @PostMapping("/monte-carlo")
+    public ResponseEntity<Map<String, Object>> monteCarlo(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.putAll(monteCarloPricingService.price(request));
+            response.put("status", "success");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected Monte Carlo request: {}", e.getMessage());
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.trading.pnl.controller;
+
+import com.trading.pnl.websocket.TopicReplayBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * WebSocket 断线重连后的补发接口。客户端重新订阅后调用，带上最后收到的消息的 sequence 和 epoch，
+ * 返回错过的消息（mode=replay）、当前完整状态（mode=snapshot）或已是最新（mode=current）。
+ * topic 也可以是过滤目的地（如 /topic/book/pnl/pair/USDCNH），此时只返回匹配的行。
+ */
+@RestController
+@RequestMapping("/api/ws")
+@CrossOrigin(origins = "*")
+public class WebSocketResyncController {
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketResyncController.class);
+
+    private final TopicReplayBuffer replayBuffer;
+
+    public WebSocketResyncController(TopicReplayBuffer replayBuffer) {
+        this.replayBuffer = replayBuffer;
+    }
+
+    /**
+     * 例如 {@code GET /api/ws/resync?topic=/topic/book/pnl&since=120&epoch=1736496000000}。
+     */
+    @GetMapping("/resync")
+    public ResponseEntity<Map<String, Object>> resync(@RequestParam String topic,
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Long epoch) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.putAll(replayBuffer.resync(topic, epoch, since));
+            response.put("status", "success");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected resync request for {}: {}", topic, e.getMessage());
+            response.put("status", "error");
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @GetMapping("/replay")
+    public ResponseEntity<Map<String, Object>> getReplayStats() {
+        Map<String, Object> response = new HashMap<>(replayBuffer.getStats());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+}
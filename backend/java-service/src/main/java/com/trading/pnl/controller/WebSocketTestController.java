@@ -20,6 +20,18 @@ public class WebSocketTestController {
     @Autowired
     private com.trading.pnl.websocket.WebSocketSessionManager sessionManager;
 
+    @Autowired
+    private com.trading.pnl.websocket.OutboundConflationManager conflationManager;
+
+    @Autowired
+    private com.trading.pnl.websocket.PayloadEncodingInterceptor payloadEncodingInterceptor;
+
+    @Autowired
+    private com.trading.pnl.websocket.FilteredSubscriptionRegistry filteredSubscriptionRegistry;
+
+    @Autowired
+    private com.trading.pnl.websocket.TopicReplayBuffer replayBuffer;
+
     @GetMapping("/send")
     public String sendTestMessage() {
         Map<String, Object> message = new HashMap<>();
@@ -34,6 +46,10 @@ public class WebSocketTestController {
     public Map<String, Object> getWebSocketStatus() {
         Map<String, Object> status = new HashMap<>();
         status.put("activeSessions", sessionManager.getActiveSessionCount());
+        status.put("outbound", conflationManager.getStats());
+        status.put("encoding", payloadEncodingInterceptor.getStats());
+        status.put("filters", filteredSubscriptionRegistry.getStats());
+        status.put("replay", replayBuffer.getStats());
         status.put("timestamp", LocalDateTime.now());
         return status;
     }
@@ -0,0 +1,59 @@
+package com.trading.pnl.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次行情到 ORE 格式转换的质量报告，在转换过程中同步累计。
+ */
+@Data
+public class ConversionReport {
+    private int totalQuotes;
+    private int mappedCount;
+    private int derivedCount;
+    private int unmappedCount;
+    private int invalidCount;
+    private List<String> unmappedTickers = new ArrayList<>();
+    private List<String> invalidTickers = new ArrayList<>();
+    private List<String> failedDerivedQuotes = new ArrayList<>();
+    private Map<String, Double> stepMillis = new LinkedHashMap<>();
+    private double totalMillis;
+
+    public void addMapped() {
+        mappedCount++;
+    }
+
+    public void addDerived() {
+        derivedCount++;
+    }
+
+    public void addUnmapped(String ticker) {
+        unmappedCount++;
+        unmappedTickers.add(ticker);
+    }
+
+    public void addInvalid(String ticker) {
+        invalidCount++;
+        invalidTickers.add(ticker);
+    }
+
+    public void addFailedDerived(String key) {
+        invalidCount++;
+        failedDerivedQuotes.add(key);
+    }
+
+    /**
+     * 记录一个步骤的耗时，返回当前时间（纳秒）作为下一个步骤的起点。
+     */
+    public long recordStep(String step, long startNanos) {
+        long now = System.nanoTime();
+        double millis = (now - startNanos) / 1_000_000.0;
+        stepMillis.merge(step, millis, Double::sum);
+        totalMillis += millis;
+        return now;
+    }
+}
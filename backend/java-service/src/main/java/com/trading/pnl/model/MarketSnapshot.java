@@ -0,0 +1,38 @@
+package com.trading.pnl.model;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 某一时刻的市场报价快照，键为 ORE 报价名（如 {@code FX/RATE/USD/CNH}），值为数值。
+ * 快照不可变，每次更新生成版本号加一的新快照，读取方无需加锁。
+ */
+@Data
+public class MarketSnapshot {
+    private final long version;
+    private final LocalDate asOf;
+    private final LocalDateTime createdAt;
+    private final Map<String, Double> quotes;
+
+    public MarketSnapshot(long version, LocalDate asOf, Map<String, Double> quotes) {
+        this.version = version;
+        this.asOf = asOf;
+        this.createdAt = LocalDateTime.now();
+        this.quotes = Collections.unmodifiableMap(quotes);
+    }
+
+    public static MarketSnapshot empty(LocalDate asOf) {
+        return new MarketSnapshot(0, asOf, Collections.emptyMap());
+    }
+
+    /**
+     * 报价值，不存在时返回 null。
+     */
+    public Double get(String key) {
+        return quotes.get(key);
+    }
+}
@@ -0,0 +1,44 @@
+package com.trading.pnl.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 输出目录的保存或清理任务，进度字段由工作线程并发更新。
+ */
+@Data
+public class OreFileTask {
+
+    public enum Type {
+        SAVE, CLEAN
+    }
+
+    public enum Status {
+        RUNNING, SUCCEEDED, FAILED
+    }
+
+    private final String id;
+    private final Type type;
+    private final String source;
+    private final String target;
+    private final String mode;
+    private volatile Status status = Status.RUNNING;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+    private volatile int totalFiles;
+    private volatile long totalBytes;
+    private final AtomicInteger completedFiles = new AtomicInteger();
+    private final AtomicInteger failedFiles = new AtomicInteger();
+    private final AtomicLong processedBytes = new AtomicLong();
+    private final AtomicInteger linkedFiles = new AtomicInteger();
+    private volatile String manifest;
+    private volatile String message;
+
+    @JsonIgnore
+    private final CompletableFuture<OreFileTask> completion = new CompletableFuture<>();
+}
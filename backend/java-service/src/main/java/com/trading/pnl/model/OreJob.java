@@ -0,0 +1,67 @@
+package com.trading.pnl.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 一次 ORE 运行任务。状态字段由工作线程更新，查询接口直接读取。
+ */
+@Data
+public class OreJob {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id;
+    private final String workingDir;
+    // 发起运行的原工作目录；流水线、敏感度情景在临时副本中运行时与 workingDir 不同
+    private final String sourceDir;
+    private volatile List<String> command;
+    private volatile Status status = Status.QUEUED;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile Integer exitCode;
+    private volatile String message;
+    // 只保留输出尾部，outputLines 为输出总行数
+    private volatile String output;
+    private volatile long outputLines;
+    // 输入指纹及是否直接从结果缓存恢复
+    private volatile boolean useCache = true;
+    private volatile String fingerprint;
+    private volatile boolean cacheHit;
+    // 为 false 时结果不导入结果库、不写入结果缓存（如敏感度情景等临时运行）
+    private volatile boolean retainResults = true;
+    // 阶段耗时及 ORE 进程的 CPU、内存统计
+    private final OreRunTelemetry telemetry;
+
+    public OreJob(String id, String workingDir) {
+        this(id, workingDir, workingDir);
+    }
+
+    public OreJob(String id, String workingDir, String sourceDir) {
+        this.id = id;
+        this.workingDir = workingDir;
+        this.sourceDir = sourceDir;
+        // 统计记在原工作目录下，临时副本中的运行不会各占一条历史
+        this.telemetry = new OreRunTelemetry(id, sourceDir);
+    }
+
+    @JsonIgnore
+    private final CompletableFuture<OreJob> completion = new CompletableFuture<>();
+
+    @JsonIgnore
+    private volatile Process process;
+
+    @JsonIgnore
+    private volatile boolean cancelRequested;
+}
@@ -0,0 +1,49 @@
+package com.trading.pnl.model;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 一次服务端批处理流水线（如 EOD + SOD），每个 leg 在独立的临时工作副本中并行运行。
+ */
+@Data
+public class OrePipeline {
+
+    public enum Status {
+        RUNNING, SUCCEEDED, FAILED;
+    }
+
+    public enum LegStatus {
+        PENDING, PREPARING, RUNNING, SAVING, SUCCEEDED, FAILED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED;
+        }
+    }
+
+    private final String id;
+    private final List<Leg> legs;
+    private volatile Status status = Status.RUNNING;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+    private volatile String message;
+
+    @Data
+    public static class Leg {
+        private final String name;
+        private final String workingDir;
+        private final String targetDir;
+        private volatile LegStatus status = LegStatus.PENDING;
+        private volatile String scratchDir;
+        private volatile String jobId;
+        private volatile Integer exitCode;
+        private volatile int linkedFiles;
+        private volatile int copiedFiles;
+        private volatile int savedFiles;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String message;
+    }
+}
@@ -0,0 +1,38 @@
+package com.trading.pnl.model;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一次 ORE 运行的资源统计：各阶段耗时，以及 ORE 进程（含子进程）的 CPU 时间和峰值常驻内存。
+ * 运行期间由采样线程持续更新。
+ */
+@Data
+public class OreRunTelemetry {
+    private final String jobId;
+    // 发起运行的原工作目录（流水线、敏感度情景的临时副本不在此记录）
+    private final String workingDir;
+    private volatile String status;
+    private volatile Integer exitCode;
+    private volatile boolean cacheHit;
+    private volatile LocalDateTime startedAt;
+    private volatile Long wallMillis;
+    // 阶段名 → 毫秒，按阶段发生顺序排列；每次写入替换整个 Map，读取方无需加锁
+    private volatile Map<String, Long> phaseMillis = Collections.emptyMap();
+    private volatile Long cpuMillis;
+    private volatile Long peakRssBytes;
+    private volatile int peakProcesses;
+    private volatile int samples;
+    // procfs、process-handle（无内存数据）或 null（未启动进程）
+    private volatile String source;
+
+    public synchronized void addPhase(String phase, long millis) {
+        Map<String, Long> phases = new LinkedHashMap<>(phaseMillis);
+        phases.merge(phase, millis, Long::sum);
+        phaseMillis = Collections.unmodifiableMap(phases);
+    }
+}
@@ -0,0 +1,67 @@
+package com.trading.pnl.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次 bump-and-reprice 敏感度计算：基准情景加上每个（报价, 冲击）情景各运行一次 ORE，
+ * 结束后 deltas 为 交易 → 情景 → NPV 差值 的矩阵。
+ */
+@Data
+public class OreSensitivityRun {
+
+    public enum Status {
+        RUNNING, SUCCEEDED, FAILED
+    }
+
+    public enum ShiftType {
+        ABSOLUTE, RELATIVE
+    }
+
+    public enum ScenarioStatus {
+        PENDING, RUNNING, SUCCEEDED, FAILED
+    }
+
+    private final String id;
+    private final String workingDir;
+    private final String marketDataFile;
+    private final ShiftType shiftType;
+    private final Scenario base;
+    private final List<Scenario> scenarios;
+    private volatile Status status = Status.RUNNING;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+    private volatile String message;
+    private final AtomicInteger completedScenarios = new AtomicInteger();
+    private final AtomicInteger failedScenarios = new AtomicInteger();
+    private volatile List<String> trades;
+    private volatile Map<String, Map<String, Double>> deltas;
+
+    @JsonIgnore
+    private final CompletableFuture<OreSensitivityRun> completion = new CompletableFuture<>();
+
+    @Data
+    public static class Scenario {
+        private final String id;
+        // 基准情景的 quote 与 shift 为 null
+        private final String quote;
+        private final BigDecimal shift;
+        private volatile ScenarioStatus status = ScenarioStatus.PENDING;
+        private volatile String baseValue;
+        private volatile String bumpedValue;
+        private volatile String jobId;
+        private volatile boolean cacheHit;
+        private volatile Double totalDelta;
+        private volatile String message;
+
+        @JsonIgnore
+        private volatile Map<String, Double> npvs;
+    }
+}
@@ -0,0 +1,48 @@
+package com.trading.pnl.model;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * 交易簿中一笔期权的估值结果。金额以货币对的报价货币计，npvUsd/pnlUsd 为折算成美元后的值
+ * （货币对不含美元时为 null）。希腊字母为单位希腊字母乘以持仓数量（Notional × OptMult），
+ * 约定与 FXOptionPricer 相同。
+ */
+@Data
+public class TradeValuation {
+    public enum Status {
+        PRICED, SKIPPED, FAILED
+    }
+
+    private String tradeId;
+    private String pair;
+    // 交易簿（交易文件的 Book 列）
+    private String desk;
+    private String optionType;
+    private double quantity;
+    private double strike;
+    private LocalDate expiry;
+    private int daysToMaturity;
+
+    private Double spot;
+    private Double forward;
+    private Double volatility;
+    private Double domesticRate;
+    private Double foreignRate;
+
+    private Double unitPrice;
+    private Double npv;
+    private Double npvUsd;
+    private Double delta;
+    private Double gamma;
+    private Double vega;
+    private Double theta;
+    // 相对当日基准估值（当日首次成功定价）的损益
+    private Double pnl;
+    private Double pnlUsd;
+
+    private Status status;
+    private String message;
+    private long snapshotVersion;
+}
@@ -0,0 +1,706 @@
+package com.trading.pnl.service;
+
+import com.quantlib.FXOption;
+import com.quantlib.FXOptionPricer;
+import com.quantlib.ParallelFXOptionPricer;
+import com.trading.pnl.model.ConversionReport;
+import com.trading.pnl.model.MarketSnapshot;
+import com.trading.pnl.model.OreMarketDataItem;
+import com.trading.pnl.model.TradeValuation;
+import com.trading.pnl.util.FxPairCurves;
+import com.trading.pnl.websocket.FilteredSubscriptionRegistry;
+import com.trading.pnl.websocket.FilteredTopicPublisher;
+import com.trading.pnl.websocket.TopicReplayBuffer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 交易簿实时重估：把 {@link TradeMonitorService} 读到的交易与最新市场快照关联，用 {@link FXOptionPricer}
+ * 批量定价，维护每笔交易和汇总的 NPV、希腊字母与当日损益，结果推送到 {@value #TOPIC}。
+ * <p>
+ * 市场数据来自 ORE 报价名：即期 {@code FX/RATE/B/Q}、远期点 {@code FXFWD/RATE/B/Q/<期限>}、
+ * ATM 波动率 {@code FX_OPTION/RATE_LNVOL/B/Q/<期限>/ATM}、隔夜利率 {@code MM/RATE/<币种>/0D/1D}。
+ * 各货币对的利率和波动率期限结构由 {@link MarketCurveService} 按快照版本构建并缓存，每笔交易取到期日的值。
+ * <p>
+ * 交易簿变化或估值日切换时全量重估；只有报价变化时只重估受影响的货币对。所有重估在单个线程上串行执行，
+ * 重估期间到达的更新合并到下一轮。每轮把所有待重估货币对的期权放进同一批，由 {@link ParallelFXOptionPricer}
+ * 在专用的 fork-join 线程池上分段并行定价，定价前先查 {@link OptionPricingCache}，输入未变的期权不再重新定价。
+ */
+@Service
+public class BookRevaluationService {
+    private static final Logger logger = LoggerFactory.getLogger(BookRevaluationService.class);
+
+    public static final String TOPIC = "/topic/book/pnl";
+    private static final String REPORTING_CCY = "USD";
+    private static final Map<String, Function<TradeValuation, ?>> FILTER_DIMENSIONS = Map.of(
+            FilteredSubscriptionRegistry.PAIR, TradeValuation::getPair,
+            FilteredSubscriptionRegistry.DESK, TradeValuation::getDesk);
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+            DateTimeFormatter.BASIC_ISO_DATE,
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("M/d/yyyy")
+    };
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final FilteredTopicPublisher filteredTopicPublisher;
+    private final TopicReplayBuffer replayBuffer;
+    private final OreConversionService oreConversionService;
+    private final MarketCurveService marketCurveService;
+    private final OptionPricingCache pricingCache;
+    private final MeterRegistry meterRegistry;
+    private final ParallelFXOptionPricer pricer;
+    private final ExecutorService executor;
+    private final ForkJoinPool pricingPool;
+
+    private final Object marketLock = new Object();
+    private volatile MarketSnapshot snapshot = MarketSnapshot.empty(LocalDate.now());
+
+    // 待处理的更新，由任意线程写入，重估线程取走
+    private final AtomicReference<List<Map<String, Object>>> pendingBook = new AtomicReference<>();
+    private final AtomicBoolean fullRevaluation = new AtomicBoolean();
+    private final Set<String> dirtyPairs = ConcurrentHashMap.newKeySet();
+    private final Set<String> dirtyCurrencies = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    // 以下只在重估线程上访问
+    private Map<String, List<BookTrade>> tradesByPair = new LinkedHashMap<>();
+    private final Map<String, Double> baselines = new HashMap<>();
+    private LocalDate baselineDate;
+    private DoubleBuffer inputs;
+    private IntBuffer terms;
+    private DoubleBuffer outputs;
+
+    // 读取方看到的结果，每轮重估替换整个 Map
+    private volatile Map<String, List<TradeValuation>> valuations = Map.of();
+    private volatile LocalDateTime lastRevaluedAt;
+    private volatile double lastElapsedMillis;
+
+    public BookRevaluationService(TradeMonitorService tradeMonitorService,
+            SimpMessagingTemplate messagingTemplate,
+            FilteredTopicPublisher filteredTopicPublisher,
+            TopicReplayBuffer replayBuffer,
+            OreConversionService oreConversionService,
+            MarketCurveService marketCurveService,
+            OptionPricingCache pricingCache,
+            MeterRegistry meterRegistry,
+            @Value("${book.revaluation.parallelism:0}") int parallelism,
+            @Value("${book.revaluation.chunk-size:256}") int chunkSize) {
+        this.messagingTemplate = messagingTemplate;
+        this.filteredTopicPublisher = filteredTopicPublisher;
+        this.replayBuffer = replayBuffer;
+        this.oreConversionService = oreConversionService;
+        this.marketCurveService = marketCurveService;
+        this.pricingCache = pricingCache;
+        this.meterRegistry = meterRegistry;
+        this.pricingPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                pool -> {
+                    ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    t.setName("book-pricing-" + t.getPoolIndex());
+                    t.setDaemon(true);
+                    return t;
+                }, null, false);
+        this.pricer = new ParallelFXOptionPricer(pricingCache.getPricer(), pricingPool, Math.max(1, chunkSize));
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "book-revaluation");
+            t.setDaemon(true);
+            return t;
+        });
+        allocateBuffers(64);
+        tradeMonitorService.addBookListener(this::updateBook);
+        // 推送的是增量，重连时补发错过的消息，落后太多时返回整个交易簿
+        replayBuffer.registerIncremental(TOPIC, this::getBook);
+        replayBuffer.registerFilters(TOPIC, "trades", FILTER_DIMENSIONS);
+    }
+
+    /**
+     * 交易簿中一笔交易解析后的条款，skipReason 非空时不定价。
+     */
+    private static final class BookTrade {
+        String tradeId;
+        String pair;
+        String desk;
+        String base;
+        String quote;
+        int optionType = FXOption.CALL;
+        double quantity;
+        double strike;
+        LocalDate expiry;
+        String skipReason;
+    }
+
+    // ---------------------------------------------------------------- 更新入口
+
+    /**
+     * 交易簿重新读取后调用（TradeMonitorService 的监听者），触发全量重估。
+     */
+    public void updateBook(List<Map<String, Object>> trades) {
+        pendingBook.set(trades == null ? List.of() : new ArrayList<>(trades));
+        schedule();
+    }
+
+    /**
+     * 合并一批 ORE 报价（键为 ORE 报价名），生成新快照并标记受影响的货币对；估值日变化时全量重估。
+     * 报价全部未变时不生成新快照。
+     *
+     * @param asOf 估值日，为 null 时沿用当前快照的估值日
+     */
+    public MarketSnapshot updateMarket(Map<String, Double> quotes, LocalDate asOf) {
+        MarketSnapshot updated;
+        synchronized (marketLock) {
+            MarketSnapshot current = snapshot;
+            LocalDate date = asOf == null ? current.getAsOf() : asOf;
+            boolean dateChanged = !date.equals(current.getAsOf());
+            Map<String, Double> merged = new HashMap<>(current.getQuotes());
+            List<String> changed = new ArrayList<>();
+            for (Entry<String, Double> quote : quotes.entrySet()) {
+                Double value = quote.getValue();
+                if (value == null || value.isNaN() || value.isInfinite()) {
+                    continue;
+                }
+                Double previous = merged.put(quote.getKey(), value);
+                if (!value.equals(previous)) {
+                    changed.add(quote.getKey());
+                }
+            }
+            if (changed.isEmpty() && !dateChanged) {
+                return current;
+            }
+            updated = new MarketSnapshot(current.getVersion() + 1, date, merged);
+            snapshot = updated;
+            if (dateChanged) {
+                fullRevaluation.set(true);
+            }
+            for (String key : changed) {
+                markDirty(key);
+            }
+        }
+        schedule();
+        return updated;
+    }
+
+    /**
+     * 以彭博 ticker 为键的行情（市场数据工作簿的内容），按映射表转换成 ORE 报价后合并。
+     */
+    public MarketSnapshot updateMarketFromTickers(Map<String, String> marketData, LocalDate asOf) {
+        LocalDate date = asOf == null ? snapshot.getAsOf() : asOf;
+        List<OreMarketDataItem> items = oreConversionService.convertToOreFormat(marketData,
+                date.format(DateTimeFormatter.BASIC_ISO_DATE), new ConversionReport());
+        Map<String, Double> quotes = new HashMap<>(items.size());
+        for (OreMarketDataItem item : items) {
+            if (item.getValue() == null) {
+                continue; // 转换时已计入无效报价
+            }
+            try {
+                quotes.put(item.getOreTicker(), Double.parseDouble(item.getValue()));
+            } catch (NumberFormatException e) {
+                // 转换时已计入无效报价
+            }
+        }
+        return updateMarket(quotes, date);
+    }
+
+    /**
+     * 请求一次全量重估。
+     */
+    public void revalueAll() {
+        fullRevaluation.set(true);
+        schedule();
+    }
+
+    /**
+     * 已提交的更新全部处理完毕后完成。
+     */
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(() -> {
+        }, executor);
+    }
+
+    private void markDirty(String key) {
+        String[] parts = key.split("/");
+        if (parts.length >= 4 && ("FX".equals(parts[0]) || "FXFWD".equals(parts[0])
+                || "FX_OPTION".equals(parts[0]))) {
+            dirtyPairs.add(parts[2] + parts[3]);
+            dirtyPairs.add(parts[3] + parts[2]);
+        } else if (parts.length >= 3 && "MM".equals(parts[0])) {
+            dirtyCurrencies.add(parts[2]);
+        }
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        // 先清标志再取更新，重估期间到达的更新会再排一轮
+        scheduled.set(false);
+        try {
+            revalue();
+        } catch (Exception e) {
+            logger.error("Book revaluation failed: ", e);
+        }
+    }
+
+    // ---------------------------------------------------------------- 重估
+
+    private void revalue() {
+        long start = System.nanoTime();
+        boolean full = fullRevaluation.getAndSet(false);
+        List<Map<String, Object>> book = pendingBook.getAndSet(null);
+        if (book != null) {
+            tradesByPair = parseBook(book);
+            Set<String> ids = new HashSet<>();
+            tradesByPair.values().forEach(trades -> trades.forEach(trade -> ids.add(trade.tradeId)));
+            baselines.keySet().retainAll(ids);
+            full = true;
+        }
+
+        Set<String> pairs = new LinkedHashSet<>();
+        for (Iterator<String> it = dirtyPairs.iterator(); it.hasNext();) {
+            String pair = it.next();
+            it.remove();
+            if (tradesByPair.containsKey(pair)) {
+                pairs.add(pair);
+            }
+        }
+        for (Iterator<String> it = dirtyCurrencies.iterator(); it.hasNext();) {
+            String currency = it.next();
+            it.remove();
+            for (String pair : tradesByPair.keySet()) {
+                if (pair.startsWith(currency) || pair.endsWith(currency)) {
+                    pairs.add(pair);
+                }
+            }
+        }
+        if (full) {
+            pairs = new LinkedHashSet<>(tradesByPair.keySet());
+        }
+        if (pairs.isEmpty() && !full) {
+            return;
+        }
+
+        MarketSnapshot market = snapshot;
+        if (!market.getAsOf().equals(baselineDate)) {
+            // 估值日切换，当日损益从新的基准算起
+            baselines.clear();
+            baselineDate = market.getAsOf();
+            pricingCache.setValuationDate(baselineDate);
+        }
+
+        Map<String, List<TradeValuation>> previous = valuations;
+        Set<String> repriced = new LinkedHashSet<>();
+        int capacity = 0;
+        for (Entry<String, List<BookTrade>> entry : tradesByPair.entrySet()) {
+            if (pairs.contains(entry.getKey()) || !previous.containsKey(entry.getKey())) {
+                repriced.add(entry.getKey());
+                capacity += entry.getValue().size();
+            }
+        }
+        ensureCapacity(capacity);
+
+        // 所有待重估货币对的期权放进同一批，一次并行定价
+        Map<String, List<TradeValuation>> updated = new LinkedHashMap<>();
+        List<TradeValuation> changed = new ArrayList<>();
+        List<TradeValuation> batch = new ArrayList<>(capacity);
+        List<BookTrade> batchTrades = new ArrayList<>(capacity);
+        for (Entry<String, List<BookTrade>> entry : tradesByPair.entrySet()) {
+            String pair = entry.getKey();
+            if (repriced.contains(pair)) {
+                List<TradeValuation> priced = preparePair(entry.getValue(), market, batch, batchTrades);
+                updated.put(pair, priced);
+                changed.addAll(priced);
+            } else {
+                updated.put(pair, previous.get(pair));
+            }
+        }
+        priceBatch(batch, batchTrades);
+        valuations = updated;
+        lastRevaluedAt = LocalDateTime.now();
+
+        long elapsed = System.nanoTime() - start;
+        lastElapsedMillis = elapsed / 1_000_000.0;
+        Timer.builder("book.revaluation")
+                .description("Duration of trade book revaluations")
+                .tag("scope", full ? "full" : "incremental")
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        logger.debug("Revalued {} trades in {} pairs ({}) in {} ms", changed.size(), pairs.size(),
+                full ? "full" : "incremental", lastElapsedMillis);
+
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("status", "success");
+        message.put("snapshotVersion", market.getVersion());
+        message.put("asOf", market.getAsOf().toString());
+        message.put("full", full);
+        message.put("pairs", new ArrayList<>(pairs));
+        message.put("trades", changed);
+        message.put("totals", totals(updated));
+        message.put("elapsedMillis", lastElapsedMillis);
+        message.put("timestamp", lastRevaluedAt.toString());
+        replayBuffer.record(TOPIC, message);
+        messagingTemplate.convertAndSend(TOPIC, message);
+        // 过滤订阅只收到本轮变化中匹配的交易，没有匹配时不推送
+        Map<String, Object> envelope = new LinkedHashMap<>(message);
+        envelope.remove("trades");
+        filteredTopicPublisher.publish(TOPIC, envelope, "trades", changed, FILTER_DIMENSIONS, false);
+    }
+
+    /**
+     * 生成一个货币对的估值对象，可定价的期权写入批量缓冲区的下一个位置并加入 batch，价格由 priceBatch 填入。
+     */
+    private List<TradeValuation> preparePair(List<BookTrade> trades, MarketSnapshot market,
+            List<TradeValuation> batch, List<BookTrade> batchTrades) {
+        List<TradeValuation> result = new ArrayList<>(trades.size());
+        FxPairCurves curves = null;
+
+        for (BookTrade trade : trades) {
+            TradeValuation valuation = new TradeValuation();
+            valuation.setTradeId(trade.tradeId);
+            valuation.setPair(trade.pair);
+            valuation.setDesk(trade.desk);
+            valuation.setOptionType(trade.optionType == FXOption.CALL ? "CALL" : "PUT");
+            valuation.setQuantity(trade.quantity);
+            valuation.setStrike(trade.strike);
+            valuation.setExpiry(trade.expiry);
+            valuation.setSnapshotVersion(market.getVersion());
+            result.add(valuation);
+            if (trade.skipReason != null) {
+                valuation.setStatus(TradeValuation.Status.SKIPPED);
+                valuation.setMessage(trade.skipReason);
+                continue;
+            }
+            int days = (int) ChronoUnit.DAYS.between(market.getAsOf(), trade.expiry);
+            valuation.setDaysToMaturity(days);
+            if (days <= 0) {
+                valuation.setStatus(TradeValuation.Status.SKIPPED);
+                valuation.setMessage("Option expired on " + trade.expiry);
+                continue;
+            }
+            if (curves == null) {
+                curves = marketCurveService.curves(market, trade.base, trade.quote);
+            }
+            if (!curves.hasSpot()) {
+                valuation.setStatus(TradeValuation.Status.FAILED);
+                valuation.setMessage("No spot quote for " + trade.pair);
+                continue;
+            }
+            if (!curves.hasVolatility()) {
+                valuation.setStatus(TradeValuation.Status.FAILED);
+                valuation.setMessage("No ATM volatility for " + trade.pair);
+                continue;
+            }
+            // 欧式期权只依赖到期日的零息利率和总方差，取期限结构在到期日的值
+            double spot = curves.spot();
+            double domesticRate = curves.domesticRate(days);
+            double foreignRate = curves.foreignRate(days);
+            double vol = curves.volatility(days);
+            valuation.setSpot(spot);
+            valuation.setForward(curves.forward(days));
+            valuation.setVolatility(vol);
+            valuation.setDomesticRate(domesticRate);
+            valuation.setForeignRate(foreignRate);
+
+            int i = batch.size();
+            inputs.put(i * FXOption.BATCH_INPUT_STRIDE, spot);
+            inputs.put(i * FXOption.BATCH_INPUT_STRIDE + 1, trade.strike);
+            inputs.put(i * FXOption.BATCH_INPUT_STRIDE + 2, domesticRate);
+            inputs.put(i * FXOption.BATCH_INPUT_STRIDE + 3, foreignRate);
+            inputs.put(i * FXOption.BATCH_INPUT_STRIDE + 4, vol);
+            terms.put(i * FXOption.BATCH_TERM_STRIDE, trade.optionType);
+            terms.put(i * FXOption.BATCH_TERM_STRIDE + 1, days);
+            batch.add(valuation);
+            batchTrades.add(trade);
+        }
+        return result;
+    }
+
+    private void priceBatch(List<TradeValuation> batch, List<BookTrade> batchTrades) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        pricer.calculateFXOptionBatch(batch.size(), inputs, terms, outputs);
+        for (int i = 0; i < batch.size(); i++) {
+            TradeValuation valuation = batch.get(i);
+            BookTrade trade = batchTrades.get(i);
+            int out = i * FXOption.BATCH_OUTPUT_STRIDE;
+            double unitPrice = outputs.get(out);
+            if (Double.isNaN(unitPrice)) {
+                valuation.setStatus(TradeValuation.Status.FAILED);
+                valuation.setMessage("Pricing failed");
+                continue;
+            }
+            double quantity = trade.quantity;
+            double npv = unitPrice * quantity;
+            valuation.setUnitPrice(unitPrice);
+            valuation.setNpv(npv);
+            valuation.setDelta(outputs.get(out + 1) * quantity);
+            valuation.setGamma(outputs.get(out + 2) * quantity);
+            valuation.setVega(outputs.get(out + 3) * quantity);
+            valuation.setTheta(outputs.get(out + 4) * quantity);
+            double pnl = npv - baselines.computeIfAbsent(trade.tradeId, id -> npv);
+            valuation.setPnl(pnl);
+            valuation.setNpvUsd(toReporting(npv, trade, valuation.getSpot()));
+            valuation.setPnlUsd(toReporting(pnl, trade, valuation.getSpot()));
+            valuation.setStatus(TradeValuation.Status.PRICED);
+        }
+    }
+
+    /**
+     * 报价货币金额折算成美元，货币对不含美元时返回 null。
+     */
+    private static Double toReporting(double amount, BookTrade trade, double spot) {
+        if (REPORTING_CCY.equals(trade.quote)) {
+            return amount;
+        }
+        if (REPORTING_CCY.equals(trade.base)) {
+            return amount / spot;
+        }
+        return null;
+    }
+
+    // ---------------------------------------------------------------- 交易簿解析
+
+    private static Map<String, List<BookTrade>> parseBook(List<Map<String, Object>> rows) {
+        Map<String, List<BookTrade>> result = new LinkedHashMap<>();
+        Map<String, Integer> seen = new HashMap<>();
+        int row = 0;
+        for (Map<String, Object> columns : rows) {
+            row++;
+            BookTrade trade = new BookTrade();
+            String id = firstText(columns, "Calypso ID", "BBG ID");
+            if (id == null) {
+                id = "row-" + row;
+            }
+            int occurrence = seen.merge(id, 1, Integer::sum);
+            trade.tradeId = occurrence > 1 ? id + "#" + occurrence : id;
+
+            String underlying = firstText(columns, "Undl");
+            String pair = underlying == null ? "" : underlying.toUpperCase(Locale.ROOT).replaceAll("[^A-Z]", "");
+            trade.pair = pair.isEmpty() ? "UNKNOWN" : pair;
+            trade.desk = firstText(columns, "Book");
+            if (pair.length() == 6) {
+                trade.base = pair.substring(0, 3);
+                trade.quote = pair.substring(3);
+            } else {
+                trade.skipReason = "Underlying is not a currency pair: " + underlying;
+            }
+
+            // 样例文件中 Strike 列是文字，执行价在 Cutoff 列
+            Double strike = firstNumber(columns, "Strike", "Cutoff");
+            Double notional = firstNumber(columns, "Notional");
+            Double multiplier = firstNumber(columns, "OptMult");
+            trade.strike = strike == null ? 0.0 : strike;
+            trade.quantity = notional == null ? 0.0 : notional * (multiplier == null ? 1.0 : multiplier);
+            trade.expiry = firstDate(columns, "Expiry Date", "Settl. Date");
+            String type = firstText(columns, "Call/Put", "Put/Call", "Option Type");
+            if (type != null && type.toUpperCase(Locale.ROOT).startsWith("P")) {
+                trade.optionType = FXOption.PUT;
+            }
+
+            if (trade.skipReason == null) {
+                if (!(trade.strike > 0.0)) {
+                    trade.skipReason = "Missing strike";
+                } else if (notional == null) {
+                    trade.skipReason = "Missing notional";
+                } else if (trade.expiry == null) {
+                    trade.skipReason = "Missing expiry date";
+                }
+            }
+            result.computeIfAbsent(trade.pair, k -> new ArrayList<>()).add(trade);
+        }
+        return result;
+    }
+
+    private static String firstText(Map<String, Object> columns, String... names) {
+        for (String name : names) {
+            Object value = columns.get(name);
+            if (value != null && !value.toString().trim().isEmpty()) {
+                return value.toString().trim();
+            }
+        }
+        return null;
+    }
+
+    private static Double firstNumber(Map<String, Object> columns, String... names) {
+        for (String name : names) {
+            Object value = columns.get(name);
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+            if (value != null) {
+                try {
+                    return Double.parseDouble(value.toString().trim());
+                } catch (NumberFormatException e) {
+                    // 尝试下一列
+                }
+            }
+        }
+        return null;
+    }
+
+    private static LocalDate firstDate(Map<String, Object> columns, String... names) {
+        for (String name : names) {
+            String value = firstText(columns, name);
+            if (value == null) {
+                continue;
+            }
+            for (DateTimeFormatter format : DATE_FORMATS) {
+                try {
+                    return LocalDate.parse(value, format);
+                } catch (DateTimeParseException e) {
+                    // 尝试下一种格式
+                }
+            }
+        }
+        return null;
+    }
+
+    private void ensureCapacity(int count) {
+        if ((long) count * FXOption.BATCH_INPUT_STRIDE > inputs.capacity()) {
+            allocateBuffers(Math.max(count, inputs.capacity() / FXOption.BATCH_INPUT_STRIDE * 2));
+        }
+    }
+
+    private void allocateBuffers(int count) {
+        inputs = FXOptionPricer.allocateDoubles(count * FXOption.BATCH_INPUT_STRIDE);
+        terms = FXOptionPricer.allocateInts(count * FXOption.BATCH_TERM_STRIDE);
+        outputs = FXOptionPricer.allocateDoubles(count * FXOption.BATCH_OUTPUT_STRIDE);
+    }
+
+    // ---------------------------------------------------------------- 查询
+
+    /**
+     * 按货币对和全簿汇总。货币对汇总以报价货币计；全簿汇总以美元计，不含美元的货币对计入 unconverted。
+     */
+    private static Map<String, Object> totals(Map<String, List<TradeValuation>> valuations) {
+        List<Map<String, Object>> pairs = new ArrayList<>();
+        double bookNpv = 0.0;
+        double bookPnl = 0.0;
+        int priced = 0;
+        int failed = 0;
+        int skipped = 0;
+        int unconverted = 0;
+        for (Entry<String, List<TradeValuation>> entry : valuations.entrySet()) {
+            double npv = 0.0;
+            double pnl = 0.0;
+            double delta = 0.0;
+            double vega = 0.0;
+            int pairPriced = 0;
+            for (TradeValuation valuation : entry.getValue()) {
+                if (valuation.getStatus() == TradeValuation.Status.FAILED) {
+                    failed++;
+                } else if (valuation.getStatus() == TradeValuation.Status.SKIPPED) {
+                    skipped++;
+                }
+                if (valuation.getStatus() != TradeValuation.Status.PRICED) {
+                    continue;
+                }
+                pairPriced++;
+                npv += valuation.getNpv();
+                pnl += valuation.getPnl();
+                delta += valuation.getDelta();
+                vega += valuation.getVega();
+                if (valuation.getNpvUsd() != null) {
+                    bookNpv += valuation.getNpvUsd();
+                    bookPnl += valuation.getPnlUsd();
+                } else {
+                    unconverted++;
+                }
+            }
+            priced += pairPriced;
+            Map<String, Object> pair = new LinkedHashMap<>();
+            pair.put("pair", entry.getKey());
+            pair.put("trades", entry.getValue().size());
+            pair.put("priced", pairPriced);
+            pair.put("npv", npv);
+            pair.put("pnl", pnl);
+            pair.put("delta", delta);
+            pair.put("vega", vega);
+            pairs.add(pair);
+        }
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("currency", REPORTING_CCY);
+        totals.put("npv", bookNpv);
+        totals.put("pnl", bookPnl);
+        totals.put("priced", priced);
+        totals.put("failed", failed);
+        totals.put("skipped", skipped);
+        totals.put("unconverted", unconverted);
+        totals.put("pairs", pairs);
+        return totals;
+    }
+
+    public MarketSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public List<TradeValuation> getValuations() {
+        List<TradeValuation> result = new ArrayList<>();
+        valuations.values().forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * 当前估值的完整视图：全部交易、汇总、快照版本和最近一次重估耗时。
+     */
+    public Map<String, Object> getBook() {
+        Map<String, List<TradeValuation>> current = valuations;
+        MarketSnapshot market = snapshot;
+        List<TradeValuation> trades = new ArrayList<>();
+        current.values().forEach(trades::addAll);
+        Map<String, Object> book = new LinkedHashMap<>();
+        book.put("snapshotVersion", market.getVersion());
+        book.put("asOf", market.getAsOf().toString());
+        book.put("quotes", market.getQuotes().size());
+        book.put("pricer", pricingCache.getPricerName());
+        book.put("pricingCache", pricingCache.getStats());
+        book.put("parallelism", pricingPool.getParallelism());
+        book.put("lastRevaluedAt", lastRevaluedAt == null ? null : lastRevaluedAt.toString());
+        book.put("elapsedMillis", lastElapsedMillis);
+        book.put("totals", totals(current));
+        book.put("trades", trades);
+        return book;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        pricingPool.shutdownNow();
+    }
+}
@@ -0,0 +1,156 @@
+package com.trading.pnl.service;
+
+import com.quantlib.FXOption;
+import com.quantlib.FXOptionPricer;
+import com.quantlib.GarmanKohlhagenPricer;
+import com.quantlib.ImpliedVolatilitySolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 由经纪商报价批量反推隐含波动率。报价按 {@link FXOption} 的批量布局写入缓冲区，
+ * 由 {@link ImpliedVolatilitySolver} 在公共 fork-join 线程池上并行求解。
+ * 定价用纯 Java 的 Garman-Kohlhagen 公式：求解需要逐个期权反复定价，JNI 调用的开销不划算，两者结果一致。
+ */
+@Service
+public class ImpliedVolatilityService {
+    private static final Logger logger = LoggerFactory.getLogger(ImpliedVolatilityService.class);
+
+    private final MeterRegistry meterRegistry;
+    private final ImpliedVolatilitySolver solver;
+    private final int maxQuotes;
+
+    public ImpliedVolatilityService(MeterRegistry meterRegistry,
+            @Value("${pricing.implied-vol.accuracy:1e-10}") double accuracy,
+            @Value("${pricing.implied-vol.max-iterations:100}") int maxIterations,
+            @Value("${pricing.implied-vol.max-volatility:5.0}") double maxVolatility,
+            @Value("${pricing.implied-vol.max-quotes:100000}") int maxQuotes) {
+        this.meterRegistry = meterRegistry;
+        this.solver = new ImpliedVolatilitySolver(GarmanKohlhagenPricer.INSTANCE, accuracy, maxIterations, 1e-6,
+                maxVolatility, ForkJoinPool.commonPool(), ImpliedVolatilitySolver.DEFAULT_CHUNK_SIZE);
+        this.maxQuotes = maxQuotes;
+    }
+
+    /**
+     * 每个报价包含 optionType（CALL/PUT）、price、spot、strike、domesticRate、foreignRate、daysToMaturity，
+     * 可选 volatility（初始值）和 id（原样返回）。字段缺失或无法解析的报价状态为 INVALID_INPUT，不影响其他报价。
+     *
+     * @return 与报价顺序一致的结果（volatility、status），以及失败个数和耗时
+     */
+    public Map<String, Object> solve(List<Map<String, Object>> quotes) {
+        if (quotes.size() > maxQuotes) {
+            throw new IllegalArgumentException("Too many quotes: " + quotes.size() + " (max " + maxQuotes + ")");
+        }
+        long start = System.nanoTime();
+        int count = quotes.size();
+        DoubleBuffer prices = FXOptionPricer.allocateDoubles(Math.max(1, count));
+        DoubleBuffer inputs = FXOptionPricer.allocateDoubles(Math.max(1, count) * FXOption.BATCH_INPUT_STRIDE);
+        IntBuffer terms = FXOptionPricer.allocateInts(Math.max(1, count) * FXOption.BATCH_TERM_STRIDE);
+        DoubleBuffer volatilities = FXOptionPricer.allocateDoubles(Math.max(1, count));
+        IntBuffer statuses = FXOptionPricer.allocateInts(Math.max(1, count));
+
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> quote = quotes.get(i);
+            Integer optionType = optionType(quote.get("optionType"));
+            Double days = number(quote.get("daysToMaturity"));
+            Double volatility = number(quote.get("volatility"));
+            int in = i * FXOption.BATCH_INPUT_STRIDE;
+            // 缺失的字段写 NaN 或 0，求解器按无效输入处理
+            prices.put(i, orNaN(number(quote.get("price"))));
+            inputs.put(in, orNaN(number(quote.get("spot"))));
+            inputs.put(in + 1, orNaN(number(quote.get("strike"))));
+            inputs.put(in + 2, orNaN(number(quote.get("domesticRate"))));
+            inputs.put(in + 3, orNaN(number(quote.get("foreignRate"))));
+            inputs.put(in + 4, volatility == null ? 0.0 : volatility);
+            terms.put(i * FXOption.BATCH_TERM_STRIDE, optionType == null ? FXOption.CALL : optionType);
+            terms.put(i * FXOption.BATCH_TERM_STRIDE + 1,
+                    optionType == null || days == null ? 0 : (int) Math.round(days));
+        }
+
+        int failed = solver.solveBatch(count, prices, inputs, terms, volatilities, statuses);
+
+        List<Map<String, Object>> results = new ArrayList<>(count);
+        Map<String, Integer> failures = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            Object id = quotes.get(i).get("id");
+            if (id != null) {
+                result.put("id", id);
+            }
+            double volatility = volatilities.get(i);
+            String status = ImpliedVolatilitySolver.statusName(statuses.get(i));
+            result.put("volatility", Double.isNaN(volatility) ? null : volatility);
+            result.put("status", status);
+            if (statuses.get(i) != ImpliedVolatilitySolver.CONVERGED) {
+                failures.merge(status, 1, Integer::sum);
+            }
+            results.add(result);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("pricing.implied.vol")
+                .description("Duration of batch implied volatility solves")
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        logger.info("Solved {} implied volatilities in {} ms, {} failed {}", count, elapsed / 1_000_000.0,
+                failed, failures);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("count", count);
+        response.put("failed", failed);
+        response.put("failures", failures);
+        response.put("elapsedMillis", elapsed / 1_000_000.0);
+        response.put("results", results);
+        return response;
+    }
+
+    private static Integer optionType(Object value) {
+        if (value instanceof Number) {
+            int type = ((Number) value).intValue();
+            return type == FXOption.CALL || type == FXOption.PUT ? type : null;
+        }
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim().toUpperCase(Locale.ROOT);
+        if (text.equals("CALL") || text.equals("C")) {
+            return FXOption.CALL;
+        }
+        if (text.equals("PUT") || text.equals("P")) {
+            return FXOption.PUT;
+        }
+        return null;
+    }
+
+    private static Double number(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static double orNaN(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+}
@@ -0,0 +1,192 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.model.MarketSnapshot;
+import com.trading.pnl.util.FxPairCurves;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 从市场快照构建各货币对的 {@link FxPairCurves}，按快照版本缓存：同一版本内每个货币对只构建一次，
+ * 一轮重估中的所有交易共享同一组曲线；快照换版本后整组缓存作废，在首次使用时按新快照重建。
+ * <p>
+ * 新版本第一次取曲线时把快照报价按货币对分组一次，之后每个货币对只扫描自己的报价。
+ * 请求的快照比缓存的旧时直接构建、不缓存，避免新旧版本来回替换。
+ */
+@Service
+public class MarketCurveService {
+
+    private final double volScale;
+    private final double pointsScale;
+    private final Counter builds;
+    private final Counter hits;
+
+    private final Object lock = new Object();
+    private volatile CurveSet current;
+
+    public MarketCurveService(MeterRegistry meterRegistry,
+            @Value("${market.curves.vol-scale:0.01}") double volScale,
+            @Value("${market.curves.forward-points-scale:0.0001}") double pointsScale) {
+        this.volScale = volScale;
+        this.pointsScale = pointsScale;
+        this.builds = Counter.builder("market.curves.builds")
+                .description("Pair curves built from market snapshots")
+                .register(meterRegistry);
+        this.hits = Counter.builder("market.curves.hits")
+                .description("Pair curves served from the snapshot cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 一个快照版本的曲线缓存。quotesByPair 以 "B/Q" 为键，只含即期、远期点和波动率报价。
+     */
+    private static final class CurveSet {
+        final MarketSnapshot snapshot;
+        final Map<String, Map<String, Double>> quotesByPair;
+        final Map<String, FxPairCurves> curves = new ConcurrentHashMap<>();
+
+        CurveSet(MarketSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.quotesByPair = groupByPair(snapshot);
+        }
+    }
+
+    /**
+     * 快照下 base/quote 的期限结构，同一快照版本重复调用返回同一个对象。
+     */
+    public FxPairCurves curves(MarketSnapshot snapshot, String base, String quote) {
+        CurveSet set = curveSet(snapshot);
+        if (set == null) {
+            builds.increment();
+            return build(snapshot, groupByPair(snapshot), base, quote);
+        }
+        String pair = base + quote;
+        FxPairCurves cached = set.curves.get(pair);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        return set.curves.computeIfAbsent(pair, key -> {
+            builds.increment();
+            return build(set.snapshot, set.quotesByPair, base, quote);
+        });
+    }
+
+    /**
+     * 当前缓存的快照版本，尚未构建过曲线时为 -1。
+     */
+    public long getCachedVersion() {
+        CurveSet set = current;
+        return set == null ? -1 : set.snapshot.getVersion();
+    }
+
+    public int getCachedPairs() {
+        CurveSet set = current;
+        return set == null ? 0 : set.curves.size();
+    }
+
+    private CurveSet curveSet(MarketSnapshot snapshot) {
+        CurveSet set = current;
+        if (set != null && set.snapshot.getVersion() == snapshot.getVersion()
+                && set.snapshot.getAsOf().equals(snapshot.getAsOf())) {
+            return set;
+        }
+        synchronized (lock) {
+            set = current;
+            if (set != null && set.snapshot.getVersion() > snapshot.getVersion()) {
+                return null;
+            }
+            if (set == null || set.snapshot.getVersion() != snapshot.getVersion()
+                    || !set.snapshot.getAsOf().equals(snapshot.getAsOf())) {
+                set = new CurveSet(snapshot);
+                current = set;
+            }
+            return set;
+        }
+    }
+
+    private static Map<String, Map<String, Double>> groupByPair(MarketSnapshot snapshot) {
+        Map<String, Map<String, Double>> result = new HashMap<>();
+        for (Entry<String, Double> entry : snapshot.getQuotes().entrySet()) {
+            String key = entry.getKey();
+            if (key.startsWith("FX/") || key.startsWith("FXFWD/") || key.startsWith("FX_OPTION/")) {
+                String[] parts = key.split("/");
+                if (parts.length >= 4) {
+                    result.computeIfAbsent(parts[2] + "/" + parts[3], k -> new HashMap<>())
+                            .put(key, entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    private FxPairCurves build(MarketSnapshot snapshot, Map<String, Map<String, Double>> quotesByPair,
+            String base, String quote) {
+        LocalDate asOf = snapshot.getAsOf();
+        Map<String, Double> direct = quotesByPair.getOrDefault(base + "/" + quote, Map.of());
+        Map<String, Double> inverse = quotesByPair.getOrDefault(quote + "/" + base, Map.of());
+
+        double spot = Double.NaN;
+        Double directSpot = direct.get("FX/RATE/" + base + "/" + quote);
+        Double inverseSpot = inverse.get("FX/RATE/" + quote + "/" + base);
+        if (directSpot != null && directSpot > 0.0) {
+            spot = directSpot;
+        } else if (inverseSpot != null && inverseSpot > 0.0) {
+            spot = 1.0 / inverseSpot;
+        }
+
+        // JPY 报价的远期点按 0.01 计
+        double scale = "JPY".equals(quote) ? pointsScale * 100 : pointsScale;
+        NavigableMap<Integer, Double> forwards = new TreeMap<>();
+        NavigableMap<Integer, Double> vols = new TreeMap<>();
+        String pointsPrefix = "FXFWD/RATE/" + base + "/" + quote + "/";
+        for (Entry<String, Double> entry : direct.entrySet()) {
+            String key = entry.getKey();
+            if (key.startsWith(pointsPrefix) && spot > 0.0) {
+                // ON/TN/SN 与 1D 会落到同一天，且不是即期起算的远期，跳过
+                String tenor = key.substring(pointsPrefix.length());
+                if (FxPairCurves.isShortDateSwap(tenor)) {
+                    continue;
+                }
+                int days = FxPairCurves.tenorDays(tenor, asOf);
+                if (days > 0) {
+                    forwards.put(days, spot + entry.getValue() * scale);
+                }
+            }
+        }
+        // 波动率与报价方向无关，两个方向的报价都可用
+        collectVols(direct, "FX_OPTION/RATE_LNVOL/" + base + "/" + quote + "/", asOf, vols);
+        collectVols(inverse, "FX_OPTION/RATE_LNVOL/" + quote + "/" + base + "/", asOf, vols);
+
+        return new FxPairCurves(base, quote, snapshot.getVersion(), spot, overnightRate(quote, snapshot),
+                overnightRate(base, snapshot), forwards, vols);
+    }
+
+    private void collectVols(Map<String, Double> quotes, String prefix, LocalDate asOf,
+            NavigableMap<Integer, Double> vols) {
+        for (Entry<String, Double> entry : quotes.entrySet()) {
+            String key = entry.getKey();
+            if (key.startsWith(prefix) && key.endsWith("/ATM") && key.length() > prefix.length() + 3) {
+                int days = FxPairCurves.tenorDays(key.substring(prefix.length(), key.length() - "/ATM".length()),
+                        asOf);
+                if (days > 0 && entry.getValue() > 0.0) {
+                    vols.put(days, entry.getValue() * volScale);
+                }
+            }
+        }
+    }
+
+    private static double overnightRate(String currency, MarketSnapshot snapshot) {
+        Double rate = snapshot.get("MM/RATE/" + currency + "/0D/1D");
+        return rate == null ? 0.0 : rate;
+    }
+}
@@ -0,0 +1,395 @@
+package com.trading.pnl.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 市场数据文件目录索引。每个目录第一次查询时扫描一次，之后由 {@link WatchService}
+ * 增量维护：新建、删除事件只更新对应条目，事件溢出时整体重新扫描。
+ * 对不支持文件监听的文件系统（如部分网络盘），按 {@code ore.market-files.verify-interval-ms}
+ * 检查目录修改时间，发生变化时重新扫描。
+ * <p>
+ * 排序规则与原实现一致：Live 文件在最前，其次是不带时间戳的文件（按文件名），
+ * 最后是带 {@code _YYYYMMDD_HHMM} 时间戳的文件（按时间倒序）。
+ * 文件名中每段连续数字的所有 8 位子串都建有日期桶，8 位日期过滤直接查桶。
+ * <p>
+ * 最多索引 {@code ore.market-files.max-directories} 个目录，超出时淘汰最久未查询的目录并取消其监听。
+ */
+@Service
+public class MarketFileCatalogService {
+    private static final Logger logger = LoggerFactory.getLogger(MarketFileCatalogService.class);
+
+    public static final String LIVE_FILE = "IRFX Market_Live.xls";
+    private static final Pattern TIMESTAMP = Pattern.compile("_(\\d{8}_\\d{4})");
+    private static final Pattern DATE = Pattern.compile("\\d{8}");
+
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+        if (a.live != b.live) {
+            return a.live ? -1 : 1;
+        }
+        if (a.timestamp != null && b.timestamp != null) {
+            int byTime = b.timestamp.compareTo(a.timestamp);
+            return byTime != 0 ? byTime : a.name.compareTo(b.name);
+        }
+        if (a.timestamp != null) {
+            return 1;
+        }
+        if (b.timestamp != null) {
+            return -1;
+        }
+        return a.name.compareTo(b.name);
+    };
+
+    private final long verifyIntervalMs;
+    private final int maxDirectories;
+    // 按访问顺序淘汰最久未查询的目录
+    private final LinkedHashMap<Path, DirectoryCatalog> catalogs = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<WatchKey, DirectoryCatalog> watchKeys = new ConcurrentHashMap<>();
+    private volatile WatchService watchService;
+    private volatile Thread watchThread;
+
+    public MarketFileCatalogService(@Value("${ore.market-files.verify-interval-ms:60000}") long verifyIntervalMs,
+            @Value("${ore.market-files.max-directories:32}") int maxDirectories) {
+        this.verifyIntervalMs = verifyIntervalMs;
+        this.maxDirectories = Math.max(1, maxDirectories);
+    }
+
+    private static final class Entry {
+        private final String name;
+        private final String timestamp;
+        private final boolean live;
+
+        Entry(String name) {
+            this.name = name;
+            this.live = LIVE_FILE.equals(name);
+            Matcher matcher = TIMESTAMP.matcher(name);
+            this.timestamp = matcher.find() ? matcher.group(1) : null;
+        }
+    }
+
+    private final class DirectoryCatalog {
+        private final Path dir;
+        private final TreeSet<Entry> entries = new TreeSet<>(ORDER);
+        private final Map<String, Entry> byName = new HashMap<>();
+        private final Map<String, Set<Entry>> dateBuckets = new HashMap<>();
+        private WatchKey watchKey;
+        private volatile List<String> snapshot;
+        private long lastModified;
+        private long lastVerified;
+
+        DirectoryCatalog(Path dir) {
+            this.dir = dir;
+        }
+
+        synchronized void rescan() throws IOException {
+            entries.clear();
+            byName.clear();
+            dateBuckets.clear();
+            long modified = Files.getLastModifiedTime(dir).toMillis();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path file : stream) {
+                    add(file.getFileName().toString());
+                }
+            }
+            lastModified = modified;
+            lastVerified = System.currentTimeMillis();
+            snapshot = null;
+            logger.info("Indexed {} market file(s) in {}", entries.size(), dir);
+        }
+
+        synchronized void add(String name) {
+            if (!isMarketFile(name) || byName.containsKey(name)) {
+                return;
+            }
+            Entry entry = new Entry(name);
+            entries.add(entry);
+            byName.put(name, entry);
+            for (String date : dateKeys(name)) {
+                dateBuckets.computeIfAbsent(date, k -> new HashSet<>()).add(entry);
+            }
+            snapshot = null;
+        }
+
+        synchronized void remove(String name) {
+            Entry entry = byName.remove(name);
+            if (entry == null) {
+                return;
+            }
+            entries.remove(entry);
+            for (String date : dateKeys(name)) {
+                Set<Entry> bucket = dateBuckets.get(date);
+                if (bucket != null) {
+                    bucket.remove(entry);
+                    if (bucket.isEmpty()) {
+                        dateBuckets.remove(date);
+                    }
+                }
+            }
+            snapshot = null;
+        }
+
+        /**
+         * 监听可能失效时的兜底：超过检查间隔后比较目录修改时间。
+         */
+        void verify() throws IOException {
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                if (now - lastVerified < verifyIntervalMs) {
+                    return;
+                }
+                lastVerified = now;
+                if (Files.getLastModifiedTime(dir).toMillis() == lastModified) {
+                    return;
+                }
+            }
+            logger.info("Market file directory {} changed without watch events, rescanning", dir);
+            rescan();
+        }
+
+        List<String> list(String date) {
+            if (date == null || date.isEmpty()) {
+                List<String> current = snapshot;
+                if (current == null) {
+                    synchronized (this) {
+                        current = new ArrayList<>(entries.size());
+                        for (Entry entry : entries) {
+                            current.add(entry.name);
+                        }
+                        current = Collections.unmodifiableList(current);
+                        snapshot = current;
+                    }
+                }
+                return current;
+            }
+            synchronized (this) {
+                List<String> result = new ArrayList<>();
+                Entry live = byName.get(LIVE_FILE);
+                if (live != null) {
+                    result.add(live.name);
+                }
+                if (DATE.matcher(date).matches()) {
+                    Set<Entry> bucket = dateBuckets.getOrDefault(date, Collections.emptySet());
+                    List<Entry> matched = new ArrayList<>(bucket);
+                    matched.remove(live);
+                    matched.sort(ORDER);
+                    for (Entry entry : matched) {
+                        result.add(entry.name);
+                    }
+                } else {
+                    for (Entry entry : entries) {
+                        if (!entry.live && entry.name.contains(date)) {
+                            result.add(entry.name);
+                        }
+                    }
+                }
+                return result;
+            }
+        }
+    }
+
+    /**
+     * 列出目录中的市场数据文件，date 不为空时只返回文件名包含该日期的文件（Live 文件总是返回）。
+     */
+    public List<String> listFiles(Path dir, String date) throws IOException {
+        Path key = dir.toAbsolutePath().normalize();
+        if (!Files.isDirectory(key)) {
+            DirectoryCatalog stale;
+            synchronized (catalogs) {
+                stale = catalogs.remove(key);
+            }
+            if (stale != null) {
+                release(stale);
+            }
+            throw new IllegalArgumentException("Directory does not exist or is not a directory");
+        }
+        DirectoryCatalog catalog;
+        synchronized (catalogs) {
+            catalog = catalogs.get(key);
+        }
+        if (catalog == null) {
+            catalog = open(key);
+        } else {
+            catalog.verify();
+        }
+        return catalog.list(date);
+    }
+
+    private synchronized DirectoryCatalog open(Path dir) throws IOException {
+        synchronized (catalogs) {
+            DirectoryCatalog existing = catalogs.get(dir);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        DirectoryCatalog catalog = new DirectoryCatalog(dir);
+        try {
+            WatchKey key = dir.register(watchService(), StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            catalog.watchKey = key;
+            watchKeys.put(key, catalog);
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("Cannot watch {}, falling back to periodic verification: {}", dir, e.getMessage());
+        }
+        try {
+            catalog.rescan();
+        } catch (IOException e) {
+            release(catalog);
+            throw e;
+        }
+        List<DirectoryCatalog> evicted = new ArrayList<>();
+        synchronized (catalogs) {
+            catalogs.put(dir, catalog);
+            while (catalogs.size() > maxDirectories) {
+                Path eldest = catalogs.keySet().iterator().next();
+                evicted.add(catalogs.remove(eldest));
+            }
+        }
+        for (DirectoryCatalog stale : evicted) {
+            logger.info("Evicted market file index for {}", stale.dir);
+            release(stale);
+        }
+        return catalog;
+    }
+
+    // 取消目录监听，目录之后再被查询时重新建立索引
+    private void release(DirectoryCatalog catalog) {
+        WatchKey key = catalog.watchKey;
+        if (key != null) {
+            key.cancel();
+            watchKeys.remove(key);
+        }
+    }
+
+    /** 当前索引的目录数。 */
+    int getDirectoryCount() {
+        synchronized (catalogs) {
+            return catalogs.size();
+        }
+    }
+
+    /** 当前有效的目录监听数。 */
+    int getWatchCount() {
+        return watchKeys.size();
+    }
+
+    private WatchService watchService() throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            watchThread = new Thread(this::processEvents, "market-file-watcher");
+            watchThread.setDaemon(true);
+            watchThread.start();
+        }
+        return watchService;
+    }
+
+    private void processEvents() {
+        WatchService service = watchService;
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            DirectoryCatalog catalog = watchKeys.get(key);
+            if (catalog != null) {
+                try {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            catalog.rescan();
+                            break;
+                        }
+                        String name = ((Path) event.context()).getFileName().toString();
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                            catalog.add(name);
+                        } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                            catalog.remove(name);
+                        }
+                        logger.debug("Market file {} {}", event.kind().name(), name);
+                    }
+                } catch (IOException e) {
+                    logger.warn("Failed to update market file index for {}: {}", catalog.dir, e.getMessage());
+                }
+            } else {
+                key.pollEvents();
+            }
+            if (!key.reset()) {
+                // 目录被删除，下次查询时重新建立
+                DirectoryCatalog removed = watchKeys.remove(key);
+                if (removed != null) {
+                    synchronized (catalogs) {
+                        catalogs.remove(removed.dir, removed);
+                    }
+                }
+            }
+        }
+    }
+
+    static boolean isMarketFile(String name) {
+        if (LIVE_FILE.equals(name)) {
+            return true;
+        }
+        return name.toLowerCase(Locale.ROOT).endsWith(".xls")
+                && (name.contains("IRFX Market") || name.contains("IRFX_Market"));
+    }
+
+    // 文件名中每段连续数字（长度 >= 8）的所有 8 位子串，与 String.contains 的匹配结果一致
+    private static Set<String> dateKeys(String name) {
+        Set<String> keys = new HashSet<>();
+        int i = 0;
+        while (i < name.length()) {
+            if (!Character.isDigit(name.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < name.length() && Character.isDigit(name.charAt(i))) {
+                i++;
+            }
+            for (int s = start; s + 8 <= i; s++) {
+                keys.add(name.substring(s, s + 8));
+            }
+        }
+        return keys;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                logger.debug("Error closing market file watcher: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.trading.pnl.service;
+
+import com.quantlib.FXOption;
+import com.quantlib.MonteCarloEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 障碍期权和亚式期权的 Monte Carlo 定价，由 {@link MonteCarloEngine} 在专用的 fork-join 线程池上并行模拟，
+ * 不占用公共线程池。路径数、时间步数及两者之积都有上限，超出时拒绝请求。
+ * 同一请求（含种子）重复定价得到相同结果。
+ */
+@Service
+public class MonteCarloPricingService {
+    private static final Logger logger = LoggerFactory.getLogger(MonteCarloPricingService.class);
+
+    private final MeterRegistry meterRegistry;
+    private final long defaultPaths;
+    private final long maxPaths;
+    private final int maxSteps;
+    private final long maxPathSteps;
+    private final long defaultSeed;
+    private final int chunkSize;
+    private final ForkJoinPool simulationPool;
+
+    public MonteCarloPricingService(MeterRegistry meterRegistry,
+            @Value("${pricing.monte-carlo.paths:100000}") long defaultPaths,
+            @Value("${pricing.monte-carlo.max-paths:5000000}") long maxPaths,
+            @Value("${pricing.monte-carlo.max-steps:3660}") int maxSteps,
+            @Value("${pricing.monte-carlo.max-path-steps:500000000}") long maxPathSteps,
+            @Value("${pricing.monte-carlo.seed:20250101}") long defaultSeed,
+            @Value("${pricing.monte-carlo.chunk-size:4096}") int chunkSize,
+            @Value("${pricing.monte-carlo.parallelism:0}") int parallelism) {
+        this.meterRegistry = meterRegistry;
+        this.defaultPaths = defaultPaths;
+        this.maxPaths = maxPaths;
+        this.maxSteps = maxSteps;
+        this.maxPathSteps = maxPathSteps;
+        this.defaultSeed = defaultSeed;
+        this.chunkSize = chunkSize;
+        this.simulationPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                pool -> {
+                    ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    t.setName("monte-carlo-" + t.getPoolIndex());
+                    t.setDaemon(true);
+                    return t;
+                }, null, false);
+    }
+
+    /**
+     * 请求字段：product（BARRIER 或 ASIAN）、optionType（CALL 或 PUT，不区分大小写）、spot、strike、
+     * domesticRate、foreignRate、volatility、daysToMaturity；障碍期权另需 barrierType（DOWN_AND_OUT 等）、barrier，可选 rebate 和 steps（默认按天监控）；
+     * 亚式期权可选 fixings（默认按天）。可选 paths、seed。steps/fixings 超过 {@code pricing.monte-carlo.max-steps}、
+     * paths × steps 超过 {@code pricing.monte-carlo.max-path-steps} 时抛出 {@link IllegalArgumentException}。
+     */
+    public Map<String, Object> price(Map<String, Object> request) {
+        String product = text(request, "product");
+        int optionType = optionType(text(request, "optionType"));
+        double spot = number(request, "spot");
+        double strike = number(request, "strike");
+        double domesticRate = number(request, "domesticRate");
+        double foreignRate = number(request, "foreignRate");
+        double volatility = number(request, "volatility");
+        int days = (int) number(request, "daysToMaturity");
+        long paths = request.containsKey("paths") ? (long) number(request, "paths") : defaultPaths;
+        long seed = request.containsKey("seed") ? (long) number(request, "seed") : defaultSeed;
+        if (paths > maxPaths) {
+            throw new IllegalArgumentException("Too many paths: " + paths + " (max " + maxPaths + ")");
+        }
+
+        long start = System.nanoTime();
+        MonteCarloEngine engine = new MonteCarloEngine(seed, paths, chunkSize, simulationPool, true, true);
+        MonteCarloEngine.Result result;
+        if ("BARRIER".equals(product)) {
+            int steps = request.containsKey("steps") ? (int) number(request, "steps") : days;
+            checkSteps("steps", steps, paths);
+            double rebate = request.containsKey("rebate") ? number(request, "rebate") : 0.0;
+            result = engine.priceBarrier(optionType, barrierType(text(request, "barrierType")), spot, strike,
+                    number(request, "barrier"), rebate, domesticRate, foreignRate, volatility, days, steps);
+        } else if ("ASIAN".equals(product)) {
+            int fixings = request.containsKey("fixings") ? (int) number(request, "fixings") : days;
+            checkSteps("fixings", fixings, paths);
+            result = engine.priceAsian(optionType, spot, strike, domesticRate, foreignRate, volatility, days,
+                    fixings);
+        } else {
+            throw new IllegalArgumentException("Unsupported product: " + product);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("pricing.monte.carlo")
+                .description("Duration of Monte Carlo option pricings")
+                .tag("product", product)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        logger.info("Priced {} option with {} paths in {} ms: {}", product, result.paths, elapsed / 1_000_000.0,
+                result.price);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("product", product);
+        response.put("price", result.price);
+        response.put("standardError", result.standardError);
+        response.put("paths", result.paths);
+        response.put("seed", seed);
+        response.put("elapsedMillis", elapsed / 1_000_000.0);
+        return response;
+    }
+
+    private void checkSteps(String name, int steps, long paths) {
+        if (steps > maxSteps) {
+            throw new IllegalArgumentException("Too many " + name + ": " + steps + " (max " + maxSteps + ")");
+        }
+        if (steps > 0 && paths > maxPathSteps / steps) {
+            throw new IllegalArgumentException("Too many simulated steps: " + paths + " paths x " + steps + " "
+                    + name + " (max " + maxPathSteps + ")");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        simulationPool.shutdownNow();
+    }
+
+    private static int optionType(String value) {
+        switch (value) {
+            case "CALL":
+                return FXOption.CALL;
+            case "PUT":
+                return FXOption.PUT;
+            default:
+                throw new IllegalArgumentException("Unsupported option type: " + value + " (expected CALL or PUT)");
+        }
+    }
+
+    private static int barrierType(String value) {
+        switch (value) {
+            case "DOWN_AND_OUT":
+                return MonteCarloEngine.DOWN_AND_OUT;
+            case "UP_AND_OUT":
+                return MonteCarloEngine.UP_AND_OUT;
+            case "DOWN_AND_IN":
+                return MonteCarloEngine.DOWN_AND_IN;
+            case "UP_AND_IN":
+                return MonteCarloEngine.UP_AND_IN;
+            default:
+                throw new IllegalArgumentException("Unsupported barrier type: " + value);
+        }
+    }
+
+    private static String text(Map<String, Object> request, String name) {
+        Object value = request.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field: " + name);
+        }
+        return value.toString().trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static double number(Map<String, Object> request, String name) {
+        Object value = request.get(name);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field: " + name);
+        }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.trading.pnl.service;
+
+import com.quantlib.CachingFXOptionPricer;
+import com.quantlib.FXOptionPricer;
+import com.quantlib.GarmanKohlhagenPricer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 期权定价器及其前置的定价缓存。交易簿刷新时大部分期权的条款和市场输入不变，
+ * 命中缓存只需一次哈希查找，不必再经过 JNI 构建 QuantLib 对象。
+ * 市场输入按配置的精度量化后作为键，估值日切换时清空；max-entries 为 0 时不使用缓存。
+ */
+@Service
+public class OptionPricingCache {
+    private static final Logger logger = LoggerFactory.getLogger(OptionPricingCache.class);
+
+    private final FXOptionPricer pricer;
+    private final CachingFXOptionPricer cache;
+
+    public OptionPricingCache(MeterRegistry meterRegistry,
+            @Value("${pricing.cache.max-entries:100000}") int maxEntries,
+            @Value("${pricing.cache.spot-tolerance:1e-10}") double spotTolerance,
+            @Value("${pricing.cache.rate-tolerance:1e-10}") double rateTolerance,
+            @Value("${pricing.cache.vol-tolerance:1e-10}") double volTolerance) {
+        FXOptionPricer created = createPricer();
+        if (maxEntries > 0) {
+            cache = new CachingFXOptionPricer(created, maxEntries, spotTolerance, rateTolerance, volTolerance);
+            pricer = cache;
+            FunctionCounter.builder("pricing.cache.hits", cache, CachingFXOptionPricer::getHitCount)
+                    .description("Option pricing cache hits")
+                    .register(meterRegistry);
+            FunctionCounter.builder("pricing.cache.misses", cache, CachingFXOptionPricer::getMissCount)
+                    .description("Option pricing cache misses")
+                    .register(meterRegistry);
+            FunctionCounter.builder("pricing.cache.evictions", cache, CachingFXOptionPricer::getEvictionCount)
+                    .description("Option pricing cache LRU evictions")
+                    .register(meterRegistry);
+            Gauge.builder("pricing.cache.size", cache, CachingFXOptionPricer::size)
+                    .description("Entries in the option pricing cache")
+                    .register(meterRegistry);
+            Gauge.builder("pricing.cache.hit.rate", cache, CachingFXOptionPricer::getHitRate)
+                    .description("Option pricing cache hit rate since startup")
+                    .register(meterRegistry);
+        } else {
+            cache = null;
+            pricer = created;
+        }
+    }
+
+    private static FXOptionPricer createPricer() {
+        try {
+            FXOptionPricer created = FXOptionPricer.create();
+            logger.info("Option pricing uses {}", created.getClass().getSimpleName());
+            return created;
+        } catch (IllegalStateException e) {
+            logger.warn("Native pricer unavailable ({}), falling back to Garman-Kohlhagen", e.getMessage());
+            return GarmanKohlhagenPricer.INSTANCE;
+        }
+    }
+
+    /**
+     * 带缓存的定价器（缓存关闭时为底层定价器），线程安全。
+     */
+    public FXOptionPricer getPricer() {
+        return pricer;
+    }
+
+    /**
+     * 底层定价器的类名，用于展示。
+     */
+    public String getPricerName() {
+        return (cache != null ? cache.getDelegate() : pricer).getClass().getSimpleName();
+    }
+
+    /**
+     * 估值日切换时清空缓存。
+     */
+    public void setValuationDate(LocalDate date) {
+        if (cache != null && cache.setValuationDate(date)) {
+            logger.info("Pricing cache cleared for valuation date {}", date);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", cache != null);
+        if (cache != null) {
+            stats.put("size", cache.size());
+            stats.put("hits", cache.getHitCount());
+            stats.put("misses", cache.getMissCount());
+            stats.put("evictions", cache.getEvictionCount());
+            stats.put("hitRate", cache.getHitRate());
+            stats.put("valuationDate", cache.getValuationDate() == null ? null : cache.getValuationDate().toString());
+        }
+        return stats;
+    }
+}
@@ -1,37 +1,69 @@
 package com.trading.pnl.service;
 
+import com.trading.pnl.model.ConversionReport;
 import com.trading.pnl.model.OreMarketDataItem;
+import com.trading.pnl.util.DerivedQuoteGraph;
 import com.trading.pnl.util.TickerMappingUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class OreConversionService {
     private static final Logger logger = LoggerFactory.getLogger(OreConversionService.class);
-    private static final String TARGET_TICKER = "USSO10 Curncy";
 
-    public List<OreMarketDataItem> convertToOreFormat(Map<String, String> marketData, String date) {
-        List<OreMarketDataItem> oreData = new ArrayList<>();
+    private final MeterRegistry meterRegistry;
+    private final Counter mappedCounter;
+    private final Counter derivedCounter;
+    private final Counter unmappedCounter;
+    private final Counter invalidCounter;
+    private volatile ConversionReport lastReport;
+
+    public OreConversionService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.mappedCounter = quoteCounter("mapped");
+        this.derivedCounter = quoteCounter("derived");
+        this.unmappedCounter = quoteCounter("unmapped");
+        this.invalidCounter = quoteCounter("invalid");
+    }
 
-        logger.info("Starting conversion of {} market data items", marketData.size());
+    private Counter quoteCounter(String result) {
+        return Counter.builder("ore.conversion.quotes")
+                .description("Market quotes processed by the ORE conversion")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
 
-        // 检查目标ticker是否存在
-        if (marketData.containsKey(TARGET_TICKER)) {
-            logger.info("Found target ticker '{}' in input data with value: {}",
-                    TARGET_TICKER, marketData.get(TARGET_TICKER));
-        } else {
-            logger.info("Target ticker '{}' not found in input data", TARGET_TICKER);
-            logger.info("Available tickers: {}", marketData.keySet());
-        }
+    public List<OreMarketDataItem> convertToOreFormat(Map<String, String> marketData, String date) {
+        ConversionReport report = new ConversionReport();
+        List<OreMarketDataItem> oreData = convertToOreFormat(marketData, date, report);
+        recordMetrics(report);
+        return oreData;
+    }
+
+    /**
+     * 转换行情数据，同时把映射/未映射/无效报价的统计和各步骤耗时累计到 report 中。
+     * 转换过程中不逐条打印日志，结束时只输出一行汇总。
+     */
+    public List<OreMarketDataItem> convertToOreFormat(Map<String, String> marketData, String date,
+            ConversionReport report) {
+        List<OreMarketDataItem> oreData = new ArrayList<>(marketData.size());
+        report.setTotalQuotes(report.getTotalQuotes() + marketData.size());
+        long stepStart = System.nanoTime();
 
         for (Map.Entry<String, String> entry : marketData.entrySet()) {
             String bbgTicker = entry.getKey();
@@ -40,7 +72,11 @@ public class OreConversionService {
             // 获取ORE Ticker和系数，如果映射不存在则返回null
             Map<String, Object> mapping = TickerMappingUtil.getOreTickerAndCoefficient(bbgTicker);
             if (mapping == null) {
-                continue; // 跳过没有映射关系的ticker
+                report.addUnmapped(bbgTicker); // 跳过没有映射关系的ticker
+                continue;
+            }
+            if (DerivedQuoteGraph.isDerived(mapping)) {
+                continue; // 派生报价统一在下面计算
             }
 
             String oreTicker = (String) mapping.get("target");
@@ -53,18 +89,22 @@ public class OreConversionService {
             } else if (coefficientObj instanceof Double) {
                 coefficient = (Double) coefficientObj;
             } else {
-                logger.warn("Invalid coefficient type for ticker {}: {}", bbgTicker, coefficientObj);
+                report.addInvalid(bbgTicker);
                 continue;
             }
 
             // 应用系数转换
-            String convertedValue;
-            try {
-                double numericValue = Double.parseDouble(value);
-                convertedValue = String.format("%.4f", numericValue * coefficient);
-            } catch (NumberFormatException e) {
-                logger.warn("Invalid numeric value for ticker {}: {}", bbgTicker, value);
-                convertedValue = value; // 保持原值不变
+            String convertedValue = value; // 无法解析时保持原值不变
+            if (value == null) {
+                report.addInvalid(bbgTicker);
+            } else {
+                try {
+                    double numericValue = Double.parseDouble(value);
+                    convertedValue = String.format("%.4f", numericValue * coefficient);
+                    report.addMapped();
+                } catch (NumberFormatException e) {
+                    report.addInvalid(bbgTicker);
+                }
             }
 
             OreMarketDataItem item = new OreMarketDataItem();
@@ -74,13 +114,64 @@ public class OreConversionService {
             item.setDate(date);
             oreData.add(item);
         }
+        stepStart = report.recordStep("map", stepStart);
+
+        // 计算派生报价（价差、倒数、期限插值等），按依赖顺序一次求值
+        DerivedQuoteGraph graph = TickerMappingUtil.getDerivedQuoteGraph();
+        if (!graph.isEmpty()) {
+            DerivedQuoteGraph.Result derived = graph.evaluate(marketData);
+            for (int i = 0; i < derived.size(); i++) {
+                DerivedQuoteGraph.DerivedQuote quote = derived.quote(i);
+                double value = derived.value(i);
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    report.addFailedDerived(quote.getKey());
+                    continue;
+                }
+                OreMarketDataItem item = new OreMarketDataItem();
+                item.setBbgTicker(quote.getKey());
+                item.setOreTicker(quote.getTarget());
+                item.setValue(String.format("%.4f", value));
+                item.setDate(date);
+                oreData.add(item);
+                report.addDerived();
+            }
+            report.recordStep("derive", stepStart);
+        }
 
-        logger.info("Conversion completed. {} items converted out of {} total items",
-                oreData.size(), marketData.size());
+        logger.info("Conversion completed. {} items converted out of {} total items "
+                + "(mapped={}, derived={}, unmapped={}, invalid={})",
+                oreData.size(), marketData.size(), report.getMappedCount(), report.getDerivedCount(),
+                report.getUnmappedCount(), report.getInvalidCount());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Unmapped tickers: {}", report.getUnmappedTickers());
+            logger.debug("Invalid tickers: {}", report.getInvalidTickers());
+        }
 
         return oreData;
     }
 
+    /**
+     * 把一次转换报告累计到监控指标中（计数器和各步骤耗时），并保存为最近一次报告。
+     */
+    public void recordMetrics(ConversionReport report) {
+        mappedCounter.increment(report.getMappedCount());
+        derivedCounter.increment(report.getDerivedCount());
+        unmappedCounter.increment(report.getUnmappedCount());
+        invalidCounter.increment(report.getInvalidCount());
+        for (Map.Entry<String, Double> step : report.getStepMillis().entrySet()) {
+            Timer.builder("ore.conversion.step")
+                    .description("Duration of ORE conversion steps")
+                    .tag("step", step.getKey())
+                    .register(meterRegistry)
+                    .record(Math.round(step.getValue() * 1_000_000), TimeUnit.NANOSECONDS);
+        }
+        lastReport = report;
+    }
+
+    public ConversionReport getLastReport() {
+        return lastReport;
+    }
+
     public void saveToOreFormat(List<OreMarketDataItem> data, File outputFile) throws IOException {
         // 确保输出目录存在
         File outputDir = outputFile.getParentFile();
@@ -102,6 +193,33 @@ public class OreConversionService {
                 data.size(), outputFile.getAbsolutePath());
     }
 
+    /**
+     * 读取 ORE 格式的市场数据文件（saveToOreFormat 的逆操作），跳过空行和 # 注释行。
+     */
+    public List<OreMarketDataItem> readOreFormat(File inputFile) throws IOException {
+        List<OreMarketDataItem> items = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = trimmed.split("\\s+");
+                if (parts.length < 3) {
+                    logger.warn("Skipping malformed ORE market data line: {}", line);
+                    continue;
+                }
+                OreMarketDataItem item = new OreMarketDataItem();
+                item.setDate(parts[0]);
+                item.setOreTicker(parts[1]);
+                item.setValue(parts[2]);
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
     public String generateOreFileName(String date) {
         return String.format("ORE_Market_%s.txt", date.replace("-", ""));
     }
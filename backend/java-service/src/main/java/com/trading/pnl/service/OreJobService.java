@@ -0,0 +1,365 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.model.OreJob;
+import com.trading.pnl.model.OreRunTelemetry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * ORE 运行任务调度。提交后立即返回任务 ID，任务在有界线程池中排队执行，
+ * 同时运行的 ORE 进程数不超过 {@code ore.jobs.max-parallel}（0 表示按 CPU 核数）。
+ * 已完成的任务保留最近 {@code ore.jobs.history-size} 个供查询。
+ */
+@Service
+public class OreJobService {
+    private static final Logger logger = LoggerFactory.getLogger(OreJobService.class);
+
+    private final OreProcessLauncher launcher;
+    private final OreOutputStreamer outputStreamer;
+    private final OreResultCache resultCache;
+    private final OreProcessMonitor processMonitor;
+    private final ThreadPoolExecutor executor;
+    private final int maxParallel;
+    private final int historySize;
+    private final Map<String, OreJob> jobs = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> finishedOrder = new ConcurrentLinkedQueue<>();
+    private final List<Consumer<OreJob>> finishListeners = new CopyOnWriteArrayList<>();
+
+    public OreJobService(OreProcessLauncher launcher, OreOutputStreamer outputStreamer, OreResultCache resultCache,
+            OreProcessMonitor processMonitor,
+            @Value("${ore.jobs.max-parallel:0}") int maxParallel,
+            @Value("${ore.jobs.queue-capacity:100}") int queueCapacity,
+            @Value("${ore.jobs.history-size:200}") int historySize) {
+        this.launcher = launcher;
+        this.outputStreamer = outputStreamer;
+        this.resultCache = resultCache;
+        this.processMonitor = processMonitor;
+        this.maxParallel = maxParallel > 0 ? maxParallel : Runtime.getRuntime().availableProcessors();
+        this.historySize = historySize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.maxParallel, this.maxParallel, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "ore-job-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        logger.info("ORE job scheduler started with parallelism {} and queue capacity {}",
+                this.maxParallel, queueCapacity);
+    }
+
+    public OreJob submit(String workingDir) {
+        return submit(workingDir, true);
+    }
+
+    /**
+     * 提交一次 ORE 运行。工作目录或 ore.xml 不存在时抛出 {@link IllegalArgumentException}，
+     * 队列已满时抛出 {@link RejectedExecutionException}。useCache 为 false 时总是重新运行 ORE。
+     */
+    public OreJob submit(String workingDir, boolean useCache) {
+        return submit(workingDir, useCache, true);
+    }
+
+    /**
+     * retainResults 为 false 时任务结果只留在工作目录，不导入结果库，也不写入结果缓存
+     * （供临时的情景运行使用，避免挤掉正式运行的缓存），但仍可命中已有的缓存。
+     */
+    public OreJob submit(String workingDir, boolean useCache, boolean retainResults) {
+        return submit(workingDir, useCache, retainResults, null);
+    }
+
+    /**
+     * sourceDir 为 workingDir 所复制自的原工作目录（为 null 时即 workingDir 本身），
+     * 结果缓存的指纹按原工作目录计算，临时副本中的运行与直接运行可以互相命中。
+     */
+    public OreJob submit(String workingDir, boolean useCache, boolean retainResults, String sourceDir) {
+        File workingDirFile = new File(workingDir);
+        if (!workingDirFile.isDirectory()) {
+            throw new IllegalArgumentException("Working directory does not exist: " + workingDir);
+        }
+        File oreXml = Paths.get(workingDir, "input", "ore.xml").toFile();
+        if (!oreXml.exists()) {
+            throw new IllegalArgumentException("ore.xml file does not exist at: " + oreXml.getAbsolutePath());
+        }
+
+        OreJob job = new OreJob(UUID.randomUUID().toString(), workingDirFile.getAbsolutePath(),
+                sourceDir == null ? workingDirFile.getAbsolutePath() : sourceDir);
+        job.setCommand(launcher.buildCommand());
+        job.setUseCache(useCache);
+        job.setRetainResults(retainResults);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new RejectedExecutionException("ORE job queue is full, try again later", e);
+        }
+        logger.info("Submitted ORE job {} for working directory {} (queued: {})",
+                job.getId(), job.getWorkingDir(), executor.getQueue().size());
+        return job;
+    }
+
+    /**
+     * 注册任务结束回调。回调在工作线程上、任务 completion 完成之前执行，
+     * 因此可以在输出目录被后续步骤改动前读取输出。
+     */
+    public void addFinishListener(Consumer<OreJob> listener) {
+        finishListeners.add(listener);
+    }
+
+    public OreJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * 任务输出：运行中返回当前保留的尾部，结束后返回最终尾部。
+     */
+    public String getOutput(OreJob job) {
+        if (!job.getStatus().isFinished()) {
+            String tail = outputStreamer.currentTail(job.getId());
+            if (tail != null) {
+                return tail;
+            }
+        }
+        return job.getOutput();
+    }
+
+    public Collection<OreJob> getJobs() {
+        List<OreJob> result = new ArrayList<>(jobs.values());
+        result.sort((a, b) -> b.getSubmittedAt().compareTo(a.getSubmittedAt()));
+        return result;
+    }
+
+    /**
+     * 取消任务：排队中的任务直接标记为取消，运行中的任务终止其 ORE 进程。
+     */
+    public boolean cancel(String jobId) {
+        OreJob job = jobs.get(jobId);
+        if (job == null || job.getStatus().isFinished()) {
+            return false;
+        }
+        boolean queued;
+        synchronized (job) {
+            job.setCancelRequested(true);
+            queued = job.getStatus() == OreJob.Status.QUEUED;
+            if (!queued) {
+                destroy(job.getProcess());
+            }
+        }
+        // 已设置 cancelRequested 的排队任务不会再启动；结束回调在锁外执行，避免回调中阻塞或回调到本服务时持有任务锁
+        if (queued) {
+            finish(job, OreJob.Status.CANCELLED, null, "Cancelled before start");
+        }
+        return true;
+    }
+
+    public int getMaxParallel() {
+        return maxParallel;
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getRunningCount() {
+        return executor.getActiveCount();
+    }
+
+    private void run(OreJob job) {
+        synchronized (job) {
+            if (job.getStatus() != OreJob.Status.QUEUED || job.isCancelRequested()) {
+                return;
+            }
+            job.setStatus(OreJob.Status.RUNNING);
+            job.setStartedAt(LocalDateTime.now());
+        }
+        OreRunTelemetry telemetry = job.getTelemetry();
+        telemetry.setStartedAt(job.getStartedAt());
+        telemetry.addPhase("queued", Duration.between(job.getSubmittedAt(), job.getStartedAt()).toMillis());
+        // 输出逐行推送到 /topic/ore/jobs/{jobId}，内存中只保留有界尾部
+        OreOutputStreamer.JobOutput output = outputStreamer.open(job.getId());
+        try {
+            String fingerprint = job.isUseCache() && resultCache.isEnabled() ? restoreFromCache(job, output) : null;
+            if (job.isCacheHit()) {
+                return;
+            }
+            long processStart = System.nanoTime();
+            Process process = launcher.start(new File(job.getWorkingDir()), job.getCommand());
+            synchronized (job) {
+                job.setProcess(process);
+                if (job.isCancelRequested()) {
+                    destroy(process);
+                }
+            }
+            OreProcessMonitor.Sampling sampling = processMonitor.start(process, telemetry);
+            int exitCode;
+            try {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("ORE job {} output: {}", job.getId(), line);
+                        }
+                        output.append(line);
+                    }
+                }
+                // 输出结束时进程通常已退出但尚未回收，此时还能读到最终的 CPU 时间
+                sampling.stop();
+                exitCode = process.waitFor();
+            } finally {
+                sampling.stop();
+                telemetry.addPhase("process", (System.nanoTime() - processStart) / 1_000_000);
+            }
+            captureOutput(job, output);
+            if (job.isCancelRequested()) {
+                finish(job, OreJob.Status.CANCELLED, exitCode, "Cancelled while running");
+            } else if (exitCode == 0) {
+                long storeStart = System.nanoTime();
+                storeInCache(job, fingerprint);
+                if (fingerprint != null) {
+                    telemetry.addPhase("cacheStore", (System.nanoTime() - storeStart) / 1_000_000);
+                }
+                finish(job, OreJob.Status.SUCCEEDED, exitCode, "Ore execution completed successfully.");
+            } else {
+                finish(job, OreJob.Status.FAILED, exitCode, "Ore execution failed with exit code: " + exitCode);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            captureOutput(job, output);
+            finish(job, OreJob.Status.FAILED, null, "Interrupted while waiting for ORE");
+        } catch (Exception e) {
+            captureOutput(job, output);
+            if (job.isCancelRequested()) {
+                finish(job, OreJob.Status.CANCELLED, null, "Cancelled while running");
+            } else {
+                logger.error("Error running ORE job {}: {}", job.getId(), e.getMessage(), e);
+                finish(job, OreJob.Status.FAILED, null, "Error running ORE: " + e.getMessage());
+            }
+        } finally {
+            job.setProcess(null);
+            outputStreamer.close(output, job.getStatus().name());
+        }
+    }
+
+    /**
+     * 计算输入指纹并尝试从结果缓存恢复输出，命中时直接结束任务。返回指纹，计算失败时返回 null。
+     */
+    private String restoreFromCache(OreJob job, OreOutputStreamer.JobOutput output) {
+        long start = System.nanoTime();
+        try {
+            Path workingDir = Paths.get(job.getWorkingDir());
+            String fingerprint = resultCache.fingerprint(workingDir, Paths.get(job.getSourceDir()),
+                    job.getCommand());
+            job.setFingerprint(fingerprint);
+            int restored = resultCache.restore(fingerprint, resultCache.outputDir(workingDir));
+            job.getTelemetry().addPhase("cacheLookup", (System.nanoTime() - start) / 1_000_000);
+            if (restored >= 0) {
+                output.append("Restored " + restored + " output file(s) from result cache (fingerprint "
+                        + fingerprint + ")");
+                captureOutput(job, output);
+                job.setCacheHit(true);
+                finish(job, OreJob.Status.SUCCEEDED, 0, "Ore execution completed successfully (restored from cache).");
+            }
+            return fingerprint;
+        } catch (Exception e) {
+            logger.warn("ORE result cache lookup failed for job {}: {}", job.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void storeInCache(OreJob job, String fingerprint) {
+        if (fingerprint == null || !job.isRetainResults()) {
+            return;
+        }
+        try {
+            resultCache.store(fingerprint, resultCache.outputDir(Paths.get(job.getWorkingDir())));
+        } catch (Exception e) {
+            logger.warn("Failed to cache ORE outputs for job {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    private static void captureOutput(OreJob job, OreOutputStreamer.JobOutput output) {
+        job.setOutput(output.tail());
+        job.setOutputLines(output.getLineCount());
+    }
+
+    private void finish(OreJob job, OreJob.Status status, Integer exitCode, String message) {
+        job.setExitCode(exitCode);
+        job.setMessage(message);
+        job.setFinishedAt(LocalDateTime.now());
+        job.setStatus(status);
+        logger.info("ORE job {} finished with status {} (exit code: {})", job.getId(), status, exitCode);
+        long listenersStart = System.nanoTime();
+        for (Consumer<OreJob> listener : finishListeners) {
+            try {
+                listener.accept(job);
+            } catch (Exception e) {
+                logger.warn("ORE job finish listener failed for job {}: {}", job.getId(), e.getMessage());
+            }
+        }
+        OreRunTelemetry telemetry = job.getTelemetry();
+        if (!finishListeners.isEmpty()) {
+            telemetry.addPhase("listeners", (System.nanoTime() - listenersStart) / 1_000_000);
+        }
+        telemetry.setStatus(status.name());
+        telemetry.setExitCode(exitCode);
+        telemetry.setCacheHit(job.isCacheHit());
+        if (job.getStartedAt() != null) {
+            telemetry.setWallMillis(Duration.between(job.getStartedAt(), LocalDateTime.now()).toMillis());
+        }
+        processMonitor.record(telemetry);
+        finishedOrder.add(job.getId());
+        evictHistory();
+        job.getCompletion().complete(job);
+    }
+
+    private void evictHistory() {
+        int excess = finishedOrder.size() - historySize;
+        Iterator<String> it = finishedOrder.iterator();
+        while (excess-- > 0 && it.hasNext()) {
+            jobs.remove(it.next());
+            it.remove();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        for (OreJob job : jobs.values()) {
+            destroy(job.getProcess());
+        }
+    }
+
+    private static void destroy(Process process) {
+        if (process != null) {
+            process.descendants().forEach(ProcessHandle::destroy);
+            process.destroy();
+        }
+    }
+}
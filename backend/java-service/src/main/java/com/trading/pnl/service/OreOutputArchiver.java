@@ -0,0 +1,322 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.model.OreFileTask;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 输出目录的并行归档与清理。每个文件作为独立任务在有界线程池中执行：
+ * copy 模式用 {@link FileChannel#transferTo} 复制（由内核完成数据搬运），
+ * link 模式建立硬链接（跨卷等不支持时退化为复制）。保存完成后在目标目录写入
+ * sha256sum 格式的 {@code MANIFEST.sha256}。
+ * <p>
+ * 硬链接与源文件共用数据，ORE 按原文件名截断重写输出时会同时改掉归档。ORE 的报告正是这样原地重写的，
+ * 因此只有在源目录的文件总是先删除再生成时（如每次运行前都经过 {@link #clean} 或流水线清理），
+ * 才应设置 {@code ore.archive.outputs-replaced=true}；否则 link 请求按 copy 执行。
+ * <p>
+ * 所有操作立即返回 {@link OreFileTask}，可通过任务 ID 查询进度，或等待其 completion。
+ */
+@Service
+public class OreOutputArchiver {
+    private static final Logger logger = LoggerFactory.getLogger(OreOutputArchiver.class);
+    public static final String MANIFEST_FILE = "MANIFEST.sha256";
+    public static final String MODE_COPY = "copy";
+    public static final String MODE_LINK = "link";
+
+    private final ExecutorService executor;
+    private final String defaultMode;
+    private final boolean outputsReplaced;
+    private final int historySize;
+    private final Map<String, OreFileTask> tasks = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> finishedOrder = new ConcurrentLinkedQueue<>();
+
+    public OreOutputArchiver(@Value("${ore.archive.parallelism:0}") int parallelism,
+            @Value("${ore.archive.mode:copy}") String defaultMode,
+            @Value("${ore.archive.history-size:100}") int historySize,
+            @Value("${ore.archive.outputs-replaced:false}") boolean outputsReplaced) {
+        int threads = parallelism > 0 ? parallelism : Math.min(8, Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "ore-archive-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.defaultMode = normalizeMode(defaultMode);
+        this.historySize = historySize;
+        this.outputsReplaced = outputsReplaced;
+    }
+
+    /**
+     * 把 sourceDir 下的所有文件保存到 targetDir。mode 为 null 时使用 {@code ore.archive.mode}。
+     * 目标目录与源目录相同时抛出 {@link IllegalArgumentException}。
+     */
+    public OreFileTask save(Path sourceDir, Path targetDir, String mode) throws IOException {
+        if (!Files.isDirectory(sourceDir)) {
+            throw new IllegalArgumentException("Source output directory does not exist: " + sourceDir);
+        }
+        if (sourceDir.toAbsolutePath().normalize().equals(targetDir.toAbsolutePath().normalize())
+                || (Files.isDirectory(targetDir) && Files.isSameFile(sourceDir, targetDir))) {
+            throw new IllegalArgumentException("Target directory is the source output directory: " + targetDir);
+        }
+        String resolvedMode = mode == null ? defaultMode : normalizeMode(mode);
+        if (MODE_LINK.equals(resolvedMode) && !outputsReplaced) {
+            logger.info("Hard links are disabled because ORE rewrites output files in place, copying instead");
+            resolvedMode = MODE_COPY;
+        }
+        Files.createDirectories(targetDir);
+        List<Path> files = listFiles(sourceDir);
+        OreFileTask task = new OreFileTask(UUID.randomUUID().toString(), OreFileTask.Type.SAVE,
+                sourceDir.toString(), targetDir.toString(), resolvedMode);
+        task.setTotalFiles(files.size());
+        task.setTotalBytes(totalSize(files));
+        tasks.put(task.getId(), task);
+
+        Map<String, String> checksums = new ConcurrentSkipListMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(files.size());
+        for (Path file : files) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                String name = file.getFileName().toString();
+                try {
+                    checksums.put(name, archiveFile(task, file, targetDir.resolve(name)));
+                } catch (Exception e) {
+                    task.getFailedFiles().incrementAndGet();
+                    logger.error("Failed to save output file {}: {}", file, e.getMessage());
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((v, e) -> {
+            try {
+                Path manifest = writeManifest(targetDir, checksums);
+                task.setManifest(manifest.toString());
+            } catch (IOException ex) {
+                logger.error("Failed to write manifest in {}: {}", targetDir, ex.getMessage());
+                task.getFailedFiles().incrementAndGet();
+            }
+            finish(task, "Saved " + task.getCompletedFiles().get() + " file(s) to " + targetDir);
+        });
+        logger.info("Saving {} output file(s) ({} bytes) from {} to {} using {} mode",
+                files.size(), task.getTotalBytes(), sourceDir, targetDir, resolvedMode);
+        return task;
+    }
+
+    /**
+     * 并行删除目录下的所有文件（不含子目录），目录不存在时任务直接成功。
+     */
+    public OreFileTask clean(Path dir) throws IOException {
+        List<Path> files = Files.isDirectory(dir) ? listFiles(dir) : List.of();
+        OreFileTask task = new OreFileTask(UUID.randomUUID().toString(), OreFileTask.Type.CLEAN,
+                dir.toString(), null, null);
+        task.setTotalFiles(files.size());
+        task.setTotalBytes(totalSize(files));
+        tasks.put(task.getId(), task);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(files.size());
+        for (Path file : files) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    long size = Files.size(file);
+                    Files.delete(file);
+                    task.getProcessedBytes().addAndGet(size);
+                    task.getCompletedFiles().incrementAndGet();
+                    logger.debug("Deleted output file: {}", file);
+                } catch (IOException e) {
+                    task.getFailedFiles().incrementAndGet();
+                    logger.warn("Failed to delete output file {}: {}", file, e.getMessage());
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((v, e) -> finish(task, "Deleted " + task.getCompletedFiles().get() + " file(s) from " + dir));
+        return task;
+    }
+
+    public OreFileTask getTask(String taskId) {
+        return tasks.get(taskId);
+    }
+
+    public Collection<OreFileTask> getTasks() {
+        List<OreFileTask> result = new ArrayList<>(tasks.values());
+        result.sort((a, b) -> b.getStartedAt().compareTo(a.getStartedAt()));
+        return result;
+    }
+
+    /**
+     * 保存单个文件并返回源文件的 SHA-256。
+     */
+    private String archiveFile(OreFileTask task, Path source, Path target) throws IOException {
+        if (Files.exists(target) && Files.isSameFile(source, target)) {
+            throw new IOException("Target " + target + " is the source file itself");
+        }
+        if (MODE_LINK.equals(task.getMode()) && link(source, target)) {
+            task.getLinkedFiles().incrementAndGet();
+            String checksum = sha256(source);
+            task.getProcessedBytes().addAndGet(Files.size(source));
+            task.getCompletedFiles().incrementAndGet();
+            return checksum;
+        }
+        String checksum = transfer(task, source, target);
+        task.getCompletedFiles().incrementAndGet();
+        return checksum;
+    }
+
+    /**
+     * 先以临时文件名建立硬链接，再原子地替换目标，失败时目标保持原样。不支持硬链接时返回 false。
+     */
+    private static boolean link(Path source, Path target) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".link");
+        Files.deleteIfExists(tmp);
+        try {
+            Files.createLink(tmp, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            logger.debug("Hard link not possible for {}, copying instead: {}", source, e.getMessage());
+            return false;
+        }
+        try {
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * 用 transferTo 复制到临时文件后重命名，读取者不会看到写了一半的文件。
+     * 校验和在复制完成后从目标文件读取计算，同时起到校验复制结果的作用。
+     */
+    private String transfer(OreFileTask task, Path source, Path target) throws IOException {
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(part, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                task.getProcessedBytes().addAndGet(transferred);
+            }
+        }
+        try {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return sha256(target);
+    }
+
+    private static Path writeManifest(Path targetDir, Map<String, String> checksums) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, String> entry : checksums.entrySet()) {
+            content.append(entry.getValue()).append("  ").append(entry.getKey()).append('\n');
+        }
+        Path manifest = targetDir.resolve(MANIFEST_FILE);
+        Path tmp = targetDir.resolve(MANIFEST_FILE + ".part");
+        Files.writeString(tmp, content.toString(), StandardCharsets.UTF_8);
+        Files.move(tmp, manifest, StandardCopyOption.REPLACE_EXISTING);
+        return manifest;
+    }
+
+    private void finish(OreFileTask task, String message) {
+        int failed = task.getFailedFiles().get();
+        task.setMessage(failed == 0 ? message : message + ", " + failed + " failure(s)");
+        task.setFinishedAt(LocalDateTime.now());
+        task.setStatus(failed == 0 ? OreFileTask.Status.SUCCEEDED : OreFileTask.Status.FAILED);
+        logger.info("{} task {} finished: {}", task.getType(), task.getId(), task.getMessage());
+        finishedOrder.add(task.getId());
+        int excess = finishedOrder.size() - historySize;
+        Iterator<String> it = finishedOrder.iterator();
+        while (excess-- > 0 && it.hasNext()) {
+            tasks.remove(it.next());
+            it.remove();
+        }
+        task.getCompletion().complete(task);
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, Files::isRegularFile)) {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+
+    private static long totalSize(List<Path> files) throws IOException {
+        long total = 0;
+        for (Path file : files) {
+            total += Files.size(file);
+        }
+        return total;
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(256 * 1024);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String normalizeMode(String mode) {
+        String normalized = mode.trim().toLowerCase(Locale.ROOT);
+        if (!MODE_COPY.equals(normalized) && !MODE_LINK.equals(normalized)) {
+            throw new IllegalArgumentException("Unsupported archive mode: " + mode + " (expected copy or link)");
+        }
+        return normalized;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
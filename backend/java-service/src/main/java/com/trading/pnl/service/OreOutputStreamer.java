@@ -0,0 +1,185 @@
+package com.trading.pnl.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把 ORE 进程输出按批推送到 {@code /topic/ore/jobs/{jobId}}，内存中只保留最近
+ * {@code ore.output.tail-lines} 行。攒够 {@code ore.output.batch-size} 行立即推送，
+ * 否则由后台线程每 {@code ore.output.flush-interval-ms} 毫秒推送一次。
+ */
+@Component
+public class OreOutputStreamer {
+    private static final Logger logger = LoggerFactory.getLogger(OreOutputStreamer.class);
+    public static final String TOPIC_PREFIX = "/topic/ore/jobs/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final int tailLines;
+    private final int batchSize;
+    private final Map<String, JobOutput> outputs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    public OreOutputStreamer(SimpMessagingTemplate messagingTemplate,
+            @Value("${ore.output.tail-lines:500}") int tailLines,
+            @Value("${ore.output.batch-size:50}") int batchSize,
+            @Value("${ore.output.flush-interval-ms:250}") long flushIntervalMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.tailLines = Math.max(1, tailLines);
+        this.batchSize = Math.max(1, batchSize);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ore-output-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public JobOutput open(String jobId) {
+        JobOutput output = new JobOutput(jobId);
+        outputs.put(jobId, output);
+        return output;
+    }
+
+    /** 运行中任务当前保留的输出尾部，任务不存在时返回 null。 */
+    public String currentTail(String jobId) {
+        JobOutput output = outputs.get(jobId);
+        return output == null ? null : output.tail();
+    }
+
+    /**
+     * 推送剩余输出和结束消息，之后不再跟踪该任务。
+     */
+    public void close(JobOutput output, String status) {
+        outputs.remove(output.jobId);
+        synchronized (output.publishLock) {
+            output.flush();
+            output.closed = true;
+            Map<String, Object> message = new HashMap<>();
+            message.put("jobId", output.jobId);
+            message.put("done", true);
+            message.put("status", status);
+            message.put("totalLines", output.getLineCount());
+            message.put("timestamp", LocalDateTime.now().toString());
+            send(output.jobId, message);
+        }
+    }
+
+    private void flushAll() {
+        for (JobOutput output : outputs.values()) {
+            try {
+                output.flush();
+            } catch (Exception e) {
+                logger.warn("Error flushing ORE output for job {}: {}", output.jobId, e.getMessage());
+            }
+        }
+    }
+
+    private void send(String jobId, Map<String, Object> message) {
+        try {
+            messagingTemplate.convertAndSend(TOPIC_PREFIX + jobId, message);
+        } catch (Exception e) {
+            logger.warn("Error publishing ORE output for job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+    }
+
+    /**
+     * 一个任务的输出缓冲：有界的尾部 + 待推送的批次。
+     * 取出批次和推送都在 publishLock 内完成，读取线程和 flusher 推送的批次按行号顺序到达，
+     * 结束消息在最后一批之后发送。
+     */
+    public final class JobOutput {
+        private final String jobId;
+        private final Object publishLock = new Object();
+        private final ArrayDeque<String> tail = new ArrayDeque<>();
+        private List<String> pending = new ArrayList<>();
+        private long lineCount;
+        private long firstPendingLine = 1;
+        private boolean closed;
+
+        private JobOutput(String jobId) {
+            this.jobId = jobId;
+        }
+
+        public void append(String line) {
+            boolean full;
+            synchronized (this) {
+                lineCount++;
+                if (tail.size() == tailLines) {
+                    tail.removeFirst();
+                }
+                tail.addLast(line);
+                pending.add(line);
+                full = pending.size() >= batchSize;
+            }
+            if (full) {
+                flush();
+            }
+        }
+
+        void flush() {
+            synchronized (publishLock) {
+                if (closed) {
+                    return;
+                }
+                List<String> batch;
+                long first;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+                    first = firstPendingLine;
+                    batch = drain();
+                }
+                publish(first, batch);
+            }
+        }
+
+        private List<String> drain() {
+            List<String> batch = pending;
+            pending = new ArrayList<>(Math.min(batchSize, 64));
+            firstPendingLine = lineCount + 1;
+            return batch;
+        }
+
+        private void publish(long firstLine, List<String> lines) {
+            Map<String, Object> message = new HashMap<>();
+            message.put("jobId", jobId);
+            message.put("done", false);
+            message.put("firstLine", firstLine);
+            message.put("lines", lines);
+            send(jobId, message);
+        }
+
+        public synchronized String tail() {
+            StringBuilder sb = new StringBuilder();
+            for (String line : tail) {
+                sb.append(line).append("\n");
+            }
+            return sb.toString();
+        }
+
+        public synchronized long getLineCount() {
+            return lineCount;
+        }
+    }
+}
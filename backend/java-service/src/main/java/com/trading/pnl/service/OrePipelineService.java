@@ -0,0 +1,392 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.model.OreJob;
+import com.trading.pnl.model.OrePipeline;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 服务端 EOD/SOD 批处理流水线。每个 leg 依次执行：清理原工作目录的 output、
+ * 用硬链接（不支持时复制）在工作目录旁边建立独立的临时工作副本、通过 {@link OreJobService} 运行 ORE、
+ * 把结果保存到目标目录并回写原工作目录的 output。各 leg 并行执行，互不影响。
+ * <p>
+ * 原工作目录中的 ore.xml 总是以"写临时文件再重命名"的方式更新，因此不会改动
+ * 已链接到临时副本中的旧文件。
+ */
+@Service
+public class OrePipelineService {
+    private static final Logger logger = LoggerFactory.getLogger(OrePipelineService.class);
+    private static final String OUTPUT_DIR = "output";
+    // leg 名称是临时副本目录名的一部分
+    private static final Pattern LEG_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private final OreJobService oreJobService;
+    private final OreXmlService oreXmlService;
+    private final boolean keepScratch;
+    private final int historySize;
+    private final ExecutorService ioExecutor;
+    private final Map<String, OrePipeline> pipelines = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> finishedOrder = new ConcurrentLinkedQueue<>();
+
+    public OrePipelineService(OreJobService oreJobService, OreXmlService oreXmlService,
+            @Value("${ore.pipeline.keep-scratch:false}") boolean keepScratch,
+            @Value("${ore.pipeline.history-size:50}") int historySize) {
+        this.oreJobService = oreJobService;
+        this.oreXmlService = oreXmlService;
+        this.keepScratch = keepScratch;
+        this.historySize = historySize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.ioExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "ore-pipeline-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 提交流水线并立即返回。工作目录或 ore.xml 不存在、leg 名称重复或不是 {@code [A-Za-z0-9_-]+} 时
+     * 抛出 {@link IllegalArgumentException}。
+     */
+    public OrePipeline submit(List<OrePipeline.Leg> legs) {
+        if (legs == null || legs.isEmpty()) {
+            throw new IllegalArgumentException("At least one pipeline leg is required");
+        }
+        Set<String> names = new HashSet<>();
+        for (OrePipeline.Leg leg : legs) {
+            if (leg.getName() == null || !LEG_NAME.matcher(leg.getName()).matches()) {
+                throw new IllegalArgumentException("Pipeline leg names must match [A-Za-z0-9_-]+: " + leg.getName());
+            }
+            if (!names.add(leg.getName())) {
+                throw new IllegalArgumentException("Pipeline leg names must be unique: " + leg.getName());
+            }
+            if (leg.getTargetDir() == null || leg.getTargetDir().trim().isEmpty()) {
+                throw new IllegalArgumentException("Target directory is required for leg " + leg.getName());
+            }
+            if (leg.getWorkingDir() == null || leg.getWorkingDir().trim().isEmpty()) {
+                throw new IllegalArgumentException("Working directory is required for leg " + leg.getName());
+            }
+            Path workingDir = Paths.get(leg.getWorkingDir());
+            if (!Files.isDirectory(workingDir)) {
+                throw new IllegalArgumentException("Working directory does not exist: " + leg.getWorkingDir());
+            }
+            if (!Files.exists(workingDir.resolve("input").resolve("ore.xml"))) {
+                throw new IllegalArgumentException("ore.xml file does not exist in: " + leg.getWorkingDir());
+            }
+        }
+
+        OrePipeline pipeline = new OrePipeline(UUID.randomUUID().toString(), List.copyOf(legs));
+        pipelines.put(pipeline.getId(), pipeline);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (OrePipeline.Leg leg : pipeline.getLegs()) {
+            futures.add(runLeg(pipeline, leg));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((v, e) -> finish(pipeline));
+        logger.info("Submitted ORE pipeline {} with legs {}", pipeline.getId(), names);
+        return pipeline;
+    }
+
+    public OrePipeline getPipeline(String pipelineId) {
+        return pipelines.get(pipelineId);
+    }
+
+    public Collection<OrePipeline> getPipelines() {
+        List<OrePipeline> result = new ArrayList<>(pipelines.values());
+        result.sort((a, b) -> b.getSubmittedAt().compareTo(a.getSubmittedAt()));
+        return result;
+    }
+
+    private CompletableFuture<Void> runLeg(OrePipeline pipeline, OrePipeline.Leg leg) {
+        return CompletableFuture.supplyAsync(() -> prepare(pipeline, leg), ioExecutor)
+                .thenCompose(scratch -> {
+                    leg.setStatus(OrePipeline.LegStatus.RUNNING);
+                    // 结果缓存的指纹按原工作目录计算，流水线与直接运行可以互相命中
+                    OreJob job = oreJobService.submit(scratch.toString(), true, true,
+                            Paths.get(leg.getWorkingDir()).toAbsolutePath().normalize().toString());
+                    leg.setJobId(job.getId());
+                    return job.getCompletion();
+                })
+                .thenAcceptAsync(job -> {
+                    leg.setExitCode(job.getExitCode());
+                    if (job.getStatus() != OreJob.Status.SUCCEEDED) {
+                        throw new IllegalStateException(job.getMessage());
+                    }
+                    leg.setStatus(OrePipeline.LegStatus.SAVING);
+                    save(leg);
+                }, ioExecutor)
+                .handle((v, e) -> {
+                    if (e == null) {
+                        leg.setStatus(OrePipeline.LegStatus.SUCCEEDED);
+                        leg.setMessage("Output saved to " + Paths.get(leg.getTargetDir(), OUTPUT_DIR));
+                    } else {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        logger.error("ORE pipeline {} leg {} failed: {}", pipeline.getId(), leg.getName(),
+                                cause.getMessage());
+                        leg.setStatus(OrePipeline.LegStatus.FAILED);
+                        leg.setMessage(cause.getMessage());
+                    }
+                    leg.setFinishedAt(LocalDateTime.now());
+                    if (leg.getScratchDir() != null) {
+                        oreXmlService.evict(Paths.get(leg.getScratchDir(), "input", "ore.xml"));
+                        if (!keepScratch) {
+                            deleteRecursively(Paths.get(leg.getScratchDir()));
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * 清理原工作目录的 output，并建立该 leg 的临时工作副本，返回副本路径。
+     */
+    private Path prepare(OrePipeline pipeline, OrePipeline.Leg leg) {
+        leg.setStatus(OrePipeline.LegStatus.PREPARING);
+        leg.setStartedAt(LocalDateTime.now());
+        try {
+            Path workingDir = Paths.get(leg.getWorkingDir()).toAbsolutePath().normalize();
+            String outputName = outputDirName(workingDir);
+            cleanDirectory(workingDir.resolve(outputName));
+
+            Path scratch = scratchCopyDir(workingDir, pipeline.getId(), leg.getName());
+            Files.createDirectory(scratch);
+            leg.setScratchDir(scratch.toString());
+
+            int[] counts = linkTree(workingDir, scratch, outputName);
+            Files.createDirectories(scratch.resolve(outputName));
+            leg.setLinkedFiles(counts[0]);
+            leg.setCopiedFiles(counts[1]);
+            redirectPaths(oreXmlService, workingDir, scratch);
+            logger.info("Prepared scratch copy {} for leg {} ({} linked, {} copied)",
+                    scratch, leg.getName(), counts[0], counts[1]);
+            return scratch;
+        } catch (IOException e) {
+            throw new CompletionException(new IOException("Failed to prepare working copy: " + e.getMessage(), e));
+        }
+    }
+
+    /**
+     * 把临时副本的输出复制到目标目录，并回写到原工作目录的 output（与逐步调用时的结果一致）。
+     * 目标目录中的归档总是独立的副本，之后在原工作目录中再次运行 ORE 不会改动已归档的文件。
+     */
+    private void save(OrePipeline.Leg leg) {
+        try {
+            Path workingDir = Paths.get(leg.getWorkingDir()).toAbsolutePath().normalize();
+            String outputName = outputDirName(workingDir);
+            Path scratchOutput = Paths.get(leg.getScratchDir()).resolve(outputName);
+            Path targetOutput = Paths.get(leg.getTargetDir()).resolve(OUTPUT_DIR);
+            Path workingOutput = workingDir.resolve(outputName);
+            Files.createDirectories(targetOutput);
+            Files.createDirectories(workingOutput);
+
+            int saved = 0;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(scratchOutput)) {
+                for (Path file : files) {
+                    if (Files.isRegularFile(file)) {
+                        Files.copy(file, targetOutput.resolve(file.getFileName().toString()),
+                                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                        linkOrCopy(file, workingOutput.resolve(file.getFileName().toString()), true);
+                        saved++;
+                    }
+                }
+            }
+            leg.setSavedFiles(saved);
+            logger.info("Saved {} output file(s) for leg {} to {}", saved, leg.getName(), targetOutput);
+        } catch (IOException e) {
+            throw new CompletionException(new IOException("Failed to save output files: " + e.getMessage(), e));
+        }
+    }
+
+    private void finish(OrePipeline pipeline) {
+        boolean succeeded = pipeline.getLegs().stream()
+                .allMatch(leg -> leg.getStatus() == OrePipeline.LegStatus.SUCCEEDED);
+        pipeline.setMessage(succeeded ? "All legs completed successfully"
+                : "One or more legs failed");
+        pipeline.setFinishedAt(LocalDateTime.now());
+        pipeline.setStatus(succeeded ? OrePipeline.Status.SUCCEEDED : OrePipeline.Status.FAILED);
+        logger.info("ORE pipeline {} finished with status {}", pipeline.getId(), pipeline.getStatus());
+        finishedOrder.add(pipeline.getId());
+        int excess = finishedOrder.size() - historySize;
+        Iterator<String> it = finishedOrder.iterator();
+        while (excess-- > 0 && it.hasNext()) {
+            pipelines.remove(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * 临时工作副本的位置：与工作目录同级的 {@code <工作目录>.scratch-<运行 id>-<名称>}。
+     * 副本与原目录层级相同，ore.xml 中 {@code ../../Input/...} 这类向上引用的相对路径在副本中
+     * 仍然指向原来的共享输入；同在一个卷上也保证可以使用硬链接。
+     */
+    static Path scratchCopyDir(Path workingDir, String runId, String name) {
+        Path dir = workingDir.toAbsolutePath().normalize();
+        if (dir.getParent() == null || dir.getFileName() == null) {
+            throw new IllegalArgumentException("Working directory has no parent for a scratch copy: " + workingDir);
+        }
+        Path scratch = dir.resolveSibling(dir.getFileName() + ".scratch-" + runId + "-" + name).normalize();
+        if (!dir.getParent().equals(scratch.getParent())) {
+            throw new IllegalArgumentException("Invalid scratch copy name: " + name);
+        }
+        return scratch;
+    }
+
+    /**
+     * ore.xml 中 inputPath/outputPath 为指向原工作目录的绝对路径时，改为指向临时副本；
+     * outputPath 指向工作目录以外（绝对路径或 {@code ../} 开头的相对路径）时同样改到副本内，
+     * 避免并行的运行互相覆盖输出。其余相对路径因副本与原目录同级而无需改写。
+     */
+    static void redirectPaths(OreXmlService oreXmlService, Path workingDir, Path scratch) {
+        Path oreXml = scratch.resolve("input").resolve("ore.xml");
+        Map<String, String> parameters = oreXmlService.readParameters(oreXml);
+        Map<String, String> updates = new LinkedHashMap<>();
+        for (String key : List.of("Setup/inputPath", "Setup/outputPath")) {
+            String value = parameters.get(key);
+            if (value == null || value.trim().isEmpty()) {
+                continue;
+            }
+            Path path = Paths.get(value.trim());
+            if (!path.isAbsolute()) {
+                if (key.endsWith("outputPath") && !scratch.resolve(path).normalize().startsWith(scratch)) {
+                    logger.warn("outputPath {} is outside the working directory, redirecting to the scratch copy",
+                            value);
+                    updates.put(key, OUTPUT_DIR);
+                }
+                continue;
+            }
+            path = path.normalize();
+            if (path.startsWith(workingDir)) {
+                updates.put(key, scratch.resolve(workingDir.relativize(path)).toString());
+            } else if (key.endsWith("outputPath")) {
+                logger.warn("outputPath {} is outside the working directory, redirecting to the scratch copy", value);
+                updates.put(key, scratch.resolve(OUTPUT_DIR).toString());
+            }
+        }
+        if (!updates.isEmpty()) {
+            oreXmlService.updateParameters(oreXml, updates);
+        }
+    }
+
+    /**
+     * 把工作目录（除 output 外）镜像到临时目录，返回 [硬链接数, 复制数]。
+     */
+    static int[] linkTree(Path source, Path target, String skipTopLevel) throws IOException {
+        int[] counts = new int[2];
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (dir.getParent() != null && dir.getParent().equals(source)
+                        && dir.getFileName().toString().equals(skipTopLevel)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile()) {
+                    boolean linked = linkOrCopy(file, target.resolve(source.relativize(file).toString()), false);
+                    counts[linked ? 0 : 1]++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * 优先建立硬链接，文件系统不支持（或跨卷）时退化为复制。返回是否建立了硬链接。
+     */
+    static boolean linkOrCopy(Path source, Path target, boolean replace) throws IOException {
+        if (replace) {
+            Files.deleteIfExists(target);
+        }
+        try {
+            Files.createLink(target, source);
+            return true;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            return false;
+        }
+    }
+
+    static String outputDirName(Path workingDir) throws IOException {
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(workingDir, Files::isDirectory)) {
+            for (Path child : children) {
+                if (child.getFileName().toString().equalsIgnoreCase(OUTPUT_DIR)) {
+                    return child.getFileName().toString();
+                }
+            }
+        }
+        return OUTPUT_DIR;
+    }
+
+    private static void cleanDirectory(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    static void deleteRecursively(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    logger.warn("Failed to delete scratch path {}: {}", path, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Failed to delete scratch directory {}: {}", dir, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ioExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,52 @@
+package com.trading.pnl.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 负责启动 ORE 子进程。可执行文件通过 {@code ore.executable} 配置，默认从 PATH 查找 {@code ore}；
+ * 配置为脚本路径即可在测试中用桩脚本替代真实的 ORE。
+ */
+@Component
+public class OreProcessLauncher {
+    private static final Logger logger = LoggerFactory.getLogger(OreProcessLauncher.class);
+    private static final boolean WINDOWS = System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("win");
+
+    private final String executable;
+
+    public OreProcessLauncher(@Value("${ore.executable:ore}") String executable) {
+        this.executable = executable;
+    }
+
+    /**
+     * 构建在工作目录中运行 {@code ore input/ore.xml} 的命令。只有 .bat/.cmd 脚本才需要经过 cmd /c。
+     */
+    public List<String> buildCommand() {
+        List<String> command = new ArrayList<>();
+        String lower = executable.toLowerCase(Locale.ROOT);
+        if (WINDOWS && (lower.endsWith(".bat") || lower.endsWith(".cmd"))) {
+            command.add("cmd");
+            command.add("/c");
+        }
+        command.add(executable);
+        command.add(Paths.get("input", "ore.xml").toString());
+        return command;
+    }
+
+    public Process start(File workingDir, List<String> command) throws IOException {
+        logger.info("Executing command: {} in directory: {}", command, workingDir);
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.directory(workingDir);
+        processBuilder.redirectErrorStream(true);
+        return processBuilder.start();
+    }
+}
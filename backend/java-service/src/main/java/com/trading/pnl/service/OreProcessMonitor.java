@@ -0,0 +1,294 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.model.OreRunTelemetry;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ORE 子进程资源采样。Linux 上按固定间隔读取进程树中每个进程的 {@code /proc/<pid>/stat}
+ * （utime + stime）和 {@code /proc/<pid>/status}（VmRSS、VmHWM）；没有 procfs 时退化为
+ * {@link ProcessHandle.Info#totalCpuDuration()}，只有 CPU 时间。
+ * <p>
+ * 运行结束后的统计按工作目录保留最近 {@code ore.telemetry.history-size} 次，并记录到 Micrometer：
+ * {@code ore.run.phase}（各阶段耗时）、{@code ore.run.cpu}（CPU 时间）、{@code ore.run.peak.rss}（峰值内存）。
+ * 标签只有阶段和结果，临时副本目录不会造成标签膨胀。
+ */
+@Component
+public class OreProcessMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(OreProcessMonitor.class);
+    private static final Path PROC = Paths.get("/proc");
+
+    private final MeterRegistry meterRegistry;
+    private final long sampleIntervalMs;
+    private final int historySize;
+    private final int maxDirectories;
+    private final long clockTicks;
+    private final boolean procfs;
+    private final ScheduledExecutorService sampler;
+    // 按访问顺序淘汰最久未运行的工作目录
+    private final LinkedHashMap<String, Deque<OreRunTelemetry>> histories = new LinkedHashMap<>(16, 0.75f, true);
+
+    public OreProcessMonitor(MeterRegistry meterRegistry,
+            @Value("${ore.telemetry.sample-interval-ms:250}") long sampleIntervalMs,
+            @Value("${ore.telemetry.history-size:50}") int historySize,
+            @Value("${ore.telemetry.max-directories:100}") int maxDirectories,
+            @Value("${ore.telemetry.clock-ticks:100}") long clockTicks) {
+        this.meterRegistry = meterRegistry;
+        this.sampleIntervalMs = Math.max(10, sampleIntervalMs);
+        this.historySize = Math.max(1, historySize);
+        this.maxDirectories = Math.max(1, maxDirectories);
+        this.clockTicks = clockTicks > 0 ? clockTicks : 100;
+        this.procfs = Files.isRegularFile(PROC.resolve("self").resolve("stat"));
+        this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ore-telemetry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 一个进程树的采样过程，stop 之后不再更新。
+     */
+    public final class Sampling {
+        private final Process process;
+        private final OreRunTelemetry telemetry;
+        private final Map<Long, Long> cpuMillisByPid = new HashMap<>();
+        private final ScheduledFuture<?> future;
+        private long peakRss;
+        private int samples;
+        private boolean stopped;
+
+        private Sampling(Process process, OreRunTelemetry telemetry) {
+            this.process = process;
+            this.telemetry = telemetry;
+            telemetry.setSource(procfs ? "procfs" : "process-handle");
+            sample();
+            this.future = sampler.scheduleAtFixedRate(this::sample, sampleIntervalMs, sampleIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
+
+        synchronized void sample() {
+            if (stopped) {
+                return;
+            }
+            List<ProcessHandle> tree = new ArrayList<>();
+            tree.add(process.toHandle());
+            try {
+                process.descendants().forEach(tree::add);
+            } catch (RuntimeException e) {
+                logger.debug("Cannot list descendants of ORE process {}: {}", process.pid(), e.getMessage());
+            }
+            long rss = 0;
+            int alive = 0;
+            for (ProcessHandle handle : tree) {
+                if (procfs) {
+                    long resident = sampleProcfs(handle.pid());
+                    if (resident >= 0) {
+                        rss += resident;
+                        alive++;
+                    }
+                } else if (sampleHandle(handle)) {
+                    alive++;
+                }
+            }
+            peakRss = Math.max(peakRss, rss);
+            samples++;
+            telemetry.setCpuMillis(cpuMillisByPid.values().stream().mapToLong(Long::longValue).sum());
+            if (procfs) {
+                telemetry.setPeakRssBytes(peakRss);
+            }
+            telemetry.setPeakProcesses(Math.max(telemetry.getPeakProcesses(), alive));
+            telemetry.setSamples(samples);
+        }
+
+        /**
+         * 采样单个进程，返回其当前常驻内存字节数，进程已退出时返回 -1。
+         */
+        private long sampleProcfs(long pid) {
+            try {
+                Path dir = PROC.resolve(String.valueOf(pid));
+                String stat = Files.readString(dir.resolve("stat"), StandardCharsets.US_ASCII);
+                // 进程名可能包含空格和括号，从最后一个 ')' 之后开始是第 3 个字段 state
+                String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split("\\s+");
+                long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+                cpuMillisByPid.merge(pid, ticks * 1000 / clockTicks, Math::max);
+
+                long rss = 0;
+                for (String line : Files.readAllLines(dir.resolve("status"), StandardCharsets.US_ASCII)) {
+                    if (line.startsWith("VmRSS:")) {
+                        rss = kilobytes(line) * 1024;
+                    } else if (line.startsWith("VmHWM:")) {
+                        // 内核记录的单进程峰值，可补上两次采样之间的尖峰
+                        peakRss = Math.max(peakRss, kilobytes(line) * 1024);
+                    }
+                }
+                return rss;
+            } catch (IOException | RuntimeException e) {
+                return -1;
+            }
+        }
+
+        private boolean sampleHandle(ProcessHandle handle) {
+            if (!handle.isAlive()) {
+                return false;
+            }
+            handle.info().totalCpuDuration()
+                    .ifPresent(cpu -> cpuMillisByPid.merge(handle.pid(), cpu.toMillis(), Math::max));
+            return true;
+        }
+
+        /**
+         * 停止采样。停止前再采样一次，尽量拿到进程退出前的最终值；可重复调用。
+         */
+        public synchronized void stop() {
+            if (stopped) {
+                return;
+            }
+            sample();
+            stopped = true;
+            future.cancel(false);
+        }
+    }
+
+    public Sampling start(Process process, OreRunTelemetry telemetry) {
+        return new Sampling(process, telemetry);
+    }
+
+    private static long kilobytes(String statusLine) {
+        return Long.parseLong(statusLine.substring(statusLine.indexOf(':') + 1).trim().split("\\s+")[0]);
+    }
+
+    /**
+     * 记录一次已结束运行的统计。
+     */
+    public void record(OreRunTelemetry telemetry) {
+        String status = telemetry.getStatus() == null ? "UNKNOWN" : telemetry.getStatus();
+        for (Map.Entry<String, Long> phase : telemetry.getPhaseMillis().entrySet()) {
+            Timer.builder("ore.run.phase")
+                    .description("Wall time per ORE run phase")
+                    .tag("phase", phase.getKey())
+                    .tag("status", status)
+                    .register(meterRegistry)
+                    .record(Duration.ofMillis(phase.getValue()));
+        }
+        if (telemetry.getCpuMillis() != null) {
+            Timer.builder("ore.run.cpu")
+                    .description("CPU time of the ORE process tree")
+                    .tag("status", status)
+                    .register(meterRegistry)
+                    .record(Duration.ofMillis(telemetry.getCpuMillis()));
+        }
+        if (telemetry.getPeakRssBytes() != null) {
+            DistributionSummary.builder("ore.run.peak.rss")
+                    .description("Peak resident memory of the ORE process tree")
+                    .baseUnit("bytes")
+                    .tag("status", status)
+                    .register(meterRegistry)
+                    .record(telemetry.getPeakRssBytes());
+        }
+
+        String key = key(telemetry.getWorkingDir());
+        synchronized (histories) {
+            Deque<OreRunTelemetry> history = histories.computeIfAbsent(key, k -> new ArrayDeque<>());
+            history.addFirst(telemetry);
+            while (history.size() > historySize) {
+                history.removeLast();
+            }
+            while (histories.size() > maxDirectories) {
+                String eldest = histories.keySet().iterator().next();
+                histories.remove(eldest);
+            }
+        }
+        logger.info("ORE job {} telemetry: wall {} ms, cpu {} ms, peak RSS {} bytes, phases {}",
+                telemetry.getJobId(), telemetry.getWallMillis(), telemetry.getCpuMillis(),
+                telemetry.getPeakRssBytes(), telemetry.getPhaseMillis());
+    }
+
+    /**
+     * 某个工作目录最近的运行统计，最新的在前。
+     */
+    public List<OreRunTelemetry> getHistory(String workingDir) {
+        synchronized (histories) {
+            Deque<OreRunTelemetry> history = histories.get(key(workingDir));
+            return history == null ? List.of() : new ArrayList<>(history);
+        }
+    }
+
+    /**
+     * 每个工作目录的汇总：运行次数、平均/最大耗时、平均 CPU 时间、最大峰值内存。
+     */
+    public List<Map<String, Object>> getSummary() {
+        Map<String, List<OreRunTelemetry>> snapshot = new LinkedHashMap<>();
+        synchronized (histories) {
+            for (Map.Entry<String, Deque<OreRunTelemetry>> entry : histories.entrySet()) {
+                snapshot.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, List<OreRunTelemetry>> entry : snapshot.entrySet()) {
+            long wallTotal = 0;
+            long wallMax = 0;
+            int wallCount = 0;
+            long cpuTotal = 0;
+            int cpuCount = 0;
+            Long rssMax = null;
+            for (OreRunTelemetry run : entry.getValue()) {
+                if (run.getWallMillis() != null) {
+                    wallTotal += run.getWallMillis();
+                    wallMax = Math.max(wallMax, run.getWallMillis());
+                    wallCount++;
+                }
+                if (run.getCpuMillis() != null) {
+                    cpuTotal += run.getCpuMillis();
+                    cpuCount++;
+                }
+                if (run.getPeakRssBytes() != null) {
+                    rssMax = rssMax == null ? run.getPeakRssBytes() : Math.max(rssMax, run.getPeakRssBytes());
+                }
+            }
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("workingDir", entry.getKey());
+            summary.put("runs", entry.getValue().size());
+            summary.put("lastRun", entry.getValue().get(0).getStartedAt());
+            summary.put("avgWallMillis", wallCount == 0 ? null : wallTotal / wallCount);
+            summary.put("maxWallMillis", wallCount == 0 ? null : wallMax);
+            summary.put("avgCpuMillis", cpuCount == 0 ? null : cpuTotal / cpuCount);
+            summary.put("maxPeakRssBytes", rssMax);
+            result.add(summary);
+        }
+        return result;
+    }
+
+    private static String key(String workingDir) {
+        return Paths.get(workingDir).toAbsolutePath().normalize().toString();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sampler.shutdownNow();
+    }
+}
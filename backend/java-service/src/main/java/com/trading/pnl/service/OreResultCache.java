@@ -0,0 +1,383 @@
+package com.trading.pnl.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * ORE 运行结果缓存。指纹由 ore.xml、其中所有 {@code *File} 参数引用的输入文件内容和 ORE 命令计算
+ * （SHA-256）。指纹相同说明输入完全一致，可以直接恢复上次的输出而不必重新运行。
+ * <p>
+ * 缓存条目存放在 {@code ore.cache.dir/<指纹>/} 下，按最近使用顺序淘汰，
+ * 条目数不超过 {@code ore.cache.max-entries}，总大小不超过 {@code ore.cache.max-bytes}。
+ * 存入和恢复都使用复制而不是硬链接，避免 ORE 下次原地覆盖输出文件时改坏缓存。
+ */
+@Component
+public class OreResultCache {
+    private static final Logger logger = LoggerFactory.getLogger(OreResultCache.class);
+    private static final String COMPLETE_MARKER = ".complete";
+
+    private final OreXmlService oreXmlService;
+    private final boolean enabled;
+    private final Path cacheDir;
+    private final int maxEntries;
+    private final long maxBytes;
+    // 访问顺序的 LinkedHashMap，头部为最久未使用的条目
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public OreResultCache(OreXmlService oreXmlService, MeterRegistry meterRegistry,
+            @Value("${ore.cache.enabled:true}") boolean enabled,
+            @Value("${ore.cache.dir:}") String cacheDir,
+            @Value("${ore.cache.max-entries:50}") int maxEntries,
+            @Value("${ore.cache.max-bytes:2147483648}") long maxBytes) {
+        this.oreXmlService = oreXmlService;
+        this.enabled = enabled;
+        this.cacheDir = cacheDir == null || cacheDir.trim().isEmpty()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "ore-result-cache")
+                : Paths.get(cacheDir);
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = maxBytes;
+        this.hitCounter = Counter.builder("ore.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("ore.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("ore.cache.bytes", this, OreResultCache::getTotalBytes).register(meterRegistry);
+        if (enabled) {
+            loadIndex();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 计算工作目录的输入指纹。缺失的输入文件也计入指纹，补齐后指纹随之变化。
+     */
+    public String fingerprint(Path workingDir, List<String> command) throws IOException {
+        return fingerprint(workingDir, workingDir, command);
+    }
+
+    /**
+     * workingDir 是 sourceDir 的临时副本时，ore.xml 中改写为副本路径的部分按原路径计入指纹，
+     * 使副本中的运行与在原工作目录中的运行得到相同的指纹。
+     */
+    public String fingerprint(Path workingDir, Path sourceDir, List<String> command) throws IOException {
+        Path oreXml = workingDir.resolve("input").resolve("ore.xml");
+        Map<String, String> parameters = oreXmlService.readParameters(oreXml);
+        Path inputPath = workingDir.resolve(parameters.getOrDefault("Setup/inputPath", "input").trim());
+
+        // 按参数键排序，保证指纹与参数在文件中的顺序无关
+        Map<String, Path> inputs = new TreeMap<>();
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            if (isInputFile(parameter.getKey()) && parameter.getValue() != null
+                    && !parameter.getValue().trim().isEmpty()) {
+                inputs.put(parameter.getKey(), inputPath.resolve(parameter.getValue().trim()));
+            }
+        }
+
+        MessageDigest digest = sha256();
+        update(digest, "command=" + String.join(" ", command));
+        update(digest, "ore.xml");
+        // 按 ISO-8859-1 逐字节读取，任何编码的 ore.xml 都不会解码失败
+        String oreXmlText = new String(Files.readAllBytes(oreXml), StandardCharsets.ISO_8859_1);
+        update(digest, oreXmlText.replace(workingDir.toString(), sourceDir.toString()));
+        for (Map.Entry<String, Path> input : inputs.entrySet()) {
+            update(digest, input.getKey());
+            if (Files.isRegularFile(input.getValue())) {
+                digestFile(digest, input.getValue());
+            } else {
+                update(digest, "<missing>");
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 工作目录对应的 ORE 输出目录（ore.xml 中的 outputPath，默认 output）。
+     */
+    public Path outputDir(Path workingDir) {
+        Map<String, String> parameters = oreXmlService.readParameters(workingDir.resolve("input").resolve("ore.xml"));
+        String outputPath = parameters.get("Setup/outputPath");
+        return workingDir.resolve(outputPath == null || outputPath.trim().isEmpty() ? "output" : outputPath.trim());
+    }
+
+    /**
+     * 命中时把缓存的输出复制到 outputDir 并返回文件数，未命中返回 -1。
+     */
+    public int restore(String fingerprint, Path outputDir) throws IOException {
+        Path entryDir = cacheDir.resolve(fingerprint);
+        synchronized (this) {
+            if (!enabled || entries.get(fingerprint) == null) {
+                missCounter.increment();
+                return -1;
+            }
+        }
+        if (!Files.exists(entryDir.resolve(COMPLETE_MARKER))) {
+            synchronized (this) {
+                remove(fingerprint);
+            }
+            missCounter.increment();
+            return -1;
+        }
+        Files.createDirectories(outputDir);
+        int restored = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(entryDir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!name.equals(COMPLETE_MARKER) && Files.isRegularFile(file)) {
+                    Files.copy(file, outputDir.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+                    restored++;
+                }
+            }
+        }
+        // 标记文件的修改时间记录最近使用时间，重启后据此恢复 LRU 顺序
+        Files.setLastModifiedTime(entryDir.resolve(COMPLETE_MARKER), FileTime.fromMillis(System.currentTimeMillis()));
+        hitCounter.increment();
+        logger.info("Restored {} cached ORE output file(s) for fingerprint {}", restored, fingerprint);
+        return restored;
+    }
+
+    /**
+     * 把一次成功运行的输出存入缓存。先写入临时目录，完成后再原子地重命名为条目目录。
+     */
+    public void store(String fingerprint, Path outputDir) throws IOException {
+        if (!enabled || !Files.isDirectory(outputDir)) {
+            return;
+        }
+        synchronized (this) {
+            if (entries.containsKey(fingerprint)) {
+                return;
+            }
+        }
+        Files.createDirectories(cacheDir);
+        Path tmpDir = Files.createTempDirectory(cacheDir, fingerprint + ".tmp");
+        Path entryDir = cacheDir.resolve(fingerprint);
+        long size = 0;
+        try {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(outputDir)) {
+                for (Path file : files) {
+                    if (Files.isRegularFile(file)) {
+                        Files.copy(file, tmpDir.resolve(file.getFileName().toString()));
+                        size += Files.size(file);
+                    }
+                }
+            }
+            Files.createFile(tmpDir.resolve(COMPLETE_MARKER));
+            try {
+                Files.move(tmpDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpDir, entryDir);
+            }
+        } catch (IOException e) {
+            deleteRecursively(tmpDir);
+            if (Files.isDirectory(entryDir)) {
+                // 并发的相同运行已经存入，内容相同，视为成功（目标已存在时各平台抛出的异常类型不同）
+                logger.debug("ORE result cache entry {} already exists: {}", fingerprint, e.getMessage());
+                return;
+            }
+            throw e;
+        }
+
+        List<String> evicted;
+        synchronized (this) {
+            entries.put(fingerprint, size);
+            totalBytes += size;
+            evicted = evict();
+        }
+        for (String key : evicted) {
+            deleteRecursively(cacheDir.resolve(key));
+        }
+        logger.info("Cached ORE outputs for fingerprint {} ({} bytes, {} entries)", fingerprint, size, entries.size());
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("directory", cacheDir.toString());
+        stats.put("entries", entries.size());
+        stats.put("bytes", totalBytes);
+        stats.put("maxEntries", maxEntries);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", (long) hitCounter.count());
+        stats.put("misses", (long) missCounter.count());
+        return stats;
+    }
+
+    public void clear() {
+        List<String> keys;
+        synchronized (this) {
+            keys = new ArrayList<>(entries.keySet());
+            entries.clear();
+            totalBytes = 0;
+        }
+        for (String key : keys) {
+            deleteRecursively(cacheDir.resolve(key));
+        }
+        logger.info("Cleared {} ORE result cache entries", keys.size());
+    }
+
+    synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private List<String> evict() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (it.hasNext() && (entries.size() > maxEntries || totalBytes > maxBytes) && entries.size() > 1) {
+            Map.Entry<String, Long> eldest = it.next();
+            totalBytes -= eldest.getValue();
+            evicted.add(eldest.getKey());
+            it.remove();
+        }
+        return evicted;
+    }
+
+    private void remove(String fingerprint) {
+        Long size = entries.remove(fingerprint);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    /**
+     * 启动时扫描缓存目录重建索引，未完成的临时目录直接删除。
+     */
+    private void loadIndex() {
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        List<Path> complete = new ArrayList<>();
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(cacheDir, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                if (Files.exists(dir.resolve(COMPLETE_MARKER))) {
+                    complete.add(dir);
+                } else {
+                    deleteRecursively(dir);
+                }
+            }
+            complete.sort(Comparator.comparingLong(dir -> lastUsed(dir)));
+            for (Path dir : complete) {
+                long size;
+                try (Stream<Path> files = Files.list(dir)) {
+                    size = files.filter(Files::isRegularFile).mapToLong(OreResultCache::sizeOf).sum();
+                }
+                entries.put(dir.getFileName().toString(), size);
+                totalBytes += size;
+            }
+            for (String key : evict()) {
+                deleteRecursively(cacheDir.resolve(key));
+            }
+            logger.info("Loaded {} ORE result cache entries ({} bytes) from {}", entries.size(), totalBytes, cacheDir);
+        } catch (IOException e) {
+            logger.warn("Failed to load ORE result cache index from {}: {}", cacheDir, e.getMessage());
+        }
+    }
+
+    /**
+     * 计入指纹的输入文件参数：Setup 段中除日志外的 {@code *File}，以及各分析段中的配置文件。
+     * 分析段和 Markets 段中其余的 {@code *File}（如 cubeFile、sensitivityOutputFile）是输出，不计入。
+     */
+    private static boolean isInputFile(String key) {
+        int slash = key.lastIndexOf('/');
+        String section = slash < 0 ? "" : key.substring(0, slash);
+        String name = key.substring(slash + 1);
+        if (!name.endsWith("File") || name.toLowerCase(Locale.ROOT).contains("output")) {
+            return false;
+        }
+        if (section.equals("Setup")) {
+            return !name.equals("logFile");
+        }
+        return !section.equals("Markets")
+                && (name.endsWith("ConfigFile") || name.equals("pricingEnginesFile") || name.equals("csaFile"));
+    }
+
+    private static long lastUsed(Path dir) {
+        try {
+            return Files.getLastModifiedTime(dir.resolve(COMPLETE_MARKER)).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // 写入长度前缀，避免相邻字段拼接产生歧义
+        digest.update(new byte[] {(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16),
+                (byte) (bytes.length >>> 8), (byte) bytes.length});
+        digest.update(bytes);
+    }
+
+    private static void digestFile(MessageDigest digest, Path file) throws IOException {
+        update(digest, Long.toString(Files.size(file)));
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    logger.warn("Failed to delete cache path {}: {}", path, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Failed to delete cache directory {}: {}", dir, e.getMessage());
+        }
+    }
+}
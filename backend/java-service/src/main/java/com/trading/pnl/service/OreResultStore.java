@@ -0,0 +1,242 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.model.OreJob;
+import com.trading.pnl.util.ColumnarTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ORE 输出报表的内存列式存储。每次运行的 CSV 报表只解析一次，存为 {@link ColumnarTable}，
+ * 并按 TradeId、NettingSet 建立索引，之后的查询和汇总都直接在内存中完成。
+ * <p>
+ * 成功结束的 ORE 任务会自动导入（运行 ID 即任务 ID），也可以手动导入任意输出目录。
+ * 最多保留 {@code ore.results.max-runs} 次运行，超出时淘汰最久未访问的运行。
+ */
+@Service
+public class OreResultStore {
+    private static final Logger logger = LoggerFactory.getLogger(OreResultStore.class);
+
+    static final Set<String> INDEX_COLUMNS = Set.of("TradeId", "NettingSet", "NettingSetId");
+    // 每个交易/净额集一个文件的报表合并为一张表
+    private static final List<String> MERGED_PREFIXES = List.of(
+            "exposure_trade_", "exposure_nettingset_", "colva_nettingset_");
+
+    private final OreResultCache resultCache;
+    private final int maxRuns;
+    private final LinkedHashMap<String, Run> runs = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong ingestSequence = new AtomicLong();
+
+    public OreResultStore(OreJobService oreJobService, OreResultCache resultCache,
+            @Value("${ore.results.max-runs:20}") int maxRuns) {
+        this.resultCache = resultCache;
+        this.maxRuns = Math.max(1, maxRuns);
+        oreJobService.addFinishListener(this::onJobFinished);
+    }
+
+    /** 一次运行的全部报表。 */
+    public static final class Run {
+        private final String runId;
+        private final String source;
+        private final LocalDateTime ingestedAt = LocalDateTime.now();
+        private final Map<String, ColumnarTable> reports;
+        private final long ingestMillis;
+        private final long sequence;
+
+        Run(String runId, String source, Map<String, ColumnarTable> reports, long ingestMillis, long sequence) {
+            this.runId = runId;
+            this.source = source;
+            this.reports = reports;
+            this.ingestMillis = ingestMillis;
+            this.sequence = sequence;
+        }
+
+        public String getRunId() {
+            return runId;
+        }
+
+        public ColumnarTable getReport(String name) {
+            return reports.get(name);
+        }
+
+        public Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("runId", runId);
+            summary.put("source", source);
+            summary.put("ingestedAt", ingestedAt);
+            summary.put("ingestMillis", ingestMillis);
+            Map<String, Object> reportInfo = new TreeMap<>();
+            long bytes = 0;
+            for (Map.Entry<String, ColumnarTable> report : reports.entrySet()) {
+                Map<String, Object> info = new LinkedHashMap<>();
+                info.put("rows", report.getValue().getRowCount());
+                info.put("columns", report.getValue().getColumnNames());
+                reportInfo.put(report.getKey(), info);
+                bytes += report.getValue().estimatedBytes();
+            }
+            summary.put("reports", reportInfo);
+            summary.put("estimatedBytes", bytes);
+            return summary;
+        }
+    }
+
+    private void onJobFinished(OreJob job) {
+        if (job.getStatus() != OreJob.Status.SUCCEEDED || !job.isRetainResults()) {
+            return;
+        }
+        try {
+            ingest(job.getId(), resultCache.outputDir(Paths.get(job.getWorkingDir())));
+        } catch (Exception e) {
+            logger.warn("Failed to ingest ORE outputs for job {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 解析输出目录中的所有 CSV 报表并以 runId 存入，同名运行会被替换。
+     */
+    public Run ingest(String runId, Path outputDir) throws IOException {
+        if (!Files.isDirectory(outputDir)) {
+            throw new IllegalArgumentException("Output directory does not exist: " + outputDir);
+        }
+        long start = System.nanoTime();
+        Map<String, ColumnarTable.Builder> builders = new TreeMap<>();
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(outputDir, "*.csv")) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+        for (Path file : files) {
+            String report = reportName(file.getFileName().toString());
+            readCsv(file, builders.computeIfAbsent(report, k -> ColumnarTable.builder(INDEX_COLUMNS)));
+        }
+
+        Map<String, ColumnarTable> reports = new TreeMap<>();
+        for (Map.Entry<String, ColumnarTable.Builder> builder : builders.entrySet()) {
+            reports.put(builder.getKey(), builder.getValue().build());
+        }
+        Run run = new Run(runId, outputDir.toString(), reports, (System.nanoTime() - start) / 1_000_000,
+                ingestSequence.incrementAndGet());
+        synchronized (runs) {
+            runs.put(runId, run);
+            while (runs.size() > maxRuns) {
+                String eldest = runs.keySet().iterator().next();
+                runs.remove(eldest);
+                logger.info("Evicted ORE results for run {}", eldest);
+            }
+        }
+        logger.info("Ingested {} ORE report(s) from {} {} files for run {} in {} ms",
+                reports.size(), files.size(), outputDir, runId, run.ingestMillis);
+        return run;
+    }
+
+    public Run getRun(String runId) {
+        synchronized (runs) {
+            return runs.get(runId);
+        }
+    }
+
+    public List<Run> getRuns() {
+        synchronized (runs) {
+            List<Run> result = new ArrayList<>(runs.values());
+            result.sort((a, b) -> Long.compare(b.sequence, a.sequence));
+            return result;
+        }
+    }
+
+    public boolean remove(String runId) {
+        synchronized (runs) {
+            return runs.remove(runId) != null;
+        }
+    }
+
+    /**
+     * 读取单个 CSV 报表（不进入结果库），文件不存在时抛出 {@link java.nio.file.NoSuchFileException}。
+     */
+    static ColumnarTable readReport(Path file) throws IOException {
+        ColumnarTable.Builder builder = ColumnarTable.builder(INDEX_COLUMNS);
+        readCsv(file, builder);
+        return builder.build();
+    }
+
+    static String reportName(String fileName) {
+        String base = fileName.substring(0, fileName.length() - ".csv".length());
+        for (String prefix : MERGED_PREFIXES) {
+            if (base.startsWith(prefix)) {
+                return prefix.substring(0, prefix.length() - 1);
+            }
+        }
+        return base;
+    }
+
+    /**
+     * ORE 的 CSV 表头以 # 开头，字段可能带双引号。
+     */
+    private static void readCsv(Path file, ColumnarTable.Builder builder) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null && line.trim().isEmpty()) {
+                line = reader.readLine();
+            }
+            if (line == null) {
+                return;
+            }
+            if (line.startsWith("#")) {
+                line = line.substring(1);
+            }
+            String[] header = split(line);
+            for (int i = 0; i < header.length; i++) {
+                header[i] = header[i].trim();
+            }
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    builder.addRow(header, split(line));
+                }
+            }
+        }
+    }
+
+    static String[] split(String line) {
+        if (line.indexOf('"') < 0) {
+            return line.split(",", -1);
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,366 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.model.OreJob;
+import com.trading.pnl.model.OreMarketDataItem;
+import com.trading.pnl.model.OreSensitivityRun;
+import com.trading.pnl.util.ColumnarTable;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * bump-and-reprice 敏感度引擎。读取工作目录 ore.xml 中 marketDataFile 指向的 ORE 市场数据文件，
+ * 对每个（报价, 冲击）生成一份冲击后的市场数据文件，放进独立的临时工作副本（硬链接，见
+ * {@link OrePipelineService#linkTree}），通过 {@link OreJobService} 的进程池并行运行 ORE，
+ * 最后用各情景 npv.csv 与基准情景的差值组成敏感度矩阵。
+ * <p>
+ * 同时准备和运行的情景数等于 ORE 任务并行度，临时副本在读取 NPV 后立即删除，
+ * 因此磁盘占用与情景总数无关。报价支持 {@code *} 通配符，例如
+ * {@code FXFWD/RATE/USD/CNH/*} 展开为整条远期点曲线的分桶 delta。
+ */
+@Service
+public class OreSensitivityService {
+    private static final Logger logger = LoggerFactory.getLogger(OreSensitivityService.class);
+    static final String SCENARIO_MARKET_FILE = "sensitivity_market.txt";
+    private static final String NPV_REPORT = "npv.csv";
+
+    private final OreJobService oreJobService;
+    private final OreXmlService oreXmlService;
+    private final OreConversionService oreConversionService;
+    private final OreResultCache resultCache;
+    private final boolean keepScratch;
+    private final int maxScenarios;
+    private final int historySize;
+    private final ExecutorService executor;
+    private final Map<String, OreSensitivityRun> runs = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> finishedOrder = new ConcurrentLinkedQueue<>();
+
+    public OreSensitivityService(OreJobService oreJobService, OreXmlService oreXmlService,
+            OreConversionService oreConversionService, OreResultCache resultCache,
+            @Value("${ore.sensitivity.keep-scratch:false}") boolean keepScratch,
+            @Value("${ore.sensitivity.max-scenarios:500}") int maxScenarios,
+            @Value("${ore.sensitivity.history-size:20}") int historySize) {
+        this.oreJobService = oreJobService;
+        this.oreXmlService = oreXmlService;
+        this.oreConversionService = oreConversionService;
+        this.resultCache = resultCache;
+        this.keepScratch = keepScratch;
+        this.maxScenarios = maxScenarios;
+        this.historySize = historySize;
+        // 每个线程负责一个情景的完整生命周期，线程数与 ORE 并行度一致，避免挤满任务队列
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(oreJobService.getMaxParallel(), r -> {
+            Thread t = new Thread(r, "ore-sensitivity-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 提交敏感度计算并立即返回。quotes 为 ORE 报价名（可含 {@code *}），shifts 为冲击大小，
+     * shiftType 为 absolute（加上冲击）或 relative（乘以 1 + 冲击）。
+     * 参数无效、找不到市场数据文件或报价时抛出 {@link IllegalArgumentException}。
+     */
+    public OreSensitivityRun submit(String workingDir, List<String> quotes, List<BigDecimal> shifts,
+            String shiftType) throws IOException {
+        if (quotes == null || quotes.isEmpty()) {
+            throw new IllegalArgumentException("At least one quote is required");
+        }
+        if (shifts == null || shifts.isEmpty() || shifts.stream().anyMatch(s -> s == null || s.signum() == 0)) {
+            throw new IllegalArgumentException("Shifts must be non-empty and non-zero");
+        }
+        OreSensitivityRun.ShiftType type = parseShiftType(shiftType);
+        Path dir = Paths.get(workingDir).toAbsolutePath().normalize();
+        Path oreXml = dir.resolve("input").resolve("ore.xml");
+        if (!Files.isDirectory(dir) || !Files.exists(oreXml)) {
+            throw new IllegalArgumentException("ore.xml file does not exist in: " + workingDir);
+        }
+        Path marketFile = marketDataFile(oreXml, dir);
+        if (marketFile == null || !Files.isRegularFile(marketFile)) {
+            throw new IllegalArgumentException("Market data file configured in ore.xml does not exist: " + marketFile);
+        }
+        List<OreMarketDataItem> market = oreConversionService.readOreFormat(marketFile.toFile());
+
+        List<String> tickers = expandQuotes(quotes, market);
+        if ((long) tickers.size() * shifts.size() > maxScenarios) {
+            throw new IllegalArgumentException("Too many scenarios: " + tickers.size() * shifts.size()
+                    + " (limit " + maxScenarios + ")");
+        }
+        List<OreSensitivityRun.Scenario> scenarios = new ArrayList<>();
+        for (String ticker : tickers) {
+            for (BigDecimal shift : shifts) {
+                scenarios.add(new OreSensitivityRun.Scenario(ticker + "@" + shift.toPlainString(), ticker, shift));
+            }
+        }
+
+        OreSensitivityRun run = new OreSensitivityRun(UUID.randomUUID().toString(), dir.toString(),
+                marketFile.toString(), type, new OreSensitivityRun.Scenario("base", null, null), scenarios);
+        runs.put(run.getId(), run);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        futures.add(CompletableFuture.runAsync(() -> runScenario(run, run.getBase(), 0, market), executor));
+        for (int i = 0; i < scenarios.size(); i++) {
+            OreSensitivityRun.Scenario scenario = scenarios.get(i);
+            int index = i + 1;
+            futures.add(CompletableFuture.runAsync(() -> runScenario(run, scenario, index, market), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((v, e) -> finish(run));
+        logger.info("Submitted sensitivity run {} with {} scenario(s) for {} quote(s) in {}",
+                run.getId(), scenarios.size(), tickers.size(), dir);
+        return run;
+    }
+
+    public OreSensitivityRun getRun(String runId) {
+        return runs.get(runId);
+    }
+
+    public Collection<OreSensitivityRun> getRuns() {
+        List<OreSensitivityRun> result = new ArrayList<>(runs.values());
+        result.sort((a, b) -> b.getSubmittedAt().compareTo(a.getSubmittedAt()));
+        return result;
+    }
+
+    /**
+     * 在工作线程上完成一个情景：建立临时副本、写入冲击后的市场数据、运行 ORE、读取 NPV、删除副本。
+     */
+    private void runScenario(OreSensitivityRun run, OreSensitivityRun.Scenario scenario, int index,
+            List<OreMarketDataItem> market) {
+        scenario.setStatus(OreSensitivityRun.ScenarioStatus.RUNNING);
+        Path scratch = null;
+        try {
+            Path workingDir = Paths.get(run.getWorkingDir());
+            scratch = OrePipelineService.scratchCopyDir(workingDir, run.getId(), String.valueOf(index));
+            Files.createDirectory(scratch);
+            String outputName = OrePipelineService.outputDirName(workingDir);
+            OrePipelineService.linkTree(workingDir, scratch, outputName);
+            Files.createDirectories(scratch.resolve(outputName));
+            OrePipelineService.redirectPaths(oreXmlService, workingDir, scratch);
+            writeScenarioMarket(run, scenario, market, scratch);
+
+            OreJob job = oreJobService.submit(scratch.toString(), true, false, run.getWorkingDir());
+            scenario.setJobId(job.getId());
+            job = job.getCompletion().get();
+            scenario.setCacheHit(job.isCacheHit());
+            if (job.getStatus() != OreJob.Status.SUCCEEDED) {
+                throw new IllegalStateException("ORE job " + job.getId() + " " + job.getStatus() + ": "
+                        + job.getMessage());
+            }
+            scenario.setNpvs(readNpvs(resultCache.outputDir(scratch).resolve(NPV_REPORT)));
+            scenario.setStatus(OreSensitivityRun.ScenarioStatus.SUCCEEDED);
+            run.getCompletedScenarios().incrementAndGet();
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.error("Sensitivity run {} scenario {} failed: {}", run.getId(), scenario.getId(),
+                    cause.getMessage());
+            scenario.setStatus(OreSensitivityRun.ScenarioStatus.FAILED);
+            scenario.setMessage(cause.getMessage());
+            run.getFailedScenarios().incrementAndGet();
+        } finally {
+            if (scratch != null) {
+                oreXmlService.evict(scratch.resolve("input").resolve("ore.xml"));
+                if (!keepScratch) {
+                    OrePipelineService.deleteRecursively(scratch);
+                }
+            }
+        }
+    }
+
+    /**
+     * 把（冲击后的）市场数据写成新文件并让副本中的 ore.xml 指向它。原文件是硬链接，不能原地改写。
+     * 基准情景也经过同样的读写，保证各情景除冲击值外逐字节相同。
+     */
+    private void writeScenarioMarket(OreSensitivityRun run, OreSensitivityRun.Scenario scenario,
+            List<OreMarketDataItem> market, Path scratch) throws IOException {
+        List<OreMarketDataItem> bumped = new ArrayList<>(market.size());
+        for (OreMarketDataItem item : market) {
+            if (scenario.getQuote() == null || !scenario.getQuote().equals(item.getOreTicker())) {
+                bumped.add(item);
+                continue;
+            }
+            BigDecimal value;
+            try {
+                value = new BigDecimal(item.getValue());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Quote " + item.getOreTicker() + " has non-numeric value "
+                        + item.getValue());
+            }
+            BigDecimal shifted = run.getShiftType() == OreSensitivityRun.ShiftType.ABSOLUTE
+                    ? value.add(scenario.getShift())
+                    : value.multiply(BigDecimal.ONE.add(scenario.getShift()));
+            OreMarketDataItem copy = new OreMarketDataItem();
+            copy.setDate(item.getDate());
+            copy.setOreTicker(item.getOreTicker());
+            copy.setValue(shifted.toPlainString());
+            bumped.add(copy);
+            if (scenario.getBaseValue() == null) {
+                scenario.setBaseValue(item.getValue());
+                scenario.setBumpedValue(copy.getValue());
+            }
+        }
+
+        Path oreXml = scratch.resolve("input").resolve("ore.xml");
+        Map<String, String> parameters = oreXmlService.readParameters(oreXml);
+        Path inputDir = scratch.resolve(parameters.getOrDefault("Setup/inputPath", "input").trim()).normalize();
+        // inputPath 指向副本以外的共享目录（如 ../Input）时，情景文件仍写在副本内，用相对路径引用
+        Path file = inputDir.startsWith(scratch) ? inputDir.resolve(SCENARIO_MARKET_FILE)
+                : scratch.resolve("input").resolve(SCENARIO_MARKET_FILE);
+        oreConversionService.saveToOreFormat(bumped, file.toFile());
+        oreXmlService.updateParameters(oreXml, Map.of("Setup/marketDataFile", inputDir.relativize(file).toString()));
+    }
+
+    private Path marketDataFile(Path oreXml, Path workingDir) {
+        Map<String, String> parameters = oreXmlService.readParameters(oreXml);
+        String marketDataFile = parameters.get("Setup/marketDataFile");
+        if (marketDataFile == null || marketDataFile.trim().isEmpty()) {
+            return null;
+        }
+        Path inputDir = workingDir.resolve(parameters.getOrDefault("Setup/inputPath", "input").trim());
+        return inputDir.resolve(marketDataFile.trim()).normalize();
+    }
+
+    /**
+     * 展开通配符，按报价在市场数据文件中首次出现的顺序返回，不匹配任何报价时抛出异常。
+     */
+    static List<String> expandQuotes(List<String> quotes, List<OreMarketDataItem> market) {
+        Set<String> available = new LinkedHashSet<>();
+        for (OreMarketDataItem item : market) {
+            available.add(item.getOreTicker());
+        }
+        Set<String> result = new LinkedHashSet<>();
+        for (String quote : quotes) {
+            String trimmed = quote == null ? "" : quote.trim();
+            if (!trimmed.contains("*")) {
+                if (!available.contains(trimmed)) {
+                    throw new IllegalArgumentException("Quote not found in market data: " + trimmed);
+                }
+                result.add(trimmed);
+                continue;
+            }
+            Pattern pattern = Pattern.compile(
+                    ("\\Q" + trimmed + "\\E").replace("*", "\\E.*\\Q"));
+            int before = result.size();
+            for (String ticker : available) {
+                if (pattern.matcher(ticker).matches()) {
+                    result.add(ticker);
+                }
+            }
+            if (result.size() == before) {
+                throw new IllegalArgumentException("No market data quote matches " + trimmed);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * 读取 npv.csv 中每笔交易的 NPV，优先使用基础货币的 NPV(Base) 列。
+     */
+    private static Map<String, Double> readNpvs(Path npvFile) throws IOException {
+        if (!Files.isRegularFile(npvFile)) {
+            throw new IllegalStateException("ORE did not produce " + npvFile.getFileName());
+        }
+        ColumnarTable table = OreResultStore.readReport(npvFile);
+        String measure = table.hasColumn("NPV(Base)") ? "NPV(Base)" : "NPV";
+        if (!table.hasColumn("TradeId") || !table.hasColumn(measure)) {
+            throw new IllegalStateException(npvFile.getFileName() + " has no TradeId/NPV columns");
+        }
+        Map<String, Double> npvs = new LinkedHashMap<>();
+        for (int row = 0; row < table.getRowCount(); row++) {
+            npvs.put(String.valueOf(table.value(row, "TradeId")), table.doubleValue(row, measure));
+        }
+        return npvs;
+    }
+
+    /**
+     * 基准情景成功时组装 交易 → 情景 → NPV 差值 矩阵；情景缺少某笔交易时该格为空。
+     */
+    private void finish(OreSensitivityRun run) {
+        OreSensitivityRun.Scenario base = run.getBase();
+        if (base.getStatus() != OreSensitivityRun.ScenarioStatus.SUCCEEDED) {
+            run.setStatus(OreSensitivityRun.Status.FAILED);
+            run.setMessage("Base scenario failed: " + base.getMessage());
+        } else {
+            Map<String, Double> baseNpvs = base.getNpvs();
+            Map<String, Map<String, Double>> deltas = new LinkedHashMap<>();
+            for (String trade : baseNpvs.keySet()) {
+                deltas.put(trade, new LinkedHashMap<>());
+            }
+            for (OreSensitivityRun.Scenario scenario : run.getScenarios()) {
+                Map<String, Double> npvs = scenario.getNpvs();
+                if (npvs == null) {
+                    continue;
+                }
+                double total = 0;
+                for (Map.Entry<String, Double> entry : baseNpvs.entrySet()) {
+                    Double npv = npvs.get(entry.getKey());
+                    if (npv != null) {
+                        double delta = npv - entry.getValue();
+                        deltas.get(entry.getKey()).put(scenario.getId(), delta);
+                        total += delta;
+                    }
+                }
+                scenario.setTotalDelta(total);
+                scenario.setNpvs(null);
+            }
+            run.setTrades(new ArrayList<>(baseNpvs.keySet()));
+            run.setDeltas(deltas);
+            int failed = run.getFailedScenarios().get();
+            run.setStatus(OreSensitivityRun.Status.SUCCEEDED);
+            run.setMessage(run.getScenarios().size() - failed + " of " + run.getScenarios().size()
+                    + " scenario(s) repriced" + (failed > 0 ? ", " + failed + " failed" : ""));
+        }
+        run.setFinishedAt(LocalDateTime.now());
+        logger.info("Sensitivity run {} finished: {}", run.getId(), run.getMessage());
+        finishedOrder.add(run.getId());
+        int excess = finishedOrder.size() - historySize;
+        Iterator<String> it = finishedOrder.iterator();
+        while (excess-- > 0 && it.hasNext()) {
+            runs.remove(it.next());
+            it.remove();
+        }
+        run.getCompletion().complete(run);
+    }
+
+    private static OreSensitivityRun.ShiftType parseShiftType(String shiftType) {
+        if (shiftType == null || shiftType.trim().isEmpty()) {
+            return OreSensitivityRun.ShiftType.ABSOLUTE;
+        }
+        try {
+            return OreSensitivityRun.ShiftType.valueOf(shiftType.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported shift type: " + shiftType + " (expected absolute or relative)");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
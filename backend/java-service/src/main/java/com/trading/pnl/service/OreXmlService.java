@@ -3,66 +3,427 @@ package com.trading.pnl.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.File;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * 读取和更新 ore.xml 中的 Parameter 参数。
+ * <p>
+ * 使用 StAX 流式解析定位每个 Parameter 元素文本在原文件中的位置，只替换参数值本身，
+ * 其余内容（缩进、注释、换行符）原样保留。新内容先写入同目录临时文件再原子重命名，
+ * 并发运行的 ORE 进程不会读到写了一半的文件。解析出的参数位置按文件版本
+ * （修改时间 + 大小）缓存，文件未变化时更新无需重新解析。
+ * <p>
+ * 参数键可以是参数名（如 {@code asofDate}，匹配所有同名参数），也可以用
+ * {@code 父元素/参数名} 限定范围，父元素取元素名或其 {@code type} 属性，
+ * 如 {@code Setup/asofDate}、{@code npv/active}。
+ */
 @Service
 public class OreXmlService {
     private static final Logger logger = LoggerFactory.getLogger(OreXmlService.class);
+    private static final String PARAMETER_ELEMENT = "Parameter";
+    private static final Pattern ENCODING_PATTERN = Pattern.compile("encoding\\s*=\\s*[\"']([A-Za-z0-9._-]+)[\"']");
+
+    private final XMLInputFactory inputFactory;
+    private final Map<Path, ParameterIndex> indexCache = new ConcurrentHashMap<>();
+    private final Map<Path, Object> fileLocks = new ConcurrentHashMap<>();
+
+    public OreXmlService() {
+        inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
 
     public void updateOreXml(String workingDir, String date, String marketDataFile) {
+        Map<String, String> updates = new LinkedHashMap<>();
+        updates.put("asofDate", date);
+        updates.put("marketDataFile", marketDataFile);
+        updateParameters(resolveOreXml(workingDir), updates);
+    }
+
+    /**
+     * 返回工作目录下 input/ore.xml 的路径，文件不存在时抛出异常。
+     */
+    public Path resolveOreXml(String workingDir) {
+        Path oreXmlPath = Paths.get(workingDir).resolve("input").resolve("ore.xml");
+        logger.info("Looking for ore.xml at: {}", oreXmlPath.toAbsolutePath());
+        if (!Files.exists(oreXmlPath)) {
+            throw new RuntimeException("ore.xml file not found at: " + oreXmlPath.toAbsolutePath());
+        }
+        return oreXmlPath;
+    }
+
+    /**
+     * 一次流式处理更新任意数量的参数，返回实际被替换的参数个数。
+     */
+    public int updateParameters(Path oreXmlPath, Map<String, String> updates) {
+        Path key = oreXmlPath.toAbsolutePath().normalize();
+        synchronized (fileLocks.computeIfAbsent(key, k -> new Object())) {
+            try {
+                LoadedFile file = load(key);
+                ParameterIndex index = file.index;
+
+                StringBuilder out = new StringBuilder(file.text.length() + 64);
+                List<ParameterSpan> newSpans = new ArrayList<>(index.spans.size());
+                Set<String> matchedKeys = new HashSet<>();
+                int cursor = 0;
+                int updated = 0;
+
+                for (ParameterSpan span : index.spans) {
+                    String matchedKey = matchKey(span, updates);
+                    if (matchedKey == null) {
+                        newSpans.add(span.shift(out.length() - cursor));
+                        continue;
+                    }
+                    matchedKeys.add(matchedKey);
+                    String value = updates.get(matchedKey);
+                    String escaped = escape(value);
+                    int valueStart;
+                    if (span.selfClosing) {
+                        // <Parameter name="x"/> 改写为 <Parameter name="x">value</Parameter>
+                        out.append(file.text, cursor, span.start - 2).append('>');
+                        valueStart = out.length();
+                        out.append(escaped).append("</").append(span.qName).append('>');
+                    } else {
+                        out.append(file.text, cursor, span.start);
+                        valueStart = out.length();
+                        out.append(escaped);
+                    }
+                    newSpans.add(new ParameterSpan(span.name, span.parent, span.parentType, span.qName,
+                            valueStart, valueStart + escaped.length(), false, value));
+                    cursor = span.selfClosing ? span.start : span.end;
+                    updated++;
+                    logger.info("Updated {} to: {}", span.name, value);
+                }
+                out.append(file.text, cursor, file.text.length());
+
+                for (String requested : updates.keySet()) {
+                    if (!matchedKeys.contains(requested)) {
+                        logger.warn("Parameter {} not found in {}", requested, key);
+                    }
+                }
+
+                if (updated > 0) {
+                    writeAtomically(key, out.toString().getBytes(index.charset));
+                    BasicFileAttributes attrs = Files.readAttributes(key, BasicFileAttributes.class);
+                    indexCache.put(key, new ParameterIndex(attrs.lastModifiedTime().toMillis(), attrs.size(),
+                            index.charset, newSpans));
+                }
+
+                logger.info("Successfully updated {} parameter(s) in ore.xml file at: {}", updated, key);
+                return updated;
+            } catch (Exception e) {
+                logger.error("Error updating ore.xml file", e);
+                throw new RuntimeException("Failed to update ore.xml file: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 读取所有参数的当前值，键为 {@code 父元素/参数名}（父元素有 type 属性时取 type）。
+     */
+    public Map<String, String> readParameters(Path oreXmlPath) {
+        Path key = oreXmlPath.toAbsolutePath().normalize();
         try {
-            // 构建ore.xml文件的完整路径
-            Path workingDirPath = Paths.get(workingDir);
-            Path inputDirPath = workingDirPath.resolve("input");
-            Path oreXmlPath = inputDirPath.resolve("ore.xml");
-            File oreXmlFile = oreXmlPath.toFile();
+            ParameterIndex index = load(key).index;
+            Map<String, String> parameters = new LinkedHashMap<>();
+            for (ParameterSpan span : index.spans) {
+                parameters.put(span.scope() + "/" + span.name, span.value);
+            }
+            return parameters;
+        } catch (Exception e) {
+            logger.error("Error reading ore.xml file", e);
+            throw new RuntimeException("Failed to read ore.xml file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 丢弃某个文件的缓存索引（如临时工作副本删除前）。
+     */
+    public void evict(Path oreXmlPath) {
+        Path key = oreXmlPath.toAbsolutePath().normalize();
+        indexCache.remove(key);
+        fileLocks.remove(key);
+    }
 
-            logger.info("Looking for ore.xml at: {}", oreXmlFile.getAbsolutePath());
+    private String matchKey(ParameterSpan span, Map<String, String> updates) {
+        String qualified = span.parent + "/" + span.name;
+        if (updates.containsKey(qualified)) {
+            return qualified;
+        }
+        if (span.parentType != null && updates.containsKey(span.parentType + "/" + span.name)) {
+            return span.parentType + "/" + span.name;
+        }
+        return updates.containsKey(span.name) ? span.name : null;
+    }
+
+    private LoadedFile load(Path path) throws IOException, XMLStreamException {
+        if (!Files.exists(path)) {
+            throw new RuntimeException("ore.xml file not found at: " + path);
+        }
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        byte[] bytes = Files.readAllBytes(path);
 
-            if (!oreXmlFile.exists()) {
-                throw new RuntimeException("ore.xml file not found at: " + oreXmlFile.getAbsolutePath());
+        ParameterIndex cached = indexCache.get(path);
+        if (cached != null && cached.lastModified == attrs.lastModifiedTime().toMillis()
+                && cached.size == bytes.length) {
+            String text = new String(bytes, cached.charset);
+            if (cached.matches(text)) {
+                return new LoadedFile(text, cached);
             }
+        }
+
+        Charset charset = detectCharset(bytes);
+        String text = new String(bytes, charset);
+        ParameterIndex index = new ParameterIndex(attrs.lastModifiedTime().toMillis(), bytes.length, charset,
+                parse(text));
+        indexCache.put(path, index);
+        logger.debug("Indexed {} parameters in {}", index.spans.size(), path);
+        return new LoadedFile(text, index);
+    }
 
-            // 读取文件内容
-            List<String> lines = Files.readAllLines(oreXmlPath);
+    private List<ParameterSpan> parse(String text) throws XMLStreamException {
+        int[] lineStarts = lineStarts(text);
+        List<ParameterSpan> spans = new ArrayList<>();
+        Deque<String[]> parents = new ArrayDeque<>();
+
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(new StringReader(text));
+        try {
+            String name = null;
+            String qName = null;
+            String[] parent = null;
+            int start = -1;
+            StringBuilder value = new StringBuilder();
 
-            // 更新参数值
-            for (int i = 0; i < lines.size(); i++) {
-                String line = lines.get(i);
-                // 更新asofDate
-                if (line.contains("name=\"asofDate\"")) {
-                    lines.set(i, line.replaceFirst(">.*?</Parameter>", ">" + date + "</Parameter>"));
-                    logger.info("Updated asofDate to: {}", date);
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (PARAMETER_ELEMENT.equals(reader.getLocalName())) {
+                        name = reader.getAttributeValue(null, "name");
+                        qName = reader.getPrefix() == null || reader.getPrefix().isEmpty()
+                                ? reader.getLocalName() : reader.getPrefix() + ":" + reader.getLocalName();
+                        parent = parents.peek();
+                        start = offsetOf(reader, lineStarts);
+                        if (start <= 0 || text.charAt(start - 1) != '>') {
+                            throw new XMLStreamException("Unable to locate Parameter " + name, reader.getLocation());
+                        }
+                        value.setLength(0);
+                    }
+                    parents.push(new String[] { reader.getLocalName(), reader.getAttributeValue(null, "type") });
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    if (name != null) {
+                        value.append(reader.getText());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    parents.pop();
+                    if (name != null && PARAMETER_ELEMENT.equals(reader.getLocalName())) {
+                        int tagEnd = offsetOf(reader, lineStarts);
+                        boolean selfClosing = tagEnd == start && text.startsWith("/>", start - 2);
+                        int end = selfClosing ? start : text.lastIndexOf('<', tagEnd - 1);
+                        if (end < start || (!selfClosing && !text.startsWith("</", end))) {
+                            throw new XMLStreamException("Unable to locate end of Parameter " + name,
+                                    reader.getLocation());
+                        }
+                        String parentName = parent == null ? "" : parent[0];
+                        String parentType = parent == null ? null : parent[1];
+                        spans.add(new ParameterSpan(name, parentName, parentType, qName, start, end, selfClosing,
+                                value.toString().trim()));
+                        name = null;
+                    }
                 }
-                // 更新marketDataFile
-                if (line.contains("name=\"marketDataFile\"")) {
-                    lines.set(i, line.replaceFirst(">.*?</Parameter>", ">" + marketDataFile + "</Parameter>"));
-                    logger.info("Updated marketDataFile to: {}", marketDataFile);
+            }
+        } finally {
+            reader.close();
+        }
+        return spans;
+    }
+
+    // StAX 的 characterOffset 在 CRLF 文件上不可靠，改用行号/列号换算
+    private static int offsetOf(XMLStreamReader reader, int[] lineStarts) {
+        int line = reader.getLocation().getLineNumber();
+        int column = reader.getLocation().getColumnNumber();
+        if (line < 1 || line > lineStarts.length) {
+            return -1;
+        }
+        return lineStarts[line - 1] + column - 1;
+    }
+
+    private static int[] lineStarts(String text) {
+        int[] starts = new int[16];
+        int count = 1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
                 }
+                starts[count++] = i + 1;
             }
+        }
+        return Arrays.copyOf(starts, count);
+    }
 
-            // 写回文件，保持原有格式
-            Files.write(oreXmlPath, lines);
+    private static Charset detectCharset(byte[] bytes) {
+        int prologLength = Math.min(bytes.length, 200);
+        String prolog = new String(bytes, 0, prologLength, StandardCharsets.ISO_8859_1);
+        if (prolog.startsWith("<?xml")) {
+            int declEnd = prolog.indexOf("?>");
+            Matcher matcher = ENCODING_PATTERN.matcher(declEnd > 0 ? prolog.substring(0, declEnd) : prolog);
+            if (matcher.find()) {
+                try {
+                    return Charset.forName(matcher.group(1));
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Unsupported encoding {} in ore.xml, falling back to UTF-8", matcher.group(1));
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
 
-            logger.info("Successfully updated ore.xml file at: {}", oreXmlFile.getAbsolutePath());
-        } catch (Exception e) {
-            logger.error("Error updating ore.xml file", e);
-            throw new RuntimeException("Failed to update ore.xml file: " + e.getMessage());
+    private static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            // 临时文件创建时权限为 0600，替换前沿用原文件的权限
+            PosixFileAttributeView permissions = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+            if (permissions != null && Files.exists(target)) {
+                Files.setPosixFilePermissions(temp, permissions.readAttributes().permissions());
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                logger.warn("Atomic move not supported for {}, falling back to replace", target);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = c == '&' ? "&amp;" : c == '<' ? "&lt;" : c == '>' ? "&gt;" : null;
+            if (replacement != null) {
+                if (sb == null) {
+                    sb = new StringBuilder(value.length() + 8).append(value, 0, i);
+                }
+                sb.append(replacement);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? value : sb.toString();
+    }
+
+    private static final class LoadedFile {
+        private final String text;
+        private final ParameterIndex index;
+
+        private LoadedFile(String text, ParameterIndex index) {
+            this.text = text;
+            this.index = index;
+        }
+    }
+
+    private static final class ParameterIndex {
+        private final long lastModified;
+        private final long size;
+        private final Charset charset;
+        private final List<ParameterSpan> spans;
+
+        private ParameterIndex(long lastModified, long size, Charset charset, List<ParameterSpan> spans) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.charset = charset;
+            this.spans = spans;
+        }
+
+        // 修改时间精度有限，复用缓存前确认各参数位置仍落在标签边界上
+        private boolean matches(String text) {
+            for (ParameterSpan span : spans) {
+                if (span.end > text.length() || text.charAt(span.start - 1) != '>'
+                        || (!span.selfClosing && text.charAt(span.end) != '<')) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class ParameterSpan {
+        private final String name;
+        private final String parent;
+        private final String parentType;
+        private final String qName;
+        private final int start; // 参数值起始位置（开始标签之后）
+        private final int end; // 参数值结束位置（结束标签之前）
+        private final boolean selfClosing;
+        private final String value;
+
+        private ParameterSpan(String name, String parent, String parentType, String qName, int start, int end,
+                boolean selfClosing, String value) {
+            this.name = name;
+            this.parent = parent;
+            this.parentType = parentType;
+            this.qName = qName;
+            this.start = start;
+            this.end = end;
+            this.selfClosing = selfClosing;
+            this.value = value;
+        }
+
+        private String scope() {
+            return parentType != null ? parentType : parent;
+        }
+
+        private ParameterSpan shift(int delta) {
+            return delta == 0 ? this
+                    : new ParameterSpan(name, parent, parentType, qName, start + delta, end + delta, selfClosing,
+                            value);
         }
     }
-}
\ No newline at end of file
+}
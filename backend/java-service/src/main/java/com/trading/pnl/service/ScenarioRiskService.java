@@ -0,0 +1,185 @@
+package com.trading.pnl.service;
+
+import com.quantlib.FXOption;
+import com.quantlib.FXOptionPricer;
+import com.quantlib.ScenarioGrid;
+import com.trading.pnl.model.MarketSnapshot;
+import com.trading.pnl.model.TradeValuation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 交易簿的即期 × 波动率情景损益阶梯。以 {@link BookRevaluationService} 最近一轮的估值为基准
+ * （即期、到期日的利率和波动率都取自估值结果），由 {@link ScenarioGrid} 在公共 fork-join 线程池上
+ * 并行计算每笔交易在每个情景下的价值变化，按货币对汇总。
+ * <p>
+ * 货币对阶梯以报价货币计；全簿阶梯以美元计，按基准即期折算，不含美元的货币对不计入并在 unconverted 中列出。
+ */
+@Service
+public class ScenarioRiskService {
+    private static final Logger logger = LoggerFactory.getLogger(ScenarioRiskService.class);
+
+    private static final String REPORTING_CCY = "USD";
+
+    private final BookRevaluationService bookRevaluationService;
+    private final MeterRegistry meterRegistry;
+    private final ScenarioGrid grid;
+    private final int maxScenarios;
+
+    public ScenarioRiskService(BookRevaluationService bookRevaluationService, MeterRegistry meterRegistry,
+            @Value("${risk.scenario.chunk-size:64}") int chunkSize,
+            @Value("${risk.scenario.max-scenarios:2500}") int maxScenarios) {
+        this.bookRevaluationService = bookRevaluationService;
+        this.meterRegistry = meterRegistry;
+        this.grid = new ScenarioGrid(ForkJoinPool.commonPool(), Math.max(1, chunkSize));
+        this.maxScenarios = maxScenarios;
+    }
+
+    /**
+     * 等间距的对称变动：steps 个点均匀分布在 [-range, range] 上，steps 为奇数时包含 0。
+     */
+    public static double[] symmetricShifts(double range, int steps) {
+        if (steps <= 0 || !(range >= 0.0)) {
+            throw new IllegalArgumentException("steps must be positive and range must not be negative");
+        }
+        if (steps == 1) {
+            return new double[] {0.0};
+        }
+        double[] shifts = new double[steps];
+        for (int i = 0; i < steps; i++) {
+            shifts[i] = -range + 2.0 * range * i / (steps - 1);
+        }
+        return shifts;
+    }
+
+    /**
+     * @param spotShifts 即期相对变动（-0.1 为下跌 10%）
+     * @param volShifts  波动率绝对变动（0.01 为上升 1 个波动率点）
+     * @return 各货币对和全簿的损益阶梯，pnl[i][j] 对应 spotShifts[i] 与 volShifts[j]
+     */
+    public Map<String, Object> evaluate(double[] spotShifts, double[] volShifts) {
+        if (spotShifts.length == 0 || volShifts.length == 0) {
+            throw new IllegalArgumentException("Scenario grid must not be empty");
+        }
+        if ((long) spotShifts.length * volShifts.length > maxScenarios) {
+            throw new IllegalArgumentException("Too many scenarios: " + spotShifts.length + " x "
+                    + volShifts.length + " (max " + maxScenarios + ")");
+        }
+        long start = System.nanoTime();
+        MarketSnapshot snapshot = bookRevaluationService.getSnapshot();
+        List<TradeValuation> priced = new ArrayList<>();
+        for (TradeValuation valuation : bookRevaluationService.getValuations()) {
+            if (valuation.getStatus() == TradeValuation.Status.PRICED) {
+                priced.add(valuation);
+            }
+        }
+
+        // 货币对编号与各自的基准即期（同一货币对的交易即期相同）
+        Map<String, Integer> pairIndex = new LinkedHashMap<>();
+        List<TradeValuation> pairSamples = new ArrayList<>();
+        int count = priced.size();
+        DoubleBuffer inputs = FXOptionPricer.allocateDoubles(Math.max(1, count) * FXOption.BATCH_INPUT_STRIDE);
+        IntBuffer terms = FXOptionPricer.allocateInts(Math.max(1, count) * FXOption.BATCH_TERM_STRIDE);
+        double[] quantities = new double[count];
+        int[] groups = new int[count];
+        int[] tradeCounts = new int[count];
+        for (int i = 0; i < count; i++) {
+            TradeValuation valuation = priced.get(i);
+            Integer index = pairIndex.get(valuation.getPair());
+            if (index == null) {
+                index = pairIndex.size();
+                pairIndex.put(valuation.getPair(), index);
+                pairSamples.add(valuation);
+            }
+            groups[i] = index;
+            tradeCounts[index]++;
+            quantities[i] = valuation.getQuantity();
+            inputs.put(i * FXOption.BATCH_INPUT_STRIDE, valuation.getSpot());
+            inputs.put(i * FXOption.BATCH_INPUT_STRIDE + 1, valuation.getStrike());
+            inputs.put(i * FXOption.BATCH_INPUT_STRIDE + 2, valuation.getDomesticRate());
+            inputs.put(i * FXOption.BATCH_INPUT_STRIDE + 3, valuation.getForeignRate());
+            inputs.put(i * FXOption.BATCH_INPUT_STRIDE + 4, valuation.getVolatility());
+            terms.put(i * FXOption.BATCH_TERM_STRIDE, "PUT".equals(valuation.getOptionType()) ? FXOption.PUT
+                    : FXOption.CALL);
+            terms.put(i * FXOption.BATCH_TERM_STRIDE + 1, valuation.getDaysToMaturity());
+        }
+
+        double[][] ladders = pairIndex.isEmpty() ? new double[0][]
+                : grid.evaluate(count, inputs, terms, quantities, groups, pairIndex.size(), spotShifts, volShifts);
+
+        List<Map<String, Object>> pairs = new ArrayList<>();
+        double[] book = new double[spotShifts.length * volShifts.length];
+        List<String> unconverted = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : pairIndex.entrySet()) {
+            String pair = entry.getKey();
+            double[] ladder = ladders[entry.getValue()];
+            TradeValuation sample = pairSamples.get(entry.getValue());
+            String quote = pair.substring(3);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("pair", pair);
+            result.put("currency", quote);
+            result.put("spot", sample.getSpot());
+            result.put("trades", tradeCounts[entry.getValue()]);
+            result.put("pnl", matrix(ladder, spotShifts.length, volShifts.length));
+            pairs.add(result);
+
+            double fx;
+            if (REPORTING_CCY.equals(quote)) {
+                fx = 1.0;
+            } else if (pair.startsWith(REPORTING_CCY)) {
+                fx = 1.0 / sample.getSpot();
+            } else {
+                unconverted.add(pair);
+                continue;
+            }
+            for (int c = 0; c < book.length; c++) {
+                book[c] += ladder[c] * fx;
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("risk.scenario.grid")
+                .description("Duration of spot/vol scenario grid evaluations")
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        logger.info("Evaluated {} trades x {} scenarios in {} ms", count, book.length, elapsed / 1_000_000.0);
+
+        Map<String, Object> bookLadder = new LinkedHashMap<>();
+        bookLadder.put("currency", REPORTING_CCY);
+        bookLadder.put("pnl", matrix(book, spotShifts.length, volShifts.length));
+        bookLadder.put("unconverted", unconverted);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("snapshotVersion", snapshot.getVersion());
+        response.put("asOf", snapshot.getAsOf().toString());
+        response.put("spotShifts", spotShifts);
+        response.put("volShifts", volShifts);
+        response.put("trades", count);
+        response.put("scenarios", book.length);
+        response.put("pairs", pairs);
+        response.put("book", bookLadder);
+        response.put("elapsedMillis", elapsed / 1_000_000.0);
+        return response;
+    }
+
+    private static double[][] matrix(double[] ladder, int rows, int columns) {
+        double[][] result = new double[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(ladder, i * columns, result[i], 0, columns);
+        }
+        return result;
+    }
+}
@@ -1,6 +1,9 @@
 package com.trading.pnl.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trading.pnl.websocket.FilteredSubscriptionRegistry;
+import com.trading.pnl.websocket.FilteredTopicPublisher;
+import com.trading.pnl.websocket.TopicReplayBuffer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,12 +12,21 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import jakarta.annotation.PostConstruct;
 
 @Slf4j
 @Service
 public class TradeMonitorService {
+    public static final String TOPIC = "/topic/trades";
+    // 过滤订阅的维度：货币对取 Undl 列，交易簿取 Book 列
+    private static final Map<String, Function<Map<String, Object>, ?>> FILTER_DIMENSIONS = Map.of(
+            FilteredSubscriptionRegistry.PAIR, trade -> trade.get("Undl"),
+            FilteredSubscriptionRegistry.DESK, trade -> trade.get("Book"));
+
     @Value("${trading.file.path}")
     private String tradeCsvPath;
 
@@ -22,9 +34,19 @@ public class TradeMonitorService {
     private Long lastModifiedTime = null;
     private final Map<String, Object> cache = new HashMap<>();
     private final SimpMessagingTemplate messagingTemplate;
+    private final FilteredTopicPublisher filteredTopicPublisher;
+    private final TopicReplayBuffer replayBuffer;
+    // 交易文件重新读取后通知的监听者（如实时重估）
+    private final List<Consumer<List<Map<String, Object>>>> bookListeners = new CopyOnWriteArrayList<>();
 
-    public TradeMonitorService(SimpMessagingTemplate messagingTemplate) {
+    public TradeMonitorService(SimpMessagingTemplate messagingTemplate, FilteredTopicPublisher filteredTopicPublisher,
+            TopicReplayBuffer replayBuffer) {
         this.messagingTemplate = messagingTemplate;
+        this.filteredTopicPublisher = filteredTopicPublisher;
+        this.replayBuffer = replayBuffer;
+        // 每条消息都是完整的交易列表，重连的客户端直接取最新一条，不必重新解析交易文件
+        replayBuffer.registerSnapshot(TOPIC);
+        replayBuffer.registerFilters(TOPIC, "data", FILTER_DIMENSIONS);
     }
 
     @PostConstruct
@@ -79,6 +101,7 @@ public class TradeMonitorService {
             List<Map<String, Object>> trades = readCsvFile(filePath);
             lastModifiedTime = currentModified;
             cache.put("trades", trades);
+            notifyBookListeners(trades);
 
             response.put("status", "success");
             response.put("timestamp", LocalDateTime.now().toString());
@@ -101,6 +124,23 @@ public class TradeMonitorService {
         return getLatestTrades(false);
     }
 
+    /**
+     * 注册交易簿监听者，每次交易文件重新读取后在调用线程上回调，监听者不应阻塞。
+     */
+    public void addBookListener(Consumer<List<Map<String, Object>>> listener) {
+        bookListeners.add(listener);
+    }
+
+    private void notifyBookListeners(List<Map<String, Object>> trades) {
+        for (Consumer<List<Map<String, Object>>> listener : bookListeners) {
+            try {
+                listener.accept(trades);
+            } catch (Exception e) {
+                log.error("Trade book listener failed: ", e);
+            }
+        }
+    }
+
     private List<Map<String, Object>> readCsvFile(Path filePath) throws IOException {
         List<Map<String, Object>> trades = new ArrayList<>();
 
@@ -167,7 +207,12 @@ public class TradeMonitorService {
             message.put("status", "success");
             message.put("data", trades);
             message.put("timestamp", LocalDateTime.now().toString());
-            messagingTemplate.convertAndSend("/topic/trades", message);
+            replayBuffer.record(TOPIC, message);
+            messagingTemplate.convertAndSend(TOPIC, message);
+            // 按货币对/交易簿订阅的客户端只收到匹配的交易，消息带有全量主题的 sequence
+            Map<String, Object> envelope = new HashMap<>(message);
+            envelope.remove("data");
+            filteredTopicPublisher.publish(TOPIC, envelope, "data", trades, FILTER_DIMENSIONS, true);
         }
     }
 }
\ No newline at end of file
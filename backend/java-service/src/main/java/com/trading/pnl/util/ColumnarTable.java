@@ -0,0 +1,479 @@
+package com.trading.pnl.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 只读的列式表，用于存放解析后的 ORE 报表（npv、flows、exposure 等）。
+ * <p>
+ * 数值列存为 {@code double[]}（缺失值为 NaN），文本列做字典编码，存为 {@code int[]} 编码
+ * 加去重后的字符串字典（缺失值编码为 -1）。指定的索引列（如 TradeId、NettingSet）额外建立
+ * 值到行号列表的倒排索引，按这些列过滤时无需全表扫描。
+ * <p>
+ * 列类型在导入时推断：列中所有非空值都能解析为数字时为数值列，否则为文本列。
+ */
+public final class ColumnarTable {
+
+    private final List<String> columnNames;
+    private final Map<String, Column> columns;
+    private final int rowCount;
+    private final Map<String, Map<String, int[]>> indexes;
+
+    private ColumnarTable(Map<String, Column> columns, int rowCount, Map<String, Map<String, int[]>> indexes) {
+        this.columnNames = Collections.unmodifiableList(new ArrayList<>(columns.keySet()));
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.indexes = indexes;
+    }
+
+    public static Builder builder(Collection<String> indexColumns) {
+        return new Builder(indexColumns);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public boolean hasColumn(String name) {
+        return columns.containsKey(name);
+    }
+
+    public boolean isNumeric(String name) {
+        return columns.get(name) instanceof NumericColumn;
+    }
+
+    public boolean isIndexed(String name) {
+        return indexes.containsKey(name);
+    }
+
+    /** 索引列的所有取值。 */
+    public Collection<String> indexKeys(String name) {
+        Map<String, int[]> index = indexes.get(name);
+        return index == null ? Collections.emptyList() : Collections.unmodifiableSet(index.keySet());
+    }
+
+    public Object value(int row, String name) {
+        return column(name).value(row);
+    }
+
+    public double doubleValue(int row, String name) {
+        Column column = column(name);
+        if (column instanceof NumericColumn) {
+            return ((NumericColumn) column).values[row];
+        }
+        Object value = column.value(row);
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble((String) value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * 返回所有列都等于给定值的行号（升序）。索引列走倒排索引，其余列逐行比较；
+     * 文本列先把值换成字典编码，比较时只比较整数。
+     */
+    public int[] select(Map<String, String> equals) {
+        int[] rows = null;
+        List<Map.Entry<String, String>> scans = new ArrayList<>();
+        for (Map.Entry<String, String> condition : equals.entrySet()) {
+            Map<String, int[]> index = indexes.get(condition.getKey());
+            if (index == null) {
+                scans.add(condition);
+                continue;
+            }
+            int[] postings = index.getOrDefault(condition.getValue(), new int[0]);
+            rows = rows == null ? postings : intersect(rows, postings);
+        }
+        if (scans.isEmpty()) {
+            return rows == null ? allRows() : rows;
+        }
+
+        int[] candidates = rows == null ? allRows() : rows;
+        int[] result = new int[candidates.length];
+        int count = 0;
+        Column[] scanColumns = new Column[scans.size()];
+        Object[] targets = new Object[scans.size()];
+        for (int i = 0; i < scans.size(); i++) {
+            scanColumns[i] = column(scans.get(i).getKey());
+            targets[i] = scanColumns[i].encode(scans.get(i).getValue());
+            if (targets[i] == null) {
+                return new int[0];
+            }
+        }
+        outer:
+        for (int row : candidates) {
+            for (int i = 0; i < scanColumns.length; i++) {
+                if (!scanColumns[i].matches(row, targets[i])) {
+                    continue outer;
+                }
+            }
+            result[count++] = row;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    public Map<String, Object> row(int row, Collection<String> names) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String name : names) {
+            values.put(name, column(name).value(row));
+        }
+        return values;
+    }
+
+    /**
+     * 按 groupBy 列分组汇总 measure 列（groupBy 为 null 时整体汇总），NaN 不参与计算。
+     * 结果按分组值排序，每组包含 count、sum、min、max、avg。
+     */
+    public List<Map<String, Object>> aggregate(int[] rows, String groupBy, String measure) {
+        Column group = groupBy == null ? null : column(groupBy);
+        Column measured = column(measure);
+        if (!(measured instanceof NumericColumn)) {
+            throw new IllegalArgumentException("Column is not numeric: " + measure);
+        }
+        double[] values = ((NumericColumn) measured).values;
+        Map<Object, double[]> accumulators = new TreeMap<>((a, b) -> String.valueOf(a).compareTo(String.valueOf(b)));
+        for (int row : rows) {
+            double value = values[row];
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            Object key = group == null ? "" : group.value(row);
+            double[] acc = accumulators.computeIfAbsent(key,
+                    k -> new double[] {0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY});
+            acc[0]++;
+            acc[1] += value;
+            acc[2] = Math.min(acc[2], value);
+            acc[3] = Math.max(acc[3], value);
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<Object, double[]> entry : accumulators.entrySet()) {
+            double[] acc = entry.getValue();
+            Map<String, Object> item = new LinkedHashMap<>();
+            if (groupBy != null) {
+                item.put(groupBy, entry.getKey());
+            }
+            item.put("count", (long) acc[0]);
+            item.put("sum", acc[1]);
+            item.put("min", acc[2]);
+            item.put("max", acc[3]);
+            item.put("avg", acc[1] / acc[0]);
+            result.add(item);
+        }
+        return result;
+    }
+
+    /** 估算占用的内存字节数（不含对象头）。 */
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (Column column : columns.values()) {
+            bytes += column.estimatedBytes();
+        }
+        for (Map<String, int[]> index : indexes.values()) {
+            for (Map.Entry<String, int[]> entry : index.entrySet()) {
+                bytes += 4L * entry.getValue().length + 2L * entry.getKey().length() + 48;
+            }
+        }
+        return bytes;
+    }
+
+    private Column column(String name) {
+        Column column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown column: " + name);
+        }
+        return column;
+    }
+
+    private int[] allRows() {
+        int[] rows = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private abstract static class Column {
+        abstract Object value(int row);
+
+        /** 把查询值换成列内部表示，列中不可能出现该值时返回 null。 */
+        abstract Object encode(String value);
+
+        abstract boolean matches(int row, Object encoded);
+
+        abstract long estimatedBytes();
+    }
+
+    private static final class NumericColumn extends Column {
+        private final double[] values;
+
+        NumericColumn(double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        Object value(int row) {
+            double value = values[row];
+            return Double.isNaN(value) ? null : value;
+        }
+
+        @Override
+        Object encode(String value) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        boolean matches(int row, Object encoded) {
+            return values[row] == (Double) encoded;
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 8L * values.length;
+        }
+    }
+
+    private static final class StringColumn extends Column {
+        private final int[] codes;
+        private final String[] dictionary;
+        private final Map<String, Integer> lookup;
+
+        StringColumn(int[] codes, String[] dictionary, Map<String, Integer> lookup) {
+            this.codes = codes;
+            this.dictionary = dictionary;
+            this.lookup = lookup;
+        }
+
+        @Override
+        Object value(int row) {
+            int code = codes[row];
+            return code < 0 ? null : dictionary[code];
+        }
+
+        @Override
+        Object encode(String value) {
+            return lookup.get(value);
+        }
+
+        @Override
+        boolean matches(int row, Object encoded) {
+            return codes[row] == (Integer) encoded;
+        }
+
+        @Override
+        long estimatedBytes() {
+            long bytes = 4L * codes.length;
+            for (String value : dictionary) {
+                bytes += 2L * value.length() + 40;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * 按行追加数据。列在第一次出现时创建，之前的行补为缺失值，因此可以把表头略有差异的
+     * 多个文件（如各个 exposure_trade_*.csv）合并到同一张表。
+     */
+    public static final class Builder {
+        private final Collection<String> indexColumns;
+        private final Map<String, ColumnBuilder> columns = new LinkedHashMap<>();
+        private int rowCount;
+
+        private Builder(Collection<String> indexColumns) {
+            this.indexColumns = indexColumns;
+        }
+
+        public void addRow(String[] names, String[] values) {
+            int row = rowCount++;
+            for (int i = 0; i < names.length; i++) {
+                String value = i < values.length ? values[i] : null;
+                columns.computeIfAbsent(names[i], k -> new ColumnBuilder(indexColumns.contains(k))).set(row, value);
+            }
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public ColumnarTable build() {
+            Map<String, Column> built = new LinkedHashMap<>();
+            Map<String, Map<String, int[]>> indexes = new HashMap<>();
+            for (Map.Entry<String, ColumnBuilder> entry : columns.entrySet()) {
+                Column column = entry.getValue().build(rowCount);
+                built.put(entry.getKey(), column);
+                if (indexColumns.contains(entry.getKey())) {
+                    indexes.put(entry.getKey(), buildIndex(column, rowCount));
+                }
+            }
+            return new ColumnarTable(built, rowCount, indexes);
+        }
+
+        private static Map<String, int[]> buildIndex(Column column, int rowCount) {
+            Map<String, int[]> postings = new HashMap<>();
+            Map<String, Integer> sizes = new HashMap<>();
+            for (int row = 0; row < rowCount; row++) {
+                Object value = column.value(row);
+                if (value != null) {
+                    sizes.merge(value.toString(), 1, Integer::sum);
+                }
+            }
+            Map<String, Integer> fill = new HashMap<>();
+            for (Map.Entry<String, Integer> entry : sizes.entrySet()) {
+                postings.put(entry.getKey(), new int[entry.getValue()]);
+                fill.put(entry.getKey(), 0);
+            }
+            for (int row = 0; row < rowCount; row++) {
+                Object value = column.value(row);
+                if (value != null) {
+                    String key = value.toString();
+                    int position = fill.merge(key, 1, Integer::sum) - 1;
+                    postings.get(key)[position] = row;
+                }
+            }
+            return postings;
+        }
+    }
+
+    /**
+     * 单列构建器：先按数值列存储，遇到第一个非数字值时整体转换为字典编码的文本列。
+     * 数值阶段同时保留单元格原文，转换为文本列时使用原文（"1.50" 不会变成 "1.5"）。
+     * 索引列总是文本列，保证 "12345" 这样的 TradeId 按原样查询。
+     */
+    private static final class ColumnBuilder {
+        private double[] numbers = new double[1024];
+        private String[] texts = new String[1024];
+        private int[] codes;
+        private List<String> dictionary;
+        private Map<String, Integer> lookup;
+        private int size;
+
+        ColumnBuilder(boolean text) {
+            if (text) {
+                convertToText();
+            }
+        }
+
+        void set(int row, String raw) {
+            String value = raw == null ? "" : raw.trim();
+            ensureCapacity(row + 1);
+            // 中间缺失的行补空
+            while (size < row) {
+                appendMissing();
+            }
+            if (value.isEmpty() || value.equals("#N/A")) {
+                appendMissing();
+                return;
+            }
+            if (codes == null) {
+                double number = parseNumber(value);
+                if (!Double.isNaN(number)) {
+                    texts[size] = value;
+                    numbers[size++] = number;
+                    return;
+                }
+                convertToText();
+            }
+            codes[size++] = lookup.computeIfAbsent(value, k -> {
+                dictionary.add(k);
+                return dictionary.size() - 1;
+            });
+        }
+
+        // Double.parseDouble 接受 "1D"、"2f" 这样的后缀，期限之类的文本不能当作数字
+        private static double parseNumber(String value) {
+            char last = value.charAt(value.length() - 1);
+            if (!Character.isDigit(last) && last != '.') {
+                return Double.NaN;
+            }
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        private void appendMissing() {
+            if (codes == null) {
+                numbers[size++] = Double.NaN;
+            } else {
+                codes[size++] = -1;
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (codes == null && numbers.length < capacity) {
+                numbers = Arrays.copyOf(numbers, Math.max(capacity, numbers.length * 2));
+                texts = Arrays.copyOf(texts, numbers.length);
+            } else if (codes != null && codes.length < capacity) {
+                codes = Arrays.copyOf(codes, Math.max(capacity, codes.length * 2));
+            }
+        }
+
+        private void convertToText() {
+            codes = new int[numbers.length];
+            dictionary = new ArrayList<>();
+            lookup = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                String text = texts[i];
+                if (text == null) {
+                    codes[i] = -1;
+                } else {
+                    codes[i] = lookup.computeIfAbsent(text, k -> {
+                        dictionary.add(k);
+                        return dictionary.size() - 1;
+                    });
+                }
+            }
+            numbers = null;
+            texts = null;
+        }
+
+        Column build(int rowCount) {
+            ensureCapacity(rowCount);
+            while (size < rowCount) {
+                appendMissing();
+            }
+            if (codes == null) {
+                return new NumericColumn(Arrays.copyOf(numbers, rowCount));
+            }
+            return new StringColumn(Arrays.copyOf(codes, rowCount), dictionary.toArray(new String[0]), lookup);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.trading.pnl.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 由映射表中带 {@code expression} 的条目编译而成的派生报价计算图。
+ * <p>
+ * 映射条目格式：
+ * <pre>
+ * "CNH4M Derived": {"target": "FXFWD/RATE/USD/CNH/4M",
+ *                   "expression": "interp(4, 3, [CNH3M Curncy], 6, [CNH6M Curncy])"},
+ * "CNHUSD Derived": {"target": "FX/RATE/CNH/USD", "expression": "1 / [USDCNH Curncy]"}
+ * </pre>
+ * {@code coefficient} 可选，默认为 1，作用于表达式结果。表达式既可以引用原始 BBG ticker，
+ * 也可以引用其他派生条目的键（引用的是其乘以系数后的结果）。
+ * <p>
+ * 编译时所有引用绑定到槽位下标，派生节点按依赖关系拓扑排序，存在循环依赖时抛出
+ * {@link IllegalArgumentException}。求值时一次遍历即可算出全部派生报价。
+ */
+public final class DerivedQuoteGraph {
+
+    private static final DerivedQuoteGraph EMPTY = new DerivedQuoteGraph(
+            Collections.emptyList(), new String[0], new DerivedQuote[0]);
+
+    /** 一个派生报价节点。 */
+    public static final class DerivedQuote {
+        private final String key;
+        private final String target;
+        private final String expression;
+        private final double coefficient;
+        private final int slot;
+        private final QuoteExpression.Compiled compiled;
+
+        private DerivedQuote(String key, String target, String expression, double coefficient, int slot,
+                QuoteExpression.Compiled compiled) {
+            this.key = key;
+            this.target = target;
+            this.expression = expression;
+            this.coefficient = coefficient;
+            this.slot = slot;
+            this.compiled = compiled;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        public String getExpression() {
+            return expression;
+        }
+    }
+
+    /** 一次求值的结果，按拓扑顺序保存每个派生报价的值。 */
+    public static final class Result {
+        private final DerivedQuoteGraph graph;
+        private final double[] slots;
+
+        private Result(DerivedQuoteGraph graph, double[] slots) {
+            this.graph = graph;
+            this.slots = slots;
+        }
+
+        public int size() {
+            return graph.nodes.length;
+        }
+
+        public DerivedQuote quote(int i) {
+            return graph.nodes[i];
+        }
+
+        /** 派生值，缺少输入或输入非数值时为 NaN。 */
+        public double value(int i) {
+            return slots[graph.nodes[i].slot];
+        }
+    }
+
+    private final List<String> inputTickers;
+    private final String[] inputs;
+    private final DerivedQuote[] nodes;
+
+    private DerivedQuoteGraph(List<String> inputTickers, String[] inputs, DerivedQuote[] nodes) {
+        this.inputTickers = inputTickers;
+        this.inputs = inputs;
+        this.nodes = nodes;
+    }
+
+    public static DerivedQuoteGraph empty() {
+        return EMPTY;
+    }
+
+    public static boolean isDerived(Map<String, Object> mapping) {
+        return mapping != null && mapping.get("expression") != null;
+    }
+
+    public static DerivedQuoteGraph compile(Map<String, Map<String, Object>> mappings) {
+        Map<String, QuoteExpression> expressions = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : mappings.entrySet()) {
+            if (isDerived(entry.getValue())) {
+                String source = String.valueOf(entry.getValue().get("expression"));
+                try {
+                    expressions.put(entry.getKey(), QuoteExpression.parse(source));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid expression for '" + entry.getKey() + "': "
+                            + e.getMessage(), e);
+                }
+            }
+        }
+        if (expressions.isEmpty()) {
+            return EMPTY;
+        }
+
+        // 拓扑排序（Kahn 算法），保持映射文件中的相对顺序
+        Map<String, Integer> pending = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (Map.Entry<String, QuoteExpression> entry : expressions.entrySet()) {
+            int count = 0;
+            for (String ref : entry.getValue().getReferences()) {
+                if (expressions.containsKey(ref)) {
+                    if (ref.equals(entry.getKey())) {
+                        throw new IllegalArgumentException("Derived quote '" + ref + "' references itself");
+                    }
+                    dependents.computeIfAbsent(ref, k -> new ArrayList<>()).add(entry.getKey());
+                    count++;
+                }
+            }
+            pending.put(entry.getKey(), count);
+        }
+        Deque<String> ready = new ArrayDeque<>();
+        for (String key : expressions.keySet()) {
+            if (pending.get(key) == 0) {
+                ready.add(key);
+            }
+        }
+        List<String> order = new ArrayList<>(expressions.size());
+        while (!ready.isEmpty()) {
+            String key = ready.poll();
+            order.add(key);
+            for (String dependent : dependents.getOrDefault(key, Collections.emptyList())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (order.size() < expressions.size()) {
+            List<String> cyclic = new ArrayList<>();
+            for (String key : expressions.keySet()) {
+                if (pending.get(key) > 0) {
+                    cyclic.add(key);
+                }
+            }
+            throw new IllegalArgumentException("Cyclic dependency between derived quotes: " + cyclic);
+        }
+
+        // 槽位：先是原始输入 ticker，再是按拓扑顺序排列的派生节点
+        Map<String, Integer> slotIndex = new LinkedHashMap<>();
+        for (String key : order) {
+            for (String ref : expressions.get(key).getReferences()) {
+                if (!expressions.containsKey(ref)) {
+                    slotIndex.putIfAbsent(ref, slotIndex.size());
+                }
+            }
+        }
+        List<String> inputTickers = new ArrayList<>(slotIndex.keySet());
+        for (String key : order) {
+            slotIndex.put(key, slotIndex.size());
+        }
+
+        DerivedQuote[] nodes = new DerivedQuote[order.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            String key = order.get(i);
+            Map<String, Object> mapping = mappings.get(key);
+            Object target = mapping.get("target");
+            if (target == null) {
+                throw new IllegalArgumentException("Derived quote '" + key + "' has no target");
+            }
+            double coefficient = mapping.get("coefficient") instanceof Number
+                    ? ((Number) mapping.get("coefficient")).doubleValue() : 1.0;
+            QuoteExpression expression = expressions.get(key);
+            nodes[i] = new DerivedQuote(key, target.toString(), expression.getSource(), coefficient,
+                    slotIndex.get(key), expression.compile(slotIndex::get));
+        }
+        return new DerivedQuoteGraph(Collections.unmodifiableList(inputTickers),
+                inputTickers.toArray(new String[0]), nodes);
+    }
+
+    public boolean isEmpty() {
+        return nodes.length == 0;
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    /** 表达式直接引用的原始 ticker。 */
+    public List<String> getInputTickers() {
+        return inputTickers;
+    }
+
+    /**
+     * 用一份行情快照计算全部派生报价。行情值为字符串（与 Excel 读取结果一致），
+     * 无法解析为数字的输入按 NaN 处理，并沿依赖链传播。
+     */
+    public Result evaluate(Map<String, String> marketData) {
+        double[] slots = new double[inputs.length + nodes.length];
+        for (int i = 0; i < inputs.length; i++) {
+            slots[i] = parse(marketData.get(inputs[i]));
+        }
+        for (DerivedQuote node : nodes) {
+            slots[node.slot] = node.compiled.evaluate(slots) * node.coefficient;
+        }
+        return new Result(this, slots);
+    }
+
+    private static double parse(String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
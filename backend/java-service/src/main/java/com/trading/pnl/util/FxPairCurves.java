@@ -0,0 +1,234 @@
+package com.trading.pnl.util;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 一个货币对在某个市场快照下的期限结构：即期、远期曲线（由远期点得到）、由远期隐含的基础货币利率曲线，
+ * 以及 ATM 波动率期限结构。构建后不可变，可被多个线程共享。期限一律用距估值日的天数表示，年化按 Actual/365。
+ * <p>
+ * 报价货币（domestic）利率取隔夜利率并视为平坦；基础货币（foreign）零息利率由利率平价
+ * {@code F(t) = S·exp((rd - rf)·t)} 从远期反推。ln(F/S) 在远期点期限之间按天数线性插值
+ * （即分段平坦的远期利差），首个期限之前从 0 线性增长，最后一个期限之后按最后的利差外推；
+ * 没有远期点时取基础货币隔夜利率。波动率按总方差 σ²·t 线性插值，两端之外取端点波动率。
+ * <p>
+ * 欧式期权只依赖到期日的贴现因子和总方差，因此用到期日的零息利率和波动率调用平坦参数的定价公式，
+ * 与按完整期限结构定价的结果相同。
+ */
+public final class FxPairCurves {
+    private static final double DAYS_PER_YEAR = 365.0;
+    private static final Pattern TENOR = Pattern.compile("(\\d+)([DWMY])");
+
+    private final String base;
+    private final String quote;
+    private final long snapshotVersion;
+    private final double spot;
+    private final double domesticRate;
+    private final double foreignOvernightRate;
+    private final int[] forwardDays;
+    private final double[] logForwards;
+    private final int[] volDays;
+    private final double[] variances;
+
+    /**
+     * @param spot      即期，没有报价时为 NaN
+     * @param forwards  期限天数 → 远期汇率（已换算好的绝对值）
+     * @param vols      期限天数 → ATM 波动率（小数）
+     */
+    public FxPairCurves(String base, String quote, long snapshotVersion, double spot, double domesticRate,
+            double foreignOvernightRate, NavigableMap<Integer, Double> forwards, NavigableMap<Integer, Double> vols) {
+        this.base = base;
+        this.quote = quote;
+        this.snapshotVersion = snapshotVersion;
+        this.spot = spot;
+        this.domesticRate = domesticRate;
+        this.foreignOvernightRate = foreignOvernightRate;
+
+        List<Map.Entry<Integer, Double>> usable = new ArrayList<>();
+        if (spot > 0.0) {
+            for (Map.Entry<Integer, Double> forward : forwards.entrySet()) {
+                if (forward.getKey() > 0 && forward.getValue() > 0.0) {
+                    usable.add(forward);
+                }
+            }
+        }
+        this.forwardDays = new int[usable.size()];
+        this.logForwards = new double[usable.size()];
+        for (int i = 0; i < usable.size(); i++) {
+            forwardDays[i] = usable.get(i).getKey();
+            logForwards[i] = Math.log(usable.get(i).getValue() / spot);
+        }
+
+        List<Map.Entry<Integer, Double>> pillars = new ArrayList<>();
+        for (Map.Entry<Integer, Double> vol : vols.entrySet()) {
+            if (vol.getKey() > 0 && vol.getValue() > 0.0) {
+                pillars.add(vol);
+            }
+        }
+        this.volDays = new int[pillars.size()];
+        this.variances = new double[pillars.size()];
+        for (int i = 0; i < pillars.size(); i++) {
+            volDays[i] = pillars.get(i).getKey();
+            double vol = pillars.get(i).getValue();
+            variances[i] = vol * vol * volDays[i] / DAYS_PER_YEAR;
+        }
+    }
+
+    public String getPair() {
+        return base + quote;
+    }
+
+    public long getSnapshotVersion() {
+        return snapshotVersion;
+    }
+
+    public boolean hasSpot() {
+        return spot > 0.0;
+    }
+
+    public boolean hasVolatility() {
+        return volDays.length > 0;
+    }
+
+    public double spot() {
+        return spot;
+    }
+
+    /**
+     * 报价货币零息利率（连续复利）。
+     */
+    public double domesticRate(int days) {
+        return domesticRate;
+    }
+
+    /**
+     * 基础货币零息利率（连续复利），由远期隐含。
+     */
+    public double foreignRate(int days) {
+        if (forwardDays.length == 0 || days <= 0) {
+            return foreignOvernightRate;
+        }
+        return domesticRate(days) - logForward(days) / (days / DAYS_PER_YEAR);
+    }
+
+    public double forward(int days) {
+        if (forwardDays.length == 0) {
+            return spot * Math.exp((domesticRate - foreignOvernightRate) * days / DAYS_PER_YEAR);
+        }
+        return spot * Math.exp(logForward(days));
+    }
+
+    /**
+     * 到期日的 ATM 波动率，没有波动率报价时为 NaN。
+     */
+    public double volatility(int days) {
+        if (volDays.length == 0) {
+            return Double.NaN;
+        }
+        int last = volDays.length - 1;
+        if (days <= volDays[0]) {
+            return Math.sqrt(variances[0] * DAYS_PER_YEAR / volDays[0]);
+        }
+        if (days >= volDays[last]) {
+            return Math.sqrt(variances[last] * DAYS_PER_YEAR / volDays[last]);
+        }
+        double variance = interpolate(volDays, variances, days);
+        return Math.sqrt(variance * DAYS_PER_YEAR / days);
+    }
+
+    private double logForward(int days) {
+        int last = forwardDays.length - 1;
+        if (days <= forwardDays[0]) {
+            return logForwards[0] * days / forwardDays[0];
+        }
+        if (days >= forwardDays[last]) {
+            return logForwards[last] * days / forwardDays[last];
+        }
+        return interpolate(forwardDays, logForwards, days);
+    }
+
+    private static double interpolate(int[] xs, double[] ys, int x) {
+        int hi = 1;
+        while (xs[hi] < x) {
+            hi++;
+        }
+        int lo = hi - 1;
+        double weight = (double) (x - xs[lo]) / (xs[hi] - xs[lo]);
+        return ys[lo] + weight * (ys[hi] - ys[lo]);
+    }
+
+    /**
+     * 各期限节点上的远期、隐含利率和波动率，用于查看构建结果。
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pair", getPair());
+        result.put("snapshotVersion", snapshotVersion);
+        result.put("spot", hasSpot() ? spot : null);
+        result.put("domesticRate", domesticRate);
+        result.put("foreignOvernightRate", foreignOvernightRate);
+        List<Map<String, Object>> forwards = new ArrayList<>();
+        for (int days : forwardDays) {
+            Map<String, Object> pillar = new LinkedHashMap<>();
+            pillar.put("days", days);
+            pillar.put("forward", forward(days));
+            pillar.put("foreignRate", foreignRate(days));
+            forwards.add(pillar);
+        }
+        result.put("forwards", forwards);
+        List<Map<String, Object>> vols = new ArrayList<>();
+        for (int days : volDays) {
+            Map<String, Object> pillar = new LinkedHashMap<>();
+            pillar.put("days", days);
+            pillar.put("volatility", volatility(days));
+            vols.add(pillar);
+        }
+        result.put("volatilities", vols);
+        return result;
+    }
+
+    /**
+     * ON、TN、SN 的远期点是即期日之前或紧随即期日的掉期点，不是从即期起算的远期，不能加到即期汇率上作为远期节点。
+     */
+    public static boolean isShortDateSwap(String tenor) {
+        return "ON".equals(tenor) || "TN".equals(tenor) || "SN".equals(tenor);
+    }
+
+    /**
+     * ORE 期限（ON、TN、SN、1W、3M、2Y 等）距估值日的天数，无法识别时返回 -1。0D 按隔夜 1 天处理。
+     */
+    public static int tenorDays(String tenor, LocalDate asOf) {
+        switch (tenor) {
+            case "ON":
+                return 1;
+            case "TN":
+                return 2;
+            case "SN":
+                return 3;
+            default:
+                break;
+        }
+        Matcher matcher = TENOR.matcher(tenor);
+        if (!matcher.matches()) {
+            return -1;
+        }
+        int n = Integer.parseInt(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "D":
+                return Math.max(1, n);
+            case "W":
+                return 7 * n;
+            case "M":
+                return (int) ChronoUnit.DAYS.between(asOf, asOf.plusMonths(n));
+            default:
+                return (int) ChronoUnit.DAYS.between(asOf, asOf.plusYears(n));
+        }
+    }
+}
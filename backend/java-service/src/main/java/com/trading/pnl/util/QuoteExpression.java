@@ -0,0 +1,294 @@
+package com.trading.pnl.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * 映射表中派生报价的算术表达式。
+ * <p>
+ * 支持 {@code + - * /}、一元负号、括号、数字常量，以及用方括号引用的 ticker
+ * （如 {@code [CNH3M Curncy]}，ticker 名称可以包含空格）。内置函数：
+ * {@code lerp(a, b, t)}、{@code interp(x, x0, y0, x1, y1)}、{@code min}、{@code max}、
+ * {@code abs}、{@code exp}、{@code ln}、{@code sqrt}。
+ * <p>
+ * 表达式先解析为语法树，再通过 {@link #compile(ToIntFunction)} 把 ticker 引用绑定到
+ * 槽位下标，求值时只做数组读取和算术运算。
+ */
+public final class QuoteExpression {
+
+    /** 编译后的表达式，按槽位数组求值。 */
+    @FunctionalInterface
+    public interface Compiled {
+        double evaluate(double[] slots);
+    }
+
+    private final String source;
+    private final Node root;
+    private final Set<String> references;
+
+    private QuoteExpression(String source, Node root, Set<String> references) {
+        this.source = source;
+        this.root = root;
+        this.references = references;
+    }
+
+    public static QuoteExpression parse(String source) {
+        if (source == null || source.trim().isEmpty()) {
+            throw new IllegalArgumentException("Expression must not be empty");
+        }
+        Parser parser = new Parser(source);
+        Node root = parser.parseExpression();
+        parser.skipWhitespace();
+        if (!parser.atEnd()) {
+            throw parser.error("Unexpected character '" + source.charAt(parser.pos) + "'");
+        }
+        return new QuoteExpression(source, root, parser.references);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /** 表达式引用到的 ticker，按首次出现的顺序。 */
+    public Set<String> getReferences() {
+        return references;
+    }
+
+    public Compiled compile(ToIntFunction<String> slotResolver) {
+        return root.compile(slotResolver);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private interface Node {
+        Compiled compile(ToIntFunction<String> slotResolver);
+    }
+
+    private static final class Parser {
+        private static final Map<String, Integer> FUNCTION_ARITY = Map.of(
+                "lerp", 3, "interp", 5, "min", 2, "max", 2,
+                "abs", 1, "exp", 1, "ln", 1, "sqrt", 1);
+
+        private final String text;
+        private final Set<String> references = new LinkedHashSet<>();
+        private int pos;
+
+        private Parser(String text) {
+            this.text = text;
+        }
+
+        private Node parseExpression() {
+            Node left = parseTerm();
+            while (true) {
+                skipWhitespace();
+                if (consume('+')) {
+                    left = binary(left, parseTerm(), '+');
+                } else if (consume('-')) {
+                    left = binary(left, parseTerm(), '-');
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Node parseTerm() {
+            Node left = parseUnary();
+            while (true) {
+                skipWhitespace();
+                if (consume('*')) {
+                    left = binary(left, parseUnary(), '*');
+                } else if (consume('/')) {
+                    left = binary(left, parseUnary(), '/');
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Node parseUnary() {
+            skipWhitespace();
+            if (consume('-')) {
+                Node operand = parseUnary();
+                return resolver -> {
+                    Compiled c = operand.compile(resolver);
+                    return slots -> -c.evaluate(slots);
+                };
+            }
+            if (consume('+')) {
+                return parseUnary();
+            }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() {
+            skipWhitespace();
+            if (atEnd()) {
+                throw error("Unexpected end of expression");
+            }
+            char c = text.charAt(pos);
+            if (c == '(') {
+                pos++;
+                Node inner = parseExpression();
+                expect(')');
+                return inner;
+            }
+            if (c == '[') {
+                int close = text.indexOf(']', pos + 1);
+                if (close < 0) {
+                    throw error("Unterminated ticker reference");
+                }
+                String ticker = text.substring(pos + 1, close).trim();
+                if (ticker.isEmpty()) {
+                    throw error("Empty ticker reference");
+                }
+                pos = close + 1;
+                references.add(ticker);
+                return resolver -> {
+                    int slot = resolver.applyAsInt(ticker);
+                    return slots -> slots[slot];
+                };
+            }
+            if (Character.isDigit(c) || c == '.') {
+                return parseNumber();
+            }
+            if (Character.isLetter(c)) {
+                return parseFunction();
+            }
+            throw error("Unexpected character '" + c + "'");
+        }
+
+        private Node parseNumber() {
+            int start = pos;
+            while (!atEnd() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            if (!atEnd() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+                pos++;
+                if (!atEnd() && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+                    pos++;
+                }
+                while (!atEnd() && Character.isDigit(text.charAt(pos))) {
+                    pos++;
+                }
+            }
+            double value;
+            try {
+                value = Double.parseDouble(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number '" + text.substring(start, pos) + "'");
+            }
+            return resolver -> slots -> value;
+        }
+
+        private Node parseFunction() {
+            int start = pos;
+            while (!atEnd() && Character.isLetterOrDigit(text.charAt(pos))) {
+                pos++;
+            }
+            String name = text.substring(start, pos);
+            Integer arity = FUNCTION_ARITY.get(name);
+            if (arity == null) {
+                throw error("Unknown function '" + name + "'");
+            }
+            skipWhitespace();
+            expect('(');
+            List<Node> args = new ArrayList<>();
+            skipWhitespace();
+            if (!consume(')')) {
+                do {
+                    args.add(parseExpression());
+                    skipWhitespace();
+                } while (consume(','));
+                expect(')');
+            }
+            if (args.size() != arity) {
+                throw error("Function '" + name + "' expects " + arity + " argument(s) but got " + args.size());
+            }
+            return resolver -> {
+                Compiled[] a = new Compiled[args.size()];
+                for (int i = 0; i < a.length; i++) {
+                    a[i] = args.get(i).compile(resolver);
+                }
+                switch (name) {
+                    case "lerp":
+                        return slots -> {
+                            double from = a[0].evaluate(slots);
+                            return from + (a[1].evaluate(slots) - from) * a[2].evaluate(slots);
+                        };
+                    case "interp":
+                        return slots -> {
+                            double x0 = a[1].evaluate(slots);
+                            double y0 = a[2].evaluate(slots);
+                            return y0 + (a[4].evaluate(slots) - y0) * (a[0].evaluate(slots) - x0)
+                                    / (a[3].evaluate(slots) - x0);
+                        };
+                    case "min":
+                        return slots -> Math.min(a[0].evaluate(slots), a[1].evaluate(slots));
+                    case "max":
+                        return slots -> Math.max(a[0].evaluate(slots), a[1].evaluate(slots));
+                    case "abs":
+                        return slots -> Math.abs(a[0].evaluate(slots));
+                    case "exp":
+                        return slots -> Math.exp(a[0].evaluate(slots));
+                    case "ln":
+                        return slots -> Math.log(a[0].evaluate(slots));
+                    default:
+                        return slots -> Math.sqrt(a[0].evaluate(slots));
+                }
+            };
+        }
+
+        private static Node binary(Node left, Node right, char op) {
+            return resolver -> {
+                Compiled l = left.compile(resolver);
+                Compiled r = right.compile(resolver);
+                switch (op) {
+                    case '+':
+                        return slots -> l.evaluate(slots) + r.evaluate(slots);
+                    case '-':
+                        return slots -> l.evaluate(slots) - r.evaluate(slots);
+                    case '*':
+                        return slots -> l.evaluate(slots) * r.evaluate(slots);
+                    default:
+                        return slots -> l.evaluate(slots) / r.evaluate(slots);
+                }
+            };
+        }
+
+        private void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean consume(char c) {
+            if (!atEnd() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            skipWhitespace();
+            if (!consume(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        private boolean atEnd() {
+            return pos >= text.length();
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " in expression: " + text);
+        }
+    }
+}
@@ -16,9 +16,11 @@ public class TickerMappingUtil {
     private static Map<String, Map<String, Object>> bbgToOreMap = new HashMap<>();
     private static final ObjectMapper objectMapper = new ObjectMapper();
     private static final String TARGET_TICKER = "USSO10 Curncy";
+    private static volatile DerivedQuoteGraph derivedQuoteGraph = DerivedQuoteGraph.empty();
 
     static {
         loadMapping();
+        compileDerivedQuotes();
     }
 
     private static void loadMapping() {
@@ -37,9 +39,10 @@ public class TickerMappingUtil {
                     logger.info("Target ticker '{}' mapping: {}", TARGET_TICKER, targetMapping);
 
                     // 检查所有ticker的格式
-                    logger.info("Checking all ticker formats in mapping file:");
-                    for (Map.Entry<String, Map<String, Object>> entry : bbgToOreMap.entrySet()) {
-                        logger.info("Ticker: '{}' -> '{}'", entry.getKey(), entry.getValue());
+                    if (logger.isDebugEnabled()) {
+                        for (Map.Entry<String, Map<String, Object>> entry : bbgToOreMap.entrySet()) {
+                            logger.debug("Ticker: '{}' -> '{}'", entry.getKey(), entry.getValue());
+                        }
                     }
                 }
             } else {
@@ -61,6 +64,19 @@ public class TickerMappingUtil {
         }
     }
 
+    private static void compileDerivedQuotes() {
+        try {
+            derivedQuoteGraph = DerivedQuoteGraph.compile(bbgToOreMap);
+            if (!derivedQuoteGraph.isEmpty()) {
+                logger.info("Compiled {} derived quote expressions over {} input tickers",
+                        derivedQuoteGraph.size(), derivedQuoteGraph.getInputTickers().size());
+            }
+        } catch (IllegalArgumentException e) {
+            logger.error("Error compiling derived quote expressions, derived quotes disabled: {}", e.getMessage());
+            derivedQuoteGraph = DerivedQuoteGraph.empty();
+        }
+    }
+
     private static void loadDefaultMapping() {
         logger.info("Loading default mappings");
         // 添加一些默认的映射关系
@@ -88,42 +104,8 @@ public class TickerMappingUtil {
     }
 
     public static Map<String, Object> getOreTickerAndCoefficient(String bbgTicker) {
-        // 如果是目标ticker，记录详细信息
-        if (TARGET_TICKER.equals(bbgTicker)) {
-            logger.info("Processing target ticker: '{}'", bbgTicker);
-            logger.info("Current mappings: {}", bbgToOreMap);
-
-            // 检查ticker的每个字符
-            logger.info("Checking target ticker characters:");
-            for (int i = 0; i < bbgTicker.length(); i++) {
-                char c = bbgTicker.charAt(i);
-                logger.info("Character {}: '{}' (ASCII: {})", i, c, (int) c);
-            }
-        }
-
-        // 检查ticker是否在映射中
-        Map<String, Object> mapping = bbgToOreMap.get(bbgTicker);
-
-        // 如果是目标ticker，记录查找结果
-        if (TARGET_TICKER.equals(bbgTicker)) {
-            if (mapping != null) {
-                logger.info("Found mapping for target ticker: '{}' -> '{}'", bbgTicker, mapping);
-            } else {
-                logger.info("No mapping found for target ticker: '{}'", bbgTicker);
-                // 尝试不同的匹配方式
-                logger.info("Trying alternative matching methods:");
-                for (Map.Entry<String, Map<String, Object>> entry : bbgToOreMap.entrySet()) {
-                    if (entry.getKey().equalsIgnoreCase(bbgTicker)) {
-                        logger.info("Found case-insensitive match: '{}' -> '{}'", entry.getKey(), entry.getValue());
-                    }
-                    if (entry.getKey().trim().equals(bbgTicker.trim())) {
-                        logger.info("Found trimmed match: '{}' -> '{}'", entry.getKey(), entry.getValue());
-                    }
-                }
-            }
-        }
-
-        return mapping;
+        // 转换热路径上只做查找，不输出日志
+        return bbgToOreMap.get(bbgTicker);
     }
 
     public static void updateMapping(String bbgTicker, String oreTicker, double coefficient) {
@@ -131,6 +113,7 @@ public class TickerMappingUtil {
         mapping.put("target", oreTicker);
         mapping.put("coefficient", coefficient);
         bbgToOreMap.put(bbgTicker, mapping);
+        compileDerivedQuotes();
         try {
             objectMapper.writeValue(new File(MAPPING_FILE_PATH), bbgToOreMap);
             logger.info("Updated mapping for {} -> {} (coefficient: {})", bbgTicker, oreTicker, coefficient);
@@ -139,6 +122,13 @@ public class TickerMappingUtil {
         }
     }
 
+    /**
+     * 返回映射表中派生报价（带 expression 的条目）编译后的计算图。
+     */
+    public static DerivedQuoteGraph getDerivedQuoteGraph() {
+        return derivedQuoteGraph;
+    }
+
     public static Map<String, Map<String, Object>> getAllMappings() {
         return new HashMap<>(bbgToOreMap);
     }
@@ -0,0 +1,287 @@
+package com.trading.pnl.websocket;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 广播消息的列式二进制编码（{@value #FORMAT}）。消息中元素全是对象的顶层数组（如 /topic/trades 的 data、
+ * /topic/book/pnl 的 trades）按列存放，字段名每列只写一次，文本列做字典编码，其余字段仍以 JSON 存放在信封中。
+ * <p>
+ * 格式（大端序）：
+ * <pre>
+ * "PCOL" 版本(1 字节)
+ * 信封 JSON 长度(int) 信封 JSON(UTF-8)
+ * 表个数(short)
+ *   每张表：字段名(str) 行数(int) 列数(short)
+ *     每列：列名(str) 类型(1 字节) 数据
+ *       NUMBER  行数个 double，缺失为 NaN
+ *       BOOLEAN 行数个字节，0 假 1 真 2 缺失
+ *       STRING/JSON 字典大小(int) 字典(str...) 编码宽度(1 字节：1、2 或 4) 行数个编码，全 1 为缺失
+ * str 为 长度(int) + UTF-8 字节；JSON 列的字典是值的 JSON 文本，用于类型混杂或嵌套的列。
+ * </pre>
+ * 值为 null 与缺少该字段一样编码为缺失，解码后该行不含这个字段。
+ */
+public final class ColumnarPayloadCodec {
+
+    public static final String FORMAT = "columnar-v1";
+
+    private static final byte[] MAGIC = {'P', 'C', 'O', 'L'};
+    private static final int VERSION = 1;
+    private static final int NUMBER = 0;
+    private static final int BOOLEAN = 1;
+    private static final int STRING = 2;
+    private static final int JSON = 3;
+    // double 能精确表示的最大整数，更大的整数按 JSON 列保存
+    private static final double MAX_EXACT = 9007199254740992.0;
+
+    private ColumnarPayloadCodec() {
+    }
+
+    /**
+     * 编码一条 JSON 消息。消息不是对象或没有可按列存放的数组时返回 null，此时应按 JSON 原样发送。
+     */
+    public static byte[] encode(JsonNode root, ObjectMapper objectMapper) throws IOException {
+        if (root == null || !root.isObject()) {
+            return null;
+        }
+        ObjectNode envelope = objectMapper.createObjectNode();
+        Map<String, JsonNode> tables = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (isTable(field.getValue())) {
+                tables.put(field.getKey(), field.getValue());
+            } else {
+                envelope.set(field.getKey(), field.getValue());
+            }
+        }
+        if (tables.isEmpty()) {
+            return null;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        byte[] envelopeBytes = objectMapper.writeValueAsBytes(envelope);
+        out.writeInt(envelopeBytes.length);
+        out.write(envelopeBytes);
+        out.writeShort(tables.size());
+        for (Map.Entry<String, JsonNode> table : tables.entrySet()) {
+            writeTable(out, table.getKey(), table.getValue());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static boolean isTable(JsonNode node) {
+        if (!node.isArray() || node.isEmpty()) {
+            return false;
+        }
+        for (JsonNode element : node) {
+            if (!element.isObject()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeTable(DataOutputStream out, String name, JsonNode rows) throws IOException {
+        // 列按字段第一次出现的顺序排列
+        Map<String, Integer> columnIndex = new LinkedHashMap<>();
+        for (JsonNode row : rows) {
+            Iterator<String> names = row.fieldNames();
+            while (names.hasNext()) {
+                columnIndex.putIfAbsent(names.next(), columnIndex.size());
+            }
+        }
+        int rowCount = rows.size();
+        writeString(out, name);
+        out.writeInt(rowCount);
+        out.writeShort(columnIndex.size());
+        JsonNode[] values = new JsonNode[rowCount];
+        for (String column : columnIndex.keySet()) {
+            for (int i = 0; i < rowCount; i++) {
+                JsonNode value = rows.get(i).get(column);
+                values[i] = value == null || value.isNull() ? null : value;
+            }
+            writeString(out, column);
+            writeColumn(out, values);
+        }
+    }
+
+    private static void writeColumn(DataOutputStream out, JsonNode[] values) throws IOException {
+        int type = columnType(values);
+        out.writeByte(type);
+        if (type == NUMBER) {
+            for (JsonNode value : values) {
+                out.writeDouble(value == null ? Double.NaN : value.doubleValue());
+            }
+            return;
+        }
+        if (type == BOOLEAN) {
+            for (JsonNode value : values) {
+                out.writeByte(value == null ? 2 : value.booleanValue() ? 1 : 0);
+            }
+            return;
+        }
+        List<String> dictionary = new ArrayList<>();
+        Map<String, Integer> lookup = new HashMap<>();
+        int[] codes = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                codes[i] = -1;
+                continue;
+            }
+            String text = type == STRING ? values[i].textValue() : values[i].toString();
+            codes[i] = lookup.computeIfAbsent(text, k -> {
+                dictionary.add(k);
+                return dictionary.size() - 1;
+            });
+        }
+        out.writeInt(dictionary.size());
+        for (String entry : dictionary) {
+            writeString(out, entry);
+        }
+        // 编码宽度按字典大小取最小值，全 1 留作缺失
+        int width = dictionary.size() < 0xFF ? 1 : dictionary.size() < 0xFFFF ? 2 : 4;
+        out.writeByte(width);
+        for (int code : codes) {
+            if (width == 1) {
+                out.writeByte(code < 0 ? 0xFF : code);
+            } else if (width == 2) {
+                out.writeShort(code < 0 ? 0xFFFF : code);
+            } else {
+                out.writeInt(code);
+            }
+        }
+    }
+
+    private static int columnType(JsonNode[] values) {
+        boolean numbers = true;
+        boolean booleans = true;
+        boolean strings = true;
+        for (JsonNode value : values) {
+            if (value == null) {
+                continue;
+            }
+            numbers &= value.isNumber() && Math.abs(value.doubleValue()) <= MAX_EXACT;
+            booleans &= value.isBoolean();
+            strings &= value.isTextual();
+        }
+        if (numbers) {
+            return NUMBER;
+        }
+        if (booleans) {
+            return BOOLEAN;
+        }
+        return strings ? STRING : JSON;
+    }
+
+    /**
+     * 解码为与原 JSON 等价的 Map，表还原为对象列表，数值统一为 Double。
+     */
+    public static Map<String, Object> decode(byte[] payload, ObjectMapper objectMapper) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        int version = in.readUnsignedByte();
+        if (!Arrays.equals(magic, MAGIC) || version != VERSION) {
+            throw new IOException("Not a " + FORMAT + " payload");
+        }
+        byte[] envelopeBytes = new byte[in.readInt()];
+        in.readFully(envelopeBytes);
+        Map<String, Object> result = objectMapper.readValue(envelopeBytes, new TypeReference<LinkedHashMap<String, Object>>() {
+        });
+        int tableCount = in.readUnsignedShort();
+        for (int t = 0; t < tableCount; t++) {
+            String name = readString(in);
+            int rowCount = in.readInt();
+            int columnCount = in.readUnsignedShort();
+            List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                rows.add(new LinkedHashMap<>());
+            }
+            for (int c = 0; c < columnCount; c++) {
+                readColumn(in, readString(in), rows, objectMapper);
+            }
+            result.put(name, rows);
+        }
+        return result;
+    }
+
+    private static void readColumn(DataInputStream in, String column, List<Map<String, Object>> rows,
+            ObjectMapper objectMapper) throws IOException {
+        int type = in.readUnsignedByte();
+        if (type == NUMBER) {
+            for (Map<String, Object> row : rows) {
+                double value = in.readDouble();
+                if (!Double.isNaN(value)) {
+                    row.put(column, value);
+                }
+            }
+            return;
+        }
+        if (type == BOOLEAN) {
+            for (Map<String, Object> row : rows) {
+                int value = in.readUnsignedByte();
+                if (value != 2) {
+                    row.put(column, value == 1);
+                }
+            }
+            return;
+        }
+        if (type != STRING && type != JSON) {
+            throw new IOException("Unknown column type " + type);
+        }
+        Object[] dictionary = new Object[in.readInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            String text = readString(in);
+            dictionary[i] = type == STRING ? text : objectMapper.readValue(text, Object.class);
+        }
+        int width = in.readUnsignedByte();
+        for (Map<String, Object> row : rows) {
+            int code;
+            if (width == 1) {
+                code = in.readUnsignedByte();
+                code = code == 0xFF ? -1 : code;
+            } else if (width == 2) {
+                code = in.readUnsignedShort();
+                code = code == 0xFFFF ? -1 : code;
+            } else {
+                code = in.readInt();
+            }
+            if (code >= 0) {
+                row.put(column, dictionary[code]);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,217 @@
+package com.trading.pnl.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单个 WebSocket 连接的出站队列。sendMessage 只入队、不阻塞调用线程（STOMP 代理的出站线程），
+ * 实际发送由 {@link OutboundConflationManager} 的发送线程按顺序完成，每个连接同一时刻只有一个线程在发送。
+ * <p>
+ * 快照型目的地（每条消息都是完整状态，如 /topic/trades）的 MESSAGE 帧按 目的地 + 订阅 id 合并：
+ * 客户端跟不上时队列中只保留每个键最新的一条，占据旧消息在队列中的位置。其他消息原样按顺序排队。
+ * 待发字节数超过上限、或单次发送超过时间上限时关闭连接，内存始终有界；跟得上的客户端队列基本为空，不受影响。
+ * 发送时长由管理器的看门狗定期检查，卡住的发送不必等到下一条消息入队才被发现。
+ */
+@Slf4j
+public class ConflatingWebSocketSession extends WebSocketSessionDecorator {
+
+    private final OutboundConflationManager manager;
+    private final Object lock = new Object();
+    // 键为合并键（目的地 + 订阅）或每条消息唯一的序号
+    private final LinkedHashMap<Object, WebSocketMessage<?>> pending = new LinkedHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private long pendingBytes;
+    private long sequence;
+    private volatile long sendStartedAt;
+    private volatile boolean closed;
+
+    public ConflatingWebSocketSession(WebSocketSession delegate, OutboundConflationManager manager) {
+        super(delegate);
+        this.manager = manager;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (closed) {
+            return;
+        }
+        checkSendTime(System.currentTimeMillis());
+        if (closed) {
+            return;
+        }
+        String key = conflationKey(message);
+        boolean overflow;
+        synchronized (lock) {
+            WebSocketMessage<?> replaced = pending.put(key != null ? key : Long.valueOf(sequence++), message);
+            if (replaced != null) {
+                pendingBytes -= replaced.getPayloadLength();
+                manager.recordConflated();
+            }
+            pendingBytes += message.getPayloadLength();
+            overflow = pendingBytes > manager.getSendBufferSizeLimit();
+        }
+        if (overflow) {
+            terminate("send buffer limit " + manager.getSendBufferSizeLimit() + " bytes exceeded");
+            return;
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            manager.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (!closed) {
+                WebSocketMessage<?> next;
+                synchronized (lock) {
+                    Iterator<Map.Entry<Object, WebSocketMessage<?>>> it = pending.entrySet().iterator();
+                    if (!it.hasNext()) {
+                        break;
+                    }
+                    next = it.next().getValue();
+                    it.remove();
+                    pendingBytes -= next.getPayloadLength();
+                }
+                sendStartedAt = System.currentTimeMillis();
+                manager.sendStarted(this);
+                try {
+                    getDelegate().sendMessage(next);
+                } finally {
+                    sendStartedAt = 0;
+                    manager.sendFinished(this);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to send to WebSocket session {}: {}", getId(), e.getMessage());
+            terminate("send failed");
+        } finally {
+            scheduled.set(false);
+        }
+        // 清标志之后到达的消息由这里补排一轮
+        boolean more;
+        synchronized (lock) {
+            more = !pending.isEmpty();
+        }
+        if (more && !closed) {
+            schedule();
+        }
+    }
+
+    /**
+     * 正在进行的发送超过时间上限时关闭连接。关闭底层连接会使阻塞中的发送失败返回，发送线程随之释放。
+     */
+    void checkSendTime(long now) {
+        long started = sendStartedAt;
+        if (started > 0 && now - started > manager.getSendTimeLimitMillis()) {
+            terminate("send time limit " + manager.getSendTimeLimitMillis() + " ms exceeded");
+        }
+    }
+
+    /**
+     * 待发送的消息数。
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    public long getPendingBytes() {
+        synchronized (lock) {
+            return pendingBytes;
+        }
+    }
+
+    /**
+     * 连接已关闭，丢弃待发消息。
+     */
+    void discard() {
+        closed = true;
+        synchronized (lock) {
+            pending.clear();
+            pendingBytes = 0;
+        }
+    }
+
+    private void terminate(String reason) {
+        if (closed) {
+            return;
+        }
+        discard();
+        manager.recordTerminated();
+        log.warn("Closing slow WebSocket session {}: {}", getId(), reason);
+        try {
+            getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.debug("Failed to close WebSocket session {}: {}", getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 快照型目的地的 MESSAGE 帧返回 目的地 + 订阅 id，其他帧返回 null。只解析帧头，不解码消息体。
+     */
+    private String conflationKey(WebSocketMessage<?> message) {
+        String head;
+        if (message instanceof TextMessage) {
+            String payload = ((TextMessage) message).getPayload();
+            if (!payload.startsWith("MESSAGE\n")) {
+                return null;
+            }
+            int end = payload.indexOf("\n\n");
+            head = end < 0 ? payload : payload.substring(0, end);
+        } else if (message instanceof BinaryMessage) {
+            ByteBuffer payload = ((BinaryMessage) message).getPayload().duplicate();
+            int end = headerEnd(payload);
+            if (end < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[end - payload.position()];
+            payload.get(bytes);
+            head = new String(bytes, StandardCharsets.UTF_8);
+            if (!head.startsWith("MESSAGE\n")) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+        String destination = null;
+        String subscription = null;
+        for (String line : head.split("\n")) {
+            if (line.startsWith("destination:")) {
+                destination = line.substring("destination:".length());
+            } else if (line.startsWith("subscription:")) {
+                subscription = line.substring("subscription:".length());
+            }
+        }
+        if (destination == null || !manager.isConflated(destination)) {
+            return null;
+        }
+        return destination + "|" + subscription;
+    }
+
+    private static int headerEnd(ByteBuffer buffer) {
+        for (int i = buffer.position(); i + 1 < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n' && buffer.get(i + 1) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
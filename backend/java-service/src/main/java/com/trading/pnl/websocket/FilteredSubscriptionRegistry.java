@@ -0,0 +1,208 @@
+package com.trading.pnl.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 带过滤条件的订阅的路由索引。客户端订阅 {@code <topic>/<维度>/<取值>}（如 /topic/trades/pair/USDCNH、
+ * /topic/book/pnl/desk/FXO），只收到匹配的交易；维度为 {@value #PAIR}（货币对）和 {@value #DESK}（交易簿）。
+ * <p>
+ * 注册在入站通道上，按 SUBSCRIBE/UNSUBSCRIBE/DISCONNECT 维护 主题 → 维度 → 取值 → 订阅数，
+ * {@link FilteredTopicPublisher} 据此只为有订阅者的过滤组生成消息。SUBSCRIBE 的目的地会改写为规范形式
+ * （货币对去掉分隔符并转大写），同一过滤组的订阅者共用一个目的地，每条消息只序列化一次。
+ */
+@Slf4j
+@Component
+public class FilteredSubscriptionRegistry implements ChannelInterceptor {
+
+    public static final String PAIR = "pair";
+    public static final String DESK = "desk";
+
+    private final List<String> topics;
+    // 主题 → 维度 → 取值 → 订阅数
+    private final Map<String, Map<String, Map<String, Integer>>> index = new HashMap<>();
+    // 会话 → 订阅 id → 过滤条件
+    private final Map<String, Map<String, Filter>> subscriptions = new HashMap<>();
+
+    public FilteredSubscriptionRegistry(
+            @Value("${websocket.filters.topics:/topic/trades,/topic/book/pnl}") List<String> topics) {
+        this.topics = new ArrayList<>(topics);
+    }
+
+    private static final class Filter {
+        final String topic;
+        final String dimension;
+        final String value;
+
+        Filter(String topic, String dimension, String value) {
+            this.topic = topic;
+            this.dimension = dimension;
+            this.value = value;
+        }
+    }
+
+    /**
+     * 过滤组的目的地。
+     */
+    public static String destination(String topic, String dimension, String value) {
+        return topic + "/" + dimension + "/" + value;
+    }
+
+    /**
+     * 取值的规范形式，无法作为过滤条件时返回 null。
+     */
+    public static String canonicalValue(String dimension, Object raw) {
+        if (raw == null) {
+            return null;
+        }
+        String value = raw.toString().trim();
+        if (PAIR.equals(dimension)) {
+            value = value.toUpperCase(Locale.ROOT).replaceAll("[^A-Z]", "");
+        } else if (!DESK.equals(dimension)) {
+            return null;
+        }
+        return value.isEmpty() || value.contains("/") ? null : value;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (sessionId == null) {
+            return message;
+        }
+        if (SimpMessageType.SUBSCRIBE.equals(type)) {
+            return subscribe(message, sessionId);
+        } else if (SimpMessageType.UNSUBSCRIBE.equals(type)) {
+            unsubscribe(sessionId, SimpMessageHeaderAccessor.getSubscriptionId(headers));
+        } else if (SimpMessageType.DISCONNECT.equals(type)) {
+            removeSession(sessionId);
+        }
+        return message;
+    }
+
+    private Message<?> subscribe(Message<?> message, String sessionId) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders());
+        Filter filter = parse(destination);
+        if (filter == null || subscriptionId == null) {
+            return message;
+        }
+        synchronized (this) {
+            Filter previous = subscriptions.computeIfAbsent(sessionId, k -> new HashMap<>()).put(subscriptionId, filter);
+            if (previous != null) {
+                release(previous);
+            }
+            index.computeIfAbsent(filter.topic, k -> new HashMap<>())
+                    .computeIfAbsent(filter.dimension, k -> new HashMap<>())
+                    .merge(filter.value, 1, Integer::sum);
+        }
+        String canonical = destination(filter.topic, filter.dimension, filter.value);
+        if (canonical.equals(destination)) {
+            return message;
+        }
+        log.debug("Session {} subscribed to {} as {}", sessionId, destination, canonical);
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        accessor.setDestination(canonical);
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+
+    private Filter parse(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        for (String topic : topics) {
+            if (!destination.startsWith(topic + "/")) {
+                continue;
+            }
+            String[] parts = destination.substring(topic.length() + 1).split("/", -1);
+            if (parts.length != 2) {
+                return null;
+            }
+            String value = canonicalValue(parts[0], parts[1]);
+            return value == null ? null : new Filter(topic, parts[0], value);
+        }
+        return null;
+    }
+
+    private synchronized void unsubscribe(String sessionId, String subscriptionId) {
+        Map<String, Filter> session = subscriptions.get(sessionId);
+        if (session == null || subscriptionId == null) {
+            return;
+        }
+        Filter filter = session.remove(subscriptionId);
+        if (filter != null) {
+            release(filter);
+        }
+        if (session.isEmpty()) {
+            subscriptions.remove(sessionId);
+        }
+    }
+
+    private synchronized void removeSession(String sessionId) {
+        Map<String, Filter> session = subscriptions.remove(sessionId);
+        if (session != null) {
+            session.values().forEach(this::release);
+        }
+    }
+
+    private void release(Filter filter) {
+        Map<String, Map<String, Integer>> dimensions = index.get(filter.topic);
+        Map<String, Integer> values = dimensions == null ? null : dimensions.get(filter.dimension);
+        if (values == null) {
+            return;
+        }
+        values.computeIfPresent(filter.value, (k, count) -> count > 1 ? count - 1 : null);
+        if (values.isEmpty()) {
+            dimensions.remove(filter.dimension);
+        }
+        if (dimensions.isEmpty()) {
+            index.remove(filter.topic);
+        }
+    }
+
+    /**
+     * 某主题某维度上有订阅者的取值。
+     */
+    public synchronized Set<String> activeValues(String topic, String dimension) {
+        Map<String, Map<String, Integer>> dimensions = index.get(topic);
+        Map<String, Integer> values = dimensions == null ? null : dimensions.get(dimension);
+        return values == null ? Collections.emptySet() : Set.copyOf(values.keySet());
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> groups = new TreeMap<>();
+        for (Map.Entry<String, Map<String, Map<String, Integer>>> topic : index.entrySet()) {
+            for (Map.Entry<String, Map<String, Integer>> dimension : topic.getValue().entrySet()) {
+                for (Map.Entry<String, Integer> value : dimension.getValue().entrySet()) {
+                    groups.put(destination(topic.getKey(), dimension.getKey(), value.getKey()), value.getValue());
+                }
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("topics", topics);
+        stats.put("dimensions", List.of(PAIR, DESK));
+        stats.put("groups", groups);
+        return stats;
+    }
+}
@@ -0,0 +1,79 @@
+package com.trading.pnl.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 把一条广播按过滤组拆分后发到 {@link FilteredSubscriptionRegistry} 中有订阅者的目的地。
+ * 每个维度只遍历一次行，按取值分组；每个过滤组生成一条消息，由代理转发给组内所有订阅者。
+ */
+@Component
+public class FilteredTopicPublisher {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final FilteredSubscriptionRegistry registry;
+    private final Counter messages;
+    private final Counter rowsSent;
+
+    public FilteredTopicPublisher(SimpMessagingTemplate messagingTemplate, FilteredSubscriptionRegistry registry,
+            MeterRegistry meterRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.registry = registry;
+        this.messages = Counter.builder("websocket.filtered.messages")
+                .description("Messages published to filtered subscription groups")
+                .register(meterRegistry);
+        this.rowsSent = Counter.builder("websocket.filtered.rows")
+                .description("Rows published to filtered subscription groups")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 按维度拆分 rows 后发布。消息为 envelope 加上 filter（维度和取值）以及 rowsField 下的匹配行。
+     * snapshot 为 true 时（每条消息都是完整状态）没有匹配行的过滤组也会收到空列表，否则跳过。
+     *
+     * @return 发出的消息数
+     */
+    public <T> int publish(String topic, Map<String, Object> envelope, String rowsField, List<T> rows,
+            Map<String, Function<T, ?>> dimensions, boolean snapshot) {
+        int sent = 0;
+        for (Map.Entry<String, Function<T, ?>> dimension : dimensions.entrySet()) {
+            Set<String> active = registry.activeValues(topic, dimension.getKey());
+            if (active.isEmpty()) {
+                continue;
+            }
+            Map<String, List<T>> groups = new HashMap<>();
+            for (T row : rows) {
+                String value = FilteredSubscriptionRegistry.canonicalValue(dimension.getKey(),
+                        dimension.getValue().apply(row));
+                if (value != null && active.contains(value)) {
+                    groups.computeIfAbsent(value, k -> new ArrayList<>()).add(row);
+                }
+            }
+            for (String value : active) {
+                List<T> matched = groups.getOrDefault(value, List.of());
+                if (matched.isEmpty() && !snapshot) {
+                    continue;
+                }
+                Map<String, Object> message = new LinkedHashMap<>(envelope);
+                message.put("filter", Map.of(dimension.getKey(), value));
+                message.put(rowsField, matched);
+                messagingTemplate.convertAndSend(
+                        FilteredSubscriptionRegistry.destination(topic, dimension.getKey(), value), message);
+                messages.increment();
+                rowsSent.increment(matched.size());
+                sent++;
+            }
+        }
+        return sent;
+    }
+}
@@ -0,0 +1,189 @@
+package com.trading.pnl.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 出站消息的合并与背压：把每个 WebSocket 连接包装成 {@link ConflatingWebSocketSession}，
+ * 由专用的发送线程把各连接的队列发出去。通过 {@link #decorate} 注册为 WebSocket 传输层的装饰器。
+ * <p>
+ * websocket.conflation.destinations 列出快照型目的地的前缀，这些目的地上慢客户端只收到每个订阅的最新消息；
+ * send-buffer-size-limit 和 send-time-limit-ms 是每个连接待发字节数和单次发送时长的上限，超过时关闭连接。
+ * 发送线程由所有连接共用，看门狗线程每隔四分之一的时长上限检查一次正在进行的发送，
+ * 关闭卡住的连接，少数不读数据的客户端不会占满发送线程。
+ */
+@Slf4j
+@Component
+public class OutboundConflationManager {
+
+    private final List<String> destinations;
+    private final long sendBufferSizeLimit;
+    private final long sendTimeLimitMillis;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService watchdog;
+    private final Map<String, ConflatingWebSocketSession> sessions = new ConcurrentHashMap<>();
+    // 正在发送的连接，由看门狗检查发送时长
+    private final Set<ConflatingWebSocketSession> sending = ConcurrentHashMap.newKeySet();
+    private final Counter conflated;
+    private final Counter terminated;
+
+    public OutboundConflationManager(MeterRegistry meterRegistry,
+            @Value("${websocket.conflation.destinations:/topic/trades}") List<String> destinations,
+            @Value("${websocket.conflation.send-buffer-size-limit:524288}") long sendBufferSizeLimit,
+            @Value("${websocket.conflation.send-time-limit-ms:10000}") long sendTimeLimitMillis,
+            @Value("${websocket.conflation.sender-threads:4}") int senderThreads) {
+        this.destinations = new ArrayList<>(destinations);
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, senderThreads), r -> {
+            Thread t = new Thread(r, "ws-outbound-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-outbound-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        long checkInterval = Math.max(10, sendTimeLimitMillis / 4);
+        this.watchdog.scheduleWithFixedDelay(this::checkSendTimes, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        this.conflated = Counter.builder("websocket.outbound.conflated")
+                .description("Outbound WebSocket messages replaced by a newer message before sending")
+                .register(meterRegistry);
+        this.terminated = Counter.builder("websocket.outbound.terminated")
+                .description("WebSocket sessions closed for exceeding send buffer or time limits")
+                .register(meterRegistry);
+        Gauge.builder("websocket.outbound.pending.bytes", this, OutboundConflationManager::getPendingBytes)
+                .description("Bytes queued for sending across all WebSocket sessions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 传输层装饰器工厂，连接建立时替换为带出站队列的会话。
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                // SockJS 只能传文本帧，二进制编码协商时据此判断
+                session.getAttributes().put(PayloadEncodingInterceptor.BINARY_FRAMES_ATTRIBUTE,
+                        !(session instanceof SockJsSession));
+                ConflatingWebSocketSession wrapped = new ConflatingWebSocketSession(session,
+                        OutboundConflationManager.this);
+                sessions.put(session.getId(), wrapped);
+                super.afterConnectionEstablished(wrapped);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                ConflatingWebSocketSession wrapped = sessions.remove(session.getId());
+                if (wrapped != null) {
+                    wrapped.discard();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    boolean isConflated(String destination) {
+        for (String prefix : destinations) {
+            if (destination.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long getSendBufferSizeLimit() {
+        return sendBufferSizeLimit;
+    }
+
+    long getSendTimeLimitMillis() {
+        return sendTimeLimitMillis;
+    }
+
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    void sendStarted(ConflatingWebSocketSession session) {
+        sending.add(session);
+    }
+
+    void sendFinished(ConflatingWebSocketSession session) {
+        sending.remove(session);
+    }
+
+    private void checkSendTimes() {
+        long now = System.currentTimeMillis();
+        for (ConflatingWebSocketSession session : sending) {
+            try {
+                session.checkSendTime(now);
+            } catch (RuntimeException e) {
+                log.warn("Failed to check send time of WebSocket session {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    void recordConflated() {
+        conflated.increment();
+    }
+
+    void recordTerminated() {
+        terminated.increment();
+    }
+
+    public long getPendingBytes() {
+        long total = 0;
+        for (ConflatingWebSocketSession session : sessions.values()) {
+            total += session.getPendingBytes();
+        }
+        return total;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int backlogged = 0;
+        for (ConflatingWebSocketSession session : sessions.values()) {
+            if (session.getPendingCount() > 0) {
+                backlogged++;
+            }
+        }
+        stats.put("sessions", sessions.size());
+        stats.put("backloggedSessions", backlogged);
+        stats.put("pendingBytes", getPendingBytes());
+        stats.put("conflated", (long) conflated.count());
+        stats.put("terminated", (long) terminated.count());
+        stats.put("conflatedDestinations", destinations);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,185 @@
+package com.trading.pnl.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 广播消息的二进制编码协商。客户端在 STOMP CONNECT 帧中带上 {@value #ENCODING_HEADER} 头（如
+ * {@code payload-encoding: columnar-v1}），之后该连接收到的配置目的地上的 JSON 消息改为
+ * {@link ColumnarPayloadCodec} 编码的二进制帧，帧头带同名头标明编码，未编码的消息仍为 JSON。
+ * SockJS 连接只能传文本帧，不做协商。
+ * <p>
+ * 同时注册在入站和出站通道上：入站处理 CONNECT/DISCONNECT，出站改写 MESSAGE 帧。
+ * 简单代理向所有订阅者转发同一个载荷对象，编码结果按载荷对象缓存，每条消息每种编码只编码一次。
+ */
+@Slf4j
+@Component
+public class PayloadEncodingInterceptor implements ChannelInterceptor {
+
+    public static final String ENCODING_HEADER = "payload-encoding";
+    /** 会话属性，连接能否传二进制帧，由 {@link OutboundConflationManager} 在连接建立时写入。 */
+    public static final String BINARY_FRAMES_ATTRIBUTE = "payloadEncoding.binaryFrames";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> destinations;
+    private final Map<String, String> sessionEncodings = new ConcurrentHashMap<>();
+    // 键为代理转发的载荷数组（数组按引用比较），载荷不再被引用后自动清除；无法编码的消息缓存为空数组
+    private final Map<Object, byte[]> encoded = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Counter encodes;
+    private final Counter reuses;
+
+    public PayloadEncodingInterceptor(MeterRegistry meterRegistry,
+            @Value("${websocket.encoding.destinations:/topic/trades,/topic/book/pnl}") List<String> destinations) {
+        this.destinations = new ArrayList<>(destinations);
+        this.encodes = Counter.builder("websocket.encoding.encoded")
+                .description("Broadcast payloads encoded into a binary format")
+                .tag("format", ColumnarPayloadCodec.FORMAT)
+                .register(meterRegistry);
+        this.reuses = Counter.builder("websocket.encoding.reused")
+                .description("Binary frames served from an already encoded broadcast payload")
+                .tag("format", ColumnarPayloadCodec.FORMAT)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        if (SimpMessageType.CONNECT.equals(type)) {
+            negotiate(message);
+        } else if (SimpMessageType.DISCONNECT.equals(type)) {
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+            if (sessionId != null) {
+                sessionEncodings.remove(sessionId);
+            }
+        } else if (SimpMessageType.MESSAGE.equals(type)) {
+            return encode(message);
+        }
+        return message;
+    }
+
+    private void negotiate(Message<?> message) {
+        SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+        if (accessor == null || accessor.getSessionId() == null) {
+            return;
+        }
+        String requested = accessor.getFirstNativeHeader(ENCODING_HEADER);
+        if (requested == null) {
+            return;
+        }
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes == null || !Boolean.TRUE.equals(attributes.get(BINARY_FRAMES_ATTRIBUTE))) {
+            log.info("Session {} requested {} over a text-only transport, keeping JSON",
+                    accessor.getSessionId(), requested);
+            return;
+        }
+        for (String candidate : requested.split(",")) {
+            if (ColumnarPayloadCodec.FORMAT.equals(candidate.trim())) {
+                sessionEncodings.put(accessor.getSessionId(), ColumnarPayloadCodec.FORMAT);
+                log.info("Session {} negotiated {} payloads", accessor.getSessionId(), ColumnarPayloadCodec.FORMAT);
+                return;
+            }
+        }
+        log.info("Session {} requested unsupported encoding {}, keeping JSON", accessor.getSessionId(), requested);
+    }
+
+    private Message<?> encode(Message<?> message) {
+        MessageHeaders headers = message.getHeaders();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (sessionId == null || !sessionEncodings.containsKey(sessionId)
+                || !(message.getPayload() instanceof byte[])) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null || !isEncoded(destination)) {
+            return message;
+        }
+        MimeType contentType = contentType(headers);
+        if (contentType == null || !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return message;
+        }
+
+        byte[] payload = (byte[]) message.getPayload();
+        byte[] binary = encoded.get(payload);
+        boolean reused = binary != null;
+        if (binary == null) {
+            binary = encoded.computeIfAbsent(payload, this::encodePayload);
+        }
+        if (binary.length == 0) {
+            return message;
+        }
+        if (reused) {
+            reuses.increment();
+        }
+
+        // 二进制内容类型让 STOMP 处理器以二进制 WebSocket 帧发送
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setNativeHeader(ENCODING_HEADER, ColumnarPayloadCodec.FORMAT);
+        return MessageBuilder.createMessage(binary, accessor.getMessageHeaders());
+    }
+
+    private byte[] encodePayload(Object payload) {
+        try {
+            byte[] binary = ColumnarPayloadCodec.encode(objectMapper.readTree((byte[]) payload), objectMapper);
+            if (binary == null) {
+                return new byte[0];
+            }
+            encodes.increment();
+            return binary;
+        } catch (IOException e) {
+            log.warn("Failed to encode broadcast payload as {}: {}", ColumnarPayloadCodec.FORMAT, e.getMessage());
+            return new byte[0];
+        }
+    }
+
+    private boolean isEncoded(String destination) {
+        for (String prefix : destinations) {
+            if (destination.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MimeType contentType(MessageHeaders headers) {
+        Object value = headers.get(MessageHeaders.CONTENT_TYPE);
+        if (value instanceof MimeType) {
+            return (MimeType) value;
+        }
+        return value instanceof String ? MimeTypeUtils.parseMimeType((String) value) : null;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("formats", List.of(ColumnarPayloadCodec.FORMAT));
+        stats.put("binarySessions", sessionEncodings.size());
+        stats.put("encoded", (long) encodes.count());
+        stats.put("reused", (long) reuses.count());
+        stats.put("encodedDestinations", destinations);
+        return stats;
+    }
+}
@@ -0,0 +1,251 @@
+package com.trading.pnl.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 广播消息的序号与重连补发。每条广播在发送前由 {@link #record} 写入 sequence（每个主题从 1 递增）和
+ * epoch（服务启动时间，重启后序号重新开始），并保存在该主题的有界环形缓冲区中。
+ * <p>
+ * 断线重连的客户端先重新订阅，再带上最后收到的 sequence 和 epoch 调用 {@link #resync}：
+ * <ul>
+ * <li>增量主题（如 /topic/book/pnl）返回缓冲区中错过的消息；落后超过缓冲区容量或 epoch 不一致时返回快照。</li>
+ * <li>快照主题（如 /topic/trades，每条消息都是完整状态）只保留最新一条，落后时直接返回它作为快照。</li>
+ * </ul>
+ * 快照对应的 sequence 在生成快照之前读取，之后到达的消息可能已包含在快照中，增量消息按交易覆盖，重复应用无影响。
+ * 客户端应丢弃 sequence 不大于已应用值的实时消息。
+ * <p>
+ * 过滤目的地（{@code <topic>/<维度>/<取值>}，见 {@link FilteredSubscriptionRegistry}）没有单独的缓冲区，
+ * 发布时带的是父主题的 sequence。对它们 resync 时按父主题处理，再按 {@link #registerFilters} 声明的维度
+ * 只保留匹配的行；补发时跳过没有匹配行的消息，与实时推送一致。
+ */
+@Slf4j
+@Component
+public class TopicReplayBuffer {
+
+    public static final String MODE_CURRENT = "current";
+    public static final String MODE_REPLAY = "replay";
+    public static final String MODE_SNAPSHOT = "snapshot";
+
+    private final int capacity;
+    private final long epoch = System.currentTimeMillis();
+    private final Map<String, TopicLog> topics = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public TopicReplayBuffer(MeterRegistry meterRegistry,
+            @Value("${websocket.replay.capacity:256}") int capacity) {
+        this.meterRegistry = meterRegistry;
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * 单个主题的环形缓冲区，snapshot 为 null 时是快照主题，只保留最新一条。
+     */
+    private static final class TopicLog {
+        final Supplier<Map<String, Object>> snapshot;
+        final List<Map<String, Object>> ring;
+        long last;
+        // 支持过滤订阅时消息中行列表的字段名和各维度的取值函数
+        volatile String rowsField;
+        volatile Map<String, Function<Object, ?>> dimensions = Map.of();
+
+        @SuppressWarnings("unchecked")
+        TopicLog(Supplier<Map<String, Object>> snapshot, int capacity) {
+            this.snapshot = snapshot;
+            this.ring = new ArrayList<>(Collections.nCopies(snapshot == null ? 1 : capacity, null));
+        }
+
+        Map<String, Object> at(long sequence) {
+            return ring.get((int) (sequence % ring.size()));
+        }
+
+        long oldest() {
+            return Math.max(1, last - ring.size() + 1);
+        }
+    }
+
+    /**
+     * 注册增量主题，落后太多的客户端从 snapshot 取完整状态。
+     */
+    public void registerIncremental(String topic, Supplier<Map<String, Object>> snapshot) {
+        topics.put(topic, new TopicLog(snapshot, capacity));
+    }
+
+    /**
+     * 注册快照主题。
+     */
+    public void registerSnapshot(String topic) {
+        topics.putIfAbsent(topic, new TopicLog(null, 1));
+    }
+
+    /**
+     * 声明已注册的主题支持过滤订阅：rowsField 为消息中行列表的字段名，dimensions 为各维度从行中取值的函数
+     * （与 {@link FilteredTopicPublisher#publish} 使用的相同）。
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void registerFilters(String topic, String rowsField, Map<String, Function<T, ?>> dimensions) {
+        TopicLog topicLog = topics.get(topic);
+        if (topicLog == null) {
+            throw new IllegalStateException("Topic is not registered: " + topic);
+        }
+        Map<String, Function<Object, ?>> copy = new LinkedHashMap<>();
+        dimensions.forEach((dimension, value) -> copy.put(dimension, (Function<Object, ?>) value));
+        topicLog.rowsField = rowsField;
+        topicLog.dimensions = copy;
+    }
+
+    /**
+     * 为即将广播的消息分配序号并保存，消息中写入 sequence 和 epoch。保存后消息不应再修改。
+     */
+    public long record(String topic, Map<String, Object> message) {
+        TopicLog topicLog = topics.computeIfAbsent(topic, k -> new TopicLog(null, 1));
+        synchronized (topicLog) {
+            long sequence = ++topicLog.last;
+            message.put("sequence", sequence);
+            message.put("epoch", epoch);
+            topicLog.ring.set((int) (sequence % topicLog.ring.size()), message);
+            return sequence;
+        }
+    }
+
+    /**
+     * 重连补发。since 为客户端最后应用的 sequence（没有时为 null），epoch 为该消息的 epoch。
+     */
+    public Map<String, Object> resync(String topic, Long clientEpoch, Long since) {
+        TopicLog topicLog = topics.get(topic);
+        if (topicLog == null) {
+            return resyncFiltered(topic, clientEpoch, since);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("topic", topic);
+        response.put("epoch", epoch);
+        boolean sameEpoch = clientEpoch != null && clientEpoch == epoch;
+        long current;
+        Map<String, Object> latest;
+        synchronized (topicLog) {
+            current = topicLog.last;
+            latest = current > 0 ? topicLog.at(current) : null;
+            if (sameEpoch && since != null && since >= 0 && since <= current) {
+                if (since == current) {
+                    return finish(response, MODE_CURRENT, current);
+                }
+                if (topicLog.snapshot != null && since + 1 >= topicLog.oldest()) {
+                    List<Map<String, Object>> updates = new ArrayList<>((int) (current - since));
+                    for (long sequence = since + 1; sequence <= current; sequence++) {
+                        updates.add(topicLog.at(sequence));
+                    }
+                    response.put("updates", updates);
+                    return finish(response, MODE_REPLAY, current);
+                }
+            }
+        }
+        // 快照在锁外生成，sequence 已在生成前确定
+        response.put("snapshot", topicLog.snapshot != null ? topicLog.snapshot.get() : latest);
+        return finish(response, MODE_SNAPSHOT, current);
+    }
+
+    /**
+     * 过滤目的地按父主题 resync，结果中只保留匹配的行。
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> resyncFiltered(String destination, Long clientEpoch, Long since) {
+        for (Map.Entry<String, TopicLog> entry : topics.entrySet()) {
+            TopicLog topicLog = entry.getValue();
+            String parent = entry.getKey();
+            if (topicLog.dimensions.isEmpty() || !destination.startsWith(parent + "/")) {
+                continue;
+            }
+            String[] parts = destination.substring(parent.length() + 1).split("/", -1);
+            Function<Object, ?> dimension = parts.length == 2 ? topicLog.dimensions.get(parts[0]) : null;
+            String value = dimension == null ? null : FilteredSubscriptionRegistry.canonicalValue(parts[0], parts[1]);
+            if (value == null) {
+                continue;
+            }
+            Map<String, Object> response = resync(parent, clientEpoch, since);
+            response.put("topic", FilteredSubscriptionRegistry.destination(parent, parts[0], value));
+            Object updates = response.get("updates");
+            if (updates != null) {
+                List<Map<String, Object>> matched = new ArrayList<>();
+                for (Map<String, Object> update : (List<Map<String, Object>>) updates) {
+                    Map<String, Object> filtered = filter(update, topicLog.rowsField, parts[0], dimension, value);
+                    if (!((List<?>) filtered.get(topicLog.rowsField)).isEmpty()) {
+                        matched.add(filtered);
+                    }
+                }
+                response.put("updates", matched);
+            }
+            Object snapshot = response.get("snapshot");
+            if (snapshot != null) {
+                response.put("snapshot", filter((Map<String, Object>) snapshot, topicLog.rowsField, parts[0],
+                        dimension, value));
+            }
+            return response;
+        }
+        throw new IllegalArgumentException("No replay buffer for topic: " + destination);
+    }
+
+    private static Map<String, Object> filter(Map<String, Object> message, String rowsField, String dimension,
+            Function<Object, ?> values, String value) {
+        List<Object> matched = new ArrayList<>();
+        Object rows = message.get(rowsField);
+        if (rows instanceof List) {
+            for (Object row : (List<?>) rows) {
+                if (value.equals(FilteredSubscriptionRegistry.canonicalValue(dimension, values.apply(row)))) {
+                    matched.add(row);
+                }
+            }
+        }
+        Map<String, Object> filtered = new LinkedHashMap<>(message);
+        filtered.put("filter", Map.of(dimension, value));
+        filtered.put(rowsField, matched);
+        return filtered;
+    }
+
+    private Map<String, Object> finish(Map<String, Object> response, String mode, long sequence) {
+        response.put("sequence", sequence);
+        response.put("mode", mode);
+        Counter.builder("websocket.resync")
+                .description("Reconnect resync requests by outcome")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .increment();
+        log.debug("Resync of {} answered with {} at sequence {}", response.get("topic"), mode, sequence);
+        return response;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        for (Map.Entry<String, TopicLog> entry : topics.entrySet()) {
+            TopicLog topicLog = entry.getValue();
+            Map<String, Object> topic = new LinkedHashMap<>();
+            synchronized (topicLog) {
+                topic.put("type", topicLog.snapshot == null ? MODE_SNAPSHOT : "incremental");
+                topic.put("sequence", topicLog.last);
+                topic.put("oldestSequence", topicLog.last == 0 ? 0 : topicLog.oldest());
+                topic.put("capacity", topicLog.ring.size());
+            }
+            stats.put(entry.getKey(), topic);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("epoch", epoch);
+        result.put("topics", stats);
+        return result;
+    }
+}
@@ -0,0 +1,265 @@
+package com.trading.pnl.service;
+
+import com.quantlib.FXOption;
+import com.quantlib.GarmanKohlhagenPricer;
+import com.trading.pnl.model.TradeValuation;
+import com.trading.pnl.websocket.FilteredSubscriptionRegistry;
+import com.trading.pnl.websocket.FilteredTopicPublisher;
+import com.trading.pnl.websocket.TopicReplayBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class BookRevaluationServiceTest {
+
+    private static final LocalDate AS_OF = LocalDate.of(2025, 1, 10);
+
+    private SimpMessagingTemplate messagingTemplate;
+    private FilteredSubscriptionRegistry subscriptions;
+    private TopicReplayBuffer replayBuffer;
+    private BookRevaluationService service;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        replayBuffer = new TopicReplayBuffer(meterRegistry, 2);
+        subscriptions = new FilteredSubscriptionRegistry(List.of("/topic/trades", BookRevaluationService.TOPIC));
+        FilteredTopicPublisher filteredTopicPublisher = new FilteredTopicPublisher(messagingTemplate, subscriptions,
+                meterRegistry);
+        service = new BookRevaluationService(
+                new TradeMonitorService(messagingTemplate, filteredTopicPublisher, replayBuffer),
+                messagingTemplate, filteredTopicPublisher, replayBuffer,
+                new OreConversionService(meterRegistry), new MarketCurveService(meterRegistry, 0.01, 0.0001),
+                new OptionPricingCache(meterRegistry, 10000, 1e-10, 1e-10, 1e-10), meterRegistry, 2, 1);
+
+        Map<String, Double> quotes = new HashMap<>();
+        quotes.put("FX/RATE/USD/CNH", 7.30);
+        quotes.put("FXFWD/RATE/USD/CNH/6M", -1500.0);
+        quotes.put("FX_OPTION/RATE_LNVOL/USD/CNH/1M/ATM", 4.0);
+        quotes.put("FX_OPTION/RATE_LNVOL/USD/CNH/1Y/ATM", 6.0);
+        quotes.put("MM/RATE/CNH/0D/1D", 0.02);
+        quotes.put("FX/RATE/EUR/USD", 1.08);
+        quotes.put("FX_OPTION/RATE_LNVOL/EUR/USD/1Y/ATM", 7.0);
+        quotes.put("MM/RATE/USD/0D/1D", 0.045);
+        service.updateMarket(quotes, AS_OF);
+
+        service.updateBook(List.of(
+                trade("A1", "USDCNH", 1000000L, 1, "20250710", "7.35", null),
+                trade("B1", "EURUSD", 2000000L, -1, "20250410", "Strike", 1.05),
+                trade("C1", "XAU", 100L, 1, "20250410", "2000", null)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private static Map<String, Object> trade(String id, String undl, long notional, int optMult, String expiry,
+            String strike, Double cutoff) {
+        Map<String, Object> trade = new HashMap<>();
+        trade.put("Calypso ID", id);
+        trade.put("Undl", undl);
+        trade.put("Notional", notional);
+        trade.put("OptMult", optMult);
+        trade.put("Expiry Date", expiry);
+        trade.put("Strike", strike);
+        if (cutoff != null) {
+            trade.put("Cutoff", cutoff);
+        }
+        return trade;
+    }
+
+    private Map<String, TradeValuation> valuations() throws Exception {
+        service.flush().get(10, TimeUnit.SECONDS);
+        return service.getValuations().stream()
+                .collect(Collectors.toMap(TradeValuation::getTradeId, Function.identity()));
+    }
+
+    @Test
+    void testRevalue_PricesBookAgainstSnapshot() throws Exception {
+        Map<String, TradeValuation> valuations = valuations();
+
+        TradeValuation usdCnh = valuations.get("A1");
+        assertEquals(TradeValuation.Status.PRICED, usdCnh.getStatus(), usdCnh.getMessage());
+        assertEquals(181, usdCnh.getDaysToMaturity());
+        // 6M 远期点 -1500 → 远期 7.15，外国利率由利率平价反推
+        assertEquals(7.15, usdCnh.getForward(), 1e-12);
+        assertEquals(0.02, usdCnh.getDomesticRate(), 1e-12);
+        assertTrue(usdCnh.getVolatility() > 0.04 && usdCnh.getVolatility() < 0.06);
+        double unit = GarmanKohlhagenPricer.INSTANCE.calculateFXOption(FXOption.CALL, 7.30, 7.35,
+                usdCnh.getDomesticRate(), usdCnh.getForeignRate(), usdCnh.getVolatility(), 181);
+        assertEquals(unit * 1000000, usdCnh.getNpv(), 1e-6);
+        assertEquals(usdCnh.getNpv() / 7.30, usdCnh.getNpvUsd(), 1e-6);
+        assertEquals(0.0, usdCnh.getPnl(), 0.0);
+
+        // Strike 列不是数字时取 Cutoff，OptMult 为 -1 表示卖出
+        TradeValuation eurUsd = valuations.get("B1");
+        assertEquals(TradeValuation.Status.PRICED, eurUsd.getStatus(), eurUsd.getMessage());
+        assertEquals(1.05, eurUsd.getStrike(), 0.0);
+        assertEquals(-2000000, eurUsd.getQuantity(), 0.0);
+        assertTrue(eurUsd.getNpv() < 0.0);
+        assertEquals(eurUsd.getNpv(), eurUsd.getNpvUsd(), 0.0);
+
+        assertEquals(TradeValuation.Status.SKIPPED, valuations.get("C1").getStatus());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> totals = (Map<String, Object>) service.getBook().get("totals");
+        assertEquals(2, totals.get("priced"));
+        assertEquals(1, totals.get("skipped"));
+        assertEquals(usdCnh.getNpvUsd() + eurUsd.getNpvUsd(), (Double) totals.get("npv"), 1e-6);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdateMarket_RepricesOnlyAffectedPairs() throws Exception {
+        Map<String, TradeValuation> before = valuations();
+
+        service.updateMarket(Map.of("FX/RATE/EUR/USD", 1.09, "FX/RATE/USD/CNH", 7.30), null);
+        Map<String, TradeValuation> after = valuations();
+
+        // 只有 EURUSD 的即期变化，USDCNH 保留上一轮的估值
+        assertSame(before.get("A1"), after.get("A1"));
+        assertEquals(before.get("A1").getSnapshotVersion(), after.get("A1").getSnapshotVersion());
+        TradeValuation eurUsd = after.get("B1");
+        assertEquals(service.getSnapshot().getVersion(), eurUsd.getSnapshotVersion());
+        assertEquals(eurUsd.getNpv() - before.get("B1").getNpv(), eurUsd.getPnl(), 1e-9);
+        assertNotEquals(0.0, eurUsd.getPnl());
+
+        ArgumentCaptor<Map<String, Object>> message = ArgumentCaptor.forClass(Map.class);
+        verify(messagingTemplate, atLeastOnce()).convertAndSend(eq(BookRevaluationService.TOPIC), message.capture());
+        Map<String, Object> last = message.getValue();
+        assertEquals(List.of("EURUSD"), last.get("pairs"));
+        assertEquals(false, last.get("full"));
+        assertEquals(1, ((List<?>) last.get("trades")).size());
+
+        // 估值日切换后全量重估，当日损益重新从 0 算起
+        service.updateMarket(Map.of(), AS_OF.plusDays(1));
+        Map<String, TradeValuation> nextDay = valuations();
+        assertEquals(180, nextDay.get("A1").getDaysToMaturity());
+        assertEquals(0.0, nextDay.get("B1").getPnl(), 0.0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFilteredSubscription_ReceivesOnlyMatchingChanges() throws Exception {
+        valuations();
+        StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        subscribe.setSessionId("s-1");
+        subscribe.setSubscriptionId("sub-0");
+        subscribe.setDestination(BookRevaluationService.TOPIC + "/pair/usd-cnh");
+        subscriptions.preSend(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()), null);
+        String destination = BookRevaluationService.TOPIC + "/pair/USDCNH";
+
+        // 只有 EURUSD 变化时不推送给 USDCNH 的订阅者
+        service.updateMarket(Map.of("FX/RATE/EUR/USD", 1.09), null);
+        valuations();
+        verify(messagingTemplate, never()).convertAndSend(eq(destination), any(Object.class));
+
+        service.updateMarket(Map.of("FX/RATE/USD/CNH", 7.31), null);
+        valuations();
+        ArgumentCaptor<Map<String, Object>> message = ArgumentCaptor.forClass(Map.class);
+        verify(messagingTemplate).convertAndSend(eq(destination), message.capture());
+        List<TradeValuation> trades = (List<TradeValuation>) message.getValue().get("trades");
+        assertEquals(List.of("A1"), trades.stream().map(TradeValuation::getTradeId).collect(Collectors.toList()));
+        assertEquals(Map.of("pair", "USDCNH"), message.getValue().get("filter"));
+        assertNotNull(message.getValue().get("totals"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testResync_ReplaysMissedUpdatesOrFallsBackToSnapshot() throws Exception {
+        valuations();
+        long epoch = replayBuffer.getEpoch();
+        Map<String, Object> current = replayBuffer.resync(BookRevaluationService.TOPIC, epoch, null);
+        long seen = (Long) current.get("sequence");
+        assertEquals(TopicReplayBuffer.MODE_SNAPSHOT, current.get("mode"));
+        assertEquals(3, ((List<?>) ((Map<String, Object>) current.get("snapshot")).get("trades")).size());
+
+        service.updateMarket(Map.of("FX/RATE/EUR/USD", 1.09), null);
+        valuations();
+        Map<String, Object> replay = replayBuffer.resync(BookRevaluationService.TOPIC, epoch, seen);
+        assertEquals(TopicReplayBuffer.MODE_REPLAY, replay.get("mode"));
+        List<Map<String, Object>> updates = (List<Map<String, Object>>) replay.get("updates");
+        assertEquals(1, updates.size());
+        assertEquals(seen + 1, updates.get(0).get("sequence"));
+        assertEquals(List.of("EURUSD"), updates.get(0).get("pairs"));
+        assertEquals(TopicReplayBuffer.MODE_CURRENT,
+                replayBuffer.resync(BookRevaluationService.TOPIC, epoch, seen + 1).get("mode"));
+
+        // 过滤目的地按父主题的序号补发，只保留匹配的行
+        String eurUsd = BookRevaluationService.TOPIC + "/pair/EURUSD";
+        Map<String, Object> filtered = replayBuffer.resync(BookRevaluationService.TOPIC + "/pair/eur-usd", epoch, seen);
+        assertEquals(TopicReplayBuffer.MODE_REPLAY, filtered.get("mode"));
+        assertEquals(eurUsd, filtered.get("topic"));
+        List<Map<String, Object>> filteredUpdates = (List<Map<String, Object>>) filtered.get("updates");
+        assertEquals(1, filteredUpdates.size());
+        assertEquals(Map.of("pair", "EURUSD"), filteredUpdates.get(0).get("filter"));
+        assertEquals(List.of("B1"), ((List<TradeValuation>) filteredUpdates.get(0).get("trades")).stream()
+                .map(TradeValuation::getTradeId).collect(Collectors.toList()));
+        assertEquals(List.of(), replayBuffer.resync(BookRevaluationService.TOPIC + "/pair/USDCNH", epoch, seen)
+                .get("updates"));
+        Map<String, Object> snapshot = (Map<String, Object>) replayBuffer
+                .resync(BookRevaluationService.TOPIC + "/desk/FXO", epoch, null).get("snapshot");
+        assertEquals(Map.of("desk", "FXO"), snapshot.get("filter"));
+        assertEquals(List.of(), snapshot.get("trades"));
+
+        // 落后超过缓冲区容量或 epoch 不一致时返回整个交易簿
+        service.updateMarket(Map.of("FX/RATE/EUR/USD", 1.10), null);
+        valuations();
+        service.updateMarket(Map.of("FX/RATE/EUR/USD", 1.11), null);
+        valuations();
+        assertEquals(TopicReplayBuffer.MODE_SNAPSHOT,
+                replayBuffer.resync(BookRevaluationService.TOPIC, epoch, seen).get("mode"));
+        assertEquals(TopicReplayBuffer.MODE_SNAPSHOT,
+                replayBuffer.resync(BookRevaluationService.TOPIC, epoch - 1, seen + 2).get("mode"));
+        assertThrows(IllegalArgumentException.class, () -> replayBuffer.resync("/topic/unknown", epoch, 0L));
+        assertThrows(IllegalArgumentException.class,
+                () -> replayBuffer.resync(BookRevaluationService.TOPIC + "/region/ASIA", epoch, 0L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRevalueAll_UnchangedInputsHitPricingCache() throws Exception {
+        Map<String, TradeValuation> before = valuations();
+        Map<String, Object> stats = (Map<String, Object>) service.getBook().get("pricingCache");
+        assertEquals(2L, stats.get("misses"));
+        assertEquals(0L, stats.get("hits"));
+
+        // 市场未变时全量重估全部命中缓存，结果相同
+        service.revalueAll();
+        Map<String, TradeValuation> after = valuations();
+        stats = (Map<String, Object>) service.getBook().get("pricingCache");
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(before.get("A1").getNpv(), after.get("A1").getNpv(), 0.0);
+
+        // 估值日切换后缓存清空
+        service.updateMarket(Map.of(), AS_OF.plusDays(1));
+        valuations();
+        stats = (Map<String, Object>) service.getBook().get("pricingCache");
+        assertEquals(2, stats.get("size"));
+        assertEquals(AS_OF.plusDays(1).toString(), stats.get("valuationDate"));
+    }
+}
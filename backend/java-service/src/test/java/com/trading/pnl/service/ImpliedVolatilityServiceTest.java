@@ -0,0 +1,55 @@
+package com.trading.pnl.service;
+
+import com.quantlib.FXOption;
+import com.quantlib.GarmanKohlhagenPricer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImpliedVolatilityServiceTest {
+
+    private final ImpliedVolatilityService service = new ImpliedVolatilityService(new SimpleMeterRegistry(),
+            1e-10, 100, 5.0, 1000);
+
+    private static Map<String, Object> quote(String id, Object type, Object price, int days) {
+        Map<String, Object> quote = new HashMap<>();
+        quote.put("id", id);
+        quote.put("optionType", type);
+        quote.put("price", price);
+        quote.put("spot", 7.15);
+        quote.put("strike", "7.2");
+        quote.put("domesticRate", 0.02);
+        quote.put("foreignRate", 0.05);
+        quote.put("daysToMaturity", days);
+        return quote;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSolve_ReportsVolatilityAndFailuresInQuoteOrder() {
+        double put = GarmanKohlhagenPricer.INSTANCE.calculateFXOption(FXOption.PUT, 7.15, 7.2, 0.02, 0.05, 0.085, 90);
+
+        Map<String, Object> response = service.solve(List.of(
+                quote("q1", "PUT", put, 90),
+                quote("q2", "CALL", 9.0, 90),
+                quote("q3", "STRADDLE", put, 90),
+                quote("q4", "C", "n/a", 90)));
+
+        assertEquals(4, response.get("count"));
+        assertEquals(3, response.get("failed"));
+        List<Map<String, Object>> results = (List<Map<String, Object>>) response.get("results");
+        assertEquals("q1", results.get(0).get("id"));
+        assertEquals("CONVERGED", results.get(0).get("status"));
+        assertEquals(0.085, (Double) results.get(0).get("volatility"), 1e-8);
+        assertEquals("ABOVE_MAXIMUM", results.get(1).get("status"));
+        assertNull(results.get(1).get("volatility"));
+        assertEquals("INVALID_INPUT", results.get(2).get("status"));
+        assertEquals("INVALID_INPUT", results.get(3).get("status"));
+        assertEquals(Map.of("ABOVE_MAXIMUM", 1, "INVALID_INPUT", 2), response.get("failures"));
+    }
+}
@@ -0,0 +1,125 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.model.MarketSnapshot;
+import com.trading.pnl.util.FxPairCurves;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketCurveServiceTest {
+
+    private static final LocalDate AS_OF = LocalDate.of(2025, 1, 10);
+
+    private SimpleMeterRegistry meterRegistry;
+    private MarketCurveService service;
+    private Map<String, Double> quotes;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        service = new MarketCurveService(meterRegistry, 0.01, 0.0001);
+        quotes = new HashMap<>();
+        quotes.put("FX/RATE/USD/CNH", 7.30);
+        quotes.put("FXFWD/RATE/USD/CNH/3M", -700.0);
+        quotes.put("FXFWD/RATE/USD/CNH/6M", -1500.0);
+        quotes.put("FX_OPTION/RATE_LNVOL/USD/CNH/1M/ATM", 4.0);
+        quotes.put("FX_OPTION/RATE_LNVOL/USD/CNH/1Y/ATM", 6.0);
+        quotes.put("MM/RATE/CNH/0D/1D", 0.02);
+        quotes.put("MM/RATE/USD/0D/1D", 0.045);
+        quotes.put("FX/RATE/EUR/USD", 1.08);
+    }
+
+    private double builds() {
+        return meterRegistry.get("market.curves.builds").counter().count();
+    }
+
+    @Test
+    void testCurves_InterpolateTermStructures() {
+        FxPairCurves curves = service.curves(new MarketSnapshot(1, AS_OF, quotes), "USD", "CNH");
+        int threeMonths = FxPairCurves.tenorDays("3M", AS_OF);
+        int sixMonths = FxPairCurves.tenorDays("6M", AS_OF);
+
+        // 远期节点上与远期点一致，节点之间 ln(F/S) 线性，最后一个节点之后按最后的利差外推
+        assertEquals(7.23, curves.forward(threeMonths), 1e-12);
+        assertEquals(7.15, curves.forward(sixMonths), 1e-12);
+        double middle = (threeMonths + sixMonths) / 2.0;
+        double expected = 7.30 * Math.exp(0.5 * (Math.log(7.23 / 7.30) + Math.log(7.15 / 7.30)));
+        assertEquals(expected, curves.forward((int) middle), 1e-3);
+        assertEquals(curves.foreignRate(sixMonths), curves.foreignRate(2 * sixMonths), 1e-12);
+
+        // 利率平价在每个期限上成立
+        for (int days : new int[] {10, threeMonths, 120, sixMonths, 400}) {
+            double t = days / 365.0;
+            assertEquals(curves.forward(days),
+                    7.30 * Math.exp((curves.domesticRate(days) - curves.foreignRate(days)) * t), 1e-9);
+        }
+        assertEquals(0.02, curves.domesticRate(sixMonths), 0.0);
+
+        // 总方差线性插值，两端之外取端点波动率
+        assertEquals(0.04, curves.volatility(5), 1e-12);
+        assertEquals(0.06, curves.volatility(800), 1e-12);
+        double oneMonth = FxPairCurves.tenorDays("1M", AS_OF);
+        double weight = (sixMonths - oneMonth) / (365 - oneMonth);
+        double variance = 0.04 * 0.04 * oneMonth + weight * (0.06 * 0.06 * 365 - 0.04 * 0.04 * oneMonth);
+        assertEquals(Math.sqrt(variance / sixMonths), curves.volatility(sixMonths), 1e-12);
+
+        // 反向报价的即期取倒数，没有远期点时用两种货币的隔夜利率
+        FxPairCurves inverse = service.curves(new MarketSnapshot(1, AS_OF, quotes), "USD", "EUR");
+        assertEquals(1 / 1.08, inverse.spot(), 1e-15);
+        assertFalse(inverse.hasVolatility());
+        assertEquals(0.045, inverse.foreignRate(90), 0.0);
+    }
+
+    @Test
+    void testCurves_IgnoresShortDateSwapPoints() {
+        quotes.put("FXFWD/RATE/USD/CNH/1D", -10.0);
+        quotes.put("FXFWD/RATE/USD/CNH/ON", -3.0);
+        quotes.put("FXFWD/RATE/USD/CNH/TN", -2.0);
+        quotes.put("FXFWD/RATE/USD/CNH/SN", -1.0);
+
+        FxPairCurves curves = service.curves(new MarketSnapshot(1, AS_OF, quotes), "USD", "CNH");
+
+        // ON 与 1D 同为 1 天，只有 1D 作为远期节点，结果与报价的遍历顺序无关
+        assertEquals(7.299, curves.forward(1), 1e-12);
+        assertEquals(7.23, curves.forward(FxPairCurves.tenorDays("3M", AS_OF)), 1e-12);
+    }
+
+    @Test
+    void testCurves_CachedPerSnapshotVersion() {
+        MarketSnapshot first = new MarketSnapshot(1, AS_OF, new HashMap<>(quotes));
+        FxPairCurves curves = service.curves(first, "USD", "CNH");
+        assertSame(curves, service.curves(first, "USD", "CNH"));
+        assertEquals(1.0, builds(), 0.0);
+        assertEquals(1, service.getCachedPairs());
+
+        quotes.put("FX/RATE/USD/CNH", 7.32);
+        MarketSnapshot second = new MarketSnapshot(2, AS_OF, quotes);
+        FxPairCurves rebuilt = service.curves(second, "USD", "CNH");
+        assertNotSame(curves, rebuilt);
+        assertEquals(7.32, rebuilt.spot(), 0.0);
+        assertEquals(2, rebuilt.getSnapshotVersion());
+        assertEquals(2, service.getCachedVersion());
+
+        // 旧快照仍能取到曲线，但不替换新版本的缓存
+        assertEquals(7.30, service.curves(first, "USD", "CNH").spot(), 0.0);
+        assertEquals(2, service.getCachedVersion());
+        assertSame(rebuilt, service.curves(second, "USD", "CNH"));
+        assertEquals(3.0, builds(), 0.0);
+    }
+
+    @Test
+    void testTenorDays() {
+        assertEquals(1, FxPairCurves.tenorDays("ON", AS_OF));
+        assertEquals(1, FxPairCurves.tenorDays("0D", AS_OF));
+        assertEquals(14, FxPairCurves.tenorDays("2W", AS_OF));
+        assertEquals(31, FxPairCurves.tenorDays("1M", AS_OF));
+        assertEquals(365, FxPairCurves.tenorDays("1Y", AS_OF));
+        assertEquals(-1, FxPairCurves.tenorDays("ATM", AS_OF));
+    }
+}
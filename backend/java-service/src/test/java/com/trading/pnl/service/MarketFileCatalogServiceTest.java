@@ -0,0 +1,94 @@
+package com.trading.pnl.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketFileCatalogServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MarketFileCatalogService catalog;
+
+    @AfterEach
+    void tearDown() {
+        if (catalog != null) {
+            catalog.shutdown();
+        }
+    }
+
+    private void touch(String... names) throws Exception {
+        for (String name : names) {
+            Files.writeString(tempDir.resolve(name), "");
+        }
+    }
+
+    @Test
+    void testListFiles_SortsLiveFirstThenUntimedThenNewestFirst() throws Exception {
+        touch("IRFX Market_20250110_0930.xls", "IRFX Market_20250110_1630.xls", "IRFX Market_20250109_Close.xls",
+                "IRFX Market_Live.xls", "IRFX_Market_20250108_1700.xls", "other.xls", "IRFX Market_20250110_1630.txt");
+        catalog = new MarketFileCatalogService(60000, 32);
+
+        assertEquals(List.of("IRFX Market_Live.xls", "IRFX Market_20250109_Close.xls",
+                "IRFX Market_20250110_1630.xls", "IRFX Market_20250110_0930.xls", "IRFX_Market_20250108_1700.xls"),
+                catalog.listFiles(tempDir, null));
+        assertEquals(List.of("IRFX Market_Live.xls", "IRFX Market_20250110_1630.xls", "IRFX Market_20250110_0930.xls"),
+                catalog.listFiles(tempDir, "20250110"));
+        // 非 8 位日期按 contains 过滤
+        assertEquals(List.of("IRFX Market_Live.xls", "IRFX Market_20250110_1630.xls"),
+                catalog.listFiles(tempDir, "1630"));
+        assertThrows(IllegalArgumentException.class, () -> catalog.listFiles(tempDir.resolve("missing"), null));
+    }
+
+    @Test
+    void testListFiles_PicksUpCreatedAndDeletedFiles() throws Exception {
+        touch("IRFX Market_20250110_0930.xls");
+        catalog = new MarketFileCatalogService(60000, 32);
+        assertEquals(List.of("IRFX Market_20250110_0930.xls"), catalog.listFiles(tempDir, null));
+
+        touch("IRFX Market_20250111_0930.xls");
+        Files.delete(tempDir.resolve("IRFX Market_20250110_0930.xls"));
+
+        List<String> expected = List.of("IRFX Market_20250111_0930.xls");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!expected.equals(catalog.listFiles(tempDir, null)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(expected, catalog.listFiles(tempDir, null));
+        assertEquals(expected, catalog.listFiles(tempDir, "20250111"));
+        assertEquals(List.of(), catalog.listFiles(tempDir, "20250110"));
+    }
+
+    @Test
+    void testListFiles_EvictsLeastRecentlyUsedDirectories() throws Exception {
+        Path first = Files.createDirectories(tempDir.resolve("a"));
+        Path second = Files.createDirectories(tempDir.resolve("b"));
+        Path third = Files.createDirectories(tempDir.resolve("c"));
+        Files.writeString(first.resolve("IRFX Market_20250110_0930.xls"), "");
+        catalog = new MarketFileCatalogService(60000, 2);
+
+        catalog.listFiles(first, null);
+        catalog.listFiles(second, null);
+        catalog.listFiles(first, null);
+        catalog.listFiles(third, null);
+        assertEquals(2, catalog.getDirectoryCount());
+        assertEquals(2, catalog.getWatchCount());
+
+        // 被淘汰的目录再次查询时重新建立索引
+        assertEquals(List.of(), catalog.listFiles(second, null));
+        assertEquals(List.of("IRFX Market_20250110_0930.xls"), catalog.listFiles(first, null));
+        assertEquals(2, catalog.getWatchCount());
+
+        Files.delete(first.resolve("IRFX Market_20250110_0930.xls"));
+        Files.delete(first);
+        assertThrows(IllegalArgumentException.class, () -> catalog.listFiles(first, null));
+        assertEquals(1, catalog.getWatchCount());
+    }
+}
@@ -0,0 +1,60 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.model.ConversionReport;
+import com.trading.pnl.model.OreMarketDataItem;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OreConversionServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OreConversionService oreConversionService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        oreConversionService = new OreConversionService(meterRegistry);
+    }
+
+    @Test
+    void testConvertToOreFormat_BuildsReport() {
+        Map<String, String> marketData = new LinkedHashMap<>();
+        marketData.put("USDCNH Curncy", "7.2500");
+        marketData.put("ESTRON Index", "3.9000");
+        marketData.put("CNH3M Curncy", "N/A");
+        marketData.put("UNKNOWN Curncy", "1.0000");
+
+        ConversionReport report = new ConversionReport();
+        List<OreMarketDataItem> items = oreConversionService.convertToOreFormat(marketData, "2024-03-01", report);
+
+        assertEquals(3, items.size());
+        assertEquals("0.0390", items.get(1).getValue());
+        assertEquals(4, report.getTotalQuotes());
+        assertEquals(2, report.getMappedCount());
+        assertEquals(1, report.getUnmappedCount());
+        assertEquals(1, report.getInvalidCount());
+        assertEquals(List.of("UNKNOWN Curncy"), report.getUnmappedTickers());
+        assertEquals(List.of("CNH3M Curncy"), report.getInvalidTickers());
+        assertTrue(report.getStepMillis().containsKey("map"));
+    }
+
+    @Test
+    void testRecordMetrics_AccumulatesCounters() {
+        Map<String, String> marketData = Map.of("USDCNH Curncy", "7.2500", "UNKNOWN Curncy", "1.0");
+
+        oreConversionService.convertToOreFormat(marketData, "2024-03-01");
+        oreConversionService.convertToOreFormat(marketData, "2024-03-04");
+
+        assertEquals(2.0, meterRegistry.get("ore.conversion.quotes").tag("result", "mapped").counter().count());
+        assertEquals(2.0, meterRegistry.get("ore.conversion.quotes").tag("result", "unmapped").counter().count());
+        assertEquals(2, meterRegistry.get("ore.conversion.step").tag("step", "map").timer().count());
+        assertNotNull(oreConversionService.getLastReport());
+    }
+}
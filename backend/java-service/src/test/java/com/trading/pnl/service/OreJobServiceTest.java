@@ -0,0 +1,220 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.model.OreJob;
+import com.trading.pnl.model.OreRunTelemetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisabledOnOs(OS.WINDOWS)
+class OreJobServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path workingDir;
+    private OreJobService oreJobService;
+    private SimpMessagingTemplate messagingTemplate;
+    private OreOutputStreamer streamer;
+    private OreResultCache cache;
+    private SimpleMeterRegistry meterRegistry;
+    private OreProcessMonitor monitor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        workingDir = Files.createDirectories(tempDir.resolve("batch"));
+        Files.createDirectories(workingDir.resolve("input"));
+        Files.writeString(workingDir.resolve("input").resolve("ore.xml"), "<ORE/>");
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        streamer = new OreOutputStreamer(messagingTemplate, 3, 2, 50);
+        cache = new OreResultCache(new OreXmlService(), new SimpleMeterRegistry(), false,
+                tempDir.resolve("cache").toString(), 10, Long.MAX_VALUE);
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new OreProcessMonitor(meterRegistry, 20, 10, 10, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (oreJobService != null) {
+            oreJobService.shutdown();
+        }
+        streamer.shutdown();
+        monitor.shutdown();
+    }
+
+    // 用桩脚本代替真实的 ORE 可执行文件
+    private Path stubScript(String body) throws Exception {
+        Path script = tempDir.resolve("ore-stub.sh");
+        Files.writeString(script, "#!/bin/sh\n" + body + "\n");
+        assertTrue(script.toFile().setExecutable(true));
+        return script;
+    }
+
+    @Test
+    void testSubmit_RunsStubAndCapturesOutput() throws Exception {
+        Path stub = stubScript("echo \"Loading inputs $1\"\necho \"ORE done.\"\nexit 0");
+        oreJobService = new OreJobService(new OreProcessLauncher(stub.toString()), streamer, cache, monitor, 2, 10, 10);
+
+        OreJob job = oreJobService.submit(workingDir.toString());
+        assertNotNull(job.getId());
+
+        OreJob finished = job.getCompletion().get(10, TimeUnit.SECONDS);
+        assertEquals(OreJob.Status.SUCCEEDED, finished.getStatus());
+        assertEquals(0, finished.getExitCode());
+        assertTrue(finished.getOutput().contains("Loading inputs input/ore.xml"));
+        assertTrue(finished.getOutput().contains("ORE done."));
+        assertEquals(2, finished.getOutputLines());
+        assertSame(job, oreJobService.getJob(job.getId()));
+    }
+
+    @Test
+    void testSubmit_FailedExitCode() throws Exception {
+        Path stub = stubScript("echo \"Error: bad config\"\nexit 3");
+        oreJobService = new OreJobService(new OreProcessLauncher(stub.toString()), streamer, cache, monitor, 1, 10, 10);
+
+        OreJob finished = oreJobService.submit(workingDir.toString()).getCompletion().get(10, TimeUnit.SECONDS);
+
+        assertEquals(OreJob.Status.FAILED, finished.getStatus());
+        assertEquals(3, finished.getExitCode());
+    }
+
+    @Test
+    void testSubmit_QueuesBeyondParallelismAndCancels() throws Exception {
+        Path stub = stubScript("sleep 5");
+        oreJobService = new OreJobService(new OreProcessLauncher(stub.toString()), streamer, cache, monitor, 1, 10, 10);
+
+        OreJob first = oreJobService.submit(workingDir.toString());
+        OreJob second = oreJobService.submit(workingDir.toString());
+        assertEquals(OreJob.Status.QUEUED, second.getStatus());
+
+        assertTrue(oreJobService.cancel(second.getId()));
+        assertEquals(OreJob.Status.CANCELLED, second.getCompletion().get(1, TimeUnit.SECONDS).getStatus());
+
+        assertTrue(oreJobService.cancel(first.getId()));
+        assertEquals(OreJob.Status.CANCELLED, first.getCompletion().get(10, TimeUnit.SECONDS).getStatus());
+    }
+
+    @Test
+    void testSubmit_RejectsMissingOreXml() throws Exception {
+        oreJobService = new OreJobService(new OreProcessLauncher("ore"), streamer, cache, monitor, 1, 10, 10);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> oreJobService.submit(tempDir.resolve("missing").toString()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSubmit_StreamsBatchesAndKeepsBoundedTail() throws Exception {
+        Path stub = stubScript("for i in 1 2 3 4 5; do echo \"line $i\"; done\nexit 0");
+        oreJobService = new OreJobService(new OreProcessLauncher(stub.toString()), streamer, cache, monitor, 1, 10, 10);
+
+        OreJob finished = oreJobService.submit(workingDir.toString()).getCompletion().get(10, TimeUnit.SECONDS);
+
+        // 尾部只保留最后 3 行
+        assertEquals("line 3\nline 4\nline 5\n", finished.getOutput());
+        assertEquals(5, finished.getOutputLines());
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, timeout(1000).atLeast(4))
+                .convertAndSend(eq(OreOutputStreamer.TOPIC_PREFIX + finished.getId()), captor.capture());
+        List<Object> messages = captor.getAllValues();
+        StringBuilder streamed = new StringBuilder();
+        for (Object message : messages) {
+            Map<String, Object> payload = (Map<String, Object>) message;
+            if (!(Boolean) payload.get("done")) {
+                for (String line : (List<String>) payload.get("lines")) {
+                    streamed.append(line).append("\n");
+                }
+            }
+        }
+        assertEquals("line 1\nline 2\nline 3\nline 4\nline 5\n", streamed.toString());
+        Map<String, Object> last = (Map<String, Object>) messages.get(messages.size() - 1);
+        assertEquals(true, last.get("done"));
+        assertEquals("SUCCEEDED", last.get("status"));
+    }
+
+    @Test
+    void testSubmit_IdenticalInputsRestoredFromCache() throws Exception {
+        // 桩脚本每次运行都在计数文件中追加一行
+        Path counter = tempDir.resolve("runs.txt");
+        Path stub = stubScript("echo run >> " + counter + "\nmkdir -p output\necho \"NPV,1\" > output/npv.csv\nexit 0");
+        cache = new OreResultCache(new OreXmlService(), new SimpleMeterRegistry(), true,
+                tempDir.resolve("cache").toString(), 10, Long.MAX_VALUE);
+        oreJobService = new OreJobService(new OreProcessLauncher(stub.toString()), streamer, cache, monitor, 1, 10, 10);
+
+        OreJob first = oreJobService.submit(workingDir.toString()).getCompletion().get(10, TimeUnit.SECONDS);
+        assertFalse(first.isCacheHit());
+        Files.delete(workingDir.resolve("output").resolve("npv.csv"));
+
+        OreJob second = oreJobService.submit(workingDir.toString()).getCompletion().get(10, TimeUnit.SECONDS);
+        assertEquals(OreJob.Status.SUCCEEDED, second.getStatus());
+        assertTrue(second.isCacheHit());
+        assertEquals(first.getFingerprint(), second.getFingerprint());
+        assertEquals("NPV,1\n", Files.readString(workingDir.resolve("output").resolve("npv.csv")));
+        assertEquals(1, Files.readAllLines(counter).size());
+
+        OreJob forced = oreJobService.submit(workingDir.toString(), false).getCompletion().get(10, TimeUnit.SECONDS);
+        assertFalse(forced.isCacheHit());
+        assertEquals(2, Files.readAllLines(counter).size());
+    }
+
+    @Test
+    void testSubmit_TransientRunsDoNotFillCache() throws Exception {
+        Path stub = stubScript("mkdir -p output\necho \"NPV,1\" > output/npv.csv\nexit 0");
+        cache = new OreResultCache(new OreXmlService(), new SimpleMeterRegistry(), true,
+                tempDir.resolve("cache").toString(), 10, Long.MAX_VALUE);
+        oreJobService = new OreJobService(new OreProcessLauncher(stub.toString()), streamer, cache, monitor, 1, 10, 10);
+
+        OreJob scenario = oreJobService.submit(workingDir.toString(), true, false)
+                .getCompletion().get(10, TimeUnit.SECONDS);
+        assertEquals(OreJob.Status.SUCCEEDED, scenario.getStatus());
+        assertEquals(0, cache.getStats().get("entries"));
+
+        // 正式运行写入缓存后，临时运行仍可命中
+        oreJobService.submit(workingDir.toString()).getCompletion().get(10, TimeUnit.SECONDS);
+        OreJob cached = oreJobService.submit(workingDir.toString(), true, false)
+                .getCompletion().get(10, TimeUnit.SECONDS);
+        assertTrue(cached.isCacheHit());
+    }
+
+    @Test
+    void testSubmit_RecordsPhaseTimingsAndProcessTelemetry() throws Exception {
+        Path stub = stubScript("i=0\nwhile [ $i -lt 100000 ]; do i=$((i+1)); done\nexit 0");
+        oreJobService = new OreJobService(new OreProcessLauncher(stub.toString()), streamer, cache, monitor, 1, 10, 10);
+
+        OreJob finished = oreJobService.submit(workingDir.toString()).getCompletion().get(30, TimeUnit.SECONDS);
+
+        OreRunTelemetry telemetry = finished.getTelemetry();
+        assertEquals("SUCCEEDED", telemetry.getStatus());
+        assertTrue(telemetry.getPhaseMillis().containsKey("queued"));
+        assertTrue(telemetry.getPhaseMillis().get("process") > 0);
+        assertTrue(telemetry.getWallMillis() >= telemetry.getPhaseMillis().get("process"));
+        assertTrue(telemetry.getSamples() > 0);
+        assertNotNull(telemetry.getCpuMillis());
+        if (Files.exists(Path.of("/proc/self/status"))) {
+            assertEquals("procfs", telemetry.getSource());
+            assertTrue(telemetry.getPeakRssBytes() > 0);
+        }
+
+        assertEquals(List.of(telemetry), monitor.getHistory(workingDir.toString()));
+        assertEquals(1, monitor.getSummary().get(0).get("runs"));
+        assertEquals(1, meterRegistry.get("ore.run.phase").tag("phase", "process").timer().count());
+    }
+}
@@ -0,0 +1,110 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.model.OreFileTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OreOutputArchiverTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path source;
+    private OreOutputArchiver archiver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        source = Files.createDirectories(tempDir.resolve("batch").resolve("output"));
+        Files.writeString(source.resolve("npv.csv"), "#TradeId,NPV\nFXO_1,100\n");
+        Files.write(source.resolve("exposure_trade_FXO_1.csv"), new byte[3 * 1024 * 1024 + 7]);
+        archiver = new OreOutputArchiver(4, "copy", 10, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        archiver.shutdown();
+    }
+
+    @Test
+    void testSave_CopiesInParallelAndWritesManifest() throws Exception {
+        Path target = tempDir.resolve("results").resolve("output");
+
+        OreFileTask task = archiver.save(source, target, null).getCompletion().get(10, TimeUnit.SECONDS);
+
+        assertEquals(OreFileTask.Status.SUCCEEDED, task.getStatus(), task.getMessage());
+        assertEquals(2, task.getCompletedFiles().get());
+        assertEquals(task.getTotalBytes(), task.getProcessedBytes().get());
+        assertArrayEquals(Files.readAllBytes(source.resolve("exposure_trade_FXO_1.csv")),
+                Files.readAllBytes(target.resolve("exposure_trade_FXO_1.csv")));
+
+        List<String> manifest = Files.readAllLines(target.resolve(OreOutputArchiver.MANIFEST_FILE));
+        assertEquals(2, manifest.size());
+        assertEquals(sha256(source.resolve("exposure_trade_FXO_1.csv")) + "  exposure_trade_FXO_1.csv", manifest.get(0));
+        assertEquals(sha256(source.resolve("npv.csv")) + "  npv.csv", manifest.get(1));
+        assertSame(task, archiver.getTask(task.getId()));
+    }
+
+    @Test
+    void testSave_LinkMode() throws Exception {
+        Path target = tempDir.resolve("linked");
+        Files.createDirectories(target);
+        Files.writeString(target.resolve("npv.csv"), "previous");
+        OreOutputArchiver linking = new OreOutputArchiver(4, "copy", 10, true);
+        try {
+            OreFileTask task = linking.save(source, target, "link").getCompletion().get(10, TimeUnit.SECONDS);
+
+            assertEquals(OreFileTask.Status.SUCCEEDED, task.getStatus());
+            assertEquals("#TradeId,NPV\nFXO_1,100\n", Files.readString(target.resolve("npv.csv")));
+            if (task.getLinkedFiles().get() == 2) {
+                assertTrue(Files.isSameFile(source.resolve("npv.csv"), target.resolve("npv.csv")));
+            }
+            assertFalse(Files.exists(target.resolve("npv.csv.link")));
+            assertThrows(IllegalArgumentException.class, () -> linking.save(source, target, "rsync"));
+        } finally {
+            linking.shutdown();
+        }
+    }
+
+    @Test
+    void testSave_LinkModeCopiesUnlessOutputsAreReplaced() throws Exception {
+        Path target = tempDir.resolve("linked");
+
+        OreFileTask task = archiver.save(source, target, "link").getCompletion().get(10, TimeUnit.SECONDS);
+
+        assertEquals(OreFileTask.Status.SUCCEEDED, task.getStatus());
+        assertEquals(OreOutputArchiver.MODE_COPY, task.getMode());
+        assertFalse(Files.isSameFile(source.resolve("npv.csv"), target.resolve("npv.csv")));
+        // 目标与源目录相同会删掉唯一的副本
+        assertThrows(IllegalArgumentException.class, () -> archiver.save(source, source, "link"));
+        assertThrows(IllegalArgumentException.class,
+                () -> archiver.save(source, source.resolve("..").resolve("output"), null));
+    }
+
+    @Test
+    void testClean_DeletesFilesAsync() throws Exception {
+        OreFileTask task = archiver.clean(source).getCompletion().get(10, TimeUnit.SECONDS);
+
+        assertEquals(OreFileTask.Status.SUCCEEDED, task.getStatus());
+        assertEquals(2, task.getCompletedFiles().get());
+        try (var files = Files.list(source)) {
+            assertEquals(0, files.count());
+        }
+        assertEquals(OreFileTask.Status.SUCCEEDED,
+                archiver.clean(tempDir.resolve("missing")).getCompletion().get(1, TimeUnit.SECONDS).getStatus());
+    }
+
+    private static String sha256(Path file) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file)));
+    }
+}
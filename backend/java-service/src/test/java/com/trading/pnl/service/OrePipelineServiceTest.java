@@ -0,0 +1,178 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.model.OrePipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DisabledOnOs(OS.WINDOWS)
+class OrePipelineServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private OreOutputStreamer streamer;
+    private OreProcessMonitor monitor;
+    private OreJobService oreJobService;
+    private OrePipelineService pipelineService;
+
+    @AfterEach
+    void tearDown() {
+        if (pipelineService != null) {
+            pipelineService.shutdown();
+        }
+        if (oreJobService != null) {
+            oreJobService.shutdown();
+        }
+        if (streamer != null) {
+            streamer.shutdown();
+        }
+        if (monitor != null) {
+            monitor.shutdown();
+        }
+    }
+
+    private Path batchDir(String name, String outputPath) throws Exception {
+        Path dir = Files.createDirectories(tempDir.resolve("batches").resolve(name));
+        Files.createDirectories(dir.resolve("input"));
+        Files.createDirectories(dir.resolve("output"));
+        Files.writeString(dir.resolve("output").resolve("stale.csv"), "old");
+        Files.writeString(dir.resolve("input").resolve("market.txt"), "market " + name);
+        Files.writeString(dir.resolve("input").resolve("ore.xml"),
+                "<ORE><Setup><Parameter name=\"outputPath\">" + outputPath + "</Parameter></Setup></ORE>");
+        return dir;
+    }
+
+    private void startServices(String stubBody) throws Exception {
+        Path script = tempDir.resolve("ore-stub.sh");
+        Files.writeString(script, "#!/bin/sh\n" + stubBody + "\n");
+        assertTrue(script.toFile().setExecutable(true));
+        OreXmlService xmlService = new OreXmlService();
+        streamer = new OreOutputStreamer(mock(SimpMessagingTemplate.class), 100, 10, 50);
+        monitor = new OreProcessMonitor(new SimpleMeterRegistry(), 100, 10, 10, 100);
+        oreJobService = new OreJobService(new OreProcessLauncher(script.toString()), streamer,
+                new OreResultCache(xmlService, new SimpleMeterRegistry(), false, tempDir.resolve("cache").toString(),
+                        10, Long.MAX_VALUE), monitor, 2, 10, 10);
+        pipelineService = new OrePipelineService(oreJobService, xmlService, false, 10);
+    }
+
+    @Test
+    void testSubmit_RunsLegsInIsolatedCopiesAndSavesOutput() throws Exception {
+        // 桩脚本把输入和 outputPath 写到输出目录，用于检查隔离性
+        startServices("out=$(sed -n 's:.*<Parameter name=\"outputPath\">\\(.*\\)</Parameter>.*:\\1:p' input/ore.xml)\n"
+                + "cat input/market.txt > \"$out/npv.csv\"\necho \"$out\" >> \"$out/npv.csv\"\nexit 0");
+        Path eod = batchDir("EOD", "output");
+        Path sod = batchDir("SOD", tempDir.resolve("batches").resolve("SOD").resolve("output").toString());
+        Path eodTarget = tempDir.resolve("results").resolve("EOD");
+        Path sodTarget = tempDir.resolve("results").resolve("SOD");
+        String sodOreXml = Files.readString(sod.resolve("input").resolve("ore.xml"));
+
+        OrePipeline pipeline = pipelineService.submit(List.of(
+                new OrePipeline.Leg("EOD", eod.toString(), eodTarget.toString()),
+                new OrePipeline.Leg("SOD", sod.toString(), sodTarget.toString())));
+        waitFor(pipeline);
+
+        assertEquals(OrePipeline.Status.SUCCEEDED, pipeline.getStatus(), pipeline.getLegs().toString());
+        String eodNpv = Files.readString(eodTarget.resolve("output").resolve("npv.csv"));
+        String sodNpv = Files.readString(sodTarget.resolve("output").resolve("npv.csv"));
+        assertTrue(eodNpv.startsWith("market EOD"));
+        assertTrue(sodNpv.startsWith("market SOD"));
+        // 绝对 outputPath 被改写到临时副本，原 ore.xml 不受影响
+        assertTrue(sodNpv.contains(tempDir.resolve("batches").resolve("SOD.scratch-" + pipeline.getId() + "-SOD")
+                .toString()));
+        assertEquals(sodOreXml, Files.readString(sod.resolve("input").resolve("ore.xml")));
+
+        assertTrue(Files.exists(eod.resolve("output").resolve("npv.csv")));
+        assertFalse(Files.exists(eod.resolve("output").resolve("stale.csv")));
+        assertEquals(1, pipeline.getLegs().get(0).getSavedFiles());
+        assertEquals(2, pipeline.getLegs().get(0).getLinkedFiles() + pipeline.getLegs().get(0).getCopiedFiles());
+        assertFalse(Files.exists(Path.of(pipeline.getLegs().get(0).getScratchDir())));
+        assertEquals(eod.getParent(), Path.of(pipeline.getLegs().get(0).getScratchDir()).getParent());
+        // 运行统计记在原工作目录下，而不是各次不同的临时副本
+        assertEquals(1, monitor.getHistory(eod.toString()).size());
+        assertEquals(2, monitor.getSummary().size());
+
+        // 之后在原工作目录中原地覆盖输出不影响已归档的文件
+        Files.writeString(eod.resolve("output").resolve("npv.csv"), "rerun");
+        assertEquals(eodNpv, Files.readString(eodTarget.resolve("output").resolve("npv.csv")));
+    }
+
+    @Test
+    void testSubmit_KeepsParentRelativeReferences() throws Exception {
+        // 与 ORE 示例相同的布局：各示例共用上两级的 Input 目录
+        startServices("conv=$(sed -n 's:.*<Parameter name=\"conventionsFile\">\\(.*\\)</Parameter>.*:\\1:p' input/ore.xml)\n"
+                + "cat \"input/$conv\" > output/npv.csv\nexit 0");
+        Path shared = Files.createDirectories(tempDir.resolve("Input"));
+        Files.writeString(shared.resolve("conventions.xml"), "shared conventions");
+        Path eod = batchDir("EOD", "output");
+        Files.writeString(eod.resolve("input").resolve("ore.xml"), "<ORE><Setup>\n"
+                + "<Parameter name=\"inputPath\">input</Parameter>\n"
+                + "<Parameter name=\"outputPath\">output</Parameter>\n"
+                + "<Parameter name=\"conventionsFile\">../../../Input/conventions.xml</Parameter>\n"
+                + "</Setup></ORE>");
+        Path eodTarget = tempDir.resolve("results").resolve("EOD");
+
+        OrePipeline pipeline = pipelineService.submit(List.of(
+                new OrePipeline.Leg("EOD", eod.toString(), eodTarget.toString())));
+        waitFor(pipeline);
+
+        assertEquals(OrePipeline.Status.SUCCEEDED, pipeline.getStatus(), pipeline.getLegs().toString());
+        assertEquals("shared conventions", Files.readString(eodTarget.resolve("output").resolve("npv.csv")));
+    }
+
+    @Test
+    void testSubmit_FailedLegFailsPipeline() throws Exception {
+        startServices("exit 2");
+        Path eod = batchDir("EOD", "output");
+
+        OrePipeline pipeline = pipelineService.submit(List.of(
+                new OrePipeline.Leg("EOD", eod.toString(), tempDir.resolve("results").toString())));
+        waitFor(pipeline);
+
+        assertEquals(OrePipeline.Status.FAILED, pipeline.getStatus());
+        assertEquals(OrePipeline.LegStatus.FAILED, pipeline.getLegs().get(0).getStatus());
+        assertEquals(2, pipeline.getLegs().get(0).getExitCode());
+        assertFalse(Files.exists(tempDir.resolve("results").resolve("output")));
+    }
+
+    @Test
+    void testSubmit_RejectsDuplicateLegNames() throws Exception {
+        startServices("exit 0");
+        Path eod = batchDir("EOD", "output");
+
+        assertThrows(IllegalArgumentException.class, () -> pipelineService.submit(List.of(
+                new OrePipeline.Leg("EOD", eod.toString(), "a"),
+                new OrePipeline.Leg("EOD", eod.toString(), "b"))));
+    }
+
+    @Test
+    void testSubmit_RejectsLegNamesOutsideScratchRoot() throws Exception {
+        startServices("exit 0");
+        Path eod = batchDir("EOD", "output");
+
+        for (String name : new String[] {"../..", "a/b", "", null}) {
+            assertThrows(IllegalArgumentException.class, () -> pipelineService.submit(List.of(
+                    new OrePipeline.Leg(name, eod.toString(), "a"))), String.valueOf(name));
+        }
+        assertThrows(IllegalArgumentException.class, () -> pipelineService.submit(List.of(
+                new OrePipeline.Leg("EOD", null, "a"))));
+    }
+
+    private void waitFor(OrePipeline pipeline) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (pipeline.getStatus() == OrePipeline.Status.RUNNING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+}
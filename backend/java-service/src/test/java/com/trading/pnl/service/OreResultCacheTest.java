@@ -0,0 +1,147 @@
+package com.trading.pnl.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OreResultCacheTest {
+
+    private static final List<String> COMMAND = List.of("ore", "input/ore.xml");
+
+    @TempDir
+    Path tempDir;
+
+    private Path workingDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        workingDir = Files.createDirectories(tempDir.resolve("batch"));
+        Path input = Files.createDirectories(workingDir.resolve("input"));
+        Files.writeString(input.resolve("ore.xml"), "<ORE><Setup>"
+                + "<Parameter name=\"inputPath\">input</Parameter>"
+                + "<Parameter name=\"outputPath\">output</Parameter>"
+                + "<Parameter name=\"marketDataFile\">market.txt</Parameter>"
+                + "<Parameter name=\"logFile\">log.txt</Parameter>"
+                + "</Setup></ORE>");
+        Files.writeString(input.resolve("market.txt"), "FX/RATE/EUR/USD 1.08");
+    }
+
+    private OreResultCache newCache(int maxEntries) {
+        return new OreResultCache(new OreXmlService(), new SimpleMeterRegistry(), true,
+                tempDir.resolve("cache").toString(), maxEntries, Long.MAX_VALUE);
+    }
+
+    private Path writeOutput(String content) throws Exception {
+        Path output = Files.createDirectories(workingDir.resolve("output"));
+        Files.writeString(output.resolve("npv.csv"), content);
+        return output;
+    }
+
+    @Test
+    void testFingerprint_ChangesOnlyWithReferencedInputs() throws Exception {
+        OreResultCache cache = newCache(10);
+        String original = cache.fingerprint(workingDir, COMMAND);
+
+        Files.writeString(workingDir.resolve("input").resolve("unrelated.txt"), "x");
+        writeOutput("NPV");
+        assertEquals(original, cache.fingerprint(workingDir, COMMAND));
+
+        Files.writeString(workingDir.resolve("input").resolve("market.txt"), "FX/RATE/EUR/USD 1.09");
+        assertNotEquals(original, cache.fingerprint(workingDir, COMMAND));
+        // 输出参数引用的文件不计入指纹
+        String updated = cache.fingerprint(workingDir, COMMAND);
+        Path ore = workingDir.resolve("input").resolve("ore.xml");
+        Files.writeString(ore, Files.readString(ore).replace("</ORE>", "<Analytics><Analytic type=\"sensitivity\">"
+                + "<Parameter name=\"sensitivityOutputFile\">sensi.csv</Parameter>"
+                + "<Parameter name=\"sensitivityConfigFile\">sensi.xml</Parameter>"
+                + "</Analytic></Analytics></ORE>"));
+        String withAnalytic = cache.fingerprint(workingDir, COMMAND);
+        Files.writeString(workingDir.resolve("input").resolve("sensi.csv"), "output");
+        assertEquals(withAnalytic, cache.fingerprint(workingDir, COMMAND));
+        Files.writeString(workingDir.resolve("input").resolve("sensi.xml"), "<Sensitivity/>");
+        assertNotEquals(withAnalytic, cache.fingerprint(workingDir, COMMAND));
+        assertNotEquals(updated, withAnalytic);
+        assertNotEquals(cache.fingerprint(workingDir, COMMAND),
+                cache.fingerprint(workingDir, List.of("ore-1.8", "input/ore.xml")));
+    }
+
+    @Test
+    void testFingerprint_ScratchCopyMatchesSourceDirectory() throws Exception {
+        OreResultCache cache = newCache(10);
+        Path ore = workingDir.resolve("input").resolve("ore.xml");
+        Files.writeString(ore, Files.readString(ore).replace(">output<", ">" + workingDir.resolve("output") + "<"));
+        String original = cache.fingerprint(workingDir, COMMAND);
+
+        // 临时副本中的 ore.xml 把绝对 outputPath 改写到副本内
+        Path scratch = Files.createDirectories(tempDir.resolve("batch.scratch-1-EOD").resolve("input"))
+                .getParent();
+        Files.copy(workingDir.resolve("input").resolve("market.txt"), scratch.resolve("input").resolve("market.txt"));
+        Files.writeString(scratch.resolve("input").resolve("ore.xml"),
+                Files.readString(ore).replace(workingDir.toString(), scratch.toString()));
+
+        assertEquals(original, cache.fingerprint(scratch, workingDir, COMMAND));
+        assertNotEquals(original, cache.fingerprint(scratch, COMMAND));
+    }
+
+    @Test
+    void testStoreAndRestore() throws Exception {
+        OreResultCache cache = newCache(10);
+        String fingerprint = cache.fingerprint(workingDir, COMMAND);
+        Path output = cache.outputDir(workingDir);
+        assertEquals(workingDir.resolve("output"), output);
+        assertEquals(-1, cache.restore(fingerprint, output));
+
+        writeOutput("NPV,100");
+        cache.store(fingerprint, output);
+        Files.writeString(output.resolve("npv.csv"), "overwritten");
+
+        assertEquals(1, cache.restore(fingerprint, output));
+        assertEquals("NPV,100", Files.readString(output.resolve("npv.csv")));
+
+        // 重启后从磁盘重建索引
+        OreResultCache reloaded = newCache(10);
+        assertEquals(1, reloaded.getStats().get("entries"));
+        assertEquals(1, reloaded.restore(fingerprint, output));
+    }
+
+    @Test
+    void testStore_ExistingEntryCountsAsStored() throws Exception {
+        OreResultCache cache = newCache(10);
+        Path output = writeOutput("NPV,100");
+        // 另一个进程或并发的相同运行已经写入了条目目录
+        Path existing = Files.createDirectories(tempDir.resolve("cache").resolve("f1"));
+        Files.writeString(existing.resolve("npv.csv"), "NPV,100");
+
+        cache.store("f1", output);
+
+        assertEquals("NPV,100", Files.readString(existing.resolve("npv.csv")));
+        try (Stream<Path> files = Files.list(tempDir.resolve("cache"))) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() throws Exception {
+        OreResultCache cache = newCache(2);
+        Path output = writeOutput("NPV");
+        cache.store("a", output);
+        cache.store("b", output);
+        assertEquals(1, cache.restore("a", output));
+
+        cache.store("c", output);
+
+        assertEquals(2, cache.getStats().get("entries"));
+        assertEquals(-1, cache.restore("b", output));
+        assertFalse(Files.exists(tempDir.resolve("cache").resolve("b")));
+        assertEquals(1, cache.restore("a", output));
+        assertEquals(1, cache.restore("c", output));
+    }
+}
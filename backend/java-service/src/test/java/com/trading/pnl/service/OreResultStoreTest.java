@@ -0,0 +1,88 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.util.ColumnarTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class OreResultStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path outputDir;
+    private OreResultStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        outputDir = Files.createDirectories(tempDir.resolve("output"));
+        Files.writeString(outputDir.resolve("npv.csv"),
+                "#TradeId,TradeType,Maturity,NPV,NpvCurrency,NPV(Base),BaseCurrency,NettingSet,CounterParty\n"
+                        + "FXO_1,FxOption,2026-03-20,1000.5,USD,1000.5,USD,NS_A,CPTY_A\n"
+                        + "FXO_2,FxOption,2026-06-19,-250,USD,-250,USD,NS_A,CPTY_A\n"
+                        + "12345,FxForward,2026-01-15,#N/A,USD,80,USD,NS_B,\"CPTY, B\"\n");
+        Files.writeString(outputDir.resolve("exposure_trade_FXO_1.csv"),
+                "#TradeId,Date,Time,EPE,ENE\nFXO_1,2026-01-01,0.0,100,0\nFXO_1,2026-02-01,0.08,120,0\n");
+        Files.writeString(outputDir.resolve("exposure_trade_FXO_2.csv"),
+                "#TradeId,Date,Time,EPE,ENE\nFXO_2,2026-01-01,0.0,50,1D\n");
+        store = new OreResultStore(mock(OreJobService.class), mock(OreResultCache.class), 2);
+    }
+
+    @Test
+    void testIngest_BuildsTypedColumnsAndMergesPerTradeFiles() throws Exception {
+        OreResultStore.Run run = store.ingest("run-1", outputDir);
+
+        ColumnarTable npv = run.getReport("npv");
+        assertEquals(3, npv.getRowCount());
+        assertTrue(npv.isNumeric("NPV(Base)"));
+        assertFalse(npv.isNumeric("TradeId"));
+        assertNull(npv.value(2, "NPV"));
+        assertEquals("CPTY, B", npv.value(2, "CounterParty"));
+
+        ColumnarTable exposure = run.getReport("exposure_trade");
+        assertEquals(3, exposure.getRowCount());
+        // "1D" 不能被当作数字，整列退化为文本
+        assertFalse(exposure.isNumeric("ENE"));
+        assertEquals("0", exposure.value(0, "ENE"));
+    }
+
+    @Test
+    void testSelectAndAggregate() throws Exception {
+        ColumnarTable npv = store.ingest("run-1", outputDir).getReport("npv");
+
+        assertArrayEquals(new int[] {2}, npv.select(Map.of("TradeId", "12345")));
+        assertArrayEquals(new int[] {0, 1}, npv.select(Map.of("NettingSet", "NS_A")));
+        assertArrayEquals(new int[] {1}, npv.select(Map.of("NettingSet", "NS_A", "Maturity", "2026-06-19")));
+        assertEquals(0, npv.select(Map.of("CounterParty", "unknown")).length);
+
+        List<Map<String, Object>> groups = npv.aggregate(npv.select(Map.of()), "NettingSet", "NPV(Base)");
+        assertEquals(2, groups.size());
+        assertEquals("NS_A", groups.get(0).get("NettingSet"));
+        assertEquals(750.5, (Double) groups.get(0).get("sum"), 1e-12);
+        assertEquals(2L, groups.get(0).get("count"));
+        assertEquals(80.0, (Double) groups.get(1).get("sum"), 1e-12);
+
+        assertThrows(IllegalArgumentException.class, () -> npv.aggregate(new int[0], null, "TradeType"));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedRun() throws Exception {
+        store.ingest("run-1", outputDir);
+        store.ingest("run-2", outputDir);
+        assertNotNull(store.getRun("run-1"));
+
+        store.ingest("run-3", outputDir);
+
+        assertNull(store.getRun("run-2"));
+        assertNotNull(store.getRun("run-1"));
+        assertEquals("run-3", store.getRuns().get(0).getRunId());
+    }
+}
@@ -0,0 +1,118 @@
+package com.trading.pnl.service;
+
+import com.trading.pnl.model.OreSensitivityRun;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DisabledOnOs(OS.WINDOWS)
+class OreSensitivityServiceTest {
+
+    private static final String MARKET = "20250110 FX/RATE/USD/CNH 7.1\n"
+            + "20250110 FXFWD/RATE/USD/CNH/1M 100\n"
+            + "20250110 FXFWD/RATE/USD/CNH/3M 300\n"
+            + "20250110 EQ/PRICE/X/USD 5\n";
+
+    @TempDir
+    Path tempDir;
+
+    private Path workingDir;
+    private OreOutputStreamer streamer;
+    private OreProcessMonitor monitor;
+    private OreJobService oreJobService;
+    private OreSensitivityService sensitivityService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        workingDir = Files.createDirectories(tempDir.resolve("batch"));
+        Files.createDirectories(workingDir.resolve("input"));
+        Files.createDirectories(workingDir.resolve("output"));
+        Files.writeString(workingDir.resolve("input").resolve("market.txt"), MARKET);
+        Files.writeString(workingDir.resolve("input").resolve("ore.xml"), "<ORE>\n  <Setup>\n"
+                + "    <Parameter name=\"inputPath\">input</Parameter>\n"
+                + "    <Parameter name=\"outputPath\">output</Parameter>\n"
+                + "    <Parameter name=\"marketDataFile\">market.txt</Parameter>\n"
+                + "  </Setup>\n</ORE>\n");
+
+        // 桩脚本：T1 的 NPV 为即期汇率 × 1000，T2 为所有远期点之和 × 10
+        Path script = tempDir.resolve("ore-stub.sh");
+        Files.writeString(script, "#!/bin/sh\n"
+                + "mkt=$(sed -n 's:.*<Parameter name=\"marketDataFile\">\\(.*\\)</Parameter>.*:\\1:p' input/ore.xml)\n"
+                + "awk 'BEGIN{print \"#TradeId,NPV(Base)\"} $2==\"FX/RATE/USD/CNH\"{s=$3} $2 ~ /^FXFWD/{f+=$3} "
+                + "END{printf \"T1,%.8f\\nT2,%.8f\\n\", s*1000, f*10}' \"input/$mkt\" > output/npv.csv\n");
+        assertTrue(script.toFile().setExecutable(true));
+
+        OreXmlService xmlService = new OreXmlService();
+        OreResultCache cache = new OreResultCache(xmlService, new SimpleMeterRegistry(), false,
+                tempDir.resolve("cache").toString(), 10, Long.MAX_VALUE);
+        streamer = new OreOutputStreamer(mock(SimpMessagingTemplate.class), 100, 10, 50);
+        monitor = new OreProcessMonitor(new SimpleMeterRegistry(), 100, 10, 10, 100);
+        oreJobService = new OreJobService(new OreProcessLauncher(script.toString()), streamer, cache, monitor, 3, 10, 50);
+        sensitivityService = new OreSensitivityService(oreJobService, xmlService,
+                new OreConversionService(new SimpleMeterRegistry()), cache,
+                false, 100, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sensitivityService.shutdown();
+        oreJobService.shutdown();
+        streamer.shutdown();
+        monitor.shutdown();
+    }
+
+    @Test
+    void testSubmit_BuildsDeltaMatrixFromParallelRuns() throws Exception {
+        OreSensitivityRun run = sensitivityService.submit(workingDir.toString(),
+                List.of("FX/RATE/USD/CNH", "FXFWD/RATE/USD/CNH/*"), List.of(new BigDecimal("0.01")), "absolute");
+        assertEquals(3, run.getScenarios().size());
+        run.getCompletion().get(30, TimeUnit.SECONDS);
+
+        assertEquals(OreSensitivityRun.Status.SUCCEEDED, run.getStatus(), run.getMessage());
+        assertEquals(List.of("T1", "T2"), run.getTrades());
+        Map<String, Map<String, Double>> deltas = run.getDeltas();
+        assertEquals(10.0, deltas.get("T1").get("FX/RATE/USD/CNH@0.01"), 1e-6);
+        assertEquals(0.0, deltas.get("T2").get("FX/RATE/USD/CNH@0.01"), 1e-6);
+        assertEquals(0.1, deltas.get("T2").get("FXFWD/RATE/USD/CNH/1M@0.01"), 1e-6);
+        assertEquals(0.1, deltas.get("T2").get("FXFWD/RATE/USD/CNH/3M@0.01"), 1e-6);
+        assertEquals("7.11", run.getScenarios().get(0).getBumpedValue());
+
+        // 原工作目录不受影响，临时副本已删除
+        assertEquals(MARKET, Files.readString(workingDir.resolve("input").resolve("market.txt")));
+        assertFalse(Files.exists(workingDir.resolve("output").resolve("npv.csv")));
+        try (Stream<Path> siblings = Files.list(tempDir)) {
+            assertTrue(siblings.noneMatch(p -> p.getFileName().toString().startsWith("batch.scratch-")));
+        }
+    }
+
+    @Test
+    void testSubmit_RelativeShiftAndValidation() throws Exception {
+        OreSensitivityRun run = sensitivityService.submit(workingDir.toString(),
+                List.of("FX/RATE/USD/CNH"), List.of(new BigDecimal("0.1")), "relative");
+        run.getCompletion().get(30, TimeUnit.SECONDS);
+        assertEquals(710.0, run.getDeltas().get("T1").get("FX/RATE/USD/CNH@0.1"), 1e-6);
+
+        assertThrows(IllegalArgumentException.class, () -> sensitivityService.submit(workingDir.toString(),
+                List.of("IR/RATE/*"), List.of(BigDecimal.ONE), null));
+        assertThrows(IllegalArgumentException.class, () -> sensitivityService.submit(workingDir.toString(),
+                List.of("FX/RATE/USD/CNH"), List.of(BigDecimal.ZERO), null));
+        assertThrows(IllegalArgumentException.class, () -> sensitivityService.submit(workingDir.toString(),
+                List.of("FX/RATE/USD/CNH"), List.of(BigDecimal.ONE), "parallel"));
+    }
+}
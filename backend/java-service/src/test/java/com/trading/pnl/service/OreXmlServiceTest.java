@@ -0,0 +1,108 @@
+package com.trading.pnl.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OreXmlServiceTest {
+
+    private static final String ORE_XML = "<?xml version=\"1.0\"?>\r\n"
+            + "<!-- ORE configuration -->\r\n"
+            + "<ORE>\r\n"
+            + "  <Setup>\r\n"
+            + "    <Parameter name=\"asofDate\">2016-02-05</Parameter>\r\n"
+            + "    <Parameter name=\"inputPath\">Input</Parameter>\r\n"
+            + "    <Parameter name=\"marketDataFile\">market_20160205.txt</Parameter>\r\n"
+            + "    <Parameter name=\"observationModel\"/>\r\n"
+            + "  </Setup>\r\n"
+            + "  <Analytics>\r\n"
+            + "    <Analytic type=\"npv\">\r\n"
+            + "      <Parameter name=\"active\">Y</Parameter>\r\n"
+            + "    </Analytic>\r\n"
+            + "    <Analytic type=\"cashflow\">\r\n"
+            + "      <Parameter name=\"active\">Y</Parameter>\r\n"
+            + "    </Analytic>\r\n"
+            + "  </Analytics>\r\n"
+            + "</ORE>\r\n";
+
+    @TempDir
+    Path workingDir;
+
+    private OreXmlService oreXmlService;
+    private Path oreXml;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        oreXmlService = new OreXmlService();
+        Path inputDir = Files.createDirectories(workingDir.resolve("input"));
+        oreXml = inputDir.resolve("ore.xml");
+        Files.write(oreXml, ORE_XML.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testUpdateOreXml_PreservesFormatting() throws Exception {
+        oreXmlService.updateOreXml(workingDir.toString(), "2024-03-01", "ORE_Market_20240301.txt");
+
+        String expected = ORE_XML
+                .replace("2016-02-05", "2024-03-01")
+                .replace("market_20160205.txt", "ORE_Market_20240301.txt");
+        assertEquals(expected, Files.readString(oreXml));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testUpdateParameters_KeepsFilePermissions() throws Exception {
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-rw-r--");
+        Files.setPosixFilePermissions(oreXml, permissions);
+
+        oreXmlService.updateParameters(oreXml, Map.of("Setup/asofDate", "2024-03-01"));
+
+        assertEquals(permissions, Files.getPosixFilePermissions(oreXml));
+    }
+
+    @Test
+    void testUpdateParameters_ScopedAndSelfClosing() throws Exception {
+        Map<String, String> updates = new LinkedHashMap<>();
+        updates.put("cashflow/active", "N");
+        updates.put("observationModel", "Disable");
+        updates.put("unknownParameter", "X");
+
+        int updated = oreXmlService.updateParameters(oreXml, updates);
+
+        assertEquals(2, updated);
+        String content = Files.readString(oreXml);
+        assertTrue(content.contains("<Parameter name=\"observationModel\">Disable</Parameter>\r\n"));
+        Map<String, String> parameters = oreXmlService.readParameters(oreXml);
+        assertEquals("Y", parameters.get("npv/active"));
+        assertEquals("N", parameters.get("cashflow/active"));
+        assertEquals("Disable", parameters.get("Setup/observationModel"));
+    }
+
+    @Test
+    void testUpdateParameters_RepeatedUpdatesUseCachedIndex() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            oreXmlService.updateParameters(oreXml, Map.of("asofDate", "2024-03-0" + i, "inputPath", "In&Out"));
+        }
+
+        Map<String, String> parameters = oreXmlService.readParameters(oreXml);
+        assertEquals("2024-03-03", parameters.get("Setup/asofDate"));
+        assertEquals("In&Out", parameters.get("Setup/inputPath"));
+        assertTrue(Files.readString(oreXml).contains(">In&amp;Out</Parameter>"));
+        try (var files = Files.list(oreXml.getParent())) {
+            assertEquals(1, files.count(), "temporary files should not be left behind");
+        }
+    }
+}
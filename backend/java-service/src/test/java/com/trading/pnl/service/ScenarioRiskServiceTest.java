@@ -0,0 +1,126 @@
+package com.trading.pnl.service;
+
+import com.quantlib.FXOption;
+import com.quantlib.GarmanKohlhagenPricer;
+import com.trading.pnl.model.TradeValuation;
+import com.trading.pnl.websocket.FilteredTopicPublisher;
+import com.trading.pnl.websocket.TopicReplayBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ScenarioRiskServiceTest {
+
+    private static final LocalDate AS_OF = LocalDate.of(2025, 1, 10);
+
+    private BookRevaluationService bookService;
+    private ScenarioRiskService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        FilteredTopicPublisher filteredTopicPublisher = mock(FilteredTopicPublisher.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TopicReplayBuffer replayBuffer = new TopicReplayBuffer(meterRegistry, 16);
+        bookService = new BookRevaluationService(
+                new TradeMonitorService(messagingTemplate, filteredTopicPublisher, replayBuffer),
+                messagingTemplate, filteredTopicPublisher, replayBuffer,
+                new OreConversionService(meterRegistry), new MarketCurveService(meterRegistry, 0.01, 0.0001),
+                new OptionPricingCache(meterRegistry, 10000, 1e-10, 1e-10, 1e-10), meterRegistry, 2, 64);
+        service = new ScenarioRiskService(bookService, meterRegistry, 16, 2500);
+
+        Map<String, Double> quotes = new HashMap<>();
+        quotes.put("FX/RATE/USD/CNH", 7.30);
+        quotes.put("FXFWD/RATE/USD/CNH/6M", -1500.0);
+        quotes.put("FX_OPTION/RATE_LNVOL/USD/CNH/1Y/ATM", 5.0);
+        quotes.put("MM/RATE/CNH/0D/1D", 0.02);
+        quotes.put("FX/RATE/EUR/USD", 1.08);
+        quotes.put("FX_OPTION/RATE_LNVOL/EUR/USD/1Y/ATM", 7.0);
+        quotes.put("MM/RATE/USD/0D/1D", 0.045);
+        quotes.put("FX/RATE/EUR/GBP", 0.84);
+        quotes.put("FX_OPTION/RATE_LNVOL/EUR/GBP/1Y/ATM", 6.0);
+        bookService.updateMarket(quotes, AS_OF);
+
+        String[] pairs = {"USDCNH", "EURUSD", "EURGBP"};
+        double[] spots = {7.30, 1.08, 0.84};
+        List<Map<String, Object>> trades = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Map<String, Object> trade = new HashMap<>();
+            int p = i % 3;
+            trade.put("Calypso ID", "T" + i);
+            trade.put("Undl", pairs[p]);
+            trade.put("Notional", 1000000L);
+            trade.put("OptMult", i % 4 == 0 ? -1 : 1);
+            trade.put("Expiry Date", AS_OF.plusDays(20 + (i % 12) * 30).toString());
+            trade.put("Strike", spots[p] * (0.9 + (i % 21) * 0.01));
+            trade.put("Call/Put", i % 2 == 0 ? "Call" : "Put");
+            trades.add(trade);
+        }
+        bookService.updateBook(trades);
+        bookService.flush().get(10, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookService.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEvaluate_LaddersMatchRepricing() {
+        double[] spotShifts = ScenarioRiskService.symmetricShifts(0.10, 21);
+        double[] volShifts = ScenarioRiskService.symmetricShifts(0.05, 11);
+        assertEquals(-0.10, spotShifts[0], 1e-15);
+        assertEquals(0.0, spotShifts[10], 1e-15);
+        assertEquals(0.05, volShifts[10], 1e-15);
+
+        Map<String, Object> result = service.evaluate(spotShifts, volShifts);
+        assertEquals(3000, result.get("trades"));
+        assertEquals(231, result.get("scenarios"));
+
+        List<Map<String, Object>> pairs = (List<Map<String, Object>>) result.get("pairs");
+        assertEquals(3, pairs.size());
+        Map<String, Object> usdCnh = pairs.get(0);
+        assertEquals("USDCNH", usdCnh.get("pair"));
+        double[][] ladder = (double[][]) usdCnh.get("pnl");
+        assertEquals(21, ladder.length);
+        assertEquals(11, ladder[0].length);
+        assertEquals(0.0, ladder[10][5], 0.0);
+
+        // 即期 +10%、波动率 -5 个点的情景与逐笔重新定价一致
+        double expected = 0.0;
+        for (TradeValuation valuation : bookService.getValuations()) {
+            if (!"USDCNH".equals(valuation.getPair())) {
+                continue;
+            }
+            int type = "PUT".equals(valuation.getOptionType()) ? FXOption.PUT : FXOption.CALL;
+            double shifted = GarmanKohlhagenPricer.INSTANCE.calculateFXOption(type, valuation.getSpot() * 1.10,
+                    valuation.getStrike(), valuation.getDomesticRate(), valuation.getForeignRate(),
+                    valuation.getVolatility() - 0.05, valuation.getDaysToMaturity());
+            expected += (shifted - valuation.getUnitPrice()) * valuation.getQuantity();
+        }
+        assertEquals(expected, ladder[20][0], 1e-6 * Math.abs(expected));
+
+        // 全簿以美元计，USDCNH 按基准即期折算，EURGBP 不含美元
+        Map<String, Object> book = (Map<String, Object>) result.get("book");
+        double[][] bookLadder = (double[][]) book.get("pnl");
+        double[][] eurUsd = (double[][]) pairs.get(1).get("pnl");
+        assertEquals(ladder[20][0] / 7.30 + eurUsd[20][0], bookLadder[20][0], 1e-6 * Math.abs(bookLadder[20][0]));
+        assertEquals(List.of("EURGBP"), book.get("unconverted"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.evaluate(new double[60], new double[60]));
+    }
+}
@@ -1,5 +1,8 @@
 package com.trading.pnl.service;
 
+import com.trading.pnl.websocket.FilteredTopicPublisher;
+import com.trading.pnl.websocket.TopicReplayBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -17,12 +20,16 @@ class TradeMonitorServiceTest {
     @Mock
     private SimpMessagingTemplate messagingTemplate;
 
+    @Mock
+    private FilteredTopicPublisher filteredTopicPublisher;
+
     private TradeMonitorService tradeMonitorService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        tradeMonitorService = new TradeMonitorService(messagingTemplate);
+        tradeMonitorService = new TradeMonitorService(messagingTemplate, filteredTopicPublisher,
+                new TopicReplayBuffer(new SimpleMeterRegistry(), 16));
     }
 
     @Test
@@ -0,0 +1,32 @@
+package com.trading.pnl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarTableTest {
+
+    private static final String[] HEADER = {"TradeId", "Maturity", "NPV"};
+
+    @Test
+    void testBuild_TextColumnKeepsOriginalNumericText() {
+        ColumnarTable.Builder builder = ColumnarTable.builder(List.of("TradeId"));
+        builder.addRow(HEADER, new String[] {"FXO_1", "1.50", "100.10"});
+        builder.addRow(HEADER, new String[] {"FXO_2", "1e3", "-2.5"});
+        builder.addRow(HEADER, new String[] {"FXO_3", "2025-06-30", ""});
+        ColumnarTable table = builder.build();
+
+        // 出现日期后 Maturity 转为文本列，之前的数字按原文保留
+        assertFalse(table.isNumeric("Maturity"));
+        assertEquals("1.50", table.value(0, "Maturity"));
+        assertEquals("1e3", table.value(1, "Maturity"));
+        assertArrayEquals(new int[] {0}, table.select(Map.of("Maturity", "1.50")));
+
+        assertTrue(table.isNumeric("NPV"));
+        assertEquals(100.1, table.value(0, "NPV"));
+        assertNull(table.value(2, "NPV"));
+    }
+}
@@ -0,0 +1,73 @@
+package com.trading.pnl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DerivedQuoteGraphTest {
+
+    private static Map<String, Object> derived(String target, String expression) {
+        Map<String, Object> mapping = new HashMap<>();
+        mapping.put("target", target);
+        mapping.put("expression", expression);
+        return mapping;
+    }
+
+    @Test
+    void testEvaluate_DependencyOrder() {
+        Map<String, Map<String, Object>> mappings = new LinkedHashMap<>();
+        // 故意把依赖项放在后面，验证拓扑排序
+        mappings.put("CNH4M Spread", derived("FXFWD/SPREAD/USD/CNH/4M", "[CNH4M Derived] - [CNH3M Curncy]"));
+        mappings.put("CNH4M Derived", derived("FXFWD/RATE/USD/CNH/4M",
+                "interp(4, 3, [CNH3M Curncy], 6, [CNH6M Curncy])"));
+        mappings.put("CNHUSD Derived", derived("FX/RATE/CNH/USD", "1 / [USDCNH Curncy]"));
+        mappings.put("USDCNH Curncy", Map.of("target", "FX/RATE/USD/CNH", "coefficient", 1));
+
+        DerivedQuoteGraph graph = DerivedQuoteGraph.compile(mappings);
+        assertEquals(3, graph.size());
+
+        Map<String, String> marketData = Map.of(
+                "CNH3M Curncy", "-300.0000",
+                "CNH6M Curncy", "-600.0000",
+                "USDCNH Curncy", "8.0000");
+        DerivedQuoteGraph.Result result = graph.evaluate(marketData);
+
+        Map<String, Double> values = new HashMap<>();
+        for (int i = 0; i < result.size(); i++) {
+            values.put(result.quote(i).getKey(), result.value(i));
+        }
+        assertEquals(-400.0, values.get("CNH4M Derived"), 1e-12);
+        assertEquals(-100.0, values.get("CNH4M Spread"), 1e-12);
+        assertEquals(0.125, values.get("CNHUSD Derived"), 1e-12);
+    }
+
+    @Test
+    void testEvaluate_MissingInputPropagatesNaN() {
+        Map<String, Map<String, Object>> mappings = new LinkedHashMap<>();
+        Map<String, Object> scaled = derived("MM/RATE/USD/SPREAD", "([A] - [B]) * 2");
+        scaled.put("coefficient", 0.01);
+        mappings.put("Spread", scaled);
+
+        DerivedQuoteGraph graph = DerivedQuoteGraph.compile(mappings);
+
+        assertEquals(0.06, graph.evaluate(Map.of("A", "5", "B", "2")).value(0), 1e-12);
+        assertTrue(Double.isNaN(graph.evaluate(Map.of("A", "5", "B", "N/A")).value(0)));
+        assertTrue(Double.isNaN(graph.evaluate(Map.of("A", "5")).value(0)));
+    }
+
+    @Test
+    void testCompile_RejectsCyclesAndSyntaxErrors() {
+        Map<String, Map<String, Object>> cyclic = new LinkedHashMap<>();
+        cyclic.put("X", derived("T/X", "[Y] + 1"));
+        cyclic.put("Y", derived("T/Y", "[X] * 2"));
+        assertThrows(IllegalArgumentException.class, () -> DerivedQuoteGraph.compile(cyclic));
+
+        Map<String, Map<String, Object>> invalid = new LinkedHashMap<>();
+        invalid.put("Z", derived("T/Z", "lerp([A], [B])"));
+        assertThrows(IllegalArgumentException.class, () -> DerivedQuoteGraph.compile(invalid));
+    }
+}
@@ -0,0 +1,153 @@
+package com.trading.pnl.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ConflatingWebSocketSessionTest {
+
+    private OutboundConflationManager manager;
+
+    @AfterEach
+    void tearDown() {
+        if (manager != null) {
+            manager.shutdown();
+        }
+    }
+
+    private static TextMessage frame(String destination, String body) {
+        return new TextMessage("MESSAGE\ndestination:" + destination + "\nsubscription:sub-0\n"
+                + "content-type:application/json\n\n" + body + "\u0000");
+    }
+
+    private static String body(WebSocketMessage<?> message) {
+        String payload = ((TextMessage) message).getPayload();
+        return payload.substring(payload.indexOf("\n\n") + 2, payload.length() - 1);
+    }
+
+    /**
+     * 第一次发送阻塞在 latch 上，之后的消息都留在队列里。
+     */
+    private WebSocketSession blockingDelegate(CountDownLatch release, List<WebSocketMessage<?>> sent,
+            CountDownLatch done, int expected) throws Exception {
+        WebSocketSession delegate = mock(WebSocketSession.class);
+        when(delegate.getId()).thenReturn("s-1");
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            sent.add(invocation.getArgument(0));
+            if (sent.size() >= expected) {
+                done.countDown();
+            }
+            return null;
+        }).when(delegate).sendMessage(any());
+        return delegate;
+    }
+
+    @Test
+    void testSnapshotDestination_SlowClientReceivesLatestOnly() throws Exception {
+        manager = new OutboundConflationManager(new SimpleMeterRegistry(), List.of("/topic/trades"), 1 << 20, 10000, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<WebSocketMessage<?>> sent = Collections.synchronizedList(new ArrayList<>());
+        ConflatingWebSocketSession session = new ConflatingWebSocketSession(
+                blockingDelegate(release, sent, done, 2), manager);
+
+        session.sendMessage(frame("/topic/trades", "{\"v\":0}"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (session.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        for (int i = 1; i < 10; i++) {
+            session.sendMessage(frame("/topic/trades", "{\"v\":" + i + "}"));
+        }
+        assertEquals(1, session.getPendingCount());
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+
+        // 正在发送的第一条加上最新的一条，中间的被合并
+        assertEquals(2, sent.size());
+        assertEquals("{\"v\":0}", body(sent.get(0)));
+        assertEquals("{\"v\":9}", body(sent.get(1)));
+        assertEquals(0, session.getPendingBytes());
+        assertEquals(8L, manager.getStats().get("conflated"));
+    }
+
+    @Test
+    void testIncrementalDestination_AllMessagesDeliveredInOrder() throws Exception {
+        manager = new OutboundConflationManager(new SimpleMeterRegistry(), List.of("/topic/trades"), 1 << 20, 10000, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<WebSocketMessage<?>> sent = Collections.synchronizedList(new ArrayList<>());
+        ConflatingWebSocketSession session = new ConflatingWebSocketSession(
+                blockingDelegate(release, sent, done, 6), manager);
+
+        for (int i = 0; i < 5; i++) {
+            session.sendMessage(frame("/topic/book/pnl", "{\"v\":" + i + "}"));
+        }
+        session.sendMessage(new TextMessage("\n"));
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(6, sent.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("{\"v\":" + i + "}", body(sent.get(i)));
+        }
+        assertEquals(0L, manager.getStats().get("conflated"));
+    }
+
+    @Test
+    void testBufferLimit_ClosesSlowSession() throws Exception {
+        manager = new OutboundConflationManager(new SimpleMeterRegistry(), List.of("/topic/trades"), 256, 10000, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<WebSocketMessage<?>> sent = Collections.synchronizedList(new ArrayList<>());
+        WebSocketSession delegate = blockingDelegate(release, sent, new CountDownLatch(1), Integer.MAX_VALUE);
+        ConflatingWebSocketSession session = new ConflatingWebSocketSession(delegate, manager);
+
+        String payload = "{\"data\":\"" + "x".repeat(100) + "\"}";
+        for (int i = 0; i < 5; i++) {
+            session.sendMessage(frame("/topic/book/pnl", payload));
+        }
+        verify(delegate).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, session.getPendingCount());
+        assertEquals(1L, manager.getStats().get("terminated"));
+
+        // 关闭后的消息直接丢弃
+        session.sendMessage(frame("/topic/book/pnl", payload));
+        assertEquals(0, session.getPendingCount());
+        release.countDown();
+    }
+
+    @Test
+    void testSendTimeLimit_WatchdogClosesStuckSession() throws Exception {
+        manager = new OutboundConflationManager(new SimpleMeterRegistry(), List.of("/topic/trades"), 1 << 20, 100, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<WebSocketMessage<?>> sent = Collections.synchronizedList(new ArrayList<>());
+        WebSocketSession delegate = blockingDelegate(release, sent, new CountDownLatch(1), Integer.MAX_VALUE);
+        // 关闭连接使阻塞的发送返回
+        doAnswer(invocation -> {
+            release.countDown();
+            return null;
+        }).when(delegate).close(any());
+        ConflatingWebSocketSession session = new ConflatingWebSocketSession(delegate, manager);
+
+        // 没有后续消息入队，由看门狗发现卡住的发送
+        session.sendMessage(frame("/topic/book/pnl", "{\"v\":0}"));
+        verify(delegate, timeout(2000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1L, manager.getStats().get("terminated"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.trading.pnl.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FilteredSubscriptionRegistryTest {
+
+    private FilteredSubscriptionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new FilteredSubscriptionRegistry(List.of("/topic/trades", "/topic/book/pnl"));
+    }
+
+    private Message<?> send(StompCommand command, String sessionId, String subscriptionId, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId(sessionId);
+        if (subscriptionId != null) {
+            accessor.setSubscriptionId(subscriptionId);
+        }
+        if (destination != null) {
+            accessor.setDestination(destination);
+        }
+        return registry.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+    }
+
+    @Test
+    void testSubscribe_MaintainsIndexAndCanonicalDestination() {
+        Message<?> rewritten = send(StompCommand.SUBSCRIBE, "s-1", "sub-0", "/topic/trades/pair/usd-cnh");
+        assertEquals("/topic/trades/pair/USDCNH", SimpMessageHeaderAccessor.getDestination(rewritten.getHeaders()));
+        assertEquals("/topic/trades/pair/USDCNH", StompHeaderAccessor.wrap(rewritten).getFirstNativeHeader("destination"));
+
+        send(StompCommand.SUBSCRIBE, "s-2", "sub-0", "/topic/trades/pair/USDCNH");
+        send(StompCommand.SUBSCRIBE, "s-2", "sub-1", "/topic/trades/desk/FXO-HK");
+        send(StompCommand.SUBSCRIBE, "s-2", "sub-2", "/topic/trades");
+        send(StompCommand.SUBSCRIBE, "s-2", "sub-3", "/topic/trades/region/ASIA");
+        assertEquals(Set.of("USDCNH"), registry.activeValues("/topic/trades", FilteredSubscriptionRegistry.PAIR));
+        assertEquals(Set.of("FXO-HK"), registry.activeValues("/topic/trades", FilteredSubscriptionRegistry.DESK));
+        assertTrue(registry.activeValues("/topic/book/pnl", FilteredSubscriptionRegistry.PAIR).isEmpty());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> groups = (Map<String, Object>) registry.getStats().get("groups");
+        assertEquals(2, groups.get("/topic/trades/pair/USDCNH"));
+
+        // 一个订阅者退订后组仍然有效，会话断开后全部移除
+        send(StompCommand.UNSUBSCRIBE, "s-1", "sub-0", null);
+        assertEquals(Set.of("USDCNH"), registry.activeValues("/topic/trades", FilteredSubscriptionRegistry.PAIR));
+        send(StompCommand.DISCONNECT, "s-2", null, null);
+        assertTrue(registry.activeValues("/topic/trades", FilteredSubscriptionRegistry.PAIR).isEmpty());
+        assertTrue(registry.activeValues("/topic/trades", FilteredSubscriptionRegistry.DESK).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPublish_OneMessagePerActiveGroup() {
+        SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        FilteredTopicPublisher publisher = new FilteredTopicPublisher(messagingTemplate, registry, new SimpleMeterRegistry());
+        send(StompCommand.SUBSCRIBE, "s-1", "sub-0", "/topic/trades/pair/USDCNH");
+        send(StompCommand.SUBSCRIBE, "s-2", "sub-0", "/topic/trades/pair/USDCNH");
+        send(StompCommand.SUBSCRIBE, "s-3", "sub-0", "/topic/trades/pair/USDJPY");
+
+        List<Map<String, Object>> trades = List.of(
+                Map.of("Calypso ID", "T1", "Undl", "USD/CNH"),
+                Map.of("Calypso ID", "T2", "Undl", "EURUSD"),
+                Map.of("Calypso ID", "T3", "Undl", "USDCNH"));
+        Map<String, Function<Map<String, Object>, ?>> dimensions = Map.of(
+                FilteredSubscriptionRegistry.PAIR, trade -> trade.get("Undl"));
+
+        int sent = publisher.publish("/topic/trades", Map.of("status", "success"), "data", trades, dimensions, true);
+        assertEquals(2, sent);
+        ArgumentCaptor<Map<String, Object>> message = ArgumentCaptor.forClass(Map.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/trades/pair/USDCNH"), message.capture());
+        assertEquals(2, ((List<?>) message.getValue().get("data")).size());
+        assertEquals("success", message.getValue().get("status"));
+        // 快照型主题没有匹配行时发送空列表
+        verify(messagingTemplate).convertAndSend(eq("/topic/trades/pair/USDJPY"), message.capture());
+        assertEquals(List.of(), message.getValue().get("data"));
+
+        // 增量主题跳过没有匹配行的组
+        assertEquals(1, publisher.publish("/topic/trades", Map.of(), "data", trades, dimensions, false));
+    }
+}
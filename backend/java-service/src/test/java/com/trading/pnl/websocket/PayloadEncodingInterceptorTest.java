@@ -0,0 +1,133 @@
+package com.trading.pnl.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadEncodingInterceptorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private PayloadEncodingInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new PayloadEncodingInterceptor(new SimpleMeterRegistry(), List.of("/topic/trades"));
+    }
+
+    private static Map<String, Object> tradesMessage(int count) {
+        String[] pairs = {"USDCNH", "EURUSD", "USDJPY"};
+        List<Map<String, Object>> trades = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> trade = new LinkedHashMap<>();
+            trade.put("Calypso ID", "T" + i);
+            trade.put("Undl", pairs[i % 3]);
+            trade.put("Notional", 1000000L + i);
+            trade.put("OptMult", i % 2 == 0 ? 1 : -1);
+            trade.put("Call/Put", i % 2 == 0 ? "Call" : "Put");
+            trade.put("Expiry Date", "2025-06-30");
+            if (i % 5 == 0) {
+                trade.put("Comment", "watch");
+            }
+            trades.add(trade);
+        }
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("status", "success");
+        message.put("data", trades);
+        message.put("timestamp", "2025-01-10T10:00:00");
+        return message;
+    }
+
+    private void connect(String sessionId, String encoding, boolean binaryFrames) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        accessor.setNativeHeader(PayloadEncodingInterceptor.ENCODING_HEADER, encoding);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(PayloadEncodingInterceptor.BINARY_FRAMES_ATTRIBUTE, binaryFrames);
+        accessor.setSessionAttributes(attributes);
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+    }
+
+    private static Message<?> broadcast(String sessionId, String destination, byte[] payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination(destination);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCodec_RoundTripIsCompact() throws Exception {
+        Map<String, Object> original = tradesMessage(500);
+        byte[] json = objectMapper.writeValueAsBytes(original);
+        byte[] binary = ColumnarPayloadCodec.encode(objectMapper.readTree(json), objectMapper);
+        assertNotNull(binary);
+        assertTrue(binary.length * 2 < json.length, binary.length + " vs " + json.length);
+
+        Map<String, Object> decoded = ColumnarPayloadCodec.decode(binary, objectMapper);
+        assertEquals("success", decoded.get("status"));
+        assertEquals("2025-01-10T10:00:00", decoded.get("timestamp"));
+        List<Map<String, Object>> trades = (List<Map<String, Object>>) decoded.get("data");
+        assertEquals(500, trades.size());
+        Map<String, Object> first = trades.get(0);
+        assertEquals("T0", first.get("Calypso ID"));
+        assertEquals(1000000.0, first.get("Notional"));
+        assertEquals("watch", first.get("Comment"));
+        assertEquals(-1.0, trades.get(1).get("OptMult"));
+        assertFalse(trades.get(1).containsKey("Comment"));
+
+        // 没有对象数组的消息不编码
+        assertNull(ColumnarPayloadCodec.encode(objectMapper.readTree("{\"type\":\"test\"}"), objectMapper));
+    }
+
+    @Test
+    void testPreSend_EncodesOncePerPayloadForNegotiatedSessions() throws Exception {
+        connect("s-1", "columnar-v1", true);
+        connect("s-2", "cbor, columnar-v1", true);
+        connect("s-3", "columnar-v1", false);
+
+        byte[] json = objectMapper.writeValueAsBytes(tradesMessage(50));
+        Message<?> first = interceptor.preSend(broadcast("s-1", "/topic/trades", json), null);
+        Message<?> second = interceptor.preSend(broadcast("s-2", "/topic/trades", json), null);
+        Message<?> sockJs = interceptor.preSend(broadcast("s-3", "/topic/trades", json), null);
+        Message<?> plain = interceptor.preSend(broadcast("s-4", "/topic/trades", json), null);
+        Message<?> other = interceptor.preSend(broadcast("s-1", "/topic/book/pnl", json), null);
+
+        assertSame(first.getPayload(), second.getPayload());
+        assertEquals(MimeTypeUtils.APPLICATION_OCTET_STREAM, first.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(first);
+        assertEquals(ColumnarPayloadCodec.FORMAT, accessor.getFirstNativeHeader(PayloadEncodingInterceptor.ENCODING_HEADER));
+        assertEquals("sub-0", accessor.getSubscriptionId());
+        assertSame(json, sockJs.getPayload());
+        assertSame(json, plain.getPayload());
+        assertSame(json, other.getPayload());
+
+        Map<String, Object> stats = interceptor.getStats();
+        assertEquals(2, stats.get("binarySessions"));
+        assertEquals(1L, stats.get("encoded"));
+        assertEquals(1L, stats.get("reused"));
+
+        StompHeaderAccessor disconnect = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+        disconnect.setSessionId("s-1");
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], disconnect.getMessageHeaders()), null);
+        assertEquals(1, interceptor.getStats().get("binarySessions"));
+    }
+}
@@ -1,55 +1,55 @@
 #include "com_quantlib_FXOption.h"
 #include <ql/quantlib.hpp>
+#include <cmath>
+#include <limits>
 
 using namespace QuantLib;
 
+namespace {
+
+    // 与 AnalyticEuropeanEngine 在平坦曲线、常数波动率、Actual365Fixed 下的结果相同，
+    // 但直接用 BlackCalculator 计算：不构建 Instrument 和期限结构，不读写 Settings::evaluationDate()
+    // 这个进程级单例，也不依赖系统日期。期限由调用方按自己的估值日算好的 daysToMaturity 给出，
+    // 因此多个 Java 线程可以同时调用。
+    // r: npv, delta, gamma, vega, theta, rho
+    void priceVanilla(int optionType, double spot, double strike, double domesticRate, double foreignRate,
+                      double volatility, int daysToMaturity, double* r) {
+        QL_REQUIRE(spot > 0.0, "spot must be positive: " << spot);
+        QL_REQUIRE(strike > 0.0, "strike must be positive: " << strike);
+        QL_REQUIRE(volatility >= 0.0, "volatility must not be negative: " << volatility);
+        if (daysToMaturity <= 0) {
+            // 已到期
+            for (int k = 0; k < com_quantlib_FXOption_BATCH_OUTPUT_STRIDE; ++k) {
+                r[k] = 0.0;
+            }
+            return;
+        }
+        Time t = daysToMaturity / 365.0;
+        DiscountFactor domesticDiscount = std::exp(-domesticRate * t);
+        DiscountFactor foreignDiscount = std::exp(-foreignRate * t);
+        Real forward = spot * foreignDiscount / domesticDiscount;
+        Real stdDev = volatility * std::sqrt(t);
+        Option::Type type = (optionType == com_quantlib_FXOption_CALL) ? Option::Call : Option::Put;
+
+        BlackCalculator black(type, strike, forward, stdDev, domesticDiscount);
+        r[0] = black.value();
+        r[1] = black.delta(spot);
+        r[2] = black.gamma(spot);
+        r[3] = black.vega(t);
+        r[4] = black.theta(spot, t);
+        r[5] = black.rho(t);
+    }
+
+}
+
 JNIEXPORT jdouble JNICALL Java_com_quantlib_FXOption_calculateFXOption
   (JNIEnv* env, jobject obj, jint optionType, jdouble spot, jdouble strike,
    jdouble domesticRate, jdouble foreignRate, jdouble volatility, jint daysToMaturity) {
-    
+
     try {
-        // 设置计算日期
-        Calendar calendar = TARGET();
-        Date todaysDate = Date::todaysDate();
-        Settings::instance().evaluationDate() = todaysDate;
-        
-        // 设置期权参数
-        Option::Type type = (optionType == 1) ? Option::Call : Option::Put;
-        Date maturity = todaysDate + Period(daysToMaturity, Days);
-        
-        // 构建收益率曲线
-        auto domesticRTS = boost::shared_ptr<YieldTermStructure>(
-            new FlatForward(todaysDate, domesticRate, Actual365Fixed()));
-        auto foreignRTS = boost::shared_ptr<YieldTermStructure>(
-            new FlatForward(todaysDate, foreignRate, Actual365Fixed()));
-            
-        // 构建波动率曲线
-        auto volTS = boost::shared_ptr<BlackVolTermStructure>(
-            new BlackConstantVol(todaysDate, calendar, volatility, Actual365Fixed()));
-            
-        // 构建报价对象
-        auto spot_quote = boost::shared_ptr<Quote>(new SimpleQuote(spot));
-        
-        // 构建BSM过程
-        auto bsProcess = boost::shared_ptr<BlackScholesMertonProcess>(
-            new BlackScholesMertonProcess(
-                Handle<Quote>(spot_quote),
-                Handle<YieldTermStructure>(foreignRTS),
-                Handle<YieldTermStructure>(domesticRTS),
-                Handle<BlackVolTermStructure>(volTS)));
-                
-        // 创建期权对象
-        auto exercise = boost::shared_ptr<Exercise>(new EuropeanExercise(maturity));
-        auto payoff = boost::shared_ptr<StrikedTypePayoff>(
-            new PlainVanillaPayoff(type, strike));
-            
-        VanillaOption option(payoff, exercise);
-        
-        // 设置定价引擎
-        option.setPricingEngine(boost::shared_ptr<PricingEngine>(
-            new AnalyticEuropeanEngine(bsProcess)));
-            
-        return option.NPV();
+        double r[com_quantlib_FXOption_BATCH_OUTPUT_STRIDE];
+        priceVanilla(optionType, spot, strike, domesticRate, foreignRate, volatility, daysToMaturity, r);
+        return r[0];
     }
     catch (const std::exception& e) {
         env->ThrowNew(env->FindClass("java/lang/RuntimeException"), e.what());
@@ -60,82 +60,72 @@ JNIEXPORT jdouble JNICALL Java_com_quantlib_FXOption_calculateFXOption
 JNIEXPORT jobject JNICALL Java_com_quantlib_FXOption_calculateFXOptionGreeks
   (JNIEnv* env, jobject obj, jint optionType, jdouble spot, jdouble strike,
    jdouble domesticRate, jdouble foreignRate, jdouble volatility, jint daysToMaturity) {
-    
+
     try {
-        // 设置计算日期
-        Calendar calendar = TARGET();
-        Date todaysDate = Date::todaysDate();
-        Settings::instance().evaluationDate() = todaysDate;
-        
-        // 设置期权参数
-        Option::Type type = (optionType == 1) ? Option::Call : Option::Put;
-        Date maturity = todaysDate + Period(daysToMaturity, Days);
-        
-        // 构建收益率曲线
-        auto domesticRTS = boost::shared_ptr<YieldTermStructure>(
-            new FlatForward(todaysDate, domesticRate, Actual365Fixed()));
-        auto foreignRTS = boost::shared_ptr<YieldTermStructure>(
-            new FlatForward(todaysDate, foreignRate, Actual365Fixed()));
-            
-        // 构建波动率曲线
-        auto volTS = boost::shared_ptr<BlackVolTermStructure>(
-            new BlackConstantVol(todaysDate, calendar, volatility, Actual365Fixed()));
-            
-        // 构建报价对象
-        auto spot_quote = boost::shared_ptr<Quote>(new SimpleQuote(spot));
-        
-        // 构建BSM过程
-        auto bsProcess = boost::shared_ptr<BlackScholesMertonProcess>(
-            new BlackScholesMertonProcess(
-                Handle<Quote>(spot_quote),
-                Handle<YieldTermStructure>(foreignRTS),
-                Handle<YieldTermStructure>(domesticRTS),
-                Handle<BlackVolTermStructure>(volTS)));
-                
-        // 创建期权对象
-        auto exercise = boost::shared_ptr<Exercise>(new EuropeanExercise(maturity));
-        auto payoff = boost::shared_ptr<StrikedTypePayoff>(
-            new PlainVanillaPayoff(type, strike));
-            
-        VanillaOption option(payoff, exercise);
-        
-        // 设置定价引擎
-        option.setPricingEngine(boost::shared_ptr<PricingEngine>(
-            new AnalyticEuropeanEngine(bsProcess)));
-        
-        // 计算希腊字母
-        double delta = option.delta();
-        double gamma = option.gamma();
-        double vega = option.vega();
-        double theta = option.theta();
-        double rho = option.rho();
-        
+        double r[com_quantlib_FXOption_BATCH_OUTPUT_STRIDE];
+        priceVanilla(optionType, spot, strike, domesticRate, foreignRate, volatility, daysToMaturity, r);
+
         // 创建Greeks对象
         jclass greeksClass = env->FindClass("com/quantlib/FXOption$Greeks");
-        jobject greeks = env->NewObject(greeksClass, 
+        jobject greeks = env->NewObject(greeksClass,
             env->GetMethodID(greeksClass, "<init>", "()V"));
-            
+
         // 设置字段值
         jfieldID fid;
         fid = env->GetFieldID(greeksClass, "delta", "D");
-        env->SetDoubleField(greeks, fid, delta);
-        
+        env->SetDoubleField(greeks, fid, r[1]);
+
         fid = env->GetFieldID(greeksClass, "gamma", "D");
-        env->SetDoubleField(greeks, fid, gamma);
-        
+        env->SetDoubleField(greeks, fid, r[2]);
+
         fid = env->GetFieldID(greeksClass, "vega", "D");
-        env->SetDoubleField(greeks, fid, vega);
-        
+        env->SetDoubleField(greeks, fid, r[3]);
+
         fid = env->GetFieldID(greeksClass, "theta", "D");
-        env->SetDoubleField(greeks, fid, theta);
-        
+        env->SetDoubleField(greeks, fid, r[4]);
+
         fid = env->GetFieldID(greeksClass, "rho", "D");
-        env->SetDoubleField(greeks, fid, rho);
-        
+        env->SetDoubleField(greeks, fid, r[5]);
+
         return greeks;
     }
     catch (const std::exception& e) {
         env->ThrowNew(env->FindClass("java/lang/RuntimeException"), e.what());
         return nullptr;
     }
-} 
\ No newline at end of file
+}
+
+JNIEXPORT jint JNICALL Java_com_quantlib_FXOption_nativeCalculateFXOptionBatch
+  (JNIEnv* env, jobject obj, jint count, jobject inputs, jint inputOffset,
+   jobject terms, jint termOffset, jobject outputs, jint outputOffset) {
+
+    const jdouble* in = static_cast<const jdouble*>(env->GetDirectBufferAddress(inputs));
+    const jint* term = static_cast<const jint*>(env->GetDirectBufferAddress(terms));
+    jdouble* out = static_cast<jdouble*>(env->GetDirectBufferAddress(outputs));
+    if (in == nullptr || term == nullptr || out == nullptr) {
+        env->ThrowNew(env->FindClass("java/lang/IllegalArgumentException"), "Batch buffers must be direct");
+        return 0;
+    }
+    in += inputOffset;
+    term += termOffset;
+    out += outputOffset;
+
+    // 不共享任何可变状态，不同线程可以同时处理同一组缓冲区中互不重叠的区段
+    jint failed = 0;
+    for (jlong i = 0; i < count; ++i) {
+        const jdouble* p = in + i * com_quantlib_FXOption_BATCH_INPUT_STRIDE;
+        const jint* t = term + i * com_quantlib_FXOption_BATCH_TERM_STRIDE;
+        jdouble* r = out + i * com_quantlib_FXOption_BATCH_OUTPUT_STRIDE;
+        try {
+            priceVanilla(t[0], p[0], p[1], p[2], p[3], p[4], t[1], r);
+        }
+        catch (const std::exception&) {
+            // 单个期权失败时输出 NaN，继续计算其余期权
+            for (int k = 0; k < com_quantlib_FXOption_BATCH_OUTPUT_STRIDE; ++k) {
+                r[k] = std::numeric_limits<double>::quiet_NaN();
+            }
+            ++failed;
+        }
+    }
+    return failed;
+}
@@ -11,6 +11,12 @@ extern "C" {
 #define com_quantlib_FXOption_CALL 1L
 #undef com_quantlib_FXOption_PUT
 #define com_quantlib_FXOption_PUT 2L
+#undef com_quantlib_FXOption_BATCH_INPUT_STRIDE
+#define com_quantlib_FXOption_BATCH_INPUT_STRIDE 5L
+#undef com_quantlib_FXOption_BATCH_TERM_STRIDE
+#define com_quantlib_FXOption_BATCH_TERM_STRIDE 2L
+#undef com_quantlib_FXOption_BATCH_OUTPUT_STRIDE
+#define com_quantlib_FXOption_BATCH_OUTPUT_STRIDE 6L
 /*
  * Class:     com_quantlib_FXOption
  * Method:    calculateFXOption
@@ -27,6 +33,14 @@ JNIEXPORT jdouble JNICALL Java_com_quantlib_FXOption_calculateFXOption
 JNIEXPORT jobject JNICALL Java_com_quantlib_FXOption_calculateFXOptionGreeks
   (JNIEnv *, jobject, jint, jdouble, jdouble, jdouble, jdouble, jdouble, jint);
 
+/*
+ * Class:     com_quantlib_FXOption
+ * Method:    nativeCalculateFXOptionBatch
+ * Signature: (ILjava/nio/DoubleBuffer;ILjava/nio/IntBuffer;ILjava/nio/DoubleBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_com_quantlib_FXOption_nativeCalculateFXOptionBatch
+  (JNIEnv *, jobject, jint, jobject, jint, jobject, jint, jobject, jint);
+
 #ifdef __cplusplus
 }
 #endif
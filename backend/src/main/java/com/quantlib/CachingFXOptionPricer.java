@@ -0,0 +1,370 @@
+package com.quantlib;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带 LRU 缓存的定价器：按合约条款（看涨/看跌、执行价、剩余天数）和量化后的市场输入查找已算过的价格和希腊字母，
+ * 命中时不再调用被包装的定价器。即期按相对精度量化（比较 ln S），利率和波动率按绝对精度量化，
+ * 精度为 0 时按原值精确匹配；同一量化格子内的输入返回第一次算出的结果。
+ * <p>
+ * 缓存条目以剩余天数为键，估值日变化后旧条目不会再命中；{@link #setValuationDate} 在估值日变化时清空缓存，
+ * 及时释放空间。缓存分段加锁，容量按段均分，每段独立按最近使用顺序淘汰。线程安全。
+ * <p>
+ * 批量定价时先查缓存，未命中的期权拷贝到线程本地的缓冲区，整批交给被包装的定价器一次计算后写回并加入缓存。
+ * 定价失败（NaN）的结果不缓存。
+ */
+public final class CachingFXOptionPricer implements FXOptionPricer {
+
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private static final int SEGMENTS = 16;
+    private static final int RESULT_SIZE = 6;
+
+    private final FXOptionPricer delegate;
+    private final double spotTolerance;
+    private final double rateTolerance;
+    private final double volatilityTolerance;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private volatile LocalDate valuationDate;
+
+    public CachingFXOptionPricer(FXOptionPricer delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES, 1e-10, 1e-10, 1e-10);
+    }
+
+    /**
+     * @param spotTolerance       即期的相对精度，如 1e-6 表示相差百万分之一以内视为相同
+     * @param rateTolerance       利率的绝对精度
+     * @param volatilityTolerance 波动率的绝对精度
+     */
+    public CachingFXOptionPricer(FXOptionPricer delegate, int maxEntries, double spotTolerance,
+            double rateTolerance, double volatilityTolerance) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate is required");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (!(spotTolerance >= 0.0) || !(rateTolerance >= 0.0) || !(volatilityTolerance >= 0.0)) {
+            throw new IllegalArgumentException("tolerances must not be negative");
+        }
+        this.delegate = delegate;
+        this.spotTolerance = spotTolerance;
+        this.rateTolerance = rateTolerance;
+        this.volatilityTolerance = volatilityTolerance;
+        int perSegment = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    public FXOptionPricer getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 估值日变化时清空缓存。
+     *
+     * @return 是否清空了缓存
+     */
+    public boolean setValuationDate(LocalDate date) {
+        synchronized (segments) {
+            if (Objects.equals(valuationDate, date)) {
+                return false;
+            }
+            valuationDate = date;
+        }
+        invalidateAll();
+        return true;
+    }
+
+    public LocalDate getValuationDate() {
+        return valuationDate;
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 命中率，尚无查询时为 0。
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public double calculateFXOption(int optionType, double spot, double strike, double domesticRate,
+            double foreignRate, double volatility, int daysToMaturity) {
+        return lookup(optionType, spot, strike, domesticRate, foreignRate, volatility, daysToMaturity)[0];
+    }
+
+    @Override
+    public FXOption.Greeks calculateFXOptionGreeks(int optionType, double spot, double strike, double domesticRate,
+            double foreignRate, double volatility, int daysToMaturity) {
+        FXOption.Greeks greeks = new FXOption.Greeks();
+        calculateFXOptionGreeks(optionType, spot, strike, domesticRate, foreignRate, volatility, daysToMaturity,
+                greeks);
+        return greeks;
+    }
+
+    @Override
+    public void calculateFXOptionGreeks(int optionType, double spot, double strike, double domesticRate,
+            double foreignRate, double volatility, int daysToMaturity, FXOption.Greeks result) {
+        double[] cached = lookup(optionType, spot, strike, domesticRate, foreignRate, volatility, daysToMaturity);
+        result.delta = cached[1];
+        result.gamma = cached[2];
+        result.vega = cached[3];
+        result.theta = cached[4];
+        result.rho = cached[5];
+    }
+
+    /**
+     * 与 {@link FXOption#calculateFXOptionBatch} 的缓冲区布局和语义相同。
+     */
+    @Override
+    public int calculateFXOptionBatch(int count, DoubleBuffer inputs, IntBuffer terms, DoubleBuffer outputs) {
+        FXOptionPricer.checkBatch(count, inputs, terms, outputs);
+        Scratch work = scratch.get();
+        work.ensureCapacity(count);
+        int missCount = 0;
+        for (int i = 0; i < count; i++) {
+            int in = inputs.position() + i * FXOption.BATCH_INPUT_STRIDE;
+            int term = terms.position() + i * FXOption.BATCH_TERM_STRIDE;
+            int out = outputs.position() + i * FXOption.BATCH_OUTPUT_STRIDE;
+            Key key = key(terms.get(term), inputs.get(in), inputs.get(in + 1), inputs.get(in + 2),
+                    inputs.get(in + 3), inputs.get(in + 4), terms.get(term + 1));
+            double[] cached = key == null ? null : segment(key).get(key);
+            if (cached != null) {
+                hits.increment();
+                for (int k = 0; k < RESULT_SIZE; k++) {
+                    outputs.put(out + k, cached[k]);
+                }
+                continue;
+            }
+            misses.increment();
+            int m = missCount++;
+            work.indices[m] = i;
+            work.keys[m] = key;
+            for (int k = 0; k < FXOption.BATCH_INPUT_STRIDE; k++) {
+                work.inputs.put(m * FXOption.BATCH_INPUT_STRIDE + k, inputs.get(in + k));
+            }
+            for (int k = 0; k < FXOption.BATCH_TERM_STRIDE; k++) {
+                work.terms.put(m * FXOption.BATCH_TERM_STRIDE + k, terms.get(term + k));
+            }
+        }
+        if (missCount == 0) {
+            return 0;
+        }
+
+        int failed = delegate.calculateFXOptionBatch(missCount, work.inputs, work.terms, work.outputs);
+        for (int m = 0; m < missCount; m++) {
+            int out = outputs.position() + work.indices[m] * FXOption.BATCH_OUTPUT_STRIDE;
+            double[] result = new double[RESULT_SIZE];
+            for (int k = 0; k < RESULT_SIZE; k++) {
+                result[k] = work.outputs.get(m * FXOption.BATCH_OUTPUT_STRIDE + k);
+                outputs.put(out + k, result[k]);
+            }
+            if (work.keys[m] != null && !Double.isNaN(result[0])) {
+                segment(work.keys[m]).put(work.keys[m], result);
+            }
+            work.keys[m] = null;
+        }
+        return failed;
+    }
+
+    /**
+     * 查找或计算一个期权的价格和希腊字母。
+     */
+    private double[] lookup(int optionType, double spot, double strike, double domesticRate, double foreignRate,
+            double volatility, int daysToMaturity) {
+        Key key = key(optionType, spot, strike, domesticRate, foreignRate, volatility, daysToMaturity);
+        if (key != null) {
+            double[] cached = segment(key).get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        FXOption.Greeks greeks = new FXOption.Greeks();
+        delegate.calculateFXOptionGreeks(optionType, spot, strike, domesticRate, foreignRate, volatility,
+                daysToMaturity, greeks);
+        double price = delegate.calculateFXOption(optionType, spot, strike, domesticRate, foreignRate, volatility,
+                daysToMaturity);
+        double[] result = {price, greeks.delta, greeks.gamma, greeks.vega, greeks.theta, greeks.rho};
+        if (key != null && !Double.isNaN(price)) {
+            segment(key).put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * 输入不能量化（即期非正或不是数字）时返回 null，不经过缓存。
+     */
+    private Key key(int optionType, double spot, double strike, double domesticRate, double foreignRate,
+            double volatility, int daysToMaturity) {
+        if (!(spot > 0.0) || Double.isNaN(strike) || Double.isNaN(domesticRate) || Double.isNaN(foreignRate)
+                || Double.isNaN(volatility) || Double.isInfinite(spot)) {
+            return null;
+        }
+        return new Key(optionType, daysToMaturity, Double.doubleToLongBits(strike),
+                spotTolerance > 0.0 ? Math.round(Math.log(spot) / spotTolerance) : Double.doubleToLongBits(spot),
+                quantize(domesticRate, rateTolerance), quantize(foreignRate, rateTolerance),
+                quantize(volatility, volatilityTolerance));
+    }
+
+    private static long quantize(double value, double tolerance) {
+        return tolerance > 0.0 ? Math.round(value / tolerance) : Double.doubleToLongBits(value);
+    }
+
+    private Segment segment(Key key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static final class Key {
+        final int optionType;
+        final int days;
+        final long strike;
+        final long spot;
+        final long domesticRate;
+        final long foreignRate;
+        final long volatility;
+        final int hash;
+
+        Key(int optionType, int days, long strike, long spot, long domesticRate, long foreignRate,
+                long volatility) {
+            this.optionType = optionType;
+            this.days = days;
+            this.strike = strike;
+            this.spot = spot;
+            this.domesticRate = domesticRate;
+            this.foreignRate = foreignRate;
+            this.volatility = volatility;
+            long h = 31L * optionType + days;
+            h = 31 * h + strike;
+            h = 31 * h + spot;
+            h = 31 * h + domesticRate;
+            h = 31 * h + foreignRate;
+            h = 31 * h + volatility;
+            this.hash = Long.hashCode(h * 0x9E3779B97F4A7C15L);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return optionType == other.optionType && days == other.days && strike == other.strike
+                    && spot == other.spot && domesticRate == other.domesticRate
+                    && foreignRate == other.foreignRate && volatility == other.volatility;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * 按访问顺序排列的一段缓存，超出容量时淘汰最久未用的条目。
+     */
+    private final class Segment extends LinkedHashMap<Key, double[]> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        public synchronized double[] get(Object key) {
+            return super.get(key);
+        }
+
+        @Override
+        public synchronized double[] put(Key key, double[] value) {
+            return super.put(key, value);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 批量定价时未命中期权的临时缓冲区，每个线程一份，按需扩容。
+     */
+    private static final class Scratch {
+        DoubleBuffer inputs;
+        IntBuffer terms;
+        DoubleBuffer outputs;
+        int[] indices;
+        Key[] keys;
+
+        Scratch() {
+            allocate(64);
+        }
+
+        void ensureCapacity(int count) {
+            if (count > indices.length) {
+                allocate(Math.max(count, indices.length * 2));
+            }
+        }
+
+        private void allocate(int count) {
+            inputs = FXOptionPricer.allocateDoubles(count * FXOption.BATCH_INPUT_STRIDE);
+            terms = FXOptionPricer.allocateInts(count * FXOption.BATCH_TERM_STRIDE);
+            outputs = FXOptionPricer.allocateDoubles(count * FXOption.BATCH_OUTPUT_STRIDE);
+            indices = new int[count];
+            keys = new Key[count];
+        }
+    }
+}
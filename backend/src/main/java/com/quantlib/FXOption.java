@@ -3,17 +3,41 @@ package com.quantlib;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 
-public class FXOption {
+/**
+ * QuantLib 本地库定价。本地库无法加载时类仍可使用，{@link #isNativeAvailable()} 返回 false，
+ * 构造实例会抛出 {@link IllegalStateException}；此时可改用 {@link GarmanKohlhagenPricer}。
+ * <p>
+ * 本地实现不读写 QuantLib 的全局估值日，期限只由 daysToMaturity（相对调用方自己的估值日）决定，
+ * 因此同一个实例可以被多个线程同时调用。
+ */
+public class FXOption implements FXOptionPricer {
+    private static final boolean NATIVE_AVAILABLE;
+    private static final String NATIVE_LOAD_ERROR;
+
     static {
+        String error = null;
         try {
             loadNativeLibrary();
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load native library: " + e.getMessage(), e);
+        } catch (IOException | UnsatisfiedLinkError | SecurityException e) {
+            error = "Failed to load native library: " + e.getMessage();
         }
+        NATIVE_AVAILABLE = error == null;
+        NATIVE_LOAD_ERROR = error;
+    }
+
+    public static boolean isNativeAvailable() {
+        return NATIVE_AVAILABLE;
+    }
+
+    /** 本地库加载失败的原因，加载成功时为 null。 */
+    public static String getNativeLoadError() {
+        return NATIVE_LOAD_ERROR;
     }
 
     private static void loadNativeLibrary() throws IOException {
@@ -60,6 +84,7 @@ public class FXOption {
     public static final int PUT = 2;
 
     // 核心定价方法
+    @Override
     public native double calculateFXOption(
             int optionType, // 期权类型 (CALL/PUT)
             double spot, // USD/CNY 即期
@@ -79,6 +104,7 @@ public class FXOption {
         public double rho;
     }
 
+    @Override
     public native Greeks calculateFXOptionGreeks(
             int optionType,
             double spot,
@@ -88,7 +114,50 @@ public class FXOption {
             double volatility,
             int daysToMaturity);
 
+    // 批量定价的缓冲区布局：每个期权占用固定长度的一段
+    // inputs: spot, strike, domesticRate, foreignRate, volatility
+    public static final int BATCH_INPUT_STRIDE = 5;
+    // terms: optionType, daysToMaturity
+    public static final int BATCH_TERM_STRIDE = 2;
+    // outputs: npv, delta, gamma, vega, theta, rho
+    public static final int BATCH_OUTPUT_STRIDE = 6;
+
+    /**
+     * 批量定价：一次 JNI 调用为 count 个期权计算价格和希腊字母，结果写入调用方提供的 outputs。
+     * 三个缓冲区都必须是本机字节序的 direct buffer，从各自的 position 开始读写，position 不会改变。
+     * 单个期权定价失败时该期权的 6 个输出为 NaN，不影响其他期权。
+     *
+     * @return 定价失败的期权个数
+     */
+    @Override
+    public int calculateFXOptionBatch(int count, DoubleBuffer inputs, IntBuffer terms, DoubleBuffer outputs) {
+        FXOptionPricer.checkBatch(count, inputs, terms, outputs);
+        if (count == 0) {
+            return 0;
+        }
+        return nativeCalculateFXOptionBatch(count, inputs, inputs.position(), terms, terms.position(),
+                outputs, outputs.position());
+    }
+
+    /** 分配本机字节序的 direct DoubleBuffer，用于批量定价。 */
+    public static DoubleBuffer allocateDoubles(int elements) {
+        return FXOptionPricer.allocateDoubles(elements);
+    }
+
+    /** 分配本机字节序的 direct IntBuffer，用于批量定价。 */
+    public static IntBuffer allocateInts(int elements) {
+        return FXOptionPricer.allocateInts(elements);
+    }
+
+    private native int nativeCalculateFXOptionBatch(
+            int count,
+            DoubleBuffer inputs, int inputOffset,
+            IntBuffer terms, int termOffset,
+            DoubleBuffer outputs, int outputOffset);
+
     public FXOption() {
-        // 默认构造函数
+        if (!NATIVE_AVAILABLE) {
+            throw new IllegalStateException(NATIVE_LOAD_ERROR);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.quantlib;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Locale;
+
+/**
+ * 欧式 FX 期权定价接口，方法签名与 {@link FXOption} 一致。
+ * 实现有两种：{@link FXOption}（QuantLib 本地库）和 {@link GarmanKohlhagenPricer}（纯 Java 解析公式）。
+ * 通过 {@link #create()} 按系统属性 {@code quantlib.pricer} 选择：native、java 或 auto（默认，本地库可用时用本地库）。
+ * 两种实现都是线程安全的，可用 {@link ParallelFXOptionPricer} 在多个线程上并行批量定价。
+ */
+public interface FXOptionPricer {
+
+    String PRICER_PROPERTY = "quantlib.pricer";
+
+    double calculateFXOption(
+            int optionType,
+            double spot,
+            double strike,
+            double domesticRate,
+            double foreignRate,
+            double volatility,
+            int daysToMaturity);
+
+    FXOption.Greeks calculateFXOptionGreeks(
+            int optionType,
+            double spot,
+            double strike,
+            double domesticRate,
+            double foreignRate,
+            double volatility,
+            int daysToMaturity);
+
+    /**
+     * 把希腊字母写入调用方提供的对象，纯 Java 实现不分配任何对象。
+     */
+    default void calculateFXOptionGreeks(
+            int optionType,
+            double spot,
+            double strike,
+            double domesticRate,
+            double foreignRate,
+            double volatility,
+            int daysToMaturity,
+            FXOption.Greeks result) {
+        FXOption.Greeks greeks = calculateFXOptionGreeks(optionType, spot, strike, domesticRate, foreignRate,
+                volatility, daysToMaturity);
+        result.delta = greeks.delta;
+        result.gamma = greeks.gamma;
+        result.vega = greeks.vega;
+        result.theta = greeks.theta;
+        result.rho = greeks.rho;
+    }
+
+    /**
+     * 批量定价，缓冲区布局见 {@link FXOption#BATCH_INPUT_STRIDE} 等常量。
+     *
+     * @return 定价失败的期权个数
+     */
+    int calculateFXOptionBatch(int count, DoubleBuffer inputs, IntBuffer terms, DoubleBuffer outputs);
+
+    /**
+     * 按 {@code quantlib.pricer} 系统属性创建定价器。指定 native 但本地库不可用时抛出 {@link IllegalStateException}。
+     */
+    static FXOptionPricer create() {
+        String choice = System.getProperty(PRICER_PROPERTY, "auto").trim().toLowerCase(Locale.ROOT);
+        switch (choice) {
+            case "native":
+                return new FXOption();
+            case "java":
+                return GarmanKohlhagenPricer.INSTANCE;
+            case "auto":
+                return FXOption.isNativeAvailable() ? new FXOption() : GarmanKohlhagenPricer.INSTANCE;
+            default:
+                throw new IllegalArgumentException("Unsupported " + PRICER_PROPERTY + ": " + choice
+                        + " (expected native, java or auto)");
+        }
+    }
+
+    /** 分配本机字节序的 direct DoubleBuffer，用于批量定价。 */
+    static DoubleBuffer allocateDoubles(int elements) {
+        return ByteBuffer.allocateDirect(elements * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    /** 分配本机字节序的 direct IntBuffer，用于批量定价。 */
+    static IntBuffer allocateInts(int elements) {
+        return ByteBuffer.allocateDirect(elements * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * 校验批量定价的参数：缓冲区必须是本机字节序的 direct buffer，剩余长度足够，输出可写。
+     */
+    static void checkBatch(int count, DoubleBuffer inputs, IntBuffer terms, DoubleBuffer outputs) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        checkBuffer("inputs", inputs, count, FXOption.BATCH_INPUT_STRIDE);
+        checkBuffer("terms", terms, count, FXOption.BATCH_TERM_STRIDE);
+        checkBuffer("outputs", outputs, count, FXOption.BATCH_OUTPUT_STRIDE);
+        if (outputs.isReadOnly()) {
+            throw new IllegalArgumentException("outputs must be writable");
+        }
+    }
+
+    private static void checkBuffer(String name, Buffer buffer, int count, int stride) {
+        if (buffer == null || !buffer.isDirect()) {
+            throw new IllegalArgumentException(name + " must be a direct buffer");
+        }
+        ByteOrder order = buffer instanceof DoubleBuffer ? ((DoubleBuffer) buffer).order() : ((IntBuffer) buffer).order();
+        if (order != ByteOrder.nativeOrder()) {
+            throw new IllegalArgumentException(name + " must use native byte order");
+        }
+        if (buffer.remaining() < (long) count * stride) {
+            throw new IllegalArgumentException(name + " needs " + (long) count * stride + " elements but has "
+                    + buffer.remaining());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.quantlib;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * 欧式 FX 期权的 Garman-Kohlhagen 解析定价，纯 Java 实现，无状态、线程安全。
+ * 约定与本地库（QuantLib AnalyticEuropeanEngine、Actual365Fixed、连续复利平坦曲线）一致：
+ * 期限 t = daysToMaturity / 365，vega 与 rho 按 1.00（而非 1%）变动计，theta 为每年的时间价值变化，
+ * daysToMaturity <= 0 的期权视为已到期，价格和希腊字母均为 0。
+ * <p>
+ * 计算过程只使用基本类型，{@link #calculateFXOption} 与带结果参数的
+ * {@link #calculateFXOptionGreeks(int, double, double, double, double, double, int, FXOption.Greeks)}
+ * 不分配任何对象。
+ */
+public final class GarmanKohlhagenPricer implements FXOptionPricer {
+
+    public static final GarmanKohlhagenPricer INSTANCE = new GarmanKohlhagenPricer();
+
+    private static final double DAYS_PER_YEAR = 365.0;
+    private static final double INV_SQRT_2PI = 0.3989422804014327;
+
+    private GarmanKohlhagenPricer() {
+    }
+
+    @Override
+    public double calculateFXOption(int optionType, double spot, double strike, double domesticRate,
+            double foreignRate, double volatility, int daysToMaturity) {
+        if (daysToMaturity <= 0) {
+            return 0.0;
+        }
+        double t = daysToMaturity / DAYS_PER_YEAR;
+        double w = optionType == FXOption.CALL ? 1.0 : -1.0;
+        double foreignDiscount = Math.exp(-foreignRate * t);
+        double domesticDiscount = Math.exp(-domesticRate * t);
+        double stdDev = volatility * Math.sqrt(t);
+        double d1 = d1(spot * foreignDiscount / domesticDiscount, strike, stdDev);
+        return w * (spot * foreignDiscount * cumulativeNormal(w * d1)
+                - strike * domesticDiscount * cumulativeNormal(w * (d1 - stdDev)));
+    }
+
+    @Override
+    public FXOption.Greeks calculateFXOptionGreeks(int optionType, double spot, double strike, double domesticRate,
+            double foreignRate, double volatility, int daysToMaturity) {
+        FXOption.Greeks greeks = new FXOption.Greeks();
+        calculateFXOptionGreeks(optionType, spot, strike, domesticRate, foreignRate, volatility, daysToMaturity,
+                greeks);
+        return greeks;
+    }
+
+    @Override
+    public void calculateFXOptionGreeks(int optionType, double spot, double strike, double domesticRate,
+            double foreignRate, double volatility, int daysToMaturity, FXOption.Greeks result) {
+        if (daysToMaturity <= 0) {
+            result.delta = 0.0;
+            result.gamma = 0.0;
+            result.vega = 0.0;
+            result.theta = 0.0;
+            result.rho = 0.0;
+            return;
+        }
+        double t = daysToMaturity / DAYS_PER_YEAR;
+        double sqrtT = Math.sqrt(t);
+        double w = optionType == FXOption.CALL ? 1.0 : -1.0;
+        double foreignDiscount = Math.exp(-foreignRate * t);
+        double domesticDiscount = Math.exp(-domesticRate * t);
+        double stdDev = volatility * sqrtT;
+        double d1 = d1(spot * foreignDiscount / domesticDiscount, strike, stdDev);
+        double nd1 = stdDev > 0.0 ? normalDensity(d1) : 0.0;
+        double cdf1 = cumulativeNormal(w * d1);
+        double cdf2 = cumulativeNormal(w * (d1 - stdDev));
+
+        result.delta = w * foreignDiscount * cdf1;
+        result.gamma = stdDev > 0.0 ? foreignDiscount * nd1 / (spot * stdDev) : 0.0;
+        result.vega = spot * foreignDiscount * nd1 * sqrtT;
+        result.theta = (stdDev > 0.0 ? -spot * foreignDiscount * nd1 * volatility / (2.0 * sqrtT) : 0.0)
+                + w * (foreignRate * spot * foreignDiscount * cdf1 - domesticRate * strike * domesticDiscount * cdf2);
+        result.rho = w * t * strike * domesticDiscount * cdf2;
+    }
+
+    /**
+     * 与 {@link FXOption#calculateFXOptionBatch} 相同的缓冲区布局，按绝对下标读写，不改变 position。
+     * 即期、执行价非正或波动率为负的期权输出 NaN 并计入失败个数。
+     */
+    @Override
+    public int calculateFXOptionBatch(int count, DoubleBuffer inputs, IntBuffer terms, DoubleBuffer outputs) {
+        FXOptionPricer.checkBatch(count, inputs, terms, outputs);
+        int in = inputs.position();
+        int term = terms.position();
+        int out = outputs.position();
+        int failed = 0;
+        // 整批共用一个结果对象
+        FXOption.Greeks greeks = new FXOption.Greeks();
+        for (int i = 0; i < count; i++) {
+            int optionType = terms.get(term);
+            int days = terms.get(term + 1);
+            double spot = inputs.get(in);
+            double strike = inputs.get(in + 1);
+            double domesticRate = inputs.get(in + 2);
+            double foreignRate = inputs.get(in + 3);
+            double volatility = inputs.get(in + 4);
+            if (!(spot > 0.0) || !(strike > 0.0) || !(volatility >= 0.0)) {
+                for (int k = 0; k < FXOption.BATCH_OUTPUT_STRIDE; k++) {
+                    outputs.put(out + k, Double.NaN);
+                }
+                failed++;
+            } else {
+                calculateFXOptionGreeks(optionType, spot, strike, domesticRate, foreignRate, volatility, days, greeks);
+                outputs.put(out, calculateFXOption(optionType, spot, strike, domesticRate, foreignRate, volatility,
+                        days));
+                outputs.put(out + 1, greeks.delta);
+                outputs.put(out + 2, greeks.gamma);
+                outputs.put(out + 3, greeks.vega);
+                outputs.put(out + 4, greeks.theta);
+                outputs.put(out + 5, greeks.rho);
+            }
+            in += FXOption.BATCH_INPUT_STRIDE;
+            term += FXOption.BATCH_TERM_STRIDE;
+            out += FXOption.BATCH_OUTPUT_STRIDE;
+        }
+        return failed;
+    }
+
+    /**
+     * 波动率为 0 时远期价外为 -∞、价内为 +∞（平值按价外处理），对应内在价值。
+     */
+    private static double d1(double forward, double strike, double stdDev) {
+        if (stdDev > 0.0) {
+            return Math.log(forward / strike) / stdDev + 0.5 * stdDev;
+        }
+        return forward > strike ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+    }
+
+    private static double normalDensity(double x) {
+        return INV_SQRT_2PI * Math.exp(-0.5 * x * x);
+    }
+
+    /**
+     * 标准正态分布函数，Hart (1968) 双精度有理逼近（West 2005 的写法），绝对误差约 1e-15。
+     */
+    static double cumulativeNormal(double x) {
+        double xabs = Math.abs(x);
+        double c;
+        if (xabs > 37.0) {
+            c = 0.0;
+        } else {
+            double e = Math.exp(-0.5 * xabs * xabs);
+            if (xabs < 7.07106781186547) {
+                double b = 3.52624965998911e-02 * xabs + 0.700383064443688;
+                b = b * xabs + 6.37396220353165;
+                b = b * xabs + 33.912866078383;
+                b = b * xabs + 112.079291497871;
+                b = b * xabs + 221.213596169931;
+                b = b * xabs + 220.206867912376;
+                c = e * b;
+                b = 8.83883476483184e-02 * xabs + 1.75566716318264;
+                b = b * xabs + 16.064177579207;
+                b = b * xabs + 86.7807322029461;
+                b = b * xabs + 296.564248779674;
+                b = b * xabs + 637.333633378831;
+                b = b * xabs + 793.826512519948;
+                b = b * xabs + 440.413735824752;
+                c = c / b;
+            } else {
+                double b = xabs + 0.65;
+                b = xabs + 4.0 / b;
+                b = xabs + 3.0 / b;
+                b = xabs + 2.0 / b;
+                b = xabs + 1.0 / b;
+                c = e / b / 2.506628274631;
+            }
+        }
+        return x > 0.0 ? 1.0 - c : c;
+    }
+}
@@ -0,0 +1,243 @@
+package com.quantlib;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 欧式 FX 期权隐含波动率求解：由期权价格反推波动率，价格对波动率单调递增。
+ * 每个期权先检查价格是否在无套利区间内，再在 [minVolatility, maxVolatility] 的区间上用带保护的 Newton 法迭代
+ * （vega 取自定价器的解析希腊字母）：Newton 步落在当前区间之外或 vega 过小时改为二分，每步都收缩区间，保证收敛。
+ * <p>
+ * 批量接口与 {@link FXOption#calculateFXOptionBatch} 使用相同的 inputs/terms 布局，inputs 中的波动率一项作为初始值
+ * （不大于 0 时用 Brenner-Subrahmanyam 近似），在 {@link ForkJoinPool} 上分段并行求解。
+ * 求解器无状态，线程安全。
+ */
+public final class ImpliedVolatilitySolver {
+
+    public static final int CONVERGED = 0;
+    /** 价格、即期、执行价非正或不是数字，或已到期。 */
+    public static final int INVALID_INPUT = 1;
+    /** 价格低于内在价值（远期意义下），不存在非负的隐含波动率。 */
+    public static final int BELOW_INTRINSIC = 2;
+    /** 价格不低于上限（看涨为外币贴现后的即期，看跌为贴现后的执行价）。 */
+    public static final int ABOVE_MAXIMUM = 3;
+    /** 达到最大迭代次数仍未收敛，或解在波动率区间之外。 */
+    public static final int NOT_CONVERGED = 4;
+
+    public static final double DEFAULT_ACCURACY = 1e-10;
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private static final double DAYS_PER_YEAR = 365.0;
+    private static final double MIN_VEGA = 1e-12;
+
+    private final FXOptionPricer pricer;
+    private final double accuracy;
+    private final int maxIterations;
+    private final double minVolatility;
+    private final double maxVolatility;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ImpliedVolatilitySolver(FXOptionPricer pricer) {
+        this(pricer, DEFAULT_ACCURACY, DEFAULT_MAX_ITERATIONS, 1e-6, 5.0, ForkJoinPool.commonPool(),
+                DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param accuracy 收敛条件：价格误差不超过 accuracy × max(1, 即期)，或区间宽度不超过 accuracy
+     */
+    public ImpliedVolatilitySolver(FXOptionPricer pricer, double accuracy, int maxIterations,
+            double minVolatility, double maxVolatility, ForkJoinPool pool, int chunkSize) {
+        if (pricer == null || pool == null) {
+            throw new IllegalArgumentException("pricer and pool are required");
+        }
+        if (!(accuracy > 0.0) || maxIterations <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("accuracy, maxIterations and chunkSize must be positive");
+        }
+        if (!(minVolatility >= 0.0) || !(maxVolatility > minVolatility)) {
+            throw new IllegalArgumentException("volatility bracket must satisfy 0 <= min < max");
+        }
+        this.pricer = pricer;
+        this.accuracy = accuracy;
+        this.maxIterations = maxIterations;
+        this.minVolatility = minVolatility;
+        this.maxVolatility = maxVolatility;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public static String statusName(int status) {
+        switch (status) {
+            case CONVERGED:
+                return "CONVERGED";
+            case INVALID_INPUT:
+                return "INVALID_INPUT";
+            case BELOW_INTRINSIC:
+                return "BELOW_INTRINSIC";
+            case ABOVE_MAXIMUM:
+                return "ABOVE_MAXIMUM";
+            case NOT_CONVERGED:
+                return "NOT_CONVERGED";
+            default:
+                return "UNKNOWN";
+        }
+    }
+
+    /**
+     * 单个期权的隐含波动率，失败时返回 NaN。
+     */
+    public double impliedVolatility(int optionType, double price, double spot, double strike, double domesticRate,
+            double foreignRate, int daysToMaturity) {
+        double[] result = new double[1];
+        solve(optionType, price, spot, strike, domesticRate, foreignRate, 0.0, daysToMaturity,
+                new FXOption.Greeks(), result);
+        return result[0];
+    }
+
+    /**
+     * 批量求解。prices 每个期权 1 项；inputs、terms 的布局与批量定价相同；结果写入 volatilities（失败为 NaN）
+     * 和 statuses（本类的状态常量）。所有缓冲区从各自的 position 开始按绝对下标读写，position 不变。
+     *
+     * @return 未成功求解的期权个数
+     */
+    public int solveBatch(int count, DoubleBuffer prices, DoubleBuffer inputs, IntBuffer terms,
+            DoubleBuffer volatilities, IntBuffer statuses) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        if (prices.remaining() < count || volatilities.remaining() < count || statuses.remaining() < count
+                || inputs.remaining() < (long) count * FXOption.BATCH_INPUT_STRIDE
+                || terms.remaining() < (long) count * FXOption.BATCH_TERM_STRIDE) {
+            throw new IllegalArgumentException("Buffers are too small for " + count + " options");
+        }
+        if (volatilities.isReadOnly() || statuses.isReadOnly()) {
+            throw new IllegalArgumentException("volatilities and statuses must be writable");
+        }
+        if (count <= chunkSize) {
+            return solveRange(prices, inputs, terms, volatilities, statuses, 0, count);
+        }
+        return pool.invoke(new SolveTask(prices, inputs, terms, volatilities, statuses, 0, count));
+    }
+
+    private int solveRange(DoubleBuffer prices, DoubleBuffer inputs, IntBuffer terms, DoubleBuffer volatilities,
+            IntBuffer statuses, int from, int to) {
+        FXOption.Greeks greeks = new FXOption.Greeks();
+        double[] result = new double[1];
+        int failed = 0;
+        for (int i = from; i < to; i++) {
+            int in = inputs.position() + i * FXOption.BATCH_INPUT_STRIDE;
+            int term = terms.position() + i * FXOption.BATCH_TERM_STRIDE;
+            int status = solve(terms.get(term), prices.get(prices.position() + i), inputs.get(in),
+                    inputs.get(in + 1), inputs.get(in + 2), inputs.get(in + 3), inputs.get(in + 4),
+                    terms.get(term + 1), greeks, result);
+            volatilities.put(volatilities.position() + i, result[0]);
+            statuses.put(statuses.position() + i, status);
+            if (status != CONVERGED) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private final class SolveTask extends RecursiveTask<Integer> {
+        private final DoubleBuffer prices;
+        private final DoubleBuffer inputs;
+        private final IntBuffer terms;
+        private final DoubleBuffer volatilities;
+        private final IntBuffer statuses;
+        private final int from;
+        private final int to;
+
+        SolveTask(DoubleBuffer prices, DoubleBuffer inputs, IntBuffer terms, DoubleBuffer volatilities,
+                IntBuffer statuses, int from, int to) {
+            this.prices = prices;
+            this.inputs = inputs;
+            this.terms = terms;
+            this.volatilities = volatilities;
+            this.statuses = statuses;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= chunkSize) {
+                return solveRange(prices, inputs, terms, volatilities, statuses, from, to);
+            }
+            int middle = from + (to - from) / 2;
+            SolveTask left = new SolveTask(prices, inputs, terms, volatilities, statuses, from, middle);
+            left.fork();
+            int right = new SolveTask(prices, inputs, terms, volatilities, statuses, middle, to).compute();
+            return left.join() + right;
+        }
+    }
+
+    /**
+     * 求解一个期权，result[0] 为隐含波动率（失败时 NaN）；返回状态。
+     */
+    private int solve(int optionType, double price, double spot, double strike, double domesticRate,
+            double foreignRate, double guess, int daysToMaturity, FXOption.Greeks greeks, double[] result) {
+        result[0] = Double.NaN;
+        if (!(price >= 0.0) || !(spot > 0.0) || !(strike > 0.0) || daysToMaturity <= 0
+                || Double.isNaN(domesticRate) || Double.isNaN(foreignRate) || Double.isInfinite(price)) {
+            return INVALID_INPUT;
+        }
+        double t = daysToMaturity / DAYS_PER_YEAR;
+        double w = optionType == FXOption.CALL ? 1.0 : -1.0;
+        double discountedSpot = spot * Math.exp(-foreignRate * t);
+        double discountedStrike = strike * Math.exp(-domesticRate * t);
+        double intrinsic = Math.max(w * (discountedSpot - discountedStrike), 0.0);
+        double maximum = optionType == FXOption.CALL ? discountedSpot : discountedStrike;
+        double tolerance = accuracy * Math.max(1.0, spot);
+        if (price < intrinsic - tolerance) {
+            return BELOW_INTRINSIC;
+        }
+        if (price >= maximum) {
+            return ABOVE_MAXIMUM;
+        }
+        if (price <= intrinsic + tolerance) {
+            // 价格等于内在价值，对应零波动率
+            result[0] = 0.0;
+            return CONVERGED;
+        }
+
+        double low = minVolatility;
+        double high = maxVolatility;
+        double vol = guess > 0.0 ? guess
+                // Brenner-Subrahmanyam：平值期权价格 ≈ 0.4 × S·e^(-rf·t) × σ√t
+                : Math.sqrt(2.0 * Math.PI / t) * price / discountedSpot;
+        if (!(vol > low && vol < high)) {
+            vol = 0.5 * (low + high);
+        }
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            double diff = pricer.calculateFXOption(optionType, spot, strike, domesticRate, foreignRate, vol,
+                    daysToMaturity) - price;
+            if (Math.abs(diff) <= tolerance) {
+                result[0] = vol;
+                return CONVERGED;
+            }
+            // 价格随波动率递增，按误差符号收缩区间
+            if (diff > 0.0) {
+                high = vol;
+            } else {
+                low = vol;
+            }
+            if (high - low <= accuracy) {
+                break;
+            }
+            pricer.calculateFXOptionGreeks(optionType, spot, strike, domesticRate, foreignRate, vol,
+                    daysToMaturity, greeks);
+            double next = greeks.vega > MIN_VEGA ? vol - diff / greeks.vega : Double.NaN;
+            vol = next > low && next < high ? next : 0.5 * (low + high);
+        }
+        // 区间已收缩到精度以内，但解贴着区间端点时说明真实解在区间之外
+        if (high - low <= accuracy && low > minVolatility && high < maxVolatility) {
+            result[0] = 0.5 * (low + high);
+            return CONVERGED;
+        }
+        return NOT_CONVERGED;
+    }
+}
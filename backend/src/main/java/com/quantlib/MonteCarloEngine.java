@@ -0,0 +1,337 @@
+package com.quantlib;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 路径依赖 FX 期权（离散监控的障碍期权、算术平均价亚式期权）的 Monte Carlo 定价。
+ * 即期服从几何布朗运动，按对数精确离散：ln S(t+Δ) = ln S(t) + (rd - rf - σ²/2)·Δ + σ·√Δ·Z。
+ * <p>
+ * 方差缩减：对偶变量（每组随机数同时模拟 Z 与 -Z 两条路径，取平均作为一个样本）和控制变量
+ * （障碍期权用同一路径上的欧式期权，亚式期权用几何平均亚式期权，二者都有解析价格），
+ * 控制变量系数由同一批样本估计。结果附带标准误差。
+ * <p>
+ * 样本按固定大小分段，每段使用从种子按顺序 {@link SplittableRandom#split()} 出的独立随机流，
+ * 在 {@link ForkJoinPool} 上并行模拟；各段的累加量按段号顺序合并，因此同一种子的结果与线程数、调度无关，逐位一致。
+ * 路径模拟过程不分配对象。引擎无状态，线程安全。
+ */
+public final class MonteCarloEngine {
+
+    public static final int DOWN_AND_OUT = 0;
+    public static final int UP_AND_OUT = 1;
+    public static final int DOWN_AND_IN = 2;
+    public static final int UP_AND_IN = 3;
+
+    public static final long DEFAULT_PATHS = 100_000;
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private static final double DAYS_PER_YEAR = 365.0;
+    private static final int BARRIER = 0;
+    private static final int ASIAN = 1;
+    // 每段的累加量：样本数、ΣY、ΣY²、ΣX、ΣX²、ΣXY（Y 为贴现收益，X 为控制变量的贴现收益）
+    private static final int ACCUMULATORS = 6;
+
+    /**
+     * 定价结果。
+     */
+    public static final class Result {
+        public final double price;
+        public final double standardError;
+        /** 模拟的路径条数（对偶变量时为样本数的两倍）。 */
+        public final long paths;
+        /** 控制变量系数，未使用控制变量时为 0。 */
+        public final double controlBeta;
+
+        Result(double price, double standardError, long paths, double controlBeta) {
+            this.price = price;
+            this.standardError = standardError;
+            this.paths = paths;
+            this.controlBeta = controlBeta;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{price=" + price + ", standardError=" + standardError + ", paths=" + paths + "}";
+        }
+    }
+
+    private final long seed;
+    private final long paths;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    private final boolean antithetic;
+    private final boolean controlVariate;
+
+    public MonteCarloEngine(long seed) {
+        this(seed, DEFAULT_PATHS, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool(), true, true);
+    }
+
+    /**
+     * @param paths     模拟的路径条数，对偶变量时向上取偶数
+     * @param chunkSize 每段的样本数，决定随机流的划分，改变它会改变结果（但仍可复现）
+     */
+    public MonteCarloEngine(long seed, long paths, int chunkSize, ForkJoinPool pool, boolean antithetic,
+            boolean controlVariate) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool is required");
+        }
+        if (paths < 2 || chunkSize <= 0) {
+            throw new IllegalArgumentException("paths must be at least 2 and chunkSize must be positive");
+        }
+        this.seed = seed;
+        this.paths = paths;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+        this.antithetic = antithetic;
+        this.controlVariate = controlVariate;
+    }
+
+    /**
+     * 离散监控的障碍期权，在 monitoringSteps 个等间距时点（含到期日）及起始时检查障碍。
+     * 敲出期权触及障碍后、敲入期权未触及障碍时，到期支付 rebate（每单位外币名义）。
+     *
+     * @param barrierType {@link #DOWN_AND_OUT}、{@link #UP_AND_OUT}、{@link #DOWN_AND_IN}、{@link #UP_AND_IN}
+     */
+    public Result priceBarrier(int optionType, int barrierType, double spot, double strike, double barrier,
+            double rebate, double domesticRate, double foreignRate, double volatility, int daysToMaturity,
+            int monitoringSteps) {
+        checkInputs(spot, strike, volatility, daysToMaturity, monitoringSteps);
+        if (!(barrier > 0.0) || barrierType < DOWN_AND_OUT || barrierType > UP_AND_IN || !(rebate >= 0.0)) {
+            throw new IllegalArgumentException("Invalid barrier: type " + barrierType + ", level " + barrier
+                    + ", rebate " + rebate);
+        }
+        Spec spec = new Spec(BARRIER, optionType, spot, strike, domesticRate, foreignRate, volatility,
+                daysToMaturity, monitoringSteps);
+        spec.barrierType = barrierType;
+        spec.logBarrier = Math.log(barrier);
+        spec.rebate = rebate;
+        spec.controlPrice = GarmanKohlhagenPricer.INSTANCE.calculateFXOption(optionType, spot, strike, domesticRate,
+                foreignRate, volatility, daysToMaturity);
+        return simulate(spec);
+    }
+
+    /**
+     * 算术平均价亚式期权，在 fixings 个等间距时点（第一个为 T/fixings，最后一个为到期日）取即期平均。
+     */
+    public Result priceAsian(int optionType, double spot, double strike, double domesticRate, double foreignRate,
+            double volatility, int daysToMaturity, int fixings) {
+        checkInputs(spot, strike, volatility, daysToMaturity, fixings);
+        Spec spec = new Spec(ASIAN, optionType, spot, strike, domesticRate, foreignRate, volatility, daysToMaturity,
+                fixings);
+        spec.controlPrice = geometricAsianPrice(optionType, spot, strike, domesticRate, foreignRate, volatility,
+                daysToMaturity, fixings);
+        return simulate(spec);
+    }
+
+    /**
+     * 离散几何平均价亚式期权的解析价格（时点同 {@link #priceAsian}），用作亚式期权的控制变量。
+     */
+    public static double geometricAsianPrice(int optionType, double spot, double strike, double domesticRate,
+            double foreignRate, double volatility, int daysToMaturity, int fixings) {
+        double t = daysToMaturity / DAYS_PER_YEAR;
+        double dt = t / fixings;
+        double w = optionType == FXOption.CALL ? 1.0 : -1.0;
+        double mean = Math.log(spot) + (domesticRate - foreignRate - 0.5 * volatility * volatility)
+                * dt * (fixings + 1) / 2.0;
+        double variance = volatility * volatility * dt * (fixings + 1) * (2.0 * fixings + 1) / (6.0 * fixings);
+        double discount = Math.exp(-domesticRate * t);
+        if (!(variance > 0.0)) {
+            return discount * Math.max(w * (Math.exp(mean) - strike), 0.0);
+        }
+        double stdDev = Math.sqrt(variance);
+        double d1 = (mean - Math.log(strike) + variance) / stdDev;
+        double d2 = d1 - stdDev;
+        return discount * w * (Math.exp(mean + 0.5 * variance) * GarmanKohlhagenPricer.cumulativeNormal(w * d1)
+                - strike * GarmanKohlhagenPricer.cumulativeNormal(w * d2));
+    }
+
+    private static void checkInputs(double spot, double strike, double volatility, int daysToMaturity, int steps) {
+        if (!(spot > 0.0) || !(strike > 0.0) || !(volatility >= 0.0) || daysToMaturity <= 0 || steps <= 0) {
+            throw new IllegalArgumentException("spot, strike, days and steps must be positive and volatility "
+                    + "must not be negative");
+        }
+    }
+
+    /**
+     * 一次定价的只读参数。
+     */
+    private static final class Spec {
+        final int product;
+        final double w;
+        final double logSpot;
+        final double strike;
+        final int steps;
+        final double drift;
+        final double diffusion;
+        final double discount;
+        int barrierType;
+        double logBarrier;
+        double rebate;
+        double controlPrice;
+
+        Spec(int product, int optionType, double spot, double strike, double domesticRate, double foreignRate,
+                double volatility, int daysToMaturity, int steps) {
+            double t = daysToMaturity / DAYS_PER_YEAR;
+            double dt = t / steps;
+            this.product = product;
+            this.w = optionType == FXOption.CALL ? 1.0 : -1.0;
+            this.logSpot = Math.log(spot);
+            this.strike = strike;
+            this.steps = steps;
+            this.drift = (domesticRate - foreignRate - 0.5 * volatility * volatility) * dt;
+            this.diffusion = volatility * Math.sqrt(dt);
+            this.discount = Math.exp(-domesticRate * t);
+        }
+    }
+
+    private Result simulate(Spec spec) {
+        long samples = antithetic ? (paths + 1) / 2 : paths;
+        int chunks = (int) ((samples + chunkSize - 1) / chunkSize);
+        // 随机流在当前线程上按段号顺序划分，与并行调度无关
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) {
+            streams[c] = root.split();
+        }
+        double[][] accumulators = new double[chunks][ACCUMULATORS];
+        pool.invoke(new SimulationTask(spec, streams, accumulators, samples, 0, chunks));
+
+        double n = 0.0;
+        double sumY = 0.0;
+        double sumYY = 0.0;
+        double sumX = 0.0;
+        double sumXX = 0.0;
+        double sumXY = 0.0;
+        for (double[] acc : accumulators) {
+            n += acc[0];
+            sumY += acc[1];
+            sumYY += acc[2];
+            sumX += acc[3];
+            sumXX += acc[4];
+            sumXY += acc[5];
+        }
+        double meanY = sumY / n;
+        double varY = Math.max((sumYY - n * meanY * meanY) / (n - 1), 0.0);
+        long simulated = antithetic ? 2 * samples : samples;
+        if (!controlVariate) {
+            return new Result(meanY, Math.sqrt(varY / n), simulated, 0.0);
+        }
+        double meanX = sumX / n;
+        double varX = (sumXX - n * meanX * meanX) / (n - 1);
+        double covXY = (sumXY - n * meanX * meanY) / (n - 1);
+        if (!(varX > 0.0)) {
+            return new Result(meanY, Math.sqrt(varY / n), simulated, 0.0);
+        }
+        double beta = covXY / varX;
+        double residual = Math.max(varY - covXY * covXY / varX, 0.0);
+        return new Result(meanY - beta * (meanX - spec.controlPrice), Math.sqrt(residual / n), simulated, beta);
+    }
+
+    private final class SimulationTask extends RecursiveAction {
+        private final Spec spec;
+        private final SplittableRandom[] streams;
+        private final double[][] accumulators;
+        private final long samples;
+        private final int from;
+        private final int to;
+
+        SimulationTask(Spec spec, SplittableRandom[] streams, double[][] accumulators, long samples, int from,
+                int to) {
+            this.spec = spec;
+            this.streams = streams;
+            this.accumulators = accumulators;
+            this.samples = samples;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int c = from; c < to; c++) {
+                    long start = (long) c * chunkSize;
+                    int count = (int) Math.min(chunkSize, samples - start);
+                    simulateChunk(spec, streams[c], count, accumulators[c]);
+                }
+                return;
+            }
+            int middle = from + (to - from) / 2;
+            invokeAll(new SimulationTask(spec, streams, accumulators, samples, from, middle),
+                    new SimulationTask(spec, streams, accumulators, samples, middle, to));
+        }
+    }
+
+    /**
+     * 模拟一段样本，累加到 acc。对偶变量时同一组随机数驱动 Z 与 -Z 两条路径。
+     */
+    private void simulateChunk(Spec spec, SplittableRandom random, int count, double[] acc) {
+        boolean barrier = spec.product == BARRIER;
+        boolean down = spec.barrierType == DOWN_AND_OUT || spec.barrierType == DOWN_AND_IN;
+        boolean knockOut = spec.barrierType == DOWN_AND_OUT || spec.barrierType == UP_AND_OUT;
+        boolean startsHit = down ? spec.logSpot <= spec.logBarrier : spec.logSpot >= spec.logBarrier;
+        double sumY = 0.0;
+        double sumYY = 0.0;
+        double sumX = 0.0;
+        double sumXX = 0.0;
+        double sumXY = 0.0;
+        for (int s = 0; s < count; s++) {
+            double log1 = spec.logSpot;
+            double log2 = spec.logSpot;
+            boolean hit1 = startsHit;
+            boolean hit2 = startsHit;
+            double average1 = 0.0;
+            double average2 = 0.0;
+            double logSum1 = 0.0;
+            double logSum2 = 0.0;
+            for (int k = 0; k < spec.steps; k++) {
+                double shock = spec.diffusion * random.nextGaussian();
+                log1 += spec.drift + shock;
+                log2 += spec.drift - shock;
+                if (barrier) {
+                    hit1 |= down ? log1 <= spec.logBarrier : log1 >= spec.logBarrier;
+                    hit2 |= down ? log2 <= spec.logBarrier : log2 >= spec.logBarrier;
+                } else {
+                    average1 += Math.exp(log1);
+                    logSum1 += log1;
+                    if (antithetic) {
+                        average2 += Math.exp(log2);
+                        logSum2 += log2;
+                    }
+                }
+            }
+            double y;
+            double x;
+            if (barrier) {
+                double vanilla1 = Math.max(spec.w * (Math.exp(log1) - spec.strike), 0.0);
+                y = hit1 == knockOut ? spec.rebate : vanilla1;
+                x = vanilla1;
+                if (antithetic) {
+                    double vanilla2 = Math.max(spec.w * (Math.exp(log2) - spec.strike), 0.0);
+                    y = 0.5 * (y + (hit2 == knockOut ? spec.rebate : vanilla2));
+                    x = 0.5 * (x + vanilla2);
+                }
+            } else {
+                y = Math.max(spec.w * (average1 / spec.steps - spec.strike), 0.0);
+                x = Math.max(spec.w * (Math.exp(logSum1 / spec.steps) - spec.strike), 0.0);
+                if (antithetic) {
+                    y = 0.5 * (y + Math.max(spec.w * (average2 / spec.steps - spec.strike), 0.0));
+                    x = 0.5 * (x + Math.max(spec.w * (Math.exp(logSum2 / spec.steps) - spec.strike), 0.0));
+                }
+            }
+            y *= spec.discount;
+            x *= spec.discount;
+            sumY += y;
+            sumYY += y * y;
+            sumX += x;
+            sumXX += x * x;
+            sumXY += x * y;
+        }
+        acc[0] = count;
+        acc[1] = sumY;
+        acc[2] = sumYY;
+        acc[3] = sumX;
+        acc[4] = sumXX;
+        acc[5] = sumXY;
+    }
+}
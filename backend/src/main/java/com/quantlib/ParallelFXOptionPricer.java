@@ -0,0 +1,117 @@
+package com.quantlib;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 在 {@link ForkJoinPool} 上并行执行批量定价：把一批期权递归二分，每段不超过 chunkSize 个时
+ * 交给被包装的定价器在各自的缓冲区区段上计算。单个期权的定价直接转发。
+ * <p>
+ * 被包装的定价器必须是线程安全的，{@link FXOption} 和 {@link GarmanKohlhagenPricer} 都满足。
+ */
+public final class ParallelFXOptionPricer implements FXOptionPricer {
+
+    /** 每段的默认期权个数，太小时任务调度开销会超过定价本身。 */
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private final FXOptionPricer delegate;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ParallelFXOptionPricer(FXOptionPricer delegate) {
+        this(delegate, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelFXOptionPricer(FXOptionPricer delegate, ForkJoinPool pool, int chunkSize) {
+        if (delegate == null || pool == null) {
+            throw new IllegalArgumentException("delegate and pool are required");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.delegate = delegate;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public FXOptionPricer getDelegate() {
+        return delegate;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public double calculateFXOption(int optionType, double spot, double strike, double domesticRate,
+            double foreignRate, double volatility, int daysToMaturity) {
+        return delegate.calculateFXOption(optionType, spot, strike, domesticRate, foreignRate, volatility,
+                daysToMaturity);
+    }
+
+    @Override
+    public FXOption.Greeks calculateFXOptionGreeks(int optionType, double spot, double strike, double domesticRate,
+            double foreignRate, double volatility, int daysToMaturity) {
+        return delegate.calculateFXOptionGreeks(optionType, spot, strike, domesticRate, foreignRate, volatility,
+                daysToMaturity);
+    }
+
+    @Override
+    public void calculateFXOptionGreeks(int optionType, double spot, double strike, double domesticRate,
+            double foreignRate, double volatility, int daysToMaturity, FXOption.Greeks result) {
+        delegate.calculateFXOptionGreeks(optionType, spot, strike, domesticRate, foreignRate, volatility,
+                daysToMaturity, result);
+    }
+
+    /**
+     * 与 {@link FXOption#calculateFXOptionBatch} 的缓冲区布局和语义相同，调用线程等待全部区段完成。
+     */
+    @Override
+    public int calculateFXOptionBatch(int count, DoubleBuffer inputs, IntBuffer terms, DoubleBuffer outputs) {
+        FXOptionPricer.checkBatch(count, inputs, terms, outputs);
+        if (count <= chunkSize) {
+            return delegate.calculateFXOptionBatch(count, inputs, terms, outputs);
+        }
+        return pool.invoke(new BatchTask(inputs, terms, outputs, 0, count));
+    }
+
+    /**
+     * 负责 [from, to) 区间的期权。每段用 duplicate() 得到独立的 position，不修改调用方缓冲区的状态。
+     */
+    private final class BatchTask extends RecursiveTask<Integer> {
+        private final DoubleBuffer inputs;
+        private final IntBuffer terms;
+        private final DoubleBuffer outputs;
+        private final int from;
+        private final int to;
+
+        BatchTask(DoubleBuffer inputs, IntBuffer terms, DoubleBuffer outputs, int from, int to) {
+            this.inputs = inputs;
+            this.terms = terms;
+            this.outputs = outputs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            int count = to - from;
+            if (count <= chunkSize) {
+                DoubleBuffer in = inputs.duplicate();
+                in.position(inputs.position() + from * FXOption.BATCH_INPUT_STRIDE);
+                IntBuffer term = terms.duplicate();
+                term.position(terms.position() + from * FXOption.BATCH_TERM_STRIDE);
+                DoubleBuffer out = outputs.duplicate();
+                out.position(outputs.position() + from * FXOption.BATCH_OUTPUT_STRIDE);
+                return delegate.calculateFXOptionBatch(count, in, term, out);
+            }
+            int middle = from + count / 2;
+            BatchTask left = new BatchTask(inputs, terms, outputs, from, middle);
+            left.fork();
+            int right = new BatchTask(inputs, terms, outputs, middle, to).compute();
+            return left.join() + right;
+        }
+    }
+}
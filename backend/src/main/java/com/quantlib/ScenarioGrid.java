@@ -0,0 +1,202 @@
+package com.quantlib;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 即期 × 波动率情景网格：对一批欧式 FX 期权，在每个（即期相对变动，波动率绝对变动）情景下用 Garman-Kohlhagen
+ * 公式重新定价，按分组（通常是货币对）累加相对基准情景的价值变化，得到损益阶梯。
+ * <p>
+ * 期权使用与 {@link FXOption#calculateFXOptionBatch} 相同的 inputs/terms 布局。每个期权的期限、贴现因子、
+ * ln(F/K) 等不随情景变化的量只算一次，情景内层只剩两次正态分布函数；即期变动的对数也只对网格算一次。
+ * 期权按段在 {@link ForkJoinPool} 上并行，每段累加到自己的阶梯后再合并，不共享可变状态。
+ * 网格引擎无状态，线程安全。
+ */
+public final class ScenarioGrid {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+
+    private static final double DAYS_PER_YEAR = 365.0;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ScenarioGrid() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ScenarioGrid(ForkJoinPool pool, int chunkSize) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool is required");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 计算损益阶梯。结果为 {@code double[groupCount][spotShifts.length * volShifts.length]}，
+     * 情景 (i, j) 位于下标 {@code i * volShifts.length + j}，值为 Σ quantity × (情景价格 − 基准价格)。
+     * 即期、执行价非正、波动率为负或已到期的期权不计入。缓冲区从各自的 position 开始按绝对下标读取。
+     *
+     * @param quantities 每个期权的数量（名义本金，负数为卖出）
+     * @param groups     每个期权所属的分组，取值 0 到 groupCount - 1
+     * @param spotShifts 即期相对变动，如 -0.1 表示即期下跌 10%，必须大于 -1
+     * @param volShifts  波动率绝对变动，如 0.01 表示上升 1 个波动率点；变动后为负的波动率按 0 处理
+     */
+    public double[][] evaluate(int count, DoubleBuffer inputs, IntBuffer terms, double[] quantities, int[] groups,
+            int groupCount, double[] spotShifts, double[] volShifts) {
+        if (count < 0 || groupCount <= 0) {
+            throw new IllegalArgumentException("count must not be negative and groupCount must be positive");
+        }
+        if (inputs.remaining() < (long) count * FXOption.BATCH_INPUT_STRIDE
+                || terms.remaining() < (long) count * FXOption.BATCH_TERM_STRIDE
+                || quantities.length < count || groups.length < count) {
+            throw new IllegalArgumentException("Inputs are too small for " + count + " options");
+        }
+        if (spotShifts.length == 0 || volShifts.length == 0) {
+            throw new IllegalArgumentException("Scenario grid must not be empty");
+        }
+        double[] logSpotShifts = new double[spotShifts.length];
+        for (int i = 0; i < spotShifts.length; i++) {
+            if (!(spotShifts[i] > -1.0) || Double.isInfinite(spotShifts[i])) {
+                throw new IllegalArgumentException("Spot shift must be greater than -1: " + spotShifts[i]);
+            }
+            logSpotShifts[i] = Math.log1p(spotShifts[i]);
+        }
+        for (double volShift : volShifts) {
+            if (Double.isNaN(volShift) || Double.isInfinite(volShift)) {
+                throw new IllegalArgumentException("Invalid volatility shift: " + volShift);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (groups[i] < 0 || groups[i] >= groupCount) {
+                throw new IllegalArgumentException("Group out of range for option " + i + ": " + groups[i]);
+            }
+        }
+        Grid grid = new Grid(inputs, terms, quantities, groups, groupCount, spotShifts, logSpotShifts, volShifts);
+        if (count <= chunkSize) {
+            return grid.evaluateRange(0, count);
+        }
+        return pool.invoke(new GridTask(grid, 0, count));
+    }
+
+    /**
+     * 一次计算的只读参数。
+     */
+    private static final class Grid {
+        final DoubleBuffer inputs;
+        final IntBuffer terms;
+        final double[] quantities;
+        final int[] groups;
+        final int groupCount;
+        final double[] spotShifts;
+        final double[] logSpotShifts;
+        final double[] volShifts;
+
+        Grid(DoubleBuffer inputs, IntBuffer terms, double[] quantities, int[] groups, int groupCount,
+                double[] spotShifts, double[] logSpotShifts, double[] volShifts) {
+            this.inputs = inputs;
+            this.terms = terms;
+            this.quantities = quantities;
+            this.groups = groups;
+            this.groupCount = groupCount;
+            this.spotShifts = spotShifts;
+            this.logSpotShifts = logSpotShifts;
+            this.volShifts = volShifts;
+        }
+
+        double[][] evaluateRange(int from, int to) {
+            int volCount = volShifts.length;
+            double[][] ladders = new double[groupCount][spotShifts.length * volCount];
+            double[] stdDevs = new double[volCount];
+            for (int k = from; k < to; k++) {
+                int in = inputs.position() + k * FXOption.BATCH_INPUT_STRIDE;
+                int term = terms.position() + k * FXOption.BATCH_TERM_STRIDE;
+                double spot = inputs.get(in);
+                double strike = inputs.get(in + 1);
+                double domesticRate = inputs.get(in + 2);
+                double foreignRate = inputs.get(in + 3);
+                double volatility = inputs.get(in + 4);
+                int days = terms.get(term + 1);
+                if (!(spot > 0.0) || !(strike > 0.0) || !(volatility >= 0.0) || days <= 0
+                        || Double.isNaN(domesticRate) || Double.isNaN(foreignRate)) {
+                    continue;
+                }
+
+                // 不随情景变化的量
+                double w = terms.get(term) == FXOption.CALL ? 1.0 : -1.0;
+                double t = days / DAYS_PER_YEAR;
+                double sqrtT = Math.sqrt(t);
+                double foreignDiscount = Math.exp(-foreignRate * t);
+                double discountedSpot = spot * foreignDiscount;
+                double discountedStrike = strike * Math.exp(-domesticRate * t);
+                double logMoneyness = Math.log(discountedSpot / discountedStrike);
+                double quantity = quantities[k];
+                for (int j = 0; j < volCount; j++) {
+                    stdDevs[j] = Math.max(volatility + volShifts[j], 0.0) * sqrtT;
+                }
+                double base = value(w, discountedSpot, discountedStrike, logMoneyness, volatility * sqrtT);
+
+                double[] ladder = ladders[groups[k]];
+                for (int i = 0; i < spotShifts.length; i++) {
+                    double shiftedSpot = discountedSpot * (1.0 + spotShifts[i]);
+                    double shiftedMoneyness = logMoneyness + logSpotShifts[i];
+                    int row = i * volCount;
+                    for (int j = 0; j < volCount; j++) {
+                        ladder[row + j] += quantity
+                                * (value(w, shiftedSpot, discountedStrike, shiftedMoneyness, stdDevs[j]) - base);
+                    }
+                }
+            }
+            return ladders;
+        }
+    }
+
+    /**
+     * Garman-Kohlhagen 价格，参数为外币贴现后的即期、本币贴现后的执行价和 ln(F/K)。
+     */
+    private static double value(double w, double discountedSpot, double discountedStrike, double logMoneyness,
+            double stdDev) {
+        if (!(stdDev > 0.0)) {
+            return Math.max(w * (discountedSpot - discountedStrike), 0.0);
+        }
+        double d1 = logMoneyness / stdDev + 0.5 * stdDev;
+        return w * (discountedSpot * GarmanKohlhagenPricer.cumulativeNormal(w * d1)
+                - discountedStrike * GarmanKohlhagenPricer.cumulativeNormal(w * (d1 - stdDev)));
+    }
+
+    private final class GridTask extends RecursiveTask<double[][]> {
+        private final Grid grid;
+        private final int from;
+        private final int to;
+
+        GridTask(Grid grid, int from, int to) {
+            this.grid = grid;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[][] compute() {
+            if (to - from <= chunkSize) {
+                return grid.evaluateRange(from, to);
+            }
+            int middle = from + (to - from) / 2;
+            GridTask left = new GridTask(grid, from, middle);
+            left.fork();
+            double[][] right = new GridTask(grid, middle, to).compute();
+            double[][] merged = left.join();
+            for (int g = 0; g < merged.length; g++) {
+                for (int c = 0; c < merged[g].length; c++) {
+                    merged[g][c] += right[g][c];
+                }
+            }
+            return merged;
+        }
+    }
+}
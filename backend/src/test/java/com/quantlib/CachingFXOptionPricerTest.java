@@ -0,0 +1,65 @@
+package com.quantlib;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingFXOptionPricerTest {
+    @Test
+    public void testCachingPricer() throws Exception {
+        CachingFXOptionPricer cache = new CachingFXOptionPricer(GarmanKohlhagenPricer.INSTANCE, 32, 1e-6, 1e-8,
+                1e-6);
+        double price = cache.calculateFXOption(FXOption.CALL, 7.15, 7.2, 0.02, 0.05, 0.08, 90);
+        assertEquals(GarmanKohlhagenPricer.INSTANCE.calculateFXOption(FXOption.CALL, 7.15, 7.2, 0.02, 0.05, 0.08,
+                90), price, 0.0);
+        // 量化格子内的输入命中缓存，返回第一次的结果；合约条款不同则不命中
+        assertEquals(price, cache.calculateFXOption(FXOption.CALL, 7.15 * (1 + 1e-8), 7.2, 0.02, 0.05, 0.08, 90),
+                0.0);
+        FXOption.Greeks greeks = cache.calculateFXOptionGreeks(FXOption.CALL, 7.15, 7.2, 0.02, 0.05, 0.08, 90);
+        assertEquals(GarmanKohlhagenPricer.INSTANCE.calculateFXOptionGreeks(FXOption.CALL, 7.15, 7.2, 0.02, 0.05,
+                0.08, 90).delta, greeks.delta, 0.0);
+        cache.calculateFXOption(FXOption.PUT, 7.15, 7.2, 0.02, 0.05, 0.08, 90);
+        cache.calculateFXOption(FXOption.CALL, 7.15, 7.2, 0.02, 0.05, 0.08, 89);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.size());
+
+        // 批量定价：第二次全部命中，结果与被包装的定价器一致
+        int count = 200;
+        DoubleBuffer inputs = FXOptionPricer.allocateDoubles(count * FXOption.BATCH_INPUT_STRIDE);
+        IntBuffer terms = FXOptionPricer.allocateInts(count * FXOption.BATCH_TERM_STRIDE);
+        for (int i = 0; i < count; i++) {
+            inputs.put(7.15).put(6.9 + (i % 10) * 0.05).put(0.02).put(0.05).put(i == 7 ? -0.1 : 0.08);
+            terms.put(i % 2 == 0 ? FXOption.CALL : FXOption.PUT).put(30 + i);
+        }
+        inputs.flip();
+        terms.flip();
+        DoubleBuffer expected = FXOptionPricer.allocateDoubles(count * FXOption.BATCH_OUTPUT_STRIDE);
+        DoubleBuffer outputs = FXOptionPricer.allocateDoubles(count * FXOption.BATCH_OUTPUT_STRIDE);
+        GarmanKohlhagenPricer.INSTANCE.calculateFXOptionBatch(count, inputs, terms, expected);
+        CachingFXOptionPricer batchCache = new CachingFXOptionPricer(GarmanKohlhagenPricer.INSTANCE, 1000, 1e-6,
+                1e-8, 1e-6);
+        assertEquals(1, batchCache.calculateFXOptionBatch(count, inputs, terms, outputs));
+        assertEquals(1, batchCache.calculateFXOptionBatch(count, inputs, terms, outputs));
+        for (int i = 0; i < count * FXOption.BATCH_OUTPUT_STRIDE; i++) {
+            assertEquals(expected.get(i), outputs.get(i), 0.0, "element " + i);
+        }
+        // 定价失败的期权不缓存，每次都重新计算
+        assertEquals(count - 1, batchCache.getHitCount());
+        assertEquals(count + 1, batchCache.getMissCount());
+
+        // 容量有限时按最近使用淘汰；估值日变化时清空
+        assertTrue(cache.size() <= 32);
+        for (int i = 0; i < 100; i++) {
+            cache.calculateFXOption(FXOption.CALL, 7.15, 7.0 + i * 0.01, 0.02, 0.05, 0.08, 90);
+        }
+        assertTrue(cache.size() <= 32);
+        assertTrue(cache.getEvictionCount() > 0);
+        assertTrue(cache.setValuationDate(java.time.LocalDate.of(2025, 1, 10)));
+        assertEquals(0, cache.size());
+        assertFalse(cache.setValuationDate(java.time.LocalDate.of(2025, 1, 10)));
+    }
+}
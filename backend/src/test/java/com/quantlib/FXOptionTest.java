@@ -1,7 +1,12 @@
 package com.quantlib;
 
 import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class FXOptionTest {
     private static final double EPSILON = 1e-10;
@@ -95,4 +100,51 @@ public class FXOptionTest {
             fail("Exception occurred: " + e.getMessage());
         }
     }
+
+    @Test
+    public void testBatchMatchesSingleCalls() {
+        assumeTrue(FXOption.isNativeAvailable(), "QuantLib native library not available");
+        System.out.println("Testing batch pricing over direct buffers...");
+
+        double[][] params = {
+                {100.0, 105.0, 0.05, 0.03, 0.15},
+                {100.0, 95.0, 0.05, 0.03, 0.20},
+                {7.10, 7.20, 0.02, 0.045, 0.05}
+        };
+        int[][] contract = {{FXOption.CALL, 365}, {FXOption.PUT, 180}, {FXOption.CALL, 30}};
+        int n = params.length;
+
+        DoubleBuffer inputs = FXOption.allocateDoubles(n * FXOption.BATCH_INPUT_STRIDE);
+        IntBuffer terms = FXOption.allocateInts(n * FXOption.BATCH_TERM_STRIDE);
+        DoubleBuffer outputs = FXOption.allocateDoubles(n * FXOption.BATCH_OUTPUT_STRIDE);
+        for (int i = 0; i < n; i++) {
+            inputs.put(params[i]);
+            terms.put(contract[i]);
+        }
+        inputs.flip();
+        terms.flip();
+
+        FXOption option = new FXOption();
+        assertEquals(0, option.calculateFXOptionBatch(n, inputs, terms, outputs));
+
+        for (int i = 0; i < n; i++) {
+            double price = option.calculateFXOption(contract[i][0], params[i][0], params[i][1],
+                    params[i][2], params[i][3], params[i][4], contract[i][1]);
+            FXOption.Greeks greeks = option.calculateFXOptionGreeks(contract[i][0], params[i][0], params[i][1],
+                    params[i][2], params[i][3], params[i][4], contract[i][1]);
+            int base = i * FXOption.BATCH_OUTPUT_STRIDE;
+            assertEquals(price, outputs.get(base), EPSILON);
+            assertEquals(greeks.delta, outputs.get(base + 1), EPSILON);
+            assertEquals(greeks.gamma, outputs.get(base + 2), EPSILON);
+            assertEquals(greeks.vega, outputs.get(base + 3), EPSILON);
+            assertEquals(greeks.theta, outputs.get(base + 4), EPSILON);
+            assertEquals(greeks.rho, outputs.get(base + 5), EPSILON);
+        }
+
+        // 堆内缓冲区不能传给本地代码
+        assertThrows(IllegalArgumentException.class,
+                () -> option.calculateFXOptionBatch(n, DoubleBuffer.allocate(n * 5), terms, outputs));
+        assertThrows(IllegalArgumentException.class,
+                () -> option.calculateFXOptionBatch(n + 1, inputs, terms, outputs));
+    }
 }
@@ -0,0 +1,103 @@
+package com.quantlib;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class GarmanKohlhagenPricerTest {
+    private static final double EPSILON = 1e-10;
+
+    @Test
+    public void testParityAndGreeks() {
+        FXOptionPricer pricer = GarmanKohlhagenPricer.INSTANCE;
+        double spot = 7.15;
+        double strike = 7.20;
+        double rd = 0.02;
+        double rf = 0.05;
+        double vol = 0.08;
+        int days = 90;
+        double tau = days / 365.0;
+
+        double call = pricer.calculateFXOption(FXOption.CALL, spot, strike, rd, rf, vol, days);
+        double put = pricer.calculateFXOption(FXOption.PUT, spot, strike, rd, rf, vol, days);
+        assertEquals(spot * Math.exp(-rf * tau) - strike * Math.exp(-rd * tau), call - put, EPSILON);
+
+        // 解析希腊字母与有限差分比较
+        for (int type : new int[] {FXOption.CALL, FXOption.PUT}) {
+            FXOption.Greeks greeks = new FXOption.Greeks();
+            pricer.calculateFXOptionGreeks(type, spot, strike, rd, rf, vol, days, greeks);
+            double h = 1e-4;
+            double up = pricer.calculateFXOption(type, spot + h, strike, rd, rf, vol, days);
+            double down = pricer.calculateFXOption(type, spot - h, strike, rd, rf, vol, days);
+            double mid = pricer.calculateFXOption(type, spot, strike, rd, rf, vol, days);
+            assertEquals((up - down) / (2 * h), greeks.delta, 1e-6);
+            assertEquals((up - 2 * mid + down) / (h * h), greeks.gamma, 1e-3);
+            assertEquals((pricer.calculateFXOption(type, spot, strike, rd, rf, vol + h, days)
+                    - pricer.calculateFXOption(type, spot, strike, rd, rf, vol - h, days)) / (2 * h), greeks.vega, 1e-6);
+            assertEquals((pricer.calculateFXOption(type, spot, strike, rd + h, rf, vol, days)
+                    - pricer.calculateFXOption(type, spot, strike, rd - h, rf, vol, days)) / (2 * h), greeks.rho, 1e-6);
+            // theta 是随日历时间流逝的变化，即对剩余期限的负导数
+            double tauUp = pricer.calculateFXOption(type, spot, strike, rd, rf, vol, days + 1);
+            double tauDown = pricer.calculateFXOption(type, spot, strike, rd, rf, vol, days - 1);
+            assertEquals(-(tauUp - tauDown) / (2 / 365.0), greeks.theta, 1e-4);
+        }
+    }
+
+    @Test
+    public void testBatchAndSelection() {
+        FXOptionPricer pricer = GarmanKohlhagenPricer.INSTANCE;
+        DoubleBuffer inputs = FXOptionPricer.allocateDoubles(2 * FXOption.BATCH_INPUT_STRIDE);
+        IntBuffer terms = FXOptionPricer.allocateInts(2 * FXOption.BATCH_TERM_STRIDE);
+        DoubleBuffer outputs = FXOptionPricer.allocateDoubles(2 * FXOption.BATCH_OUTPUT_STRIDE);
+        inputs.put(new double[] {100.0, 105.0, 0.05, 0.03, 0.15, -1.0, 105.0, 0.05, 0.03, 0.15}).flip();
+        terms.put(new int[] {FXOption.CALL, 365, FXOption.PUT, 365}).flip();
+
+        assertEquals(1, pricer.calculateFXOptionBatch(2, inputs, terms, outputs));
+        FXOption.Greeks greeks = pricer.calculateFXOptionGreeks(FXOption.CALL, 100.0, 105.0, 0.05, 0.03, 0.15, 365);
+        assertEquals(pricer.calculateFXOption(FXOption.CALL, 100.0, 105.0, 0.05, 0.03, 0.15, 365), outputs.get(0), 0.0);
+        assertEquals(greeks.delta, outputs.get(1), 0.0);
+        assertEquals(greeks.rho, outputs.get(5), 0.0);
+        assertTrue(Double.isNaN(outputs.get(6)));
+
+        String previous = System.getProperty(FXOptionPricer.PRICER_PROPERTY);
+        try {
+            System.setProperty(FXOptionPricer.PRICER_PROPERTY, "java");
+            assertSame(GarmanKohlhagenPricer.INSTANCE, FXOptionPricer.create());
+            System.setProperty(FXOptionPricer.PRICER_PROPERTY, "auto");
+            assertEquals(FXOption.isNativeAvailable(), FXOptionPricer.create() instanceof FXOption);
+        } finally {
+            if (previous == null) {
+                System.clearProperty(FXOptionPricer.PRICER_PROPERTY);
+            } else {
+                System.setProperty(FXOptionPricer.PRICER_PROPERTY, previous);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesNative() {
+        assumeTrue(FXOption.isNativeAvailable(), "QuantLib native library not available");
+        FXOption nativePricer = new FXOption();
+        FXOptionPricer javaPricer = GarmanKohlhagenPricer.INSTANCE;
+        FXOption.Greeks javaGreeks = new FXOption.Greeks();
+        for (int type : new int[] {FXOption.CALL, FXOption.PUT}) {
+            for (double strike : new double[] {6.8, 7.15, 7.6}) {
+                for (int days : new int[] {7, 90, 365, 730}) {
+                    double price = nativePricer.calculateFXOption(type, 7.15, strike, 0.02, 0.05, 0.08, days);
+                    FXOption.Greeks greeks = nativePricer.calculateFXOptionGreeks(type, 7.15, strike, 0.02, 0.05, 0.08, days);
+                    javaPricer.calculateFXOptionGreeks(type, 7.15, strike, 0.02, 0.05, 0.08, days, javaGreeks);
+                    assertEquals(price, javaPricer.calculateFXOption(type, 7.15, strike, 0.02, 0.05, 0.08, days), 1e-9);
+                    assertEquals(greeks.delta, javaGreeks.delta, 1e-9);
+                    assertEquals(greeks.gamma, javaGreeks.gamma, 1e-8);
+                    assertEquals(greeks.vega, javaGreeks.vega, 1e-8);
+                    assertEquals(greeks.theta, javaGreeks.theta, 1e-8);
+                    assertEquals(greeks.rho, javaGreeks.rho, 1e-8);
+                }
+            }
+        }
+    }
+}
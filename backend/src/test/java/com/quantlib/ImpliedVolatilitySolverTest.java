@@ -0,0 +1,78 @@
+package com.quantlib;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImpliedVolatilitySolverTest {
+    @Test
+    public void testImpliedVolatilityRoundTrip() throws Exception {
+        FXOptionPricer pricer = GarmanKohlhagenPricer.INSTANCE;
+        int count = 600;
+        DoubleBuffer prices = FXOptionPricer.allocateDoubles(count);
+        DoubleBuffer inputs = FXOptionPricer.allocateDoubles(count * FXOption.BATCH_INPUT_STRIDE);
+        IntBuffer terms = FXOptionPricer.allocateInts(count * FXOption.BATCH_TERM_STRIDE);
+        double[] expected = new double[count];
+        for (int i = 0; i < count; i++) {
+            int type = i % 2 == 0 ? FXOption.CALL : FXOption.PUT;
+            double strike = 6.5 + (i % 30) * 0.05;
+            int days = 7 + (i % 13) * 60;
+            expected[i] = 0.03 + (i % 17) * 0.02;
+            prices.put(pricer.calculateFXOption(type, 7.15, strike, 0.02, 0.05, expected[i], days));
+            // 波动率一项为 0，使用默认初始值
+            inputs.put(7.15).put(strike).put(0.02).put(0.05).put(0.0);
+            terms.put(type).put(days);
+        }
+        prices.flip();
+        inputs.flip();
+        terms.flip();
+        DoubleBuffer vols = FXOptionPricer.allocateDoubles(count);
+        IntBuffer statuses = FXOptionPricer.allocateInts(count);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ImpliedVolatilitySolver solver = new ImpliedVolatilitySolver(pricer,
+                    ImpliedVolatilitySolver.DEFAULT_ACCURACY, 100, 1e-6, 5.0, pool, 50);
+            assertEquals(0, solver.solveBatch(count, prices, inputs, terms, vols, statuses));
+            for (int i = 0; i < count; i++) {
+                assertEquals(ImpliedVolatilitySolver.CONVERGED, statuses.get(i));
+                // 深度实值/虚值的短期期权 vega 很小，按价格误差换算的波动率误差放宽
+                double vega = pricer.calculateFXOptionGreeks(terms.get(2 * i), 7.15, inputs.get(5 * i + 1), 0.02, 0.05,
+                        expected[i], terms.get(2 * i + 1)).vega;
+                double price = pricer.calculateFXOption(terms.get(2 * i), 7.15, inputs.get(5 * i + 1), 0.02, 0.05,
+                        vols.get(i), terms.get(2 * i + 1));
+                assertEquals(prices.get(i), price, 1e-9, "option " + i);
+                if (vega > 1e-3) {
+                    assertEquals(expected[i], vols.get(i), 1e-6, "option " + i);
+                }
+            }
+
+            // 无套利区间之外、输入无效的报价单独报告
+            double call = pricer.calculateFXOption(FXOption.CALL, 7.15, 7.0, 0.02, 0.05, 0.1, 90);
+            assertEquals(0.1, solver.impliedVolatility(FXOption.CALL, call, 7.15, 7.0, 0.02, 0.05, 90), 1e-8);
+            assertTrue(Double.isNaN(solver.impliedVolatility(FXOption.CALL, 7.2, 7.15, 7.0, 0.02, 0.05, 90)));
+            prices.put(0, 0.01);
+            prices.put(1, 8.0);
+            inputs.put(2 * FXOption.BATCH_INPUT_STRIDE, -1.0);
+            terms.put(1, 9);
+            terms.put(3 * FXOption.BATCH_TERM_STRIDE + 1, 0);
+            prices.put(3, 0.1);
+            int failed = solver.solveBatch(4, prices, inputs, terms, vols, statuses);
+            assertEquals(4, failed);
+            // 7 天、执行价 6.5 的看涨期权内在价值约 0.65
+            assertEquals(ImpliedVolatilitySolver.BELOW_INTRINSIC, statuses.get(0));
+            assertEquals(ImpliedVolatilitySolver.ABOVE_MAXIMUM, statuses.get(1));
+            assertEquals(ImpliedVolatilitySolver.INVALID_INPUT, statuses.get(2));
+            assertEquals(ImpliedVolatilitySolver.INVALID_INPUT, statuses.get(3));
+            assertTrue(Double.isNaN(vols.get(1)));
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+}
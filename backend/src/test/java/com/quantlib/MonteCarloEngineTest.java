@@ -0,0 +1,60 @@
+package com.quantlib;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MonteCarloEngineTest {
+    @Test
+    public void testBarrierAndAsian() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            MonteCarloEngine engine = new MonteCarloEngine(42L, 200_000, 4096, pool, true, true);
+            double vanilla = GarmanKohlhagenPricer.INSTANCE.calculateFXOption(FXOption.CALL, 7.15, 7.2, 0.02, 0.05,
+                    0.08, 90);
+
+            // 障碍远离即期时敲出期权等于欧式期权；同一组路径上敲入 + 敲出 = 欧式
+            MonteCarloEngine.Result far = engine.priceBarrier(FXOption.CALL, MonteCarloEngine.DOWN_AND_OUT, 7.15,
+                    7.2, 3.0, 0.0, 0.02, 0.05, 0.08, 90, 90);
+            assertEquals(vanilla, far.price, 1e-12);
+            assertEquals(200_000, far.paths);
+            MonteCarloEngine.Result out = engine.priceBarrier(FXOption.CALL, MonteCarloEngine.UP_AND_OUT, 7.15, 7.2,
+                    7.4, 0.0, 0.02, 0.05, 0.08, 90, 90);
+            MonteCarloEngine.Result in = engine.priceBarrier(FXOption.CALL, MonteCarloEngine.UP_AND_IN, 7.15, 7.2,
+                    7.4, 0.0, 0.02, 0.05, 0.08, 90, 90);
+            assertTrue(out.price > 0.0 && out.price < vanilla);
+            assertTrue(out.standardError > 0.0 && out.standardError < 1e-3);
+            assertEquals(vanilla, out.price + in.price, 4 * (out.standardError + in.standardError));
+
+            // 算术平均不低于几何平均；几何平均亚式作控制变量大幅降低标准误差
+            MonteCarloEngine.Result asian = engine.priceAsian(FXOption.CALL, 7.15, 7.1, 0.02, 0.05, 0.08, 180, 26);
+            double geometric = MonteCarloEngine.geometricAsianPrice(FXOption.CALL, 7.15, 7.1, 0.02, 0.05, 0.08, 180,
+                    26);
+            assertTrue(asian.price > geometric && asian.price < geometric * 1.05, asian + " vs " + geometric);
+            MonteCarloEngine.Result plain = new MonteCarloEngine(42L, 200_000, 4096, pool, false, false)
+                    .priceAsian(FXOption.CALL, 7.15, 7.1, 0.02, 0.05, 0.08, 180, 26);
+            assertEquals(asian.price, plain.price, 4 * plain.standardError);
+            assertTrue(asian.standardError * 10 < plain.standardError, asian + " vs " + plain);
+
+            // 同一种子的结果与线程数无关，换种子结果不同
+            MonteCarloEngine.Result serial = new MonteCarloEngine(42L, 200_000, 4096, single, true, true)
+                    .priceAsian(FXOption.CALL, 7.15, 7.1, 0.02, 0.05, 0.08, 180, 26);
+            assertEquals(asian.price, serial.price, 0.0);
+            assertEquals(asian.standardError, serial.standardError, 0.0);
+            MonteCarloEngine.Result reseeded = new MonteCarloEngine(7L, 200_000, 4096, pool, true, true)
+                    .priceAsian(FXOption.CALL, 7.15, 7.1, 0.02, 0.05, 0.08, 180, 26);
+            assertNotEquals(asian.price, reseeded.price);
+
+            assertThrows(IllegalArgumentException.class, () -> engine.priceBarrier(FXOption.PUT,
+                    MonteCarloEngine.DOWN_AND_IN, 7.15, 7.2, -1.0, 0.0, 0.02, 0.05, 0.08, 90, 90));
+        } finally {
+            pool.shutdown();
+            single.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.quantlib;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelFXOptionPricerTest {
+    @Test
+    public void testParallelBatchMatchesSequential() throws Exception {
+        int count = 1000;
+        DoubleBuffer inputs = FXOptionPricer.allocateDoubles(count * FXOption.BATCH_INPUT_STRIDE);
+        IntBuffer terms = FXOptionPricer.allocateInts(count * FXOption.BATCH_TERM_STRIDE);
+        for (int i = 0; i < count; i++) {
+            // 每 100 个放一个无效的即期，检查失败个数在各段之间正确累加
+            inputs.put(i % 100 == 0 ? 0.0 : 7.0 + i * 0.001).put(7.2).put(0.02).put(0.05).put(0.05 + (i % 7) * 0.01);
+            terms.put(i % 2 == 0 ? FXOption.CALL : FXOption.PUT).put(1 + i % 400);
+        }
+        inputs.flip();
+        terms.flip();
+        DoubleBuffer sequential = FXOptionPricer.allocateDoubles(count * FXOption.BATCH_OUTPUT_STRIDE);
+        DoubleBuffer parallel = FXOptionPricer.allocateDoubles(count * FXOption.BATCH_OUTPUT_STRIDE);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FXOptionPricer pricer = new ParallelFXOptionPricer(GarmanKohlhagenPricer.INSTANCE, pool, 64);
+            assertEquals(10, GarmanKohlhagenPricer.INSTANCE.calculateFXOptionBatch(count, inputs, terms, sequential));
+            assertEquals(10, pricer.calculateFXOptionBatch(count, inputs, terms, parallel));
+            assertEquals(0, inputs.position());
+            assertEquals(0, parallel.position());
+            for (int i = 0; i < count * FXOption.BATCH_OUTPUT_STRIDE; i++) {
+                assertEquals(sequential.get(i), parallel.get(i), 0.0);
+            }
+
+            // 本地库不再修改全局估值日，多线程同时调用的结果与单线程一致
+            if (FXOption.isNativeAvailable()) {
+                FXOption nativePricer = new FXOption();
+                DoubleBuffer expected = FXOptionPricer.allocateDoubles(count * FXOption.BATCH_OUTPUT_STRIDE);
+                nativePricer.calculateFXOptionBatch(count, inputs, terms, expected);
+                new ParallelFXOptionPricer(nativePricer, pool, 16).calculateFXOptionBatch(count, inputs, terms, parallel);
+                for (int i = 0; i < count * FXOption.BATCH_OUTPUT_STRIDE; i++) {
+                    assertEquals(expected.get(i), parallel.get(i), 0.0);
+                }
+            }
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+}
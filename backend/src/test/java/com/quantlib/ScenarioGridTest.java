@@ -0,0 +1,77 @@
+package com.quantlib;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScenarioGridTest {
+    @Test
+    public void testScenarioGridMatchesRepricing() throws Exception {
+        FXOptionPricer pricer = GarmanKohlhagenPricer.INSTANCE;
+        int count = 500;
+        DoubleBuffer inputs = FXOptionPricer.allocateDoubles(count * FXOption.BATCH_INPUT_STRIDE);
+        IntBuffer terms = FXOptionPricer.allocateInts(count * FXOption.BATCH_TERM_STRIDE);
+        double[] quantities = new double[count];
+        int[] groups = new int[count];
+        for (int i = 0; i < count; i++) {
+            inputs.put(7.15).put(6.8 + (i % 15) * 0.05).put(0.02).put(0.05).put(0.04 + (i % 7) * 0.01);
+            terms.put(i % 2 == 0 ? FXOption.CALL : FXOption.PUT).put(i % 50 == 0 ? 0 : 10 + (i % 11) * 30);
+            quantities[i] = (i % 3 == 0 ? -1 : 1) * 1000000.0;
+            groups[i] = i % 3;
+        }
+        inputs.flip();
+        terms.flip();
+        double[] spotShifts = new double[21];
+        for (int i = 0; i < spotShifts.length; i++) {
+            spotShifts[i] = -0.10 + i * 0.01;
+        }
+        double[] volShifts = {-0.05, -0.02, 0.0, 0.02, 0.05};
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            double[][] ladders = new ScenarioGrid(pool, 16).evaluate(count, inputs, terms, quantities, groups, 3,
+                    spotShifts, volShifts);
+            assertEquals(3, ladders.length);
+            assertEquals(spotShifts.length * volShifts.length, ladders[0].length);
+
+            // 与逐个期权重新定价的结果一致；已到期的期权不计入
+            double[][] expected = new double[3][spotShifts.length * volShifts.length];
+            for (int k = 0; k < count; k++) {
+                int type = terms.get(2 * k);
+                int days = terms.get(2 * k + 1);
+                if (days <= 0) {
+                    continue;
+                }
+                double strike = inputs.get(5 * k + 1);
+                double vol = inputs.get(5 * k + 4);
+                double base = pricer.calculateFXOption(type, 7.15, strike, 0.02, 0.05, vol, days);
+                for (int i = 0; i < spotShifts.length; i++) {
+                    for (int j = 0; j < volShifts.length; j++) {
+                        double shifted = pricer.calculateFXOption(type, 7.15 * (1 + spotShifts[i]), strike, 0.02,
+                                0.05, Math.max(vol + volShifts[j], 0.0), days);
+                        expected[groups[k]][i * volShifts.length + j] += quantities[k] * (shifted - base);
+                    }
+                }
+            }
+            for (int g = 0; g < 3; g++) {
+                for (int c = 0; c < expected[g].length; c++) {
+                    assertEquals(expected[g][c], ladders[g][c], 1e-6 * Math.max(1.0, Math.abs(expected[g][c])),
+                            "group " + g + " cell " + c);
+                }
+                // 基准情景（即期、波动率都不变）的损益为 0
+                assertEquals(0.0, ladders[g][10 * volShifts.length + 2], 0.0);
+            }
+
+            assertThrows(IllegalArgumentException.class, () -> new ScenarioGrid().evaluate(1, inputs, terms,
+                    quantities, groups, 3, new double[] {-1.0}, volShifts));
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+}
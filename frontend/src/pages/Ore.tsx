@@ -365,185 +365,72 @@ const Ore: React.FC = () => {
                 setResult(prev => prev + '输出文件保存完成\n');
                 message.success('Ore execution completed and output files saved');
             } else {
-                // EOD模式：依次在EOD Batch和SOD Batch目录运行
-                // 1. 清理工作目录
-                setResult('正在清理 EOD/SOD Batch 输出目录...\n');
-                console.log('Cleaning working directories...');
-                const cleanEodResponse = await fetch(`${API_BASE_URL}/api/ore/clean-directory`, {
-                    method: 'POST',
-                    headers: {
-                        'Content-Type': 'application/json'
-                    },
-                    body: JSON.stringify({
-                        directory: workingDir
-                    })
-                });
-
-                if (!cleanEodResponse.ok) {
-                    throw new Error(`Failed to clean EOD directory: ${cleanEodResponse.status}`);
-                }
-
-                const cleanSodResponse = await fetch(`${API_BASE_URL}/api/ore/clean-directory`, {
-                    method: 'POST',
-                    headers: {
-                        'Content-Type': 'application/json'
-                    },
-                    body: JSON.stringify({
-                        directory: sodWorkingDir
-                    })
-                });
-
-                if (!cleanSodResponse.ok) {
-                    throw new Error(`Failed to clean SOD directory: ${cleanSodResponse.status}`);
-                }
-                setResult(prev => prev + '输出目录清理完成\n\n');
-
-                // 2. 运行EOD Batch
-                setResult(prev => prev + '=== EOD Batch 执行结果 ===\n开始运行 EOD Batch...\n');
-                console.log('Running ORE in EOD Batch directory:', workingDir);
-                const eodResponse = await fetch(`${API_BASE_URL}/api/ore/run`, {
-                    method: 'POST',
-                    headers: {
-                        'Content-Type': 'application/json'
-                    },
-                    body: JSON.stringify({
-                        workingDir,
-                        date: selectedDate.format('YYYY-MM-DD'),
-                        isLive,
-                        marketFile: selectedMarketFile,
-                        marketDataPath: MARKET_DATA_PATH
-                    })
-                });
-
-                if (!eodResponse.ok) {
-                    throw new Error(`EOD Batch execution failed: ${eodResponse.status}`);
-                }
-
-                // 处理EOD Batch结果
-                const eodReader = eodResponse.body?.getReader();
-                if (!eodReader) {
-                    throw new Error('EOD response body is not readable');
-                }
-
-                let eodBuffer = '';
-                const decoder = new TextDecoder();
-
-                while (true) {
-                    const { done, value } = await eodReader.read();
-                    if (done) break;
-                    
-                    // 将新接收的数据添加到缓冲区
-                    eodBuffer += decoder.decode(value, { stream: true });
-                    
-                    // 查找完整的行
-                    const lines = eodBuffer.split('\n');
-                    // 保留最后一个可能不完整的行
-                    eodBuffer = lines.pop() || '';
-                    
-                    // 处理完整的行
-                    if (lines.length > 0) {
-                        setResult(prev => prev + lines.map(formatLine).join('\n') + '\n');
-                    }
-                }
-
-                // 处理剩余的缓冲区
-                if (eodBuffer) {
-                    setResult(prev => prev + formatLine(eodBuffer) + '\n');
-                }
-
-                // 保存EOD Batch输出文件
-                setResult(prev => prev + '\n正在保存 EOD Batch 输出文件...\n');
+                // EOD模式：由服务端流水线在独立的工作副本中并行运行 EOD 和 SOD Batch，
+                // 清理、运行和保存均在服务端完成，关闭页面不会中断流程
                 const eodDate = selectedDate.format('YYYYMMDD');
                 const eodTargetDir = `E:\\CursorAI\\OreResults\\EodBatch\\${eodDate}\\EOD`;
-                console.log('Saving EOD Batch output files to:', eodTargetDir);
-                const saveEodResponse = await fetch(`${API_BASE_URL}/api/ore/save-output`, {
-                    method: 'POST',
-                    headers: {
-                        'Content-Type': 'application/json'
-                    },
-                    body: JSON.stringify({
-                        sourceDir: workingDir,
-                        targetDir: eodTargetDir
-                    })
-                });
-
-                if (!saveEodResponse.ok) {
-                    throw new Error(`Failed to save EOD Batch output files: ${saveEodResponse.status}`);
-                }
-                setResult(prev => prev + 'EOD Batch 输出文件保存完成\n\n');
+                const sodDate = getNextBusinessDay(selectedDate).format('YYYYMMDD');  // 使用 SOD Batch 的日期
+                const sodTargetDir = `E:\\CursorAI\\OreResults\\EodBatch\\${sodDate}\\SOD`;
 
-                // 3. 运行SOD Batch
-                setResult(prev => prev + '=== SOD Batch 执行结果 ===\n开始运行 SOD Batch...\n');
-                console.log('Running ORE in SOD Batch directory:', sodWorkingDir);
-                const sodResponse = await fetch(`${API_BASE_URL}/api/ore/run`, {
+                setResult('正在提交 EOD/SOD Batch 流水线...\n');
+                const submitResponse = await fetch(`${API_BASE_URL}/api/ore/pipeline`, {
                     method: 'POST',
                     headers: {
                         'Content-Type': 'application/json'
                     },
                     body: JSON.stringify({
-                        workingDir: sodWorkingDir,
-                        date: selectedDate.format('YYYY-MM-DD'),
-                        isLive,
-                        marketFile: selectedMarketFile,
-                        marketDataPath: MARKET_DATA_PATH
+                        legs: [
+                            { name: 'EOD', workingDir, targetDir: eodTargetDir },
+                            { name: 'SOD', workingDir: sodWorkingDir, targetDir: sodTargetDir }
+                        ]
                     })
                 });
-
-                if (!sodResponse.ok) {
-                    throw new Error(`SOD Batch execution failed: ${sodResponse.status}`);
-                }
-
-                // 处理SOD Batch结果
-                const sodReader = sodResponse.body?.getReader();
-                if (!sodReader) {
-                    throw new Error('SOD response body is not readable');
+                const submitData = await submitResponse.json();
+                if (!submitResponse.ok || submitData.status !== 'success') {
+                    throw new Error(`Failed to submit EOD/SOD pipeline: ${submitData.message || submitResponse.status}`);
                 }
-
-                let sodBuffer = '';
-
-                while (true) {
-                    const { done, value } = await sodReader.read();
-                    if (done) break;
-                    
-                    // 将新接收的数据添加到缓冲区
-                    sodBuffer += decoder.decode(value, { stream: true });
-                    
-                    // 查找完整的行
-                    const lines = sodBuffer.split('\n');
-                    // 保留最后一个可能不完整的行
-                    sodBuffer = lines.pop() || '';
-                    
-                    // 处理完整的行
-                    if (lines.length > 0) {
-                        setResult(prev => prev + lines.map(formatLine).join('\n') + '\n');
+                const pipelineId = submitData.pipelineId;
+                setResult(prev => prev + `流水线已提交 (${pipelineId})，EOD 和 SOD Batch 并行运行中...\n\n`);
+
+                // 轮询流水线状态，直到所有 leg 结束
+                let pipeline = submitData.pipeline;
+                const lastStatus: Record<string, string> = {};
+                while (pipeline.status === 'RUNNING') {
+                    await new Promise(resolve => setTimeout(resolve, 2000));
+                    const statusResponse = await fetch(`${API_BASE_URL}/api/ore/pipeline/${pipelineId}`);
+                    if (!statusResponse.ok) {
+                        throw new Error(`Failed to query pipeline status: ${statusResponse.status}`);
+                    }
+                    pipeline = (await statusResponse.json()).pipeline;
+                    for (const leg of pipeline.legs) {
+                        if (lastStatus[leg.name] !== leg.status) {
+                            lastStatus[leg.name] = leg.status;
+                            setResult(prev => prev + `${leg.name} Batch: ${leg.status}\n`);
+                        }
                     }
                 }
 
-                // 处理剩余的缓冲区
-                if (sodBuffer) {
-                    setResult(prev => prev + formatLine(sodBuffer) + '\n');
+                // 显示各 leg 的 ORE 输出
+                for (const leg of pipeline.legs) {
+                    setResult(prev => prev + `\n=== ${leg.name} Batch 执行结果 ===\n`);
+                    if (leg.jobId) {
+                        const jobResponse = await fetch(`${API_BASE_URL}/api/ore/jobs/${leg.jobId}/result`);
+                        if (jobResponse.ok) {
+                            const jobData = await jobResponse.json();
+                            const lines: string[] = (jobData.output || '').split('\n').filter((line: string) => line);
+                            setResult(prev => prev + lines.map(formatLine).join('\n') + '\n');
+                        }
+                    }
+                    setResult(prev => prev + `${leg.message || leg.status}\n`);
                 }
 
-                // 保存SOD Batch输出文件
-                setResult(prev => prev + '\n正在保存 SOD Batch 输出文件...\n');
-                const sodDate = getNextBusinessDay(selectedDate).format('YYYYMMDD');  // 使用 SOD Batch 的日期
-                const sodTargetDir = `E:\\CursorAI\\OreResults\\EodBatch\\${sodDate}\\SOD`;
-                console.log('Saving SOD Batch output files to:', sodTargetDir);
-                const saveSodResponse = await fetch(`${API_BASE_URL}/api/ore/save-output`, {
-                    method: 'POST',
-                    headers: {
-                        'Content-Type': 'application/json'
-                    },
-                    body: JSON.stringify({
-                        sourceDir: sodWorkingDir,
-                        targetDir: sodTargetDir
-                    })
-                });
-
-                if (!saveSodResponse.ok) {
-                    throw new Error(`Failed to save SOD Batch output files: ${saveSodResponse.status}`);
+                if (pipeline.status !== 'SUCCEEDED') {
+                    throw new Error('EOD/SOD pipeline failed: ' + pipeline.legs
+                        .filter((leg: { status: string }) => leg.status !== 'SUCCEEDED')
+                        .map((leg: { name: string; message?: string }) => `${leg.name}: ${leg.message}`)
+                        .join('; '));
                 }
-                setResult(prev => prev + 'SOD Batch 输出文件保存完成\n\n');
+                setResult(prev => prev + '\n');
 
                 // 添加输出文件保存位置信息
                 setResult(prev => prev + '=== 输出文件保存位置 ===\n' +